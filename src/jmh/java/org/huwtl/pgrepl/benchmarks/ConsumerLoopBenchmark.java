@@ -0,0 +1,140 @@
+package org.huwtl.pgrepl.benchmarks;
+
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureConsumer;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
+import org.huwtl.pgrepl.application.services.publisher.CountingPublisher;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStream;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.huwtl.pgrepl.ObjectMapperFactory.objectMapper;
+import static org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy.SPIN_THEN_PARK;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsumerLoopBenchmark {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events");
+    private static final int ROWS_PER_TRANSACTION = 1000;
+
+    @Param({"4", "16"})
+    int columns;
+
+    private InMemoryReplicationStream replicationStream;
+    private ChangeDataCaptureConsumer consumer;
+    private long transactionsRequested;
+
+    @Setup
+    public void setUp() throws SQLException {
+        var replicationConfig = ReplicationConfiguration.builder()
+                .slotName("benchmark")
+                .tableToDetectChangesFrom(TABLE)
+                .idleWaitStrategy(SPIN_THEN_PARK)
+                .build();
+        replicationStream = new InMemoryReplicationStream(
+                new Wal2JsonMessageDecoder(objectMapper(), replicationConfig.tablesToDetectChangesFrom()),
+                Wal2JsonPayloads.transaction(1, ROWS_PER_TRANSACTION, columns, List.of(TABLE))
+        );
+        consumer = new ChangeDataCaptureConsumer(
+                Map.of(TABLE, AsyncPublisher.blocking(new CountingPublisher())),
+                replicationConfig,
+                () -> replicationStream
+        );
+        consumer.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        consumer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public long consumeTransaction() {
+        var commitLsn = replicationStream.request(++transactionsRequested);
+        while (replicationStream.acknowledgedLsn() < commitLsn) {
+            Thread.yield();
+        }
+        return commitLsn;
+    }
+
+    private static class InMemoryReplicationStream implements ReplicationStream {
+        private final Wal2JsonMessageDecoder decoder;
+        private final List<ByteBuffer> transaction;
+        private final AtomicLong transactionsRequested = new AtomicLong();
+        private final AtomicLong acknowledgedLsn = new AtomicLong(-1);
+        private long transactionsDelivered;
+        private int nextMessage;
+
+        InMemoryReplicationStream(Wal2JsonMessageDecoder decoder, List<ByteBuffer> transaction) {
+            this.decoder = decoder;
+            this.transaction = transaction;
+        }
+
+        long request(long transactions) {
+            transactionsRequested.set(transactions);
+            return lsn(transactions - 1, transaction.size() - 1);
+        }
+
+        long acknowledgedLsn() {
+            return acknowledgedLsn.get();
+        }
+
+        @Override
+        public void processNextChangeDataCaptureMessage(
+                Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage,
+                Consumer<NoMessage> onNoMessage) throws IOException {
+            if (transactionsDelivered == transactionsRequested.get()) {
+                onNoMessage.accept(new NoMessage());
+                return;
+            }
+            var message = decoder.decode(transaction.get(nextMessage), lsn(transactionsDelivered, nextMessage));
+            if (++nextMessage == transaction.size()) {
+                nextMessage = 0;
+                transactionsDelivered++;
+            }
+            onChangeDataCaptureMessage.accept(message);
+        }
+
+        @Override
+        public void acknowledge(long lsn) {
+            acknowledgedLsn.set(lsn);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private long lsn(long transactionNumber, int message) {
+            return transactionNumber * transaction.size() + message + 1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.huwtl.pgrepl.benchmarks;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.infrastructure.decoding.ParallelDecodePipeline;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.huwtl.pgrepl.ObjectMapperFactory.objectMapper;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelDecodeBenchmark {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events");
+    private static final int ROWS_PER_TRANSACTION = 1000;
+
+    @Param({"1", "2", "4", "8"})
+    int workers;
+
+    @Param({"16", "64"})
+    int columns;
+
+    private ParallelDecodePipeline pipeline;
+    private List<ByteBuffer> transaction;
+    private Blackhole blackhole;
+    private ParallelDecodePipeline.DecodedMessageHandler onDecodedMessage;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        pipeline = new ParallelDecodePipeline(
+                () -> new Wal2JsonMessageDecoder(objectMapper(), List.of(TABLE)),
+                workers,
+                1024
+        );
+        transaction = Wal2JsonPayloads.transaction(1, ROWS_PER_TRANSACTION, columns, List.of(TABLE));
+        onDecodedMessage = (message, lsn, bytes, decodeNanos) -> this.blackhole.consume(message);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void decodeTransaction() throws IOException {
+        var read = 0;
+        while (read < transaction.size() || !pipeline.empty()) {
+            while (read < transaction.size() && !pipeline.full()) {
+                pipeline.decode(transaction.get(read), read);
+                read++;
+            }
+            pipeline.next(onDecodedMessage, blackhole::consume);
+        }
+    }
+}
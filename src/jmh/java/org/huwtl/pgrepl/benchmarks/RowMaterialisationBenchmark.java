@@ -0,0 +1,77 @@
+package org.huwtl.pgrepl.benchmarks;
+
+import org.huwtl.pgrepl.application.services.publisher.Data;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.huwtl.pgrepl.ObjectMapperFactory.objectMapper;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMaterialisationBenchmark {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events");
+
+    @Param({"4", "16", "64"})
+    int columns;
+
+    private Wal2JsonMessageDecoder decoder;
+    private ByteBuffer insert;
+    private Data row;
+
+    @Setup
+    public void setUp() throws IOException {
+        decoder = new Wal2JsonMessageDecoder(objectMapper(), List.of(TABLE));
+        insert = Wal2JsonPayloads.buffer(Wal2JsonPayloads.insert(TABLE, 1, columns));
+        row = decoder.decode(insert, 0).capturedInserts().get(0).data();
+    }
+
+    @Benchmark
+    public Data decodeRow() throws IOException {
+        return decoder.decode(insert, 0).capturedInserts().get(0).data();
+    }
+
+    @Benchmark
+    public void readRowAsMap(Blackhole blackhole) {
+        for (var entry : row.all().entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void readRowByIndex(Blackhole blackhole) {
+        var schema = row.schema();
+        for (var index = 0; index < row.size(); index++) {
+            if (row.isNull(index)) {
+                continue;
+            }
+            switch (schema.type(index)) {
+                case INTEGER -> blackhole.consume(row.getLong(index));
+                case FLOAT -> blackhole.consume(row.getDouble(index));
+                case BOOLEAN -> blackhole.consume(row.getBoolean(index));
+                default -> blackhole.consume(row.value(index));
+            }
+        }
+    }
+}
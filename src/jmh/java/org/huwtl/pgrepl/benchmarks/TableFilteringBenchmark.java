@@ -0,0 +1,77 @@
+package org.huwtl.pgrepl.benchmarks;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.huwtl.pgrepl.ObjectMapperFactory.objectMapper;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableFilteringBenchmark {
+    private static final int MESSAGES = 1000;
+    private static final int COLUMNS = 16;
+
+    @Param({"0.0", "0.1", "0.5", "1.0"})
+    double matchRatio;
+
+    @Param({"1", "16"})
+    int capturedTables;
+
+    private Wal2JsonMessageDecoder decoder;
+    private List<ByteBuffer> messages;
+
+    @Setup
+    public void setUp() {
+        var captured = tables("captured", capturedTables);
+        var uncaptured = tables("uncaptured", capturedTables);
+        decoder = new Wal2JsonMessageDecoder(objectMapper(), captured);
+        messages = new ArrayList<>(MESSAGES);
+        var matches = 0;
+        for (var index = 0; index < MESSAGES; index++) {
+            var match = matches < Math.round(matchRatio * (index + 1));
+            if (match) {
+                matches++;
+            }
+            var tables = match ? captured : uncaptured;
+            messages.add(Wal2JsonPayloads.buffer(Wal2JsonPayloads.insert(tables.get(index % tables.size()), index, COLUMNS)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void decodeMixedTables(Blackhole blackhole) throws IOException {
+        for (var index = 0; index < MESSAGES; index++) {
+            blackhole.consume(decoder.decode(messages.get(index), index));
+        }
+    }
+
+    private static List<CapturedTable> tables(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> new CapturedTable("public", prefix + "_" + index))
+                .toList();
+    }
+}
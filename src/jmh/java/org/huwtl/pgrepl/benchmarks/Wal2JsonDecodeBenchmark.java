@@ -0,0 +1,55 @@
+package org.huwtl.pgrepl.benchmarks;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.huwtl.pgrepl.ObjectMapperFactory.objectMapper;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Wal2JsonDecodeBenchmark {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events");
+
+    @Param({"1", "100", "1000"})
+    int rowsPerTransaction;
+
+    @Param({"4", "16", "64"})
+    int columns;
+
+    private Wal2JsonMessageDecoder decoder;
+    private List<ByteBuffer> transaction;
+
+    @Setup
+    public void setUp() {
+        decoder = new Wal2JsonMessageDecoder(objectMapper(), List.of(TABLE));
+        transaction = Wal2JsonPayloads.transaction(1, rowsPerTransaction, columns, List.of(TABLE));
+    }
+
+    @Benchmark
+    public void decodeTransaction(Blackhole blackhole) throws IOException {
+        for (var index = 0; index < transaction.size(); index++) {
+            blackhole.consume(decoder.decode(transaction.get(index), index));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.huwtl.pgrepl.benchmarks;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.infrastructure.replay.Wal2JsonMessageGenerator;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class Wal2JsonPayloads {
+    private Wal2JsonPayloads() {
+    }
+
+    static List<ByteBuffer> transaction(long xid, int rows, int columns, List<CapturedTable> tablesOfRows) {
+        return Wal2JsonMessageGenerator.transaction(xid, rows, columns, tablesOfRows).stream()
+                .map(Wal2JsonPayloads::buffer)
+                .toList();
+    }
+
+    static String insert(CapturedTable table, long id, int columns) {
+        return Wal2JsonMessageGenerator.insert(table, id, columns);
+    }
+
+    static ByteBuffer buffer(String json) {
+        return ByteBuffer.wrap(json.getBytes(UTF_8));
+    }
+}
@@ -1,35 +1,160 @@
 package org.huwtl.pgrepl;
 
+import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.tools.picocli.CommandLine;
+import org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy;
+import org.huwtl.pgrepl.ReplicationConfiguration.OutputPlugin;
 import org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureConsumer;
+import org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureSupervisor;
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
+import org.huwtl.pgrepl.application.services.publisher.BatchingPublisher;
+import org.huwtl.pgrepl.application.services.publisher.CompactingPublisher;
 import org.huwtl.pgrepl.application.services.publisher.CountingPublisher;
-import org.huwtl.pgrepl.infrastructure.postgres.PostgresReplicationStream;
+import org.huwtl.pgrepl.application.services.publisher.PartitionedPublisher;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider;
+import org.huwtl.pgrepl.infrastructure.filesink.FileSinkConfiguration;
+import org.huwtl.pgrepl.infrastructure.filesink.FileSinkPublisher;
+import org.huwtl.pgrepl.infrastructure.metrics.GcPauseRecorder;
+import org.huwtl.pgrepl.infrastructure.metrics.HttpMetricsExporter;
+import org.huwtl.pgrepl.infrastructure.metrics.JmxMetricsExporter;
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresReplicationSlot;
+import org.huwtl.pgrepl.infrastructure.postgres.ReplicationCheckpointFile;
+import org.huwtl.pgrepl.infrastructure.replay.ReplayConfiguration;
+import org.huwtl.pgrepl.infrastructure.replay.ReplayReplicationStreamProvider;
+import org.huwtl.pgrepl.infrastructure.replay.Wal2JsonMessageGenerator;
+import org.huwtl.pgrepl.infrastructure.snapshot.InitialSnapshot;
+import org.huwtl.pgrepl.infrastructure.snapshot.SnapshotConfiguration;
+import org.huwtl.pgrepl.infrastructure.spool.SpoolConfiguration;
+import org.huwtl.pgrepl.infrastructure.spool.SpoolLog;
+import org.huwtl.pgrepl.infrastructure.spool.SpoolReplicationStream;
+import org.huwtl.pgrepl.infrastructure.spool.SpoolWriter;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
 import static org.apache.logging.log4j.core.tools.picocli.CommandLine.Command;
 import static org.apache.logging.log4j.core.tools.picocli.CommandLine.Option;
 
 @SuppressWarnings("unused")
 @Command(name = "Postgres replication test application")
 public class Application implements Runnable {
-    @Option(names = "--port", required = true, description = "database port")
+    private static final Logger LOGGER = getLogger();
+    private static final int MIN_FILE_SINK_RECORD_BYTES = 64;
+    private static final int MAX_FILE_SINK_PUBLISHES_PER_GROUP_COMMIT = 8192;
+
+    @Option(names = "--port", description = "database port, required unless replaying")
     private String databasePort;
-    @Option(names = "--host", required = true, description = "database host")
+    @Option(names = "--host", description = "database host, required unless replaying")
     private String databaseHost;
-    @Option(names = "--database", required = true, description = "database name")
+    @Option(names = "--database", description = "database name, required unless replaying")
     private String databaseName;
-    @Option(names = "--user", required = true, description = "database user")
+    @Option(names = "--user", description = "database user, required unless replaying")
     private String databaseUser;
-    @Option(names = "--password", required = true, description = "database password")
+    @Option(names = "--password", description = "database password, required unless replaying")
     private String databasePassword;
-    @Option(names = "--slot", required = true, description = "replication slot name")
+    @Option(names = "--slot", description = "replication slot name, required unless supervising")
     private String replicationSlotName;
-    @Option(names = "--schema", required = true, description = "database schema to detect changes from")
-    private String databaseSchemaNameToDetectChangesFrom;
-    @Option(names = "--table", required = true, description = "database table to detect changes from")
-    private String databaseTableNameToDetectChangesFrom;
+    @Option(names = "--schema", description = "database schema of tables not qualified with a schema")
+    private String databaseSchemaNameToDetectChangesFrom = "public";
+    @Option(names = "--table", description = "database table, or schema.table, to detect changes from (repeatable)")
+    private List<String> databaseTableNamesToDetectChangesFrom;
+    @Option(names = "--row-filter", description = "table=predicate only publishing matching rows, e.g. orders=status = 'ACTIVE' (repeatable)")
+    private Map<String, String> rowPredicatesByTable = new LinkedHashMap<>();
+    @Option(names = "--idle-wait-strategy", description = "FIXED_INTERVAL, EXPONENTIAL_BACKOFF up to the polling interval, or SPIN_THEN_PARK")
+    private IdleWaitStrategy idleWaitStrategy = IdleWaitStrategy.FIXED_INTERVAL;
+    @Option(names = "--output-plugin", description = "WAL2JSON or PGOUTPUT logical decoding output plugin")
+    private OutputPlugin outputPlugin = OutputPlugin.WAL2JSON;
+    @Option(names = "--publication", description = "publication streamed by pgoutput, defaults to the slot name")
+    private String publicationName;
+    @Option(names = "--partition-key", description = "column to partition parallel publishing by")
+    private String partitionKeyColumn;
+    @Option(names = "--publisher-lanes", description = "number of parallel publishing lanes when partitioning")
+    private int publisherLanes = Runtime.getRuntime().availableProcessors();
+    @Option(names = "--publisher-lane-capacity", description = "maximum queued publishes per publishing lane")
+    private int publisherLaneCapacity = 1000;
+    @Option(names = "--batch-max-rows", description = "publish in batches of at most this many rows")
+    private int batchMaxRows;
+    @Option(names = "--batch-max-bytes", description = "maximum estimated size of a batch in bytes")
+    private long batchMaxBytes = 1024 * 1024;
+    @Option(names = "--batch-linger-millis", description = "maximum time a row waits in a batch before publishing")
+    private long batchLingerInMillis = 100;
+    @Option(names = "--compact-key", description = "column identifying rows whose changes are compacted to their latest state")
+    private String compactionKeyColumn;
+    @Option(names = "--compact-window-millis", description = "time changes are compacted for before publishing, per transaction when 0")
+    private long compactionWindowInMillis;
+    @Option(names = "--compact-max-changes", description = "changes compacted before publishing early, bounding compaction memory")
+    private int compactionMaxChanges = 10_000;
+    @Option(names = "--max-in-flight-publishes", description = "maximum publishes awaiting completion")
+    private int maxInFlightPublishes = 100;
+    @Option(names = "--max-in-flight-bytes", description = "estimated bytes of rows awaiting publish before reading pauses")
+    private long maxInFlightBytes = 64 * 1024 * 1024;
+    @Option(names = "--max-reconnect-backoff-millis", description = "maximum delay between reconnect attempts")
+    private long maxReconnectBackoffInMillis = 30000;
+    @Option(names = "--metrics-port", description = "local port to serve metrics over HTTP from, disabled when 0")
+    private int metricsPort;
+    @Option(names = "--sink-dir", description = "publish each table to rotating segment files under this directory")
+    private Path fileSinkDirectory;
+    @Option(names = "--sink-format", description = "BINARY length prefixed or NDJSON records written to the file sink")
+    private FileSinkConfiguration.Format fileSinkFormat = FileSinkConfiguration.Format.BINARY;
+    @Option(names = "--sink-segment-bytes", description = "size of each pre-allocated file sink segment")
+    private int fileSinkSegmentSizeInBytes = 64 * 1024 * 1024;
+    @Option(names = "--sink-group-commit-millis", description = "maximum time file sink records wait to be synced to disk")
+    private long fileSinkGroupCommitIntervalInMillis = 10;
+    @Option(names = "--sink-group-commit-bytes", description = "file sink bytes written that trigger an early sync")
+    private long fileSinkGroupCommitBytes = 4 * 1024 * 1024;
+    @Option(names = "--supervise", description = "consume from every slot described in this JSON file")
+    private Path supervisorConfigFile;
+    @Option(names = "--spool-dir", description = "spool changes durably to this directory before publishing")
+    private Path spoolDirectory;
+    @Option(names = "--spool-segment-bytes", description = "size of each memory-mapped spool segment")
+    private int spoolSegmentSizeInBytes = 64 * 1024 * 1024;
+    @Option(names = "--spool-group-commit-millis", description = "maximum time spooled changes wait to be synced to disk")
+    private long spoolGroupCommitIntervalInMillis = 10;
+    @Option(names = "--snapshot", description = "publish a consistent snapshot of the tables before streaming changes")
+    private boolean snapshot;
+    @Option(names = "--snapshot-connections", description = "parallel connections reading the initial snapshot")
+    private int snapshotConnections = 4;
+    @Option(names = "--snapshot-chunk-rows", description = "approximate rows read per initial snapshot chunk")
+    private long snapshotChunkRows = 100_000;
+    @Option(names = "--snapshot-checkpoint-file", description = "initial snapshot progress file, defaults to <slot>.snapshot")
+    private Path snapshotCheckpointFile;
+    @Option(names = "--checkpoint-dir", description = "record published positions under this directory to skip them after restarting")
+    private Path checkpointDirectory;
+    @Option(names = "--checkpoint-interval-millis", description = "maximum time a published position waits to be recorded")
+    private long checkpointIntervalInMillis = 100;
+    @Option(names = "--decode-workers", description = "decode wal2json messages on this many threads, on the reading thread when 0")
+    private int decodeWorkers;
+    @Option(names = "--decode-queue-depth", description = "maximum messages read ahead of the oldest one still decoding")
+    private int decodeQueueDepth = 1024;
+    @Option(names = "--replay-file", description = "replay wal2json messages from this file instead of a database")
+    private Path replayFile;
+    @Option(names = "--replay-messages-per-second", description = "rate to replay messages at, flat out when 0")
+    private long replayMessagesPerSecond;
+    @Option(names = "--replay-keepalive-millis", description = "interval between replayed keepalives, none when 0")
+    private long replayKeepaliveIntervalInMillis = 1000;
+    @Option(names = "--replay-duration-seconds", description = "how long to replay for before reporting throughput")
+    private long replayDurationInSeconds = 60;
+    @Option(names = "--generate-transactions", description = "first overwrite the replay file with this many synthetic transactions")
+    private int generatedTransactions;
+    @Option(names = "--generate-rows-per-transaction", description = "rows in each synthetic transaction")
+    private int generatedRowsPerTransaction = 100;
+    @Option(names = "--generate-columns", description = "columns in each synthetic row")
+    private int generatedColumns = 8;
 
     public static void main(String[] args) {
         CommandLine.run(new Application(), System.out, args);
@@ -37,26 +162,333 @@ public class Application implements Runnable {
 
     @Override
     public void run() {
-        var databaseConfig = DatabaseConfiguration.builder()
+        if (fileSinkDirectory != null && (batchMaxRows > 0 || partitionKeyColumn != null)
+                || batchMaxRows > 0 && partitionKeyColumn != null) {
+            throw new IllegalArgumentException("--sink-dir, --batch-max-rows and --partition-key cannot be combined");
+        }
+        if (supervisorConfigFile != null) {
+            supervise();
+            return;
+        }
+        if (replicationSlotName == null || databaseTableNamesToDetectChangesFrom == null) {
+            throw new IllegalArgumentException("--slot and --table are required unless supervising with --supervise");
+        }
+        if (snapshot && (replayFile != null || spoolDirectory != null)) {
+            throw new IllegalArgumentException("--snapshot cannot be combined with --replay-file or --spool-dir");
+        }
+        if (spoolDirectory != null && outputPlugin != OutputPlugin.WAL2JSON) {
+            throw new IllegalArgumentException("--spool-dir only supports the WAL2JSON output plugin");
+        }
+        var replicationConfigBuilder = replicationConfigurationDefaults()
+                .slotName(replicationSlotName)
+                .publicationName(publicationName);
+        databaseTableNamesToDetectChangesFrom.forEach(table -> replicationConfigBuilder.tableToDetectChangesFrom(
+                CapturedTable.parse(table, databaseSchemaNameToDetectChangesFrom)
+        ));
+        rowPredicatesByTable.forEach((table, predicate) -> replicationConfigBuilder.rowPredicate(
+                CapturedTable.parse(table, databaseSchemaNameToDetectChangesFrom),
+                predicate
+        ));
+        var replicationConfig = replicationConfigBuilder.build();
+        var publishersByTable = new LinkedHashMap<CapturedTable, AsyncPublisher>();
+        var metricsExporters = new ArrayList<AutoCloseable>();
+        try (var metricsRegistry = new MetricsRegistry()) {
+            metricsExporters.add(new JmxMetricsExporter(metricsRegistry, replicationSlotName));
+            if (metricsPort > 0) {
+                metricsExporters.add(new HttpMetricsExporter(metricsRegistry, metricsPort));
+            }
+            metricsRegistry.startSamplingRates();
+            var metrics = new ReplicationMetrics(metricsRegistry);
+            for (var table : replicationConfig.tablesToDetectChangesFrom()) {
+                publishersByTable.put(table, publisher(replicationSlotName, table, metrics));
+            }
+            if (replayFile != null) {
+                replay(publishersByTable, replicationConfig, metrics);
+            } else if (spoolDirectory != null) {
+                spoolAndConsume(publishersByTable, databaseConfiguration(), replicationConfig, metrics);
+            } else {
+                var databaseConfig = databaseConfiguration();
+                var slot = new PostgresReplicationSlot(databaseConfig, replicationConfig, metrics);
+                checkpoint(slot, replicationSlotName);
+                if (snapshot) {
+                    snapshot(publishersByTable, databaseConfig, replicationConfig, slot, metrics);
+                }
+                consume(publishersByTable, replicationConfig, slot, metrics);
+            }
+        } catch (JMException | IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            metricsExporters.forEach(Application::close);
+            publishersByTable.values().forEach(Application::close);
+        }
+    }
+
+    private void supervise() {
+        var publishers = new ArrayList<AsyncPublisher>();
+        var metricsExporters = new ArrayList<AutoCloseable>();
+        try {
+            var supervisorConfig = SupervisorConfiguration.read(supervisorConfigFile, this::replicationConfigurationDefaults);
+            var slots = new ArrayList<ChangeDataCaptureSupervisor.Slot>();
+            var metricsRegistries = new LinkedHashMap<String, MetricsRegistry>();
+            for (var slotConfig : supervisorConfig.slots()) {
+                var metricsRegistry = new MetricsRegistry();
+                metricsRegistries.put(slotConfig.name(), metricsRegistry);
+                metricsExporters.add(new JmxMetricsExporter(metricsRegistry, slotConfig.name()));
+                var metrics = new ReplicationMetrics(metricsRegistry);
+                var replicationConfig = slotConfig.replicationConfig();
+                var publishersByTable = new LinkedHashMap<CapturedTable, AsyncPublisher>();
+                for (var table : replicationConfig.tablesToDetectChangesFrom()) {
+                    publishersByTable.put(table, publisher(slotConfig.name(), table, metrics));
+                }
+                publishers.addAll(publishersByTable.values());
+                var slot = new PostgresReplicationSlot(slotConfig.databaseConfig(), replicationConfig, metrics);
+                checkpoint(slot, replicationConfig.slotName());
+                slots.add(new ChangeDataCaptureSupervisor.Slot(
+                        slotConfig.name(),
+                        publishersByTable,
+                        replicationConfig,
+                        slot,
+                        metrics
+                ));
+            }
+            if (metricsPort > 0) {
+                metricsExporters.add(new HttpMetricsExporter(metricsRegistries, metricsPort));
+            }
+            try (var supervisor = new ChangeDataCaptureSupervisor(
+                    slots,
+                    supervisorConfig.schedulingMode(),
+                    supervisorConfig.schedulerThreads()
+            )) {
+                supervisor.start().get();
+            }
+        } catch (JMException | IOException | ExecutionException | InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            metricsExporters.forEach(Application::close);
+            publishers.forEach(Application::close);
+        }
+    }
+
+    private ReplicationConfiguration.Builder replicationConfigurationDefaults() {
+        return ReplicationConfiguration.builder()
+                .maxInFlightPublishes(effectiveMaxInFlightPublishes())
+                .maxInFlightBytes(maxInFlightBytes)
+                .captureUpdatesAndDeletes(compactionKeyColumn != null)
+                .idleWaitStrategy(idleWaitStrategy)
+                .maxReconnectBackoffInMillis(maxReconnectBackoffInMillis)
+                .outputPlugin(outputPlugin)
+                .decodeWorkers(decodeWorkers)
+                .decodeQueueDepth(decodeQueueDepth)
+                .includeTimestamp(true);
+    }
+
+    private int effectiveMaxInFlightPublishes() {
+        var publishesCompletingTogether = publishesCompletingTogether();
+        if (publishesCompletingTogether <= maxInFlightPublishes) {
+            return maxInFlightPublishes;
+        }
+        LOGGER.info(
+                "Raising --max-in-flight-publishes from {} to {} so publishes completing together are not throttled",
+                maxInFlightPublishes,
+                publishesCompletingTogether
+        );
+        return publishesCompletingTogether;
+    }
+
+    private int publishesCompletingTogether() {
+        var publishes = Math.max(batchMaxRows, compactionKeyColumn != null ? compactionMaxChanges : 0);
+        if (fileSinkDirectory != null) {
+            publishes = (int) Math.max(
+                    publishes,
+                    Math.min(MAX_FILE_SINK_PUBLISHES_PER_GROUP_COMMIT, fileSinkGroupCommitBytes / MIN_FILE_SINK_RECORD_BYTES)
+            );
+        }
+        return publishes;
+    }
+
+    private DatabaseConfiguration databaseConfiguration() {
+        if (databasePort == null || databaseHost == null || databaseName == null
+                || databaseUser == null || databasePassword == null) {
+            throw new IllegalArgumentException(
+                    "--port, --host, --database, --user and --password are required unless replaying with --replay-file"
+            );
+        }
+        return DatabaseConfiguration.builder()
                 .port(databasePort)
                 .host(databaseHost)
                 .database(databaseName)
                 .username(databaseUser)
                 .password(databasePassword)
                 .build();
-        ReplicationConfiguration replicationConfig = ReplicationConfiguration.builder()
-                .slotName(replicationSlotName)
-                .schemaNameToDetectChangesFrom(databaseSchemaNameToDetectChangesFrom)
-                .tableNameToDetectChangesFrom(databaseTableNameToDetectChangesFrom)
-                .build();
+    }
+
+    private AsyncPublisher publisher(String slotName, CapturedTable table, ReplicationMetrics metrics) throws IOException {
+        var publisher = sinkPublisher(slotName, table, metrics);
+        if (compactionKeyColumn == null) {
+            return publisher;
+        }
+        return new CompactingPublisher(
+                publisher,
+                compactionKeyColumn,
+                Duration.ofMillis(compactionWindowInMillis),
+                compactionMaxChanges,
+                metrics
+        );
+    }
+
+    private AsyncPublisher sinkPublisher(String slotName, CapturedTable table, ReplicationMetrics metrics) throws IOException {
+        if (fileSinkDirectory != null) {
+            return FileSinkPublisher.open(
+                    FileSinkConfiguration.builder()
+                            .directory(fileSinkDirectory.resolve(slotName).resolve(table.schema() + "." + table.table()))
+                            .format(fileSinkFormat)
+                            .segmentSizeInBytes(fileSinkSegmentSizeInBytes)
+                            .groupCommitIntervalInMillis(fileSinkGroupCommitIntervalInMillis)
+                            .groupCommitBytes(fileSinkGroupCommitBytes)
+                            .build(),
+                    ObjectMapperFactory.objectMapper()
+            );
+        } else if (batchMaxRows > 0) {
+            return new BatchingPublisher(
+                    new CountingPublisher(),
+                    batchMaxRows,
+                    batchMaxBytes,
+                    Duration.ofMillis(batchLingerInMillis)
+            );
+        } else if (partitionKeyColumn != null) {
+            return new PartitionedPublisher(
+                    new CountingPublisher(),
+                    partitionKeyColumn,
+                    publisherLanes,
+                    publisherLaneCapacity,
+                    metrics
+            );
+        }
+        return AsyncPublisher.blocking(new CountingPublisher());
+    }
+
+    private void checkpoint(PostgresReplicationSlot slot, String slotName) throws IOException {
+        if (checkpointDirectory != null) {
+            Files.createDirectories(checkpointDirectory);
+            slot.checkpointTo(ReplicationCheckpointFile.open(
+                    checkpointDirectory.resolve(slotName + ".checkpoint"),
+                    checkpointIntervalInMillis
+            ));
+        }
+    }
+
+    private void consume(
+            Map<CapturedTable, AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ReplicationMetrics metrics) {
         try (var changeDataCaptureConsumer = new ChangeDataCaptureConsumer(
-                new CountingPublisher(),
+                publishersByTable,
                 replicationConfig,
-                () -> new PostgresReplicationStream(databaseConfig, replicationConfig)
+                replicationStreamProvider,
+                metrics
         )) {
             changeDataCaptureConsumer.start().get();
         } catch (SQLException | ExecutionException | InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private void snapshot(
+            Map<CapturedTable, AsyncPublisher> publishersByTable,
+            DatabaseConfiguration databaseConfig,
+            ReplicationConfiguration replicationConfig,
+            PostgresReplicationSlot slot,
+            ReplicationMetrics metrics) throws IOException {
+        var snapshotConfig = SnapshotConfiguration.builder()
+                .checkpointFile(snapshotCheckpointFile != null
+                        ? snapshotCheckpointFile
+                        : Path.of(replicationSlotName + ".snapshot"))
+                .connections(snapshotConnections)
+                .chunkRows(snapshotChunkRows)
+                .build();
+        try {
+            new InitialSnapshot(databaseConfig, replicationConfig, snapshotConfig, slot, publishersByTable, metrics).run();
+        } catch (SQLException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void spoolAndConsume(
+            Map<CapturedTable, AsyncPublisher> publishersByTable,
+            DatabaseConfiguration databaseConfig,
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) throws IOException {
+        var spoolConfig = SpoolConfiguration.builder()
+                .directory(spoolDirectory)
+                .segmentSizeInBytes(spoolSegmentSizeInBytes)
+                .groupCommitIntervalInMillis(spoolGroupCommitIntervalInMillis)
+                .build();
+        var spoolLog = SpoolLog.open(spoolConfig);
+        var slot = new PostgresReplicationSlot(databaseConfig, replicationConfig, metrics);
+        slot.resumeFrom(spoolLog.lastSpooledLsn());
+        try (var spoolWriter = new SpoolWriter(spoolLog, spoolConfig, replicationConfig, slot, metrics)) {
+            spoolWriter.start();
+            consume(
+                    publishersByTable,
+                    replicationConfig,
+                    () -> new SpoolReplicationStream(spoolLog, spoolConfig, replicationConfig, metrics),
+                    metrics
+            );
+        }
+    }
+
+    private void replay(
+            Map<CapturedTable, AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) throws IOException {
+        if (generatedTransactions > 0) {
+            Wal2JsonMessageGenerator.write(
+                    replayFile,
+                    replicationConfig.tablesToDetectChangesFrom(),
+                    generatedTransactions,
+                    generatedRowsPerTransaction,
+                    generatedColumns
+            );
+        }
+        var replayConfig = ReplayConfiguration.builder()
+                .messagesFile(replayFile)
+                .messagesPerSecond(replayMessagesPerSecond)
+                .keepaliveIntervalInMillis(replayKeepaliveIntervalInMillis)
+                .build();
+        var replicationStreamProvider = new ReplayReplicationStreamProvider(replayConfig, replicationConfig, metrics);
+        try (var gcPauses = new GcPauseRecorder(metrics.registry());
+             var changeDataCaptureConsumer = new ChangeDataCaptureConsumer(
+                     publishersByTable,
+                     replicationConfig,
+                     replicationStreamProvider,
+                     metrics
+             )) {
+            var replayStartedAt = System.nanoTime();
+            var consuming = changeDataCaptureConsumer.start();
+            try {
+                consuming.get(replayDurationInSeconds, SECONDS);
+            } catch (TimeoutException e) {
+                var elapsedNanos = System.nanoTime() - replayStartedAt;
+                LOGGER.info(replicationStreamProvider.statistics().report(elapsedNanos, gcPauses));
+                return;
+            }
+            throw new IllegalStateException("consumer stopped before replay finished");
+        } catch (SQLException | ExecutionException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void close(Object closeable) {
+        if (closeable instanceof AutoCloseable autoCloseable) {
+            try {
+                autoCloseable.close();
+            } catch (InterruptedException e) {
+                LOGGER.error("Interrupted while closing {}", closeable, e);
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.error("Unable to close {}", closeable, e);
+            }
+        }
+    }
 }
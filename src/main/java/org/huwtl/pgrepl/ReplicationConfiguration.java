@@ -1,52 +1,142 @@
 package org.huwtl.pgrepl;
 
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.RowPredicate;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+
+import static java.util.stream.Collectors.joining;
 
 public record ReplicationConfiguration(
         String slotName,
-        String schemaNameToDetectChangesFrom,
-        String tableNameToDetectChangesFrom,
+        List<CapturedTable> tablesToDetectChangesFrom,
         int statusIntervalInMillis,
-        long pollingIntervalInMillis) {
-    private static final String OUTPUT_PLUGIN = "wal2json";
+        long pollingIntervalInMillis,
+        boolean includeTimestamp,
+        int maxInFlightPublishes,
+        long maxInFlightBytes,
+        IdleWaitStrategy idleWaitStrategy,
+        long maxReconnectBackoffInMillis,
+        double reconnectJitterRatio,
+        OutputPlugin outputPlugin,
+        String publicationName,
+        boolean captureUpdatesAndDeletes,
+        int decodeWorkers,
+        int decodeQueueDepth,
+        Map<CapturedTable, RowPredicate> rowPredicates) {
+    private static final String FORMAT_VERSION = "2";
     private static final String INCLUDE_XIDS = "true";
+    private static final String INCLUDE_TRANSACTION = "true";
+    private static final String INCLUDE_TYPES = "true";
+    private static final String CAPTURED_ACTIONS = "insert";
+    private static final String CAPTURED_ACTIONS_WITH_UPDATES_AND_DELETES = "insert,update,delete";
+    private static final String TABLE_IDENTIFIER_CHARACTERS_TO_ESCAPE = "\\.,* '";
+    private static final String PGOUTPUT_PROTOCOL_VERSION = "1";
 
-    public static Builder builder() {
-        return new Builder();
+    public enum IdleWaitStrategy {
+        FIXED_INTERVAL,
+        EXPONENTIAL_BACKOFF,
+        SPIN_THEN_PARK
+    }
+
+    public enum OutputPlugin {
+        WAL2JSON("wal2json"),
+        PGOUTPUT("pgoutput");
+
+        private final String pluginName;
+
+        OutputPlugin(String pluginName) {
+            this.pluginName = pluginName;
+        }
+
+        public String pluginName() {
+            return pluginName;
+        }
     }
 
-    public String outputPlugin() {
-        return OUTPUT_PLUGIN;
+    public static Builder builder() {
+        return new Builder();
     }
 
     public Properties slotOptions() {
         var properties = new Properties();
+        if (outputPlugin == OutputPlugin.PGOUTPUT) {
+            properties.setProperty("proto_version", PGOUTPUT_PROTOCOL_VERSION);
+            properties.setProperty("publication_names", publicationName);
+            return properties;
+        }
+        properties.setProperty("format-version", FORMAT_VERSION);
         properties.setProperty("include-xids", INCLUDE_XIDS);
+        properties.setProperty("include-transaction", INCLUDE_TRANSACTION);
+        properties.setProperty("include-timestamp", String.valueOf(includeTimestamp));
+        properties.setProperty("include-types", INCLUDE_TYPES);
+        properties.setProperty(
+                "actions",
+                captureUpdatesAndDeletes ? CAPTURED_ACTIONS_WITH_UPDATES_AND_DELETES : CAPTURED_ACTIONS
+        );
+        properties.setProperty("add-tables", capturedTables());
         return properties;
     }
 
+    private String capturedTables() {
+        return tablesToDetectChangesFrom.stream()
+                .map(table -> escapedTableIdentifier(table.schema()) + "." + escapedTableIdentifier(table.table()))
+                .collect(joining(","));
+    }
+
+    private static String escapedTableIdentifier(String identifier) {
+        var escaped = new StringBuilder(identifier.length());
+        identifier.chars().forEach(character -> {
+            if (TABLE_IDENTIFIER_CHARACTERS_TO_ESCAPE.indexOf(character) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append((char) character);
+        });
+        return escaped.toString();
+    }
+
     public static class Builder {
         private static final int DEFAULT_STATUS_INTERVAL_IN_MILLIS = 5000;
         private static final long DEFAULT_POLLING_INTERVAL_IN_MILLIS = 1000;
+        private static final int DEFAULT_MAX_IN_FLIGHT_PUBLISHES = 100;
+        private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64 * 1024 * 1024;
+        private static final long DEFAULT_MAX_RECONNECT_BACKOFF_IN_MILLIS = 30000;
+        private static final double DEFAULT_RECONNECT_JITTER_RATIO = 0.5;
+        private static final int DEFAULT_DECODE_QUEUE_DEPTH = 1024;
 
         private String slotName;
-        private String schemaNameToDetectChangesFrom;
-        private String tableNameToDetectChangesFrom;
+        private final Set<CapturedTable> tablesToDetectChangesFrom = new LinkedHashSet<>();
         private int statusIntervalInMillis = DEFAULT_STATUS_INTERVAL_IN_MILLIS;
         private long pollingIntervalInMillis = DEFAULT_POLLING_INTERVAL_IN_MILLIS;
+        private boolean includeTimestamp;
+        private int maxInFlightPublishes = DEFAULT_MAX_IN_FLIGHT_PUBLISHES;
+        private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+        private IdleWaitStrategy idleWaitStrategy = IdleWaitStrategy.FIXED_INTERVAL;
+        private long maxReconnectBackoffInMillis = DEFAULT_MAX_RECONNECT_BACKOFF_IN_MILLIS;
+        private double reconnectJitterRatio = DEFAULT_RECONNECT_JITTER_RATIO;
+        private OutputPlugin outputPlugin = OutputPlugin.WAL2JSON;
+        private String publicationName;
+        private boolean captureUpdatesAndDeletes;
+        private int decodeWorkers;
+        private int decodeQueueDepth = DEFAULT_DECODE_QUEUE_DEPTH;
+        private final Map<CapturedTable, RowPredicate> rowPredicates = new LinkedHashMap<>();
 
         public Builder slotName(String slotName) {
             this.slotName = slotName;
             return this;
         }
 
-        public Builder schemaNameToDetectChangesFrom(String schemaNameToDetectChangesFrom) {
-            this.schemaNameToDetectChangesFrom = schemaNameToDetectChangesFrom;
-            return this;
+        public Builder tableToDetectChangesFrom(String schemaName, String tableName) {
+            return tableToDetectChangesFrom(new CapturedTable(schemaName, tableName));
         }
 
-        public Builder tableNameToDetectChangesFrom(String tableNameToDetectChangesFrom) {
-            this.tableNameToDetectChangesFrom = tableNameToDetectChangesFrom;
+        public Builder tableToDetectChangesFrom(CapturedTable table) {
+            this.tablesToDetectChangesFrom.add(table);
             return this;
         }
 
@@ -60,13 +150,107 @@ public record ReplicationConfiguration(
             return this;
         }
 
+        public Builder includeTimestamp(boolean includeTimestamp) {
+            this.includeTimestamp = includeTimestamp;
+            return this;
+        }
+
+        public Builder maxInFlightPublishes(int maxInFlightPublishes) {
+            this.maxInFlightPublishes = maxInFlightPublishes;
+            return this;
+        }
+
+        public Builder maxInFlightBytes(long maxInFlightBytes) {
+            this.maxInFlightBytes = maxInFlightBytes;
+            return this;
+        }
+
+        public Builder idleWaitStrategy(IdleWaitStrategy idleWaitStrategy) {
+            this.idleWaitStrategy = idleWaitStrategy;
+            return this;
+        }
+
+        public Builder maxReconnectBackoffInMillis(long maxReconnectBackoffInMillis) {
+            this.maxReconnectBackoffInMillis = maxReconnectBackoffInMillis;
+            return this;
+        }
+
+        public Builder reconnectJitterRatio(double reconnectJitterRatio) {
+            this.reconnectJitterRatio = reconnectJitterRatio;
+            return this;
+        }
+
+        public Builder outputPlugin(OutputPlugin outputPlugin) {
+            this.outputPlugin = outputPlugin;
+            return this;
+        }
+
+        public Builder publicationName(String publicationName) {
+            this.publicationName = publicationName;
+            return this;
+        }
+
+        public Builder captureUpdatesAndDeletes(boolean captureUpdatesAndDeletes) {
+            this.captureUpdatesAndDeletes = captureUpdatesAndDeletes;
+            return this;
+        }
+
+        public Builder decodeWorkers(int decodeWorkers) {
+            this.decodeWorkers = decodeWorkers;
+            return this;
+        }
+
+        public Builder decodeQueueDepth(int decodeQueueDepth) {
+            this.decodeQueueDepth = decodeQueueDepth;
+            return this;
+        }
+
+        public Builder rowPredicate(CapturedTable table, String expression) {
+            this.rowPredicates.put(table, RowPredicate.parse(expression));
+            return this;
+        }
+
         public ReplicationConfiguration build() {
+            if (tablesToDetectChangesFrom.isEmpty()) {
+                throw new IllegalStateException("at least one table to detect changes from is required");
+            }
+            if (maxInFlightPublishes < 1) {
+                throw new IllegalStateException("max in-flight publishes must be positive");
+            }
+            if (maxInFlightBytes < 1) {
+                throw new IllegalStateException("max in-flight bytes must be positive");
+            }
+            if (reconnectJitterRatio < 0 || reconnectJitterRatio > 1) {
+                throw new IllegalStateException("reconnect jitter ratio must be between 0 and 1");
+            }
+            if (decodeWorkers < 0 || decodeQueueDepth < 1) {
+                throw new IllegalStateException("decode workers must not be negative and decode queue depth must be positive");
+            }
+            if (decodeWorkers > 0 && outputPlugin != OutputPlugin.WAL2JSON) {
+                throw new IllegalStateException("parallel decoding only supports the WAL2JSON output plugin");
+            }
+            for (var table : rowPredicates.keySet()) {
+                if (!tablesToDetectChangesFrom.contains(table)) {
+                    throw new IllegalStateException("row predicate given for " + table + " which changes are not detected from");
+                }
+            }
             return new ReplicationConfiguration(
                     slotName,
-                    schemaNameToDetectChangesFrom,
-                    tableNameToDetectChangesFrom,
+                    List.copyOf(tablesToDetectChangesFrom),
                     statusIntervalInMillis,
-                    pollingIntervalInMillis
+                    pollingIntervalInMillis,
+                    includeTimestamp,
+                    maxInFlightPublishes,
+                    maxInFlightBytes,
+                    idleWaitStrategy,
+                    Math.max(maxReconnectBackoffInMillis, pollingIntervalInMillis),
+                    reconnectJitterRatio,
+                    outputPlugin,
+                    publicationName != null ? publicationName : slotName,
+                    captureUpdatesAndDeletes,
+                    decodeWorkers,
+                    decodeQueueDepth,
+                    Map.copyOf(rowPredicates)
             );
         }
     }
@@ -0,0 +1,119 @@
+package org.huwtl.pgrepl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy;
+import org.huwtl.pgrepl.ReplicationConfiguration.OutputPlugin;
+import org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureSupervisor.SchedulingMode;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public record SupervisorConfiguration(
+        List<SlotConfiguration> slots,
+        SchedulingMode schedulingMode,
+        int schedulerThreads) {
+    private static final String DEFAULT_SCHEMA = "public";
+
+    public record SlotConfiguration(
+            String name,
+            DatabaseConfiguration databaseConfig,
+            ReplicationConfiguration replicationConfig) {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static SupervisorConfiguration read(Path file, Supplier<ReplicationConfiguration.Builder> replicationDefaults)
+            throws IOException {
+        var root = ObjectMapperFactory.objectMapper().readTree(Files.readAllBytes(file));
+        var builder = builder();
+        if (root.hasNonNull("schedulingMode")) {
+            builder.schedulingMode(SchedulingMode.valueOf(root.get("schedulingMode").asText()));
+        }
+        if (root.hasNonNull("schedulerThreads")) {
+            builder.schedulerThreads(root.get("schedulerThreads").asInt());
+        }
+        for (var slot : root.path("slots")) {
+            builder.slot(slotConfiguration(slot, replicationDefaults.get()));
+        }
+        return builder.build();
+    }
+
+    private static SlotConfiguration slotConfiguration(JsonNode slot, ReplicationConfiguration.Builder replicationConfig) {
+        var slotName = required(slot, "slot");
+        replicationConfig.slotName(slotName);
+        var schema = slot.path("schema").asText(DEFAULT_SCHEMA);
+        for (var table : slot.path("tables")) {
+            replicationConfig.tableToDetectChangesFrom(CapturedTable.parse(table.asText(), schema));
+        }
+        if (slot.hasNonNull("pollingIntervalMillis")) {
+            replicationConfig.pollingIntervalInMillis(slot.get("pollingIntervalMillis").asLong());
+        }
+        if (slot.hasNonNull("outputPlugin")) {
+            replicationConfig.outputPlugin(OutputPlugin.valueOf(slot.get("outputPlugin").asText()));
+        }
+        if (slot.hasNonNull("publication")) {
+            replicationConfig.publicationName(slot.get("publication").asText());
+        }
+        if (slot.hasNonNull("idleWaitStrategy")) {
+            replicationConfig.idleWaitStrategy(IdleWaitStrategy.valueOf(slot.get("idleWaitStrategy").asText()));
+        }
+        return new SlotConfiguration(
+                slot.path("name").asText(slotName),
+                DatabaseConfiguration.builder()
+                        .host(required(slot, "host"))
+                        .port(required(slot, "port"))
+                        .database(required(slot, "database"))
+                        .username(required(slot, "user"))
+                        .password(required(slot, "password"))
+                        .build(),
+                replicationConfig.build()
+        );
+    }
+
+    private static String required(JsonNode slot, String field) {
+        if (!slot.hasNonNull(field)) {
+            throw new IllegalArgumentException("supervised slot " + slot + " requires " + field);
+        }
+        return slot.get(field).asText();
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_SCHEDULER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+        private final List<SlotConfiguration> slots = new ArrayList<>();
+        private SchedulingMode schedulingMode = SchedulingMode.SHARED_SCHEDULER;
+        private int schedulerThreads = DEFAULT_SCHEDULER_THREADS;
+
+        Builder() {
+        }
+
+        public Builder slot(SlotConfiguration slot) {
+            this.slots.add(slot);
+            return this;
+        }
+
+        public Builder schedulingMode(SchedulingMode schedulingMode) {
+            this.schedulingMode = schedulingMode;
+            return this;
+        }
+
+        public Builder schedulerThreads(int schedulerThreads) {
+            this.schedulerThreads = schedulerThreads;
+            return this;
+        }
+
+        public SupervisorConfiguration build() {
+            if (slots.isEmpty()) {
+                throw new IllegalStateException("at least one slot to supervise is required");
+            }
+            return new SupervisorConfiguration(List.copyOf(slots), schedulingMode, schedulerThreads);
+        }
+    }
+}
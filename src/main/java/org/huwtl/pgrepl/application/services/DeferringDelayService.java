@@ -0,0 +1,16 @@
+package org.huwtl.pgrepl.application.services;
+
+public class DeferringDelayService implements DelayService {
+    private long deferredMillis;
+
+    @Override
+    public void delayThreadForMillis(long millis) {
+        deferredMillis += millis;
+    }
+
+    public long takeDeferredMillis() {
+        var millis = deferredMillis;
+        deferredMillis = 0;
+        return millis;
+    }
+}
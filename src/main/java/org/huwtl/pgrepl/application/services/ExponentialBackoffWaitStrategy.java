@@ -0,0 +1,62 @@
+package org.huwtl.pgrepl.application.services;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+public class ExponentialBackoffWaitStrategy implements WaitStrategy {
+    private final DelayService delayService;
+    private final long initialIntervalInMillis;
+    private final long maxIntervalInMillis;
+    private final double jitterRatio;
+    private final DoubleSupplier random;
+    private long nextIntervalInMillis;
+
+    public ExponentialBackoffWaitStrategy(
+            DelayService delayService,
+            long initialIntervalInMillis,
+            long maxIntervalInMillis) {
+        this(delayService, initialIntervalInMillis, maxIntervalInMillis, 0, () -> 0);
+    }
+
+    public ExponentialBackoffWaitStrategy(
+            DelayService delayService,
+            long initialIntervalInMillis,
+            long maxIntervalInMillis,
+            double jitterRatio) {
+        this(
+                delayService,
+                initialIntervalInMillis,
+                maxIntervalInMillis,
+                jitterRatio,
+                () -> ThreadLocalRandom.current().nextDouble()
+        );
+    }
+
+    ExponentialBackoffWaitStrategy(
+            DelayService delayService,
+            long initialIntervalInMillis,
+            long maxIntervalInMillis,
+            double jitterRatio,
+            DoubleSupplier random) {
+        this.delayService = requireNonNull(delayService);
+        this.initialIntervalInMillis = initialIntervalInMillis;
+        this.maxIntervalInMillis = maxIntervalInMillis;
+        this.jitterRatio = jitterRatio;
+        this.random = requireNonNull(random);
+        this.nextIntervalInMillis = initialIntervalInMillis;
+    }
+
+    @Override
+    public void idle() throws InterruptedException {
+        var intervalInMillis = nextIntervalInMillis;
+        nextIntervalInMillis = Math.min(intervalInMillis * 2, maxIntervalInMillis);
+        delayService.delayThreadForMillis(intervalInMillis - (long) (intervalInMillis * jitterRatio * random.getAsDouble()));
+    }
+
+    @Override
+    public void reset() {
+        nextIntervalInMillis = initialIntervalInMillis;
+    }
+}
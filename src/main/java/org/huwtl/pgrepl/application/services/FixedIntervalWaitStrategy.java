@@ -0,0 +1,22 @@
+package org.huwtl.pgrepl.application.services;
+
+import static java.util.Objects.requireNonNull;
+
+public class FixedIntervalWaitStrategy implements WaitStrategy {
+    private final DelayService delayService;
+    private final long intervalInMillis;
+
+    public FixedIntervalWaitStrategy(DelayService delayService, long intervalInMillis) {
+        this.delayService = requireNonNull(delayService);
+        this.intervalInMillis = intervalInMillis;
+    }
+
+    @Override
+    public void idle() throws InterruptedException {
+        delayService.delayThreadForMillis(intervalInMillis);
+    }
+
+    @Override
+    public void reset() {
+    }
+}
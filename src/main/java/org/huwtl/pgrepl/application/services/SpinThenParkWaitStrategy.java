@@ -0,0 +1,38 @@
+package org.huwtl.pgrepl.application.services;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class SpinThenParkWaitStrategy implements WaitStrategy {
+    private static final long INITIAL_PARK_IN_NANOS = 1_000;
+
+    private final int spinIterations;
+    private final long maxParkInNanos;
+    private int idleIterations;
+    private long nextParkInNanos = INITIAL_PARK_IN_NANOS;
+
+    public SpinThenParkWaitStrategy(int spinIterations, long maxParkInNanos) {
+        this.spinIterations = spinIterations;
+        this.maxParkInNanos = maxParkInNanos;
+    }
+
+    @Override
+    public void idle() throws InterruptedException {
+        if (idleIterations < spinIterations) {
+            idleIterations++;
+            Thread.onSpinWait();
+        } else {
+            var parkInNanos = nextParkInNanos;
+            nextParkInNanos = Math.min(parkInNanos * 2, maxParkInNanos);
+            LockSupport.parkNanos(this, parkInNanos);
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException("interrupted while waiting for next message");
+        }
+    }
+
+    @Override
+    public void reset() {
+        idleIterations = 0;
+        nextParkInNanos = INITIAL_PARK_IN_NANOS;
+    }
+}
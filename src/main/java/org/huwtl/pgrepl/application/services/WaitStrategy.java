@@ -0,0 +1,7 @@
+package org.huwtl.pgrepl.application.services;
+
+public interface WaitStrategy {
+    void idle() throws InterruptedException;
+
+    void reset();
+}
@@ -0,0 +1,141 @@
+package org.huwtl.pgrepl.application.services.consumer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+class AcknowledgementWatermark {
+    static final long NO_LSN = -1;
+    static final long NO_XID = 0;
+    private static final int INITIAL_OUT_OF_ORDER_CAPACITY = 64;
+
+    private final Deque<Entry> entriesInReceivedOrder = new ArrayDeque<>();
+    private Entry openTransaction;
+    private long acknowledgeableLsn = NO_LSN;
+    private Throwable failure;
+    private long nextSequence;
+    private long publishedSequence;
+    private boolean[] publishedOutOfOrder = new boolean[INITIAL_OUT_OF_ORDER_CAPACITY];
+
+    synchronized void beginTransaction() {
+        beginTransaction(NO_XID);
+    }
+
+    synchronized void beginTransaction(long xid) {
+        openTransaction = new Entry(xid, nextSequence);
+        entriesInReceivedOrder.addLast(openTransaction);
+    }
+
+    synchronized long publishing() {
+        if (openTransaction == null) {
+            beginTransaction();
+        }
+        if (nextSequence - publishedSequence == publishedOutOfOrder.length) {
+            growOutOfOrderCapacity();
+        }
+        return nextSequence++;
+    }
+
+    synchronized void published(long sequence, Throwable error) {
+        if (error != null) {
+            if (failure == null) {
+                failure = error;
+            }
+            return;
+        }
+        publishedOutOfOrder[slot(sequence)] = true;
+        while (publishedSequence < nextSequence && publishedOutOfOrder[slot(publishedSequence)]) {
+            publishedOutOfOrder[slot(publishedSequence)] = false;
+            publishedSequence++;
+        }
+        advance();
+    }
+
+    synchronized void commitTransaction(long commitLsn) {
+        if (openTransaction == null) {
+            beginTransaction();
+        }
+        openTransaction.seal(commitLsn, nextSequence);
+        openTransaction = null;
+        advance();
+    }
+
+    synchronized void keepalive(long lsn) {
+        if (openTransaction != null) {
+            return;
+        }
+        if (entriesInReceivedOrder.isEmpty()) {
+            if (failure == null) {
+                acknowledgeableLsn = Math.max(acknowledgeableLsn, lsn);
+            }
+            return;
+        }
+        var keepalive = new Entry(NO_XID, nextSequence);
+        keepalive.seal(lsn, nextSequence);
+        entriesInReceivedOrder.addLast(keepalive);
+        advance();
+    }
+
+    synchronized long acknowledgeableLsn() {
+        return acknowledgeableLsn;
+    }
+
+    synchronized long progressingXid() {
+        var oldest = entriesInReceivedOrder.peekFirst();
+        return failure == null && oldest != null ? oldest.xid : NO_XID;
+    }
+
+    synchronized long publishedChangesOf(long xid) {
+        var oldest = entriesInReceivedOrder.peekFirst();
+        if (failure != null || oldest == null || oldest.xid != xid || xid == NO_XID) {
+            return 0;
+        }
+        var endSequence = oldest.sealed ? oldest.endSequence : nextSequence;
+        return Math.min(publishedSequence, endSequence) - oldest.firstSequence;
+    }
+
+    synchronized Throwable failure() {
+        return failure;
+    }
+
+    private void advance() {
+        while (failure == null && !entriesInReceivedOrder.isEmpty()) {
+            var oldest = entriesInReceivedOrder.peekFirst();
+            if (!oldest.sealed || publishedSequence < oldest.endSequence) {
+                return;
+            }
+            acknowledgeableLsn = Math.max(acknowledgeableLsn, oldest.lsn);
+            entriesInReceivedOrder.removeFirst();
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % publishedOutOfOrder.length);
+    }
+
+    private void growOutOfOrderCapacity() {
+        var grown = new boolean[publishedOutOfOrder.length * 2];
+        for (var sequence = publishedSequence; sequence < nextSequence; sequence++) {
+            grown[(int) (sequence % grown.length)] = publishedOutOfOrder[slot(sequence)];
+        }
+        publishedOutOfOrder = grown;
+    }
+
+    private static class Entry {
+        private final long xid;
+        private final long firstSequence;
+        private boolean sealed;
+        private long endSequence;
+        private long lsn = NO_LSN;
+
+        private Entry(long xid, long firstSequence) {
+            this.xid = xid;
+            this.firstSequence = firstSequence;
+        }
+
+        private void seal(long lsn, long endSequence) {
+            this.lsn = lsn;
+            this.endSequence = endSequence;
+            sealed = true;
+        }
+    }
+}
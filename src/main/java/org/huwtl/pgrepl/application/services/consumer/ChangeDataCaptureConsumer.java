@@ -2,43 +2,138 @@ package org.huwtl.pgrepl.application.services.consumer;
 
 import org.apache.logging.log4j.Logger;
 import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy;
+import org.huwtl.pgrepl.application.services.DeferringDelayService;
 import org.huwtl.pgrepl.application.services.DelayService;
+import org.huwtl.pgrepl.application.services.ExponentialBackoffWaitStrategy;
+import org.huwtl.pgrepl.application.services.FixedIntervalWaitStrategy;
+import org.huwtl.pgrepl.application.services.SpinThenParkWaitStrategy;
 import org.huwtl.pgrepl.application.services.ThreadSleepingService;
+import org.huwtl.pgrepl.application.services.WaitStrategy;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
 import org.huwtl.pgrepl.application.services.publisher.Publisher;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.FatalReplicationException;
+import org.huwtl.pgrepl.application.services.replication.InvalidRowPredicateException;
 import org.huwtl.pgrepl.application.services.replication.ReplicationStream;
 import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static java.lang.Runtime.getRuntime;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static org.apache.logging.log4j.LogManager.getLogger;
+import static org.huwtl.pgrepl.application.services.consumer.AcknowledgementWatermark.NO_LSN;
+import static org.huwtl.pgrepl.application.services.consumer.AcknowledgementWatermark.NO_XID;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit;
 
 public class ChangeDataCaptureConsumer implements AutoCloseable {
     private static final Logger LOGGER = getLogger();
     private static final int SHUTDOWN_TIMEOUT_IN_SECONDS = 5;
+    private static final long INITIAL_BACKOFF_INTERVAL_IN_MILLIS = 1;
+    private static final int SPIN_ITERATIONS_BEFORE_PARKING = 1000;
+    private static final long MAX_PARK_IN_NANOS = MILLISECONDS.toNanos(1);
+    private static final int MESSAGES_PER_SLICE = 1024;
+    private static final long STALLED_PAUSE_IN_NANOS = SECONDS.toNanos(60);
 
-    private final Publisher publisher;
+    private final Map<CapturedTable, AsyncPublisher> publishersByTable;
+    private final AsyncPublisher[] publishers;
     private final ReplicationConfiguration replicationConfig;
     private final ReplicationStreamProvider replicationStreamProvider;
     private final ExecutorService executorService;
+    private final ScheduledExecutorService sharedScheduler;
+    private final DeferringDelayService deferredDelays;
     private final DelayService delayService;
+    private final WaitStrategy waitStrategy;
+    private final WaitStrategy reconnectWaitStrategy;
+    private final Semaphore inFlightPublishes;
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final long maxInFlightBytes;
+    private final long statusIntervalInNanos;
+    private final Object publishesCompleted = new Object();
+    private final ReplicationMetrics metrics;
+    private final CompletableFuture<Boolean> stopped = new CompletableFuture<>();
+    private final Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage = this::changeDataCaptureMessageReceived;
+    private final Consumer<NoMessage> onNoMessage = this::noMessageReceived;
+    private boolean replicationStreamOpenedBefore;
+    private long failedAtNanos;
+    private boolean noMessageReceived;
+    private AcknowledgementWatermark consumingWatermark;
+    private volatile boolean paused;
+    private long pausedAtNanos;
+    private boolean stalledPauseReported;
+    private long statusSentAtNanos;
+    private volatile boolean stopping;
+    private ReplicationStream scheduledStream;
+    private AcknowledgementWatermark scheduledWatermark;
+    private long scheduledAcknowledgedLsn;
+    private ScheduledFuture<?> nextSlice;
+    private boolean sliceScheduled;
 
     public ChangeDataCaptureConsumer(
             Publisher publisher,
             ReplicationConfiguration replicationConfig,
             ReplicationStreamProvider replicationStreamProvider) throws SQLException {
+        this(AsyncPublisher.blocking(publisher), replicationConfig, replicationStreamProvider);
+    }
+
+    public ChangeDataCaptureConsumer(
+            AsyncPublisher publisher,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider) throws SQLException {
+        this(publisherForEveryTable(publisher, replicationConfig), replicationConfig, replicationStreamProvider);
+    }
+
+    public ChangeDataCaptureConsumer(
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider) throws SQLException {
+        this(publishersByTable, replicationConfig, replicationStreamProvider, new ReplicationMetrics());
+    }
+
+    public ChangeDataCaptureConsumer(
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ReplicationMetrics metrics) throws SQLException {
         this(
-                publisher,
+                publishersByTable,
                 replicationConfig,
                 replicationStreamProvider,
                 Executors.newSingleThreadExecutor(),
-                new ThreadSleepingService()
+                new ThreadSleepingService(),
+                metrics
         );
     }
 
@@ -48,75 +143,587 @@ public class ChangeDataCaptureConsumer implements AutoCloseable {
             ReplicationStreamProvider replicationStreamProvider,
             ExecutorService executorService,
             DelayService delayService) {
-        this.publisher = requireNonNull(publisher);
+        this(
+                AsyncPublisher.blocking(publisher),
+                replicationConfig,
+                replicationStreamProvider,
+                executorService,
+                delayService
+        );
+    }
+
+    ChangeDataCaptureConsumer(
+            AsyncPublisher publisher,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ExecutorService executorService,
+            DelayService delayService) {
+        this(
+                publisherForEveryTable(publisher, replicationConfig),
+                replicationConfig,
+                replicationStreamProvider,
+                executorService,
+                delayService,
+                new ReplicationMetrics()
+        );
+    }
+
+    ChangeDataCaptureConsumer(
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ExecutorService executorService,
+            DelayService delayService,
+            ReplicationMetrics metrics) {
+        this(
+                publishersByTable,
+                replicationConfig,
+                replicationStreamProvider,
+                requireNonNull(executorService),
+                null,
+                delayService,
+                metrics
+        );
+    }
+
+    ChangeDataCaptureConsumer(
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ScheduledExecutorService sharedScheduler,
+            ReplicationMetrics metrics) {
+        this(
+                publishersByTable,
+                replicationConfig,
+                replicationStreamProvider,
+                null,
+                requireNonNull(sharedScheduler),
+                new DeferringDelayService(),
+                metrics
+        );
+    }
+
+    private ChangeDataCaptureConsumer(
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ExecutorService executorService,
+            ScheduledExecutorService sharedScheduler,
+            DelayService delayService,
+            ReplicationMetrics metrics) {
+        for (var table : replicationConfig.tablesToDetectChangesFrom()) {
+            if (!publishersByTable.containsKey(table)) {
+                throw new IllegalArgumentException("no publisher for table " + table + " to detect changes from");
+            }
+        }
+        this.publishersByTable = Map.copyOf(publishersByTable);
+        this.publishers = new LinkedHashSet<>(publishersByTable.values()).toArray(AsyncPublisher[]::new);
         this.replicationConfig = requireNonNull(replicationConfig);
         this.replicationStreamProvider = requireNonNull(replicationStreamProvider);
-        this.executorService = requireNonNull(executorService);
+        this.executorService = executorService;
+        this.sharedScheduler = sharedScheduler;
+        this.deferredDelays = delayService instanceof DeferringDelayService deferring ? deferring : null;
         this.delayService = requireNonNull(delayService);
+        this.waitStrategy = waitStrategy(replicationConfig, delayService, sharedScheduler != null);
+        this.reconnectWaitStrategy = new ExponentialBackoffWaitStrategy(
+                delayService,
+                replicationConfig.pollingIntervalInMillis(),
+                replicationConfig.maxReconnectBackoffInMillis(),
+                replicationConfig.reconnectJitterRatio()
+        );
+        this.inFlightPublishes = new Semaphore(replicationConfig.maxInFlightPublishes());
+        this.maxInFlightBytes = replicationConfig.maxInFlightBytes();
+        this.statusIntervalInNanos = MILLISECONDS.toNanos(replicationConfig.statusIntervalInMillis());
+        this.metrics = requireNonNull(metrics);
     }
 
     public Future<Boolean> start() {
         addShutdownHook();
+        return startConsuming();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("Attempting to shutdown consumer");
+        stop();
+        awaitStopped(SECONDS.toNanos(SHUTDOWN_TIMEOUT_IN_SECONDS));
+        LOGGER.info("Successfully shutdown consumer");
+    }
 
+    Future<Boolean> startConsuming() {
+        LOGGER.info("Consuming from replication slot {}", replicationSlotName());
+        if (sharedScheduler != null) {
+            scheduleSlice(0);
+            return stopped;
+        }
         return executorService.submit(() -> {
-            LOGGER.info("Consuming from replication slot {}", replicationSlotName());
-            while (!executorService.isShutdown()) {
-                openReplicationStreamAndConsumeChanges();
+            try {
+                while (!executorService.isShutdown()) {
+                    openReplicationStreamAndConsumeChanges();
+                }
+                stopped.complete(true);
+                return true;
+            } catch (Exception e) {
+                stopped.completeExceptionally(e);
+                throw e;
             }
-            return true;
         });
     }
 
-    @Override
-    public void close() {
-        LOGGER.info("Attempting to shutdown consumer");
-        executorService.shutdown();
+    CompletableFuture<Boolean> stopped() {
+        return stopped;
+    }
+
+    void stop() {
+        if (sharedScheduler == null) {
+            executorService.shutdown();
+            return;
+        }
+        stopping = true;
+        synchronized (this) {
+            if (sliceScheduled && nextSlice.cancel(false)) {
+                scheduleSlice(0);
+            }
+        }
+    }
+
+    void awaitStopped(long timeoutInNanos) {
         try {
-            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, SECONDS)) {
-                LOGGER.error("Forcing consumer to shutdown since taking too long");
-                executorService.shutdownNow();
+            if (sharedScheduler == null) {
+                if (!executorService.awaitTermination(timeoutInNanos, NANOSECONDS)) {
+                    LOGGER.error("Forcing consumer to shutdown since taking too long");
+                    executorService.shutdownNow();
+                }
+            } else {
+                stopped.get(timeoutInNanos, NANOSECONDS);
             }
         } catch (InterruptedException e) {
             LOGGER.error("Unexpected error during consumer shutdown", e);
-            executorService.shutdownNow();
+            if (sharedScheduler == null) {
+                executorService.shutdownNow();
+            }
+        } catch (TimeoutException e) {
+            LOGGER.error("Consumer of replication slot {} did not stop in time", replicationSlotName());
+        } catch (ExecutionException e) {
+            LOGGER.debug("Consumer of replication slot {} had already stopped after error", replicationSlotName(), e);
         }
-        LOGGER.info("Successfully shutdown consumer");
     }
 
-    private void openReplicationStreamAndConsumeChanges() {
-        try (var replicationStream = replicationStreamProvider.openedReplicationStream()) {
+    private void openReplicationStreamAndConsumeChanges() throws FatalReplicationException {
+        try (var replicationStream = openedReplicationStream()) {
             consumeAndPublishChanges(replicationStream);
+        } catch (FatalReplicationException e) {
+            LOGGER.error("Unable to recover from error while consuming data changes so stopping", e);
+            throw e;
         } catch (Exception e) {
-            LOGGER.error("Unexpected error while consuming data changes", e);
-            applyPollingDelay();
+            failed(e);
         }
     }
 
-    private void consumeAndPublishChanges(ReplicationStream replicationStream) throws SQLException, IOException {
+    private ReplicationStream openedReplicationStream() throws SQLException {
+        if (replicationStreamOpenedBefore) {
+            metrics.reconnected();
+        }
+        replicationStreamOpenedBefore = true;
+        return replicationStreamProvider.openedReplicationStream();
+    }
+
+    private void consumeAndPublishChanges(ReplicationStream replicationStream)
+            throws SQLException, IOException, InterruptedException {
+        var watermark = new AcknowledgementWatermark();
+        var acknowledgedLsn = NO_LSN;
         while (!executorService.isShutdown()) {
-            consumeAndPublishNextChange(replicationStream);
+            var idle = !consumeAndPublishNextChange(replicationStream, watermark);
+            if (idle) {
+                waitForNextMessage();
+            }
+            acknowledgedLsn = acknowledgePublishedChanges(replicationStream, watermark, acknowledgedLsn);
         }
+        awaitInFlightPublishes();
+        acknowledgePublishedChanges(replicationStream, watermark, acknowledgedLsn);
     }
 
-    private void consumeAndPublishNextChange(ReplicationStream replicationStream) throws SQLException, IOException {
-        replicationStream.processNextChangeDataCaptureMessage(
-                changeDataCaptureMessage -> changeDataCaptureMessage.capturedDataFromInserts(
-                                replicationConfig.schemaNameToDetectChangesFrom(),
-                                replicationConfig.tableNameToDetectChangesFrom()
-                        )
-                        .forEach(publisher::publish),
-                noMessage -> applyPollingDelay()
-        );
+    private void consumeSlice() {
+        synchronized (this) {
+            sliceScheduled = false;
+        }
+        try {
+            if (stopping) {
+                stopConsumingSlices();
+                return;
+            }
+            if (scheduledStream == null) {
+                scheduledStream = openedReplicationStream();
+                scheduledWatermark = new AcknowledgementWatermark();
+                scheduledAcknowledgedLsn = NO_LSN;
+            }
+            for (var consumed = 0; consumed < MESSAGES_PER_SLICE && !stopping; consumed++) {
+                var idle = !consumeAndPublishNextChange(scheduledStream, scheduledWatermark);
+                if (idle) {
+                    waitForNextMessage();
+                }
+                scheduledAcknowledgedLsn = acknowledgePublishedChanges(
+                        scheduledStream,
+                        scheduledWatermark,
+                        scheduledAcknowledgedLsn
+                );
+                var deferredMillis = deferredDelays.takeDeferredMillis();
+                if (idle || deferredMillis > 0) {
+                    scheduleSlice(deferredMillis);
+                    return;
+                }
+            }
+            scheduleSlice(0);
+        } catch (FatalReplicationException e) {
+            LOGGER.error("Unable to recover from error while consuming data changes so stopping", e);
+            closeScheduledStream();
+            stopped.completeExceptionally(e);
+        } catch (Exception e) {
+            closeScheduledStream();
+            failed(e);
+            scheduleSlice(deferredDelays.takeDeferredMillis());
+        }
+    }
+
+    private void stopConsumingSlices() throws InterruptedException {
+        if (scheduledStream != null) {
+            awaitInFlightPublishes();
+            acknowledgePublishedChanges(scheduledStream, scheduledWatermark, scheduledAcknowledgedLsn);
+            closeScheduledStream();
+        }
+        stopped.complete(true);
+    }
+
+    private synchronized void scheduleSlice(long delayInMillis) {
+        try {
+            nextSlice = sharedScheduler.schedule(this::consumeSlice, stopping ? 0 : delayInMillis, MILLISECONDS);
+            sliceScheduled = true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.error("Shared scheduler rejected consuming from replication slot {}", replicationSlotName(), e);
+            closeScheduledStream();
+            stopped.completeExceptionally(e);
+        }
     }
 
-    private void applyPollingDelay() {
+    private void closeScheduledStream() {
+        if (scheduledStream != null) {
+            try {
+                scheduledStream.close();
+            } catch (Exception e) {
+                LOGGER.error("Unable to close replication stream", e);
+            }
+            scheduledStream = null;
+        }
+    }
+
+    private void failed(Exception e) {
+        LOGGER.error("Unexpected error while consuming data changes", e);
+        if (failedAtNanos == 0) {
+            failedAtNanos = System.nanoTime();
+        }
+        applyReconnectDelay();
+    }
+
+    boolean consumeAndPublishNextChange(ReplicationStream replicationStream, AcknowledgementWatermark watermark)
+            throws SQLException, IOException {
+        if (inFlightLimitReached()) {
+            pause(replicationStream);
+            return false;
+        }
+        resume();
+        noMessageReceived = false;
+        consumingWatermark = watermark;
         try {
-            delayService.delayThreadForMillis(replicationConfig.pollingIntervalInMillis());
+            replicationStream.processNextChangeDataCaptureMessage(onChangeDataCaptureMessage, onNoMessage);
+        } catch (InvalidRowPredicateException e) {
+            throw new FatalReplicationException(e.getMessage(), e);
+        }
+        return !noMessageReceived;
+    }
+
+    private boolean inFlightLimitReached() {
+        return inFlightPublishes.availablePermits() == 0 || inFlightBytes.get() >= maxInFlightBytes;
+    }
+
+    private void pause(ReplicationStream replicationStream) throws SQLException {
+        var now = System.nanoTime();
+        if (!paused) {
+            paused = true;
+            pausedAtNanos = now;
+            stalledPauseReported = false;
+            statusSentAtNanos = now - statusIntervalInNanos;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Pausing replication slot {} until in-flight publishes complete", replicationSlotName());
+            }
+            flushPublishers();
+        } else if (!stalledPauseReported && now - pausedAtNanos >= STALLED_PAUSE_IN_NANOS) {
+            stalledPauseReported = true;
+            LOGGER.warn(
+                    "Replication slot {} paused for {}s with {} bytes in flight, publishers may be holding changes back",
+                    replicationSlotName(),
+                    NANOSECONDS.toSeconds(now - pausedAtNanos),
+                    inFlightBytes.get()
+            );
+        }
+        if (now - statusSentAtNanos >= statusIntervalInNanos) {
+            replicationStream.sendStatus();
+            statusSentAtNanos = now;
+        }
+    }
+
+    private void resume() {
+        if (paused) {
+            paused = false;
+            metrics.backpressurePaused(System.nanoTime() - pausedAtNanos);
+        }
+    }
+
+    private void changeDataCaptureMessageReceived(ChangeDataCaptureMessage changeDataCaptureMessage) {
+        waitStrategy.reset();
+        recovered();
+        publish(changeDataCaptureMessage, consumingWatermark);
+    }
+
+    private void noMessageReceived(NoMessage noMessage) {
+        noMessageReceived = true;
+    }
+
+    private void publish(ChangeDataCaptureMessage changeDataCaptureMessage, AcknowledgementWatermark watermark) {
+        if (changeDataCaptureMessage instanceof CapturedInsert capturedInsert) {
+            publish(capturedInsert.table(), capturedInsert, watermark);
+        } else if (changeDataCaptureMessage instanceof CapturedUpdate capturedUpdate) {
+            publish(capturedUpdate.table(), capturedUpdate, watermark);
+        } else if (changeDataCaptureMessage instanceof CapturedDelete capturedDelete) {
+            publish(capturedDelete.table(), capturedDelete, watermark);
+        } else if (changeDataCaptureMessage instanceof TransactionBegin begin) {
+            watermark.beginTransaction(begin.xid());
+            for (var publisher : publishers) {
+                publisher.beginTransaction(begin.xid());
+            }
+        } else if (changeDataCaptureMessage instanceof TransactionCommit commit) {
+            for (var publisher : publishers) {
+                publisher.commitTransaction(commit.xid(), commit.commitLsn());
+            }
+            watermark.commitTransaction(commit.commitLsn());
+        } else if (changeDataCaptureMessage instanceof Keepalive keepalive) {
+            watermark.keepalive(keepalive.lsn());
+        } else {
+            var capturedInserts = changeDataCaptureMessage.capturedInserts();
+            for (var index = 0; index < capturedInserts.size(); index++) {
+                var capturedInsert = capturedInserts.get(index);
+                publish(capturedInsert.table(), capturedInsert, watermark);
+            }
+        }
+    }
+
+    private void publish(CapturedTable table, ChangeDataCaptureMessage change, AcknowledgementWatermark watermark) {
+        var publisher = publishersByTable.get(table);
+        if (publisher != null) {
+            publish(publisher, change, watermark);
+        }
+    }
+
+    private void publish(AsyncPublisher publisher, ChangeDataCaptureMessage change, AcknowledgementWatermark watermark) {
+        acquireInFlightPublish();
+        var bytes = estimatedSizeInBytes(change);
+        metrics.inFlightBytes(inFlightBytes.addAndGet(bytes));
+        var sequence = watermark.publishing();
+        var publishStartedAt = System.nanoTime();
+        try {
+            var publishing = publishing(publisher, change);
+            if (completed(publishing)) {
+                published(watermark, sequence, bytes, publishStartedAt, completionError((CompletableFuture<Void>) publishing));
+            } else {
+                publishing.whenComplete((result, error) -> published(watermark, sequence, bytes, publishStartedAt, error));
+            }
+        } catch (RuntimeException e) {
+            releaseInFlightPublish(bytes);
+            throw e;
+        }
+    }
+
+    private static CompletionStage<Void> publishing(AsyncPublisher publisher, ChangeDataCaptureMessage change) {
+        if (change instanceof CapturedUpdate capturedUpdate) {
+            return publisher.publishUpdate(capturedUpdate.identity(), capturedUpdate.data());
+        } else if (change instanceof CapturedDelete capturedDelete) {
+            return publisher.publishDelete(capturedDelete.identity());
+        }
+        return publisher.publish(((CapturedInsert) change).data());
+    }
+
+    private static long estimatedSizeInBytes(ChangeDataCaptureMessage change) {
+        if (change instanceof CapturedUpdate capturedUpdate) {
+            var identity = capturedUpdate.identity();
+            return capturedUpdate.data().estimatedSizeInBytes() + (identity != null ? identity.estimatedSizeInBytes() : 0);
+        } else if (change instanceof CapturedDelete capturedDelete) {
+            return capturedDelete.identity().estimatedSizeInBytes();
+        }
+        return ((CapturedInsert) change).data().estimatedSizeInBytes();
+    }
+
+    private void published(
+            AcknowledgementWatermark watermark,
+            long sequence,
+            long bytes,
+            long publishStartedAt,
+            Throwable error) {
+        releaseInFlightPublish(bytes);
+        metrics.published(System.nanoTime() - publishStartedAt, error != null);
+        watermark.published(sequence, error);
+    }
+
+    private void releaseInFlightPublish(long bytes) {
+        inFlightPublishes.release();
+        metrics.inFlightBytes(inFlightBytes.addAndGet(-bytes));
+        if (paused) {
+            synchronized (publishesCompleted) {
+                publishesCompleted.notifyAll();
+            }
+        }
+    }
+
+    private void acquireInFlightPublish() {
+        if (inFlightPublishes.tryAcquire()) {
+            return;
+        }
+        flushPublishers();
+        try {
+            inFlightPublishes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for in-flight publishes to complete", e);
+        }
+    }
+
+    private void flushPublishers() {
+        for (var publisher : publishers) {
+            publisher.flush();
+        }
+    }
+
+    long acknowledgePublishedChanges(
+            ReplicationStream replicationStream,
+            AcknowledgementWatermark watermark,
+            long acknowledgedLsn) {
+        var failure = watermark.failure();
+        if (failure != null) {
+            throw new IllegalStateException("failed to publish change data capture message", failure);
+        }
+        var acknowledgeableLsn = watermark.acknowledgeableLsn();
+        if (acknowledgeableLsn > acknowledgedLsn) {
+            replicationStream.acknowledge(acknowledgeableLsn);
+            acknowledgedLsn = acknowledgeableLsn;
+        }
+        var progressingXid = watermark.progressingXid();
+        if (progressingXid != NO_XID) {
+            var publishedChanges = watermark.publishedChangesOf(progressingXid);
+            if (publishedChanges > 0) {
+                replicationStream.acknowledgeTransactionProgress(progressingXid, publishedChanges);
+            }
+        }
+        return acknowledgedLsn;
+    }
+
+    private static boolean completed(CompletionStage<Void> publishing) {
+        return publishing.getClass() == CompletableFuture.class && ((CompletableFuture<Void>) publishing).isDone();
+    }
+
+    private static Throwable completionError(CompletableFuture<Void> future) {
+        if (!future.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        } catch (CancellationException e) {
+            return e;
+        }
+    }
+
+    private void awaitInFlightPublishes() throws InterruptedException {
+        var maxInFlightPublishes = replicationConfig.maxInFlightPublishes();
+        if (inFlightPublishes.tryAcquire(maxInFlightPublishes, SHUTDOWN_TIMEOUT_IN_SECONDS, SECONDS)) {
+            inFlightPublishes.release(maxInFlightPublishes);
+        } else {
+            LOGGER.error("Timed out waiting for in-flight publishes to complete");
+        }
+    }
+
+    private void waitForNextMessage() {
+        if (paused && sharedScheduler == null) {
+            awaitInFlightLimit();
+            return;
+        }
+        var waitStartedAt = System.nanoTime();
+        try {
+            waitStrategy.idle();
+        } catch (InterruptedException e) {
+            LOGGER.error("interrupted while waiting for next message", e);
+        } finally {
+            metrics.pollingDelayed(System.nanoTime() - waitStartedAt);
+        }
+    }
+
+    private void awaitInFlightLimit() {
+        synchronized (publishesCompleted) {
+            try {
+                if (inFlightLimitReached()) {
+                    publishesCompleted.wait(Math.max(1, NANOSECONDS.toMillis(statusIntervalInNanos)));
+                }
+            } catch (InterruptedException e) {
+                LOGGER.error("interrupted while waiting for in-flight publishes to complete", e);
+            }
+        }
+    }
+
+    private void recovered() {
+        if (failedAtNanos != 0) {
+            metrics.recovered(NANOSECONDS.toMillis(System.nanoTime() - failedAtNanos));
+            failedAtNanos = 0;
+            reconnectWaitStrategy.reset();
+        }
+    }
+
+    private void applyReconnectDelay() {
+        var delayStartedAt = System.nanoTime();
+        try {
+            reconnectWaitStrategy.idle();
         } catch (InterruptedException e) {
-            LOGGER.error("interrupted while delaying during polling interval", e);
+            LOGGER.error("interrupted while delaying before reconnecting", e);
+        } finally {
+            metrics.pollingDelayed(System.nanoTime() - delayStartedAt);
         }
     }
 
+    private static WaitStrategy waitStrategy(
+            ReplicationConfiguration replicationConfig,
+            DelayService delayService,
+            boolean sharingScheduler) {
+        var pollingIntervalInMillis = replicationConfig.pollingIntervalInMillis();
+        var idleWaitStrategy = replicationConfig.idleWaitStrategy();
+        if (sharingScheduler && idleWaitStrategy == IdleWaitStrategy.SPIN_THEN_PARK) {
+            idleWaitStrategy = IdleWaitStrategy.EXPONENTIAL_BACKOFF;
+        }
+        return switch (idleWaitStrategy) {
+            case FIXED_INTERVAL -> new FixedIntervalWaitStrategy(delayService, pollingIntervalInMillis);
+            case EXPONENTIAL_BACKOFF -> new ExponentialBackoffWaitStrategy(
+                    delayService,
+                    Math.min(INITIAL_BACKOFF_INTERVAL_IN_MILLIS, pollingIntervalInMillis),
+                    pollingIntervalInMillis
+            );
+            case SPIN_THEN_PARK -> new SpinThenParkWaitStrategy(SPIN_ITERATIONS_BEFORE_PARKING, MAX_PARK_IN_NANOS);
+        };
+    }
+
+    private static Map<CapturedTable, AsyncPublisher> publisherForEveryTable(
+            AsyncPublisher publisher,
+            ReplicationConfiguration replicationConfig) {
+        requireNonNull(publisher);
+        return replicationConfig.tablesToDetectChangesFrom().stream().collect(toMap(identity(), table -> publisher));
+    }
+
     private String replicationSlotName() {
         return replicationConfig.slotName();
     }
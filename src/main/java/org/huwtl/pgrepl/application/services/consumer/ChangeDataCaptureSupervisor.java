@@ -0,0 +1,171 @@
+package org.huwtl.pgrepl.application.services.consumer;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.application.services.ThreadSleepingService;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.lang.Runtime.getRuntime;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class ChangeDataCaptureSupervisor implements AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+    private static final int SHUTDOWN_TIMEOUT_IN_SECONDS = 5;
+    private static final long RATE_SAMPLING_INTERVAL_IN_SECONDS = 1;
+    private static final Supplier<ExecutorService> VIRTUAL_THREAD_EXECUTORS = virtualThreadExecutors();
+
+    private final Map<String, Slot> slots = new LinkedHashMap<>();
+    private final Map<String, ChangeDataCaptureConsumer> consumers = new LinkedHashMap<>();
+    private final Set<String> failedSlots = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+
+    public enum SchedulingMode {
+        SHARED_SCHEDULER,
+        VIRTUAL_THREADS
+    }
+
+    public record Slot(
+            String name,
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationConfiguration replicationConfig,
+            ReplicationStreamProvider replicationStreamProvider,
+            ReplicationMetrics metrics) {
+        public Slot {
+            requireNonNull(name);
+            requireNonNull(publishersByTable);
+            requireNonNull(replicationConfig);
+            requireNonNull(replicationStreamProvider);
+            requireNonNull(metrics);
+        }
+    }
+
+    public ChangeDataCaptureSupervisor(List<Slot> slots, SchedulingMode schedulingMode, int schedulerThreads) {
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("at least one slot to supervise is required");
+        }
+        if (schedulerThreads < 1) {
+            throw new IllegalArgumentException("at least one scheduler thread is required");
+        }
+        var virtualThreads = schedulingMode == SchedulingMode.VIRTUAL_THREADS && VIRTUAL_THREAD_EXECUTORS != null;
+        if (schedulingMode == SchedulingMode.VIRTUAL_THREADS && !virtualThreads) {
+            LOGGER.warn("Virtual threads are not supported by this runtime so sharing a scheduler instead");
+        }
+        this.scheduler = Executors.newScheduledThreadPool(virtualThreads ? 1 : schedulerThreads, schedulerThreadFactory());
+        for (var slot : slots) {
+            if (this.slots.putIfAbsent(slot.name(), slot) != null) {
+                throw new IllegalArgumentException("slot " + slot.name() + " is supervised more than once");
+            }
+            consumers.put(slot.name(), virtualThreads ? virtualThreadConsumer(slot) : sharedSchedulerConsumer(slot));
+        }
+        LOGGER.info(
+                "Supervising {} slots {}",
+                slots.size(),
+                virtualThreads ? "with a virtual thread each" : "on a scheduler of " + schedulerThreads + " threads"
+        );
+    }
+
+    public CompletableFuture<Void> start() {
+        getRuntime().addShutdownHook(new Thread(this::close));
+        scheduler.scheduleAtFixedRate(
+                this::sampleRates,
+                RATE_SAMPLING_INTERVAL_IN_SECONDS,
+                RATE_SAMPLING_INTERVAL_IN_SECONDS,
+                SECONDS
+        );
+        var stoppedSlots = new ArrayList<CompletableFuture<?>>();
+        consumers.forEach((name, consumer) -> {
+            consumer.startConsuming();
+            stoppedSlots.add(consumer.stopped().handle((stopped, error) -> {
+                if (error != null) {
+                    failedSlots.add(name);
+                    LOGGER.error("Stopped consuming from slot {} after an unrecoverable error", name, error);
+                }
+                return stopped;
+            }));
+        });
+        return CompletableFuture.allOf(stoppedSlots.toArray(CompletableFuture[]::new));
+    }
+
+    public Set<String> failedSlots() {
+        return Set.copyOf(failedSlots);
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("Attempting to shutdown {} supervised consumers", consumers.size());
+        consumers.values().forEach(ChangeDataCaptureConsumer::stop);
+        var deadline = System.nanoTime() + SECONDS.toNanos(SHUTDOWN_TIMEOUT_IN_SECONDS);
+        consumers.values().forEach(consumer -> consumer.awaitStopped(Math.max(0, deadline - System.nanoTime())));
+        scheduler.shutdownNow();
+        LOGGER.info("Successfully shutdown supervised consumers");
+    }
+
+    private ChangeDataCaptureConsumer sharedSchedulerConsumer(Slot slot) {
+        return new ChangeDataCaptureConsumer(
+                slot.publishersByTable(),
+                slot.replicationConfig(),
+                slot.replicationStreamProvider(),
+                scheduler,
+                slot.metrics()
+        );
+    }
+
+    private static ChangeDataCaptureConsumer virtualThreadConsumer(Slot slot) {
+        return new ChangeDataCaptureConsumer(
+                slot.publishersByTable(),
+                slot.replicationConfig(),
+                slot.replicationStreamProvider(),
+                VIRTUAL_THREAD_EXECUTORS.get(),
+                new ThreadSleepingService(),
+                slot.metrics()
+        );
+    }
+
+    private void sampleRates() {
+        slots.values().forEach(slot -> slot.metrics().registry().sampleRates());
+    }
+
+    private static ThreadFactory schedulerThreadFactory() {
+        var threads = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "cdc-scheduler-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Supplier<ExecutorService> virtualThreadExecutors() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return () -> {
+                try {
+                    return (ExecutorService) factory.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("unable to create virtual thread executor", e);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
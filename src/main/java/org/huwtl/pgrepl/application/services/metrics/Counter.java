@@ -0,0 +1,38 @@
+package org.huwtl.pgrepl.application.services.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final LongAdder count = new LongAdder();
+    private long lastSampledCount;
+    private long lastSampledAtNanos = System.nanoTime();
+    private volatile double ratePerSecond;
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    synchronized void sampleRate(long nowNanos) {
+        var currentCount = count.sum();
+        var elapsedNanos = nowNanos - lastSampledAtNanos;
+        if (elapsedNanos > 0) {
+            ratePerSecond = (currentCount - lastSampledCount) * NANOS_PER_SECOND / elapsedNanos;
+            lastSampledCount = currentCount;
+            lastSampledAtNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.huwtl.pgrepl.application.services.metrics;
+
+@FunctionalInterface
+public interface Gauge {
+    long value();
+}
@@ -0,0 +1,76 @@
+package org.huwtl.pgrepl.application.services.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int MAX_EXPONENT = 62;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        var recorded = Math.max(0, value);
+        counts.incrementAndGet(bucket(recorded));
+        count.increment();
+        sum.add(recorded);
+        if (recorded > max.get()) {
+            max.accumulateAndGet(recorded, Math::max);
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        var recorded = count.sum();
+        return recorded == 0 ? 0 : (double) sum.sum() / recorded;
+    }
+
+    public long valueAtPercentile(double percentile) {
+        var recorded = count.sum();
+        if (recorded == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(recorded * Math.min(100, Math.max(0, percentile)) / 100));
+        var seen = 0L;
+        for (var bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var shift = exponent - SUB_BUCKET_BITS + 1;
+        var subBucket = (int) (value >>> shift) & (HALF_SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        var shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        var subBucket = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,4 @@
+package org.huwtl.pgrepl.application.services.metrics;
+
+public record MetricSample(String name, String description, double value) {
+}
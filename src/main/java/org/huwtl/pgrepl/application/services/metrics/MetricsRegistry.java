@@ -0,0 +1,92 @@
+package org.huwtl.pgrepl.application.services.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class MetricsRegistry implements AutoCloseable {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_SUFFIXES = {"_p50", "_p90", "_p99", "_p999"};
+    private static final long RATE_SAMPLING_INTERVAL_IN_SECONDS = 1;
+
+    private final Map<String, Registered<Counter>> counters = new LinkedHashMap<>();
+    private final Map<String, Registered<Gauge>> gauges = new LinkedHashMap<>();
+    private final Map<String, Registered<Histogram>> histograms = new LinkedHashMap<>();
+    private ScheduledExecutorService rateSampler;
+
+    public synchronized Counter counter(String name, String description) {
+        return counters.computeIfAbsent(name, ignored -> new Registered<>(description, new Counter())).metric();
+    }
+
+    public synchronized void gauge(String name, String description, Gauge gauge) {
+        gauges.put(name, new Registered<>(description, gauge));
+    }
+
+    public synchronized Histogram histogram(String name, String description) {
+        return histograms.computeIfAbsent(name, ignored -> new Registered<>(description, new Histogram())).metric();
+    }
+
+    public synchronized void startSamplingRates() {
+        if (rateSampler == null) {
+            rateSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "metrics-rate-sampler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rateSampler.scheduleAtFixedRate(
+                    this::sampleRates,
+                    RATE_SAMPLING_INTERVAL_IN_SECONDS,
+                    RATE_SAMPLING_INTERVAL_IN_SECONDS,
+                    SECONDS
+            );
+        }
+    }
+
+    public synchronized void sampleRates() {
+        var now = System.nanoTime();
+        counters.values().forEach(counter -> counter.metric().sampleRate(now));
+    }
+
+    public synchronized List<MetricSample> samples() {
+        var samples = new ArrayList<MetricSample>();
+        counters.forEach((name, counter) -> {
+            samples.add(new MetricSample(name + "_total", counter.description(), counter.metric().count()));
+            samples.add(new MetricSample(
+                    name + "_per_second",
+                    counter.description() + " per second",
+                    counter.metric().ratePerSecond()
+            ));
+        });
+        gauges.forEach((name, gauge) -> samples.add(new MetricSample(name, gauge.description(), gauge.metric().value())));
+        histograms.forEach((name, histogram) -> {
+            var metric = histogram.metric();
+            samples.add(new MetricSample(name + "_count", histogram.description() + " count", metric.count()));
+            samples.add(new MetricSample(name + "_mean", histogram.description() + " mean", metric.mean()));
+            samples.add(new MetricSample(name + "_max", histogram.description() + " max", metric.max()));
+            for (var index = 0; index < PERCENTILES.length; index++) {
+                samples.add(new MetricSample(
+                        name + PERCENTILE_SUFFIXES[index],
+                        histogram.description() + " " + PERCENTILES[index] + "th percentile",
+                        metric.valueAtPercentile(PERCENTILES[index])
+                ));
+            }
+        });
+        return samples;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (rateSampler != null) {
+            rateSampler.shutdownNow();
+            rateSampler = null;
+        }
+    }
+
+    private record Registered<T>(String description, T metric) {
+    }
+}
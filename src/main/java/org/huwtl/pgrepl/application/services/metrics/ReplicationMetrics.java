@@ -0,0 +1,177 @@
+package org.huwtl.pgrepl.application.services.metrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReplicationMetrics {
+    private static final long NO_LSN = 0;
+
+    private final MetricsRegistry registry;
+    private final Counter messagesReceived;
+    private final Counter bytesReceived;
+    private final Counter rowsPublished;
+    private final Counter publishFailures;
+    private final Counter reconnects;
+    private final Counter pollingDelayNanos;
+    private final Counter backpressurePauseNanos;
+    private final Histogram decodeLatencyNanos;
+    private final Histogram publishLatencyNanos;
+    private final Histogram recoveryMillis;
+    private final Counter snapshotRows;
+    private final Counter compactionChangesReceived;
+    private final Counter compactionChangesPublished;
+    private final Counter rowsEvaluated;
+    private final Counter rowsAccepted;
+    private final Counter unparsedValues;
+    private final AtomicLong receivedLsn = new AtomicLong(NO_LSN);
+    private final AtomicLong flushedLsn = new AtomicLong(NO_LSN);
+    private final AtomicLong commitLagMillis = new AtomicLong();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicLong snapshotChunksRemaining = new AtomicLong();
+    private final AtomicLong compactionPendingKeys = new AtomicLong();
+    private final AtomicLong compactionPendingBytes = new AtomicLong();
+    private final List<List<Collection<?>>> publisherLaneQueues = new ArrayList<>();
+
+    public ReplicationMetrics() {
+        this(new MetricsRegistry());
+    }
+
+    public ReplicationMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.messagesReceived = registry.counter("pgrepl_messages_received", "replication messages received");
+        this.bytesReceived = registry.counter("pgrepl_bytes_received", "replication message bytes received");
+        this.rowsPublished = registry.counter("pgrepl_rows_published", "rows published");
+        this.publishFailures = registry.counter("pgrepl_publish_failures", "rows that failed to publish");
+        this.reconnects = registry.counter("pgrepl_reconnects", "replication stream reconnects");
+        this.pollingDelayNanos = registry.counter("pgrepl_polling_delay_nanos", "nanoseconds spent waiting to poll");
+        this.backpressurePauseNanos = registry.counter("pgrepl_backpressure_pause_nanos", "nanoseconds reading was paused by in-flight limits");
+        this.decodeLatencyNanos = registry.histogram("pgrepl_decode_latency_nanos", "message decode latency in nanoseconds");
+        this.publishLatencyNanos = registry.histogram("pgrepl_publish_latency_nanos", "row publish latency in nanoseconds");
+        this.recoveryMillis = registry.histogram("pgrepl_recovery_millis", "milliseconds from replication failure until streaming again");
+        this.snapshotRows = registry.counter("pgrepl_snapshot_rows", "rows published by the initial snapshot");
+        this.compactionChangesReceived = registry.counter("pgrepl_compaction_changes_received", "changes received for compaction");
+        this.compactionChangesPublished = registry.counter("pgrepl_compaction_changes_published", "compacted changes published");
+        this.rowsEvaluated = registry.counter("pgrepl_rows_evaluated", "rows evaluated against a row predicate");
+        this.rowsAccepted = registry.counter("pgrepl_rows_accepted", "rows accepted by a row predicate");
+        this.unparsedValues = registry.counter("pgrepl_unparsed_values", "column values published as text as they could not be parsed as their column type");
+        registry.gauge("pgrepl_received_lsn", "last received log sequence number", receivedLsn::get);
+        registry.gauge("pgrepl_flushed_lsn", "last flushed log sequence number", flushedLsn::get);
+        registry.gauge("pgrepl_lag_bytes", "bytes received but not yet flushed", this::lagInBytes);
+        registry.gauge("pgrepl_in_flight_bytes", "estimated bytes of rows awaiting publish completion", inFlightBytes::get);
+        registry.gauge("pgrepl_commit_lag_millis", "milliseconds between last commit and its receipt", commitLagMillis::get);
+        registry.gauge("pgrepl_snapshot_chunks_remaining", "initial snapshot chunks not yet published", snapshotChunksRemaining::get);
+        registry.gauge("pgrepl_compaction_pending_keys", "keys held until the next compacted flush", compactionPendingKeys::get);
+        registry.gauge("pgrepl_compaction_pending_bytes", "estimated bytes held until the next compacted flush", compactionPendingBytes::get);
+    }
+
+    public MetricsRegistry registry() {
+        return registry;
+    }
+
+    public void messageReceived(long lsn, int bytes, long decodeNanos) {
+        messagesReceived.increment();
+        bytesReceived.add(bytes);
+        decodeLatencyNanos.record(decodeNanos);
+        receivedLsn.lazySet(lsn);
+    }
+
+    public void keepaliveReceived(long lsn) {
+        receivedLsn.lazySet(lsn);
+    }
+
+    public void transactionCommitted(Instant commitTimestamp) {
+        if (commitTimestamp != null) {
+            commitLagMillis.lazySet(Math.max(0, System.currentTimeMillis() - commitTimestamp.toEpochMilli()));
+        }
+    }
+
+    public void flushed(long lsn) {
+        flushedLsn.lazySet(lsn);
+    }
+
+    public void published(long publishNanos, boolean failed) {
+        if (failed) {
+            publishFailures.increment();
+        } else {
+            rowsPublished.increment();
+            publishLatencyNanos.record(publishNanos);
+        }
+    }
+
+    public void reconnected() {
+        reconnects.increment();
+    }
+
+    public void recovered(long recoveryMillis) {
+        this.recoveryMillis.record(recoveryMillis);
+    }
+
+    public void snapshotPlanned(int remainingChunks) {
+        snapshotChunksRemaining.set(remainingChunks);
+    }
+
+    public void snapshotChunkPublished(long rows) {
+        snapshotRows.add(rows);
+        snapshotChunksRemaining.decrementAndGet();
+    }
+
+    public void compacting(long addedKeys, long addedBytes) {
+        compactionChangesReceived.increment();
+        compactionPendingKeys.addAndGet(addedKeys);
+        compactionPendingBytes.addAndGet(addedBytes);
+    }
+
+    public void compactionFlushed(long keys, long bytes) {
+        compactionChangesPublished.add(keys);
+        compactionPendingKeys.addAndGet(-keys);
+        compactionPendingBytes.addAndGet(-bytes);
+    }
+
+    public void valueUnparsed() {
+        unparsedValues.increment();
+    }
+
+    public void rowEvaluated(boolean accepted) {
+        rowsEvaluated.increment();
+        if (accepted) {
+            rowsAccepted.increment();
+        }
+    }
+
+    public synchronized void publisherLanes(List<? extends Collection<?>> laneQueues) {
+        for (var lane = 0; lane < laneQueues.size(); lane++) {
+            if (lane == publisherLaneQueues.size()) {
+                var queues = new CopyOnWriteArrayList<Collection<?>>();
+                publisherLaneQueues.add(queues);
+                registry.gauge(
+                        "pgrepl_publisher_lane_" + lane + "_queue_depth",
+                        "publishes queued on publishing lane " + lane,
+                        () -> queues.stream().mapToLong(Collection::size).sum()
+                );
+            }
+            publisherLaneQueues.get(lane).add(laneQueues.get(lane));
+        }
+    }
+
+    public void inFlightBytes(long bytes) {
+        inFlightBytes.lazySet(bytes);
+    }
+
+    public void backpressurePaused(long pauseNanos) {
+        backpressurePauseNanos.add(pauseNanos);
+    }
+
+    public void pollingDelayed(long delayNanos) {
+        pollingDelayNanos.add(delayNanos);
+    }
+
+    private long lagInBytes() {
+        var flushed = flushedLsn.get();
+        var received = receivedLsn.get();
+        return flushed == NO_LSN ? 0 : Math.max(0, received - flushed);
+    }
+}
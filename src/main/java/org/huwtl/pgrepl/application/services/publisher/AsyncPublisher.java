@@ -0,0 +1,31 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+public interface AsyncPublisher {
+    CompletionStage<Void> publish(Data data);
+
+    default CompletionStage<Void> publishUpdate(Data identity, Data data) {
+        return publish(data);
+    }
+
+    default CompletionStage<Void> publishDelete(Data identity) {
+        return CompletableFuture.failedFuture(
+                new UnsupportedOperationException(getClass().getSimpleName() + " does not publish deletes")
+        );
+    }
+
+    default void flush() {
+    }
+
+    default void beginTransaction(long xid) {
+    }
+
+    default void commitTransaction(long xid, long commitLsn) {
+    }
+
+    static AsyncPublisher blocking(Publisher publisher) {
+        return new BlockingPublisher(publisher);
+    }
+}
@@ -0,0 +1,191 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class BatchingPublisher implements AsyncPublisher, AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+
+    private final Publisher publisher;
+    private final int maxRows;
+    private final long maxBytes;
+    private final long maxLingerInNanos;
+    private final ScheduledExecutorService lingerScheduler;
+
+    private List<Data> batch;
+    private CompletableFuture<Void> batchPublished = new CompletableFuture<>();
+    private long batchSizeInBytes;
+    private long batchStartedAtNanos;
+    private boolean transactionOpen;
+    private long openXid;
+    private final Deque<PendingCommit> pendingCommits = new ArrayDeque<>();
+
+    public BatchingPublisher(Publisher publisher, int maxRows, long maxBytes, Duration maxLinger) {
+        if (maxRows < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("batches must hold at least one row and one byte");
+        }
+        if (maxLinger.isNegative()) {
+            throw new IllegalArgumentException("maximum batch linger must not be negative");
+        }
+        this.publisher = requireNonNull(publisher);
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxLingerInNanos = maxLinger.toNanos();
+        this.batch = new ArrayList<>();
+        if (maxLingerInNanos > 0) {
+            this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "batch-linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var lingerCheckIntervalInNanos = Math.max(1, maxLingerInNanos / 2);
+            lingerScheduler.scheduleAtFixedRate(
+                    this::flushIfLingerExpired,
+                    lingerCheckIntervalInNanos,
+                    lingerCheckIntervalInNanos,
+                    NANOSECONDS
+            );
+        } else {
+            this.lingerScheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized CompletionStage<Void> publish(Data data) {
+        if (batch.isEmpty()) {
+            batchStartedAtNanos = System.nanoTime();
+        }
+        batch.add(data);
+        batchSizeInBytes += data.estimatedSizeInBytes();
+        var published = batchPublished;
+        if (batch.size() >= maxRows || batchSizeInBytes >= maxBytes || maxLingerInNanos == 0 && !transactionOpen) {
+            flushBatch();
+        }
+        return published;
+    }
+
+    @Override
+    public synchronized CompletionStage<Void> publishUpdate(Data identity, Data data) {
+        return flushThen(() -> publisher.publishUpdate(identity, data));
+    }
+
+    @Override
+    public synchronized CompletionStage<Void> publishDelete(Data identity) {
+        return flushThen(() -> publisher.publishDelete(identity));
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!batch.isEmpty()) {
+            flushBatch();
+        }
+    }
+
+    @Override
+    public synchronized void beginTransaction(long xid) {
+        transactionOpen = true;
+        openXid = xid;
+        if (pendingCommits.isEmpty()) {
+            publisher.beginTransaction(xid);
+        }
+    }
+
+    @Override
+    public synchronized void commitTransaction(long xid, long commitLsn) {
+        transactionOpen = false;
+        if (batch.isEmpty()) {
+            publisher.commitTransaction(xid, commitLsn);
+            return;
+        }
+        pendingCommits.addLast(new PendingCommit(xid, commitLsn, batch.size()));
+        if (lingeredFor(1)) {
+            flushBatch();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (lingerScheduler != null) {
+            lingerScheduler.shutdownNow();
+        }
+        synchronized (this) {
+            if (!batch.isEmpty()) {
+                LOGGER.info("Flushing batch of {} on close", batch.size());
+                flushBatch();
+            }
+        }
+    }
+
+    private synchronized void flushIfLingerExpired() {
+        try {
+            if (transactionOpen ? lingeredFor(2) : lingeredFor(1)) {
+                flushBatch();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error while flushing lingering batch", e);
+        }
+    }
+
+    private boolean lingeredFor(int lingerPeriods) {
+        return !batch.isEmpty() && System.nanoTime() - batchStartedAtNanos >= maxLingerInNanos * lingerPeriods;
+    }
+
+    private CompletionStage<Void> flushThen(Runnable publish) {
+        if (!batch.isEmpty()) {
+            flushBatch();
+        }
+        try {
+            publish.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void flushBatch() {
+        var flushing = batch;
+        var published = batchPublished;
+        batch = new ArrayList<>();
+        batchPublished = new CompletableFuture<>();
+        batchSizeInBytes = 0;
+        try {
+            var flushed = 0;
+            while (!pendingCommits.isEmpty()) {
+                var commit = pendingCommits.removeFirst();
+                if (commit.rows() > flushed) {
+                    publisher.publishBatch(flushing.subList(flushed, commit.rows()));
+                    flushed = commit.rows();
+                }
+                publisher.commitTransaction(commit.xid(), commit.commitLsn());
+                var next = pendingCommits.peekFirst();
+                if (next != null) {
+                    publisher.beginTransaction(next.xid());
+                } else if (transactionOpen) {
+                    publisher.beginTransaction(openXid);
+                }
+            }
+            if (flushed < flushing.size()) {
+                publisher.publishBatch(flushing.subList(flushed, flushing.size()));
+            }
+            published.complete(null);
+        } catch (RuntimeException e) {
+            published.completeExceptionally(e);
+        }
+    }
+
+    private record PendingCommit(long xid, long commitLsn, int rows) {
+    }
+}
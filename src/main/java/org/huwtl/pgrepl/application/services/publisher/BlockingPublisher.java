@@ -0,0 +1,44 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static java.util.Objects.requireNonNull;
+
+class BlockingPublisher implements AsyncPublisher {
+    private static final CompletionStage<Void> PUBLISHED = CompletableFuture.completedFuture(null);
+
+    private final Publisher publisher;
+
+    BlockingPublisher(Publisher publisher) {
+        this.publisher = requireNonNull(publisher);
+    }
+
+    @Override
+    public CompletionStage<Void> publish(Data data) {
+        publisher.publish(data);
+        return PUBLISHED;
+    }
+
+    @Override
+    public CompletionStage<Void> publishUpdate(Data identity, Data data) {
+        publisher.publishUpdate(identity, data);
+        return PUBLISHED;
+    }
+
+    @Override
+    public CompletionStage<Void> publishDelete(Data identity) {
+        publisher.publishDelete(identity);
+        return PUBLISHED;
+    }
+
+    @Override
+    public void beginTransaction(long xid) {
+        publisher.beginTransaction(xid);
+    }
+
+    @Override
+    public void commitTransaction(long xid, long commitLsn) {
+        publisher.commitTransaction(xid, commitLsn);
+    }
+}
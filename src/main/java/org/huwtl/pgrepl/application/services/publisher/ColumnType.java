@@ -0,0 +1,25 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+public enum ColumnType {
+    BOOLEAN(true),
+    INTEGER(true),
+    FLOAT(true),
+    NUMERIC(false),
+    TEXT(false),
+    UUID(false),
+    DATE(false),
+    TIMESTAMP(false),
+    TIMESTAMP_WITH_TIME_ZONE(false),
+    JSON(false),
+    OTHER(false);
+
+    private final boolean primitive;
+
+    ColumnType(boolean primitive) {
+        this.primitive = primitive;
+    }
+
+    public boolean primitive() {
+        return primitive;
+    }
+}
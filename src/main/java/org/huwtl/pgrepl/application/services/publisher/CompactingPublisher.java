@@ -0,0 +1,278 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class CompactingPublisher implements AsyncPublisher, AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+
+    private final AsyncPublisher publisher;
+    private final String keyColumn;
+    private final long windowInNanos;
+    private final int maxWindowChanges;
+    private final ReplicationMetrics metrics;
+    private final ScheduledExecutorService windowScheduler;
+
+    private Map<Object, CompactedChange> latestChangesByKey = new LinkedHashMap<>();
+    private CompletableFuture<Void> windowPublished = new CompletableFuture<>();
+    private int windowChanges;
+    private long windowSizeInBytes;
+    private long windowStartedAtNanos;
+    private boolean transactionOpen;
+    private long openXid;
+    private final Deque<PendingCommit> pendingCommits = new ArrayDeque<>();
+
+    public CompactingPublisher(
+            AsyncPublisher publisher,
+            String keyColumn,
+            Duration window,
+            int maxWindowChanges,
+            ReplicationMetrics metrics) {
+        if (maxWindowChanges < 1) {
+            throw new IllegalArgumentException("at least one change must fit in a compaction window");
+        }
+        this.publisher = requireNonNull(publisher);
+        this.keyColumn = requireNonNull(keyColumn);
+        this.windowInNanos = window.toNanos();
+        this.maxWindowChanges = maxWindowChanges;
+        this.metrics = requireNonNull(metrics);
+        if (windowInNanos > 0) {
+            this.windowScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "compaction-window");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var windowCheckIntervalInNanos = Math.max(1, windowInNanos / 2);
+            windowScheduler.scheduleAtFixedRate(
+                    this::flushIfWindowExpired,
+                    windowCheckIntervalInNanos,
+                    windowCheckIntervalInNanos,
+                    NANOSECONDS
+            );
+        } else {
+            this.windowScheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized CompletionStage<Void> publish(Data data) {
+        return compact(key(data), ChangeKind.INSERT, null, data);
+    }
+
+    @Override
+    public synchronized CompletionStage<Void> publishUpdate(Data identity, Data data) {
+        var key = key(data);
+        var previousKey = identity != null ? identity.value(keyColumn) : null;
+        if (previousKey != null && !previousKey.equals(key)) {
+            keep(previousKey, ChangeKind.DELETE, identity, null);
+            return compact(key, ChangeKind.INSERT, null, data);
+        }
+        return compact(key, ChangeKind.UPDATE, identity, data);
+    }
+
+    @Override
+    public synchronized CompletionStage<Void> publishDelete(Data identity) {
+        return compact(identityKey(identity), ChangeKind.DELETE, identity, null);
+    }
+
+    @Override
+    public synchronized void beginTransaction(long xid) {
+        transactionOpen = true;
+        openXid = xid;
+        if (pendingCommits.isEmpty()) {
+            publisher.beginTransaction(xid);
+        }
+    }
+
+    @Override
+    public synchronized void commitTransaction(long xid, long commitLsn) {
+        transactionOpen = false;
+        if (latestChangesByKey.isEmpty()) {
+            publisher.commitTransaction(xid, commitLsn);
+            return;
+        }
+        pendingCommits.addLast(new PendingCommit(xid, commitLsn));
+        if (windowInNanos == 0 || windowOpenFor(1)) {
+            flushWindow();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!latestChangesByKey.isEmpty()) {
+            flushWindow();
+        }
+        publisher.flush();
+    }
+
+    @Override
+    public void close() {
+        if (windowScheduler != null) {
+            windowScheduler.shutdownNow();
+        }
+        synchronized (this) {
+            if (!latestChangesByKey.isEmpty()) {
+                LOGGER.info("Flushing {} compacted changes on close", latestChangesByKey.size());
+                flushWindow();
+            }
+        }
+        if (publisher instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (InterruptedException e) {
+                LOGGER.error("Interrupted while closing compacted publisher", e);
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.error("Unable to close compacted publisher", e);
+            }
+        }
+    }
+
+    private Object key(Data data) {
+        var index = data.schema().indexOf(keyColumn);
+        if (index < 0) {
+            throw new IllegalArgumentException(
+                    "Compaction key column " + keyColumn + " is not one of the columns " + data.schema().names()
+            );
+        }
+        return uncompactedIfNull(data.value(index));
+    }
+
+    private Object identityKey(Data identity) {
+        return uncompactedIfNull(identity.value(keyColumn));
+    }
+
+    private static Object uncompactedIfNull(Object key) {
+        return key != null ? key : new Object();
+    }
+
+    private CompletionStage<Void> compact(Object key, ChangeKind kind, Data identity, Data data) {
+        keep(key, kind, identity, data);
+        var published = windowPublished;
+        if (windowChanges >= maxWindowChanges || windowInNanos == 0 && !transactionOpen) {
+            flushWindow();
+        }
+        return published;
+    }
+
+    private void keep(Object key, ChangeKind kind, Data identity, Data data) {
+        if (windowChanges == 0) {
+            windowStartedAtNanos = System.nanoTime();
+        }
+        windowChanges++;
+        var replaced = latestChangesByKey.remove(key);
+        if (replaced != null && replaced.kind() == ChangeKind.INSERT && kind == ChangeKind.UPDATE) {
+            kind = ChangeKind.INSERT;
+        }
+        var change = new CompactedChange(kind, identity, data, pendingCommits.size());
+        latestChangesByKey.put(key, change);
+        var addedBytes = change.sizeInBytes() - (replaced != null ? replaced.sizeInBytes() : 0);
+        windowSizeInBytes += addedBytes;
+        metrics.compacting(replaced != null ? 0 : 1, addedBytes);
+    }
+
+    private synchronized void flushIfWindowExpired() {
+        try {
+            if (transactionOpen ? windowOpenFor(2) : windowOpenFor(1)) {
+                flushWindow();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error while flushing expired compaction window", e);
+        }
+    }
+
+    private boolean windowOpenFor(int windows) {
+        return !latestChangesByKey.isEmpty() && System.nanoTime() - windowStartedAtNanos >= windowInNanos * windows;
+    }
+
+    private void flushWindow() {
+        var flushing = latestChangesByKey;
+        var published = windowPublished;
+        var compactedChanges = windowChanges;
+        metrics.compactionFlushed(flushing.size(), windowSizeInBytes);
+        latestChangesByKey = new LinkedHashMap<>();
+        windowPublished = new CompletableFuture<>();
+        windowChanges = 0;
+        windowSizeInBytes = 0;
+        var publishes = new CompletableFuture<?>[flushing.size()];
+        var index = 0;
+        var forwardedCommits = 0;
+        try {
+            for (var change : flushing.values()) {
+                for (; forwardedCommits < change.commitsBefore(); forwardedCommits++) {
+                    forwardNextCommit();
+                }
+                publishes[index++] = change.publishWith(publisher).toCompletableFuture();
+            }
+            while (!pendingCommits.isEmpty()) {
+                forwardNextCommit();
+            }
+        } catch (RuntimeException e) {
+            published.completeExceptionally(e);
+            return;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Compacted {} changes into {} for {}", compactedChanges, flushing.size(), keyColumn);
+        }
+        CompletableFuture.allOf(publishes).whenComplete((result, error) -> {
+            if (error != null) {
+                published.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                published.complete(null);
+            }
+        });
+    }
+
+    private void forwardNextCommit() {
+        var commit = pendingCommits.removeFirst();
+        publisher.commitTransaction(commit.xid(), commit.commitLsn());
+        var next = pendingCommits.peekFirst();
+        if (next != null) {
+            publisher.beginTransaction(next.xid());
+        } else if (transactionOpen) {
+            publisher.beginTransaction(openXid);
+        }
+    }
+
+    private enum ChangeKind {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private record PendingCommit(long xid, long commitLsn) {
+    }
+
+    private record CompactedChange(ChangeKind kind, Data identity, Data data, int commitsBefore, long sizeInBytes) {
+        CompactedChange(ChangeKind kind, Data identity, Data data, int commitsBefore) {
+            this(kind, identity, data, commitsBefore, sizeInBytes(identity) + sizeInBytes(data));
+        }
+
+        CompletionStage<Void> publishWith(AsyncPublisher publisher) {
+            return switch (kind) {
+                case INSERT -> publisher.publish(data);
+                case UPDATE -> publisher.publishUpdate(identity, data);
+                case DELETE -> publisher.publishDelete(identity);
+            };
+        }
+
+        private static long sizeInBytes(Data data) {
+            return data != null ? data.estimatedSizeInBytes() : 0;
+        }
+    }
+}
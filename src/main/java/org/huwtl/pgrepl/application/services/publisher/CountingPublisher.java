@@ -2,20 +2,41 @@ package org.huwtl.pgrepl.application.services.publisher;
 
 import org.apache.logging.log4j.Logger;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.apache.logging.log4j.LogManager.getLogger;
 
 public class CountingPublisher implements Publisher {
     private static final Logger LOGGER = getLogger();
 
-    private long numberOfPublishes = 0;
+    private final AtomicLong numberOfPublishes = new AtomicLong();
 
     @Override
     public void publish(Data data) {
-        numberOfPublishes++;
-        LOGGER.info("Number of publishes {} - data published {}", numberOfPublishes, data);
+        var publishes = numberOfPublishes.incrementAndGet();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Number of publishes {} - data published {}", publishes, data);
+        }
+    }
+
+    @Override
+    public void publishDelete(Data identity) {
+        var publishes = numberOfPublishes.incrementAndGet();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Number of publishes {} - delete published {}", publishes, identity);
+        }
+    }
+
+    @Override
+    public void publishBatch(List<Data> batch) {
+        var publishes = numberOfPublishes.addAndGet(batch.size());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Number of publishes {} - batch of {} published", publishes, batch.size());
+        }
     }
 
     long numberOfPublishes() {
-        return numberOfPublishes;
+        return numberOfPublishes.get();
     }
 }
@@ -1,6 +1,227 @@
 package org.huwtl.pgrepl.application.services.publisher;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
-public record Data(Map<String, Object> all) {
+import static java.util.Objects.requireNonNull;
+
+public final class Data {
+    public static final Object UNBOXED = new Object() {
+        @Override
+        public String toString() {
+            return "UNBOXED";
+        }
+    };
+
+    private static final int ESTIMATED_BYTES_PER_CHARACTER = 2;
+    private static final int ESTIMATED_BYTES_PER_NON_TEXT_VALUE = 16;
+
+    private final RowSchema schema;
+    private final Object[] values;
+    private final long[] primitives;
+
+    public Data(RowSchema schema, Object[] values) {
+        this(schema, values, null);
+    }
+
+    public Data(RowSchema schema, Object[] values, long[] primitives) {
+        if (schema.size() != values.length) {
+            throw new IllegalArgumentException(
+                    "expected " + schema.size() + " values for columns " + schema + " but got " + values.length
+            );
+        }
+        if (schema.hasPrimitiveColumns() && (primitives == null || primitives.length != values.length)) {
+            throw new IllegalArgumentException("expected a primitive value slot for every column of " + schema);
+        }
+        this.schema = schema;
+        this.values = values;
+        this.primitives = primitives;
+    }
+
+    public Data(Map<String, Object> all) {
+        this(new RowSchema(all.keySet().toArray(String[]::new)), all.values().toArray());
+    }
+
+    public RowSchema schema() {
+        return schema;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isNull(int index) {
+        return values[index] == null;
+    }
+
+    public Object value(int index) {
+        var value = values[index];
+        if (value != UNBOXED) {
+            return value;
+        }
+        return switch (schema.type(index)) {
+            case BOOLEAN -> primitives[index] != 0;
+            case INTEGER -> primitives[index];
+            case FLOAT -> Double.longBitsToDouble(primitives[index]);
+            default -> throw new IllegalStateException("column " + schema.name(index) + " is not primitive");
+        };
+    }
+
+    public Object value(String columnName) {
+        var index = schema.indexOf(requireNonNull(columnName));
+        return index >= 0 ? value(index) : null;
+    }
+
+    public long getLong(int index) {
+        var value = nonNullValue(index);
+        if (value == UNBOXED) {
+            return switch (schema.type(index)) {
+                case INTEGER -> primitives[index];
+                case FLOAT -> (long) Double.longBitsToDouble(primitives[index]);
+                default -> throw new IllegalStateException("column " + schema.name(index) + " is not numeric");
+            };
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        throw new IllegalStateException("column " + schema.name(index) + " is not numeric");
+    }
+
+    public long getLong(String columnName) {
+        return getLong(indexOf(columnName));
+    }
+
+    public double getDouble(int index) {
+        var value = nonNullValue(index);
+        if (value == UNBOXED) {
+            return switch (schema.type(index)) {
+                case INTEGER -> primitives[index];
+                case FLOAT -> Double.longBitsToDouble(primitives[index]);
+                default -> throw new IllegalStateException("column " + schema.name(index) + " is not numeric");
+            };
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        throw new IllegalStateException("column " + schema.name(index) + " is not numeric");
+    }
+
+    public double getDouble(String columnName) {
+        return getDouble(indexOf(columnName));
+    }
+
+    public boolean getBoolean(int index) {
+        var value = nonNullValue(index);
+        if (value == UNBOXED && schema.type(index) == ColumnType.BOOLEAN) {
+            return primitives[index] != 0;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        throw new IllegalStateException("column " + schema.name(index) + " is not boolean");
+    }
+
+    public boolean getBoolean(String columnName) {
+        return getBoolean(indexOf(columnName));
+    }
+
+    private Object nonNullValue(int index) {
+        var value = values[index];
+        if (value == null) {
+            throw new IllegalStateException("column " + schema.name(index) + " is null");
+        }
+        return value;
+    }
+
+    private int indexOf(String columnName) {
+        var index = schema.indexOf(requireNonNull(columnName));
+        if (index < 0) {
+            throw new IllegalArgumentException("no column " + columnName + " in " + schema);
+        }
+        return index;
+    }
+
+    public long estimatedSizeInBytes() {
+        var size = 0L;
+        for (var index = 0; index < values.length; index++) {
+            size += (long) schema.name(index).length() * ESTIMATED_BYTES_PER_CHARACTER;
+            var value = values[index];
+            size += value instanceof CharSequence text
+                    ? (long) text.length() * ESTIMATED_BYTES_PER_CHARACTER
+                    : ESTIMATED_BYTES_PER_NON_TEXT_VALUE;
+        }
+        return size;
+    }
+
+    public Map<String, Object> all() {
+        return new ColumnValues();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Data data && all().equals(data.all());
+    }
+
+    @Override
+    public int hashCode() {
+        return all().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Data" + all();
+    }
+
+    private class ColumnValues extends AbstractMap<String, Object> {
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String columnName && schema.indexOf(columnName) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String columnName ? value(columnName) : null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return values.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            var entry = new SimpleImmutableEntry<>(schema.name(index), value(index));
+                            index++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,296 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class PartitionedPublisher implements AsyncPublisher, AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+    private static final long SHUTDOWN_TIMEOUT_IN_MILLIS = 5000;
+    private static final LaneTask END_OF_LANE = new PublishTask(ChangeKind.INSERT, null, null, null, null);
+
+    private final Publisher publisher;
+    private final String keyColumn;
+    private final List<Lane> lanes;
+    private final Deque<CommitTask> pendingCommits = new ArrayDeque<>();
+    private boolean transactionOpen;
+    private long openXid;
+    private volatile Throwable failure;
+
+    public PartitionedPublisher(
+            Publisher publisher,
+            String keyColumn,
+            int lanes,
+            int laneQueueCapacity,
+            ReplicationMetrics metrics) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("at least one publishing lane is required");
+        }
+        this.publisher = requireNonNull(publisher);
+        this.keyColumn = requireNonNull(keyColumn);
+        this.lanes = new ArrayList<>(lanes);
+        var laneQueues = new ArrayList<BlockingQueue<LaneTask>>(lanes);
+        for (var index = 0; index < lanes; index++) {
+            var lane = new Lane(new ArrayBlockingQueue<>(laneQueueCapacity), "publisher-lane-" + index);
+            this.lanes.add(lane);
+            laneQueues.add(lane.queue);
+            lane.worker.start();
+        }
+        metrics.publisherLanes(laneQueues);
+    }
+
+    @Override
+    public CompletionStage<Void> publish(Data data) {
+        var lane = lane(data);
+        return enqueue(new PublishTask(ChangeKind.INSERT, null, data, new CompletableFuture<>(), null), lane);
+    }
+
+    @Override
+    public CompletionStage<Void> publishUpdate(Data identity, Data data) {
+        var lane = lane(data);
+        var previousLane = identity != null && identity.schema().indexOf(keyColumn) >= 0 ? lane(identity) : lane;
+        if (previousLane == lane) {
+            return enqueue(new PublishTask(ChangeKind.UPDATE, identity, data, new CompletableFuture<>(), null), lane);
+        }
+        var task = new PublishTask(ChangeKind.UPDATE, identity, data, new CompletableFuture<>(), new AtomicInteger(2));
+        enqueue(task, previousLane);
+        return enqueue(task, lane);
+    }
+
+    @Override
+    public CompletionStage<Void> publishDelete(Data identity) {
+        var lane = lane(identity);
+        return enqueue(new PublishTask(ChangeKind.DELETE, identity, null, new CompletableFuture<>(), null), lane);
+    }
+
+    @Override
+    public void beginTransaction(long xid) {
+        synchronized (pendingCommits) {
+            transactionOpen = true;
+            openXid = xid;
+            if (pendingCommits.isEmpty()) {
+                publisher.beginTransaction(xid);
+            }
+        }
+    }
+
+    @Override
+    public void commitTransaction(long xid, long commitLsn) {
+        var commit = new CommitTask(xid, commitLsn, new AtomicInteger(lanes.size()));
+        synchronized (pendingCommits) {
+            transactionOpen = false;
+            pendingCommits.add(commit);
+        }
+        try {
+            for (var lane : lanes) {
+                if (!lane.offer(commit)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int[] queueDepths() {
+        return lanes.stream().mapToInt(lane -> lane.queue.size()).toArray();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("Draining publisher lanes with queue depths {}", queueDepths());
+        try {
+            for (var lane : lanes) {
+                lane.close();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while closing publisher lanes", e);
+            Thread.currentThread().interrupt();
+            lanes.forEach(lane -> lane.worker.interrupt());
+            return;
+        }
+        try {
+            for (var lane : lanes) {
+                lane.worker.join(SHUTDOWN_TIMEOUT_IN_MILLIS);
+                if (lane.worker.isAlive()) {
+                    LOGGER.error("Publisher lane {} did not drain in time", lane.worker.getName());
+                    lane.worker.interrupt();
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while draining publisher lanes", e);
+            Thread.currentThread().interrupt();
+            lanes.forEach(lane -> lane.worker.interrupt());
+        }
+        LOGGER.info("Publisher lanes drained");
+    }
+
+    int lane(Data data) {
+        var index = data.schema().indexOf(keyColumn);
+        if (index < 0) {
+            throw new IllegalArgumentException(
+                    "Partition key column " + keyColumn + " is not one of the columns " + data.schema().names()
+            );
+        }
+        var hash = Objects.hashCode(data.value(index));
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.size());
+    }
+
+    private CompletionStage<Void> enqueue(PublishTask task, int lane) {
+        var failed = failure;
+        if (failed != null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("publisher has failed", failed));
+        }
+        try {
+            if (!lanes.get(lane).offer(task)) {
+                task.published().completeExceptionally(new IllegalStateException("publisher is closed"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.published().completeExceptionally(e);
+        }
+        return task.published();
+    }
+
+    private void committed(CommitTask commit) {
+        synchronized (pendingCommits) {
+            pendingCommits.remove(commit);
+            var failed = failure;
+            if (failed != null) {
+                LOGGER.error("Not committing transaction {} as a publisher lane has failed", commit.xid(), failed);
+                return;
+            }
+            publisher.commitTransaction(commit.xid(), commit.commitLsn());
+            var next = pendingCommits.peekFirst();
+            if (next != null) {
+                publisher.beginTransaction(next.xid());
+            } else if (transactionOpen) {
+                publisher.beginTransaction(openXid);
+            }
+        }
+    }
+
+    private void publishFromLane(BlockingQueue<LaneTask> queue) {
+        try {
+            while (true) {
+                var task = queue.take();
+                if (task == END_OF_LANE) {
+                    queue.forEach(unpublished -> fail(unpublished, new IllegalStateException("publisher is closed")));
+                    return;
+                }
+                try {
+                    if (task instanceof PublishTask publish) {
+                        publish(publish);
+                    } else if (task instanceof CommitTask commit && commit.remainingLanes().decrementAndGet() == 0) {
+                        committed(commit);
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    taskFailed(task, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.forEach(task -> fail(task, e));
+        }
+    }
+
+    private void publish(PublishTask task) throws InterruptedException {
+        if (task.remainingLanes() != null && task.remainingLanes().decrementAndGet() > 0) {
+            try {
+                task.published().get();
+            } catch (ExecutionException e) {
+            }
+            return;
+        }
+        var failed = failure;
+        if (failed != null) {
+            task.published().completeExceptionally(new IllegalStateException("publisher has failed", failed));
+            return;
+        }
+        switch (task.kind()) {
+            case INSERT -> publisher.publish(task.data());
+            case UPDATE -> publisher.publishUpdate(task.identity(), task.data());
+            case DELETE -> publisher.publishDelete(task.identity());
+        }
+        task.published().complete(null);
+    }
+
+    private void taskFailed(LaneTask task, Throwable error) {
+        if (task instanceof CommitTask commit) {
+            LOGGER.error("Unable to commit transaction {} at lsn {}", commit.xid(), commit.commitLsn(), error);
+        }
+        if (!(error instanceof Exception)) {
+            LOGGER.error("Publisher lane {} failed so failing every publish from now on", Thread.currentThread().getName(), error);
+            failure = error;
+        }
+        fail(task, error);
+    }
+
+    private static void fail(LaneTask task, Throwable error) {
+        if (task instanceof PublishTask publish && publish.published() != null) {
+            publish.published().completeExceptionally(error);
+        }
+    }
+
+    private enum ChangeKind {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private interface LaneTask {
+    }
+
+    private record PublishTask(
+            ChangeKind kind,
+            Data identity,
+            Data data,
+            CompletableFuture<Void> published,
+            AtomicInteger remainingLanes) implements LaneTask {
+    }
+
+    private record CommitTask(long xid, long commitLsn, AtomicInteger remainingLanes) implements LaneTask {
+    }
+
+    private final class Lane {
+        private final BlockingQueue<LaneTask> queue;
+        private final Thread worker;
+        private boolean closed;
+
+        private Lane(BlockingQueue<LaneTask> queue, String name) {
+            this.queue = queue;
+            this.worker = new Thread(() -> publishFromLane(queue), name);
+        }
+
+        private synchronized boolean offer(LaneTask task) throws InterruptedException {
+            if (closed) {
+                return false;
+            }
+            queue.put(task);
+            return true;
+        }
+
+        private synchronized void close() throws InterruptedException {
+            if (!closed) {
+                closed = true;
+                queue.put(END_OF_LANE);
+            }
+        }
+    }
+}
@@ -1,5 +1,25 @@
 package org.huwtl.pgrepl.application.services.publisher;
 
+import java.util.List;
+
 public interface Publisher {
     void publish(Data data);
+
+    default void publishUpdate(Data identity, Data data) {
+        publish(data);
+    }
+
+    default void publishDelete(Data identity) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not publish deletes");
+    }
+
+    default void publishBatch(List<Data> batch) {
+        batch.forEach(this::publish);
+    }
+
+    default void beginTransaction(long xid) {
+    }
+
+    default void commitTransaction(long xid, long commitLsn) {
+    }
 }
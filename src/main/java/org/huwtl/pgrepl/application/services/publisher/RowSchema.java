@@ -0,0 +1,84 @@
+package org.huwtl.pgrepl.application.services.publisher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class RowSchema {
+    private final String[] names;
+    private final ColumnType[] types;
+    private final Map<String, Integer> indexesByName;
+    private final boolean primitiveColumns;
+
+    public RowSchema(String... names) {
+        this(names, untyped(names.length));
+    }
+
+    public RowSchema(String[] names, ColumnType[] types) {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("expected a type for every column of " + Arrays.toString(names));
+        }
+        this.names = names.clone();
+        this.types = types.clone();
+        this.indexesByName = new HashMap<>(names.length * 2);
+        for (var index = 0; index < names.length; index++) {
+            if (indexesByName.putIfAbsent(names[index], index) != null) {
+                throw new IllegalArgumentException("duplicate column name " + names[index]);
+            }
+        }
+        this.primitiveColumns = Arrays.stream(types).anyMatch(ColumnType::primitive);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public ColumnType type(int index) {
+        return types[index];
+    }
+
+    public int indexOf(String name) {
+        var index = indexesByName.get(name);
+        return index != null ? index : -1;
+    }
+
+    public List<String> names() {
+        return List.of(names);
+    }
+
+    public boolean hasPrimitiveColumns() {
+        return primitiveColumns;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RowSchema schema
+                && Arrays.equals(names, schema.names)
+                && Arrays.equals(types, schema.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(names) + Arrays.hashCode(types);
+    }
+
+    @Override
+    public String toString() {
+        var columns = new StringBuilder("[");
+        for (var index = 0; index < names.length; index++) {
+            columns.append(index > 0 ? ", " : "").append(names[index]).append(' ').append(types[index]);
+        }
+        return columns.append(']').toString();
+    }
+
+    private static ColumnType[] untyped(int columns) {
+        var types = new ColumnType[columns];
+        Arrays.fill(types, ColumnType.OTHER);
+        return types;
+    }
+}
@@ -0,0 +1,23 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import static java.util.Objects.requireNonNull;
+
+public record CapturedTable(String schema, String table) {
+    public CapturedTable {
+        requireNonNull(schema);
+        requireNonNull(table);
+    }
+
+    public static CapturedTable parse(String table, String defaultSchema) {
+        var schemaSeparator = table.indexOf('.');
+        if (schemaSeparator < 0) {
+            return new CapturedTable(defaultSchema, table);
+        }
+        return new CapturedTable(table.substring(0, schemaSeparator), table.substring(schemaSeparator + 1));
+    }
+
+    @Override
+    public String toString() {
+        return schema + "." + table;
+    }
+}
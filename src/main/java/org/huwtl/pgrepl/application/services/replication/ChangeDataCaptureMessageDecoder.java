@@ -0,0 +1,13 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+
+public interface ChangeDataCaptureMessageDecoder {
+    ChangeDataCaptureMessage decode(ByteBuffer buffer, long lsn) throws IOException;
+
+    default void skipChanges(long xid, long changes) {
+    }
+}
@@ -0,0 +1,15 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import java.sql.SQLException;
+
+public class FatalReplicationException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public FatalReplicationException(String message, SQLException cause) {
+        super(message, cause.getSQLState(), cause.getErrorCode(), cause);
+    }
+
+    public FatalReplicationException(String message, RuntimeException cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import java.util.List;
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+
+public record IgnoredMessage() implements ChangeDataCaptureMessage {
+    public static final IgnoredMessage INSTANCE = new IgnoredMessage();
+
+    @Override
+    public List<CapturedInsert> capturedInserts() {
+        return List.of();
+    }
+}
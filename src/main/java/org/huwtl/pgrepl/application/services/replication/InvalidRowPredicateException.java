@@ -0,0 +1,9 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+public class InvalidRowPredicateException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidRowPredicateException(String message, IllegalArgumentException cause) {
+        super(message, cause);
+    }
+}
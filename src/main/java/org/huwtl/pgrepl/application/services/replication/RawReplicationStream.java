@@ -0,0 +1,21 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.function.LongConsumer;
+
+public interface RawReplicationStream extends AutoCloseable {
+    boolean processNextRawMessage(RawMessageHandler onMessage, LongConsumer onKeepalive)
+            throws SQLException, IOException;
+
+    void acknowledge(long lsn);
+
+    @Override
+    void close();
+
+    @FunctionalInterface
+    interface RawMessageHandler {
+        void accept(ByteBuffer message, long lsn) throws IOException;
+    }
+}
@@ -0,0 +1,7 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import java.sql.SQLException;
+
+public interface RawReplicationStreamProvider {
+    RawReplicationStream openedRawReplicationStream() throws SQLException;
+}
@@ -8,4 +8,15 @@ public interface ReplicationStream extends AutoCloseable {
     void processNextChangeDataCaptureMessage(
             Consumer<ReplicationStreamMessage.ChangeDataCaptureMessage> onChangeDataCaptureMessage,
             Consumer<ReplicationStreamMessage.NoMessage> onNoMessage) throws SQLException, IOException;
+
+    void acknowledge(long lsn);
+
+    default void acknowledgeTransactionProgress(long xid, long publishedChanges) {
+    }
+
+    default void sendStatus() throws SQLException {
+    }
+
+    @Override
+    void close();
 }
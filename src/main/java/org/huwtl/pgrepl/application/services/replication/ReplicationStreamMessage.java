@@ -2,13 +2,87 @@ package org.huwtl.pgrepl.application.services.replication;
 
 import org.huwtl.pgrepl.application.services.publisher.Data;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface ReplicationStreamMessage {
     interface ChangeDataCaptureMessage extends ReplicationStreamMessage {
-        List<Data> capturedDataFromInserts(String schema, String table);
+        List<CapturedInsert> capturedInserts();
+    }
+
+    record CapturedInsert(CapturedTable table, Data data) implements ChangeDataCaptureMessage {
+        @Override
+        public List<CapturedInsert> capturedInserts() {
+            return List.of(this);
+        }
+    }
+
+    record CapturedUpdate(CapturedTable table, Data identity, Data data) implements ChangeDataCaptureMessage {
+        @Override
+        public List<CapturedInsert> capturedInserts() {
+            return List.of();
+        }
+    }
+
+    record CapturedDelete(CapturedTable table, Data identity) implements ChangeDataCaptureMessage {
+        @Override
+        public List<CapturedInsert> capturedInserts() {
+            return List.of();
+        }
+    }
+
+    record TransactionBegin(long xid) implements ChangeDataCaptureMessage {
+        @Override
+        public List<CapturedInsert> capturedInserts() {
+            return List.of();
+        }
+    }
+
+    record TransactionCommit(long xid, long commitLsn, Instant commitTimestamp) implements ChangeDataCaptureMessage {
+        @Override
+        public List<CapturedInsert> capturedInserts() {
+            return List.of();
+        }
+    }
+
+    final class Keepalive implements ChangeDataCaptureMessage {
+        private long lsn;
+
+        public Keepalive(long lsn) {
+            this.lsn = lsn;
+        }
+
+        public long lsn() {
+            return lsn;
+        }
+
+        public Keepalive at(long lsn) {
+            this.lsn = lsn;
+            return this;
+        }
+
+        @Override
+        public List<CapturedInsert> capturedInserts() {
+            return List.of();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Keepalive keepalive && keepalive.lsn == lsn;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(lsn);
+        }
+
+        @Override
+        public String toString() {
+            return "Keepalive[lsn=" + lsn + "]";
+        }
     }
 
     record NoMessage() implements ReplicationStreamMessage {
+        public static final NoMessage INSTANCE = new NoMessage();
     }
 }
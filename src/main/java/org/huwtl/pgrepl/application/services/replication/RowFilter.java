@@ -0,0 +1,58 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+public final class RowFilter {
+    public static final RowFilter NONE = new RowFilter(Map.of());
+
+    private final Map<CapturedTable, RowPredicate> predicatesByTable;
+    private final ReplicationMetrics metrics;
+
+    private RowFilter(Map<CapturedTable, RowPredicate> predicatesByTable) {
+        this.predicatesByTable = predicatesByTable;
+        this.metrics = null;
+    }
+
+    public RowFilter(Map<CapturedTable, RowPredicate> predicatesByTable, ReplicationMetrics metrics) {
+        this.predicatesByTable = Map.copyOf(predicatesByTable);
+        this.metrics = requireNonNull(metrics);
+    }
+
+    public boolean filters(CapturedTable table) {
+        return predicatesByTable.containsKey(table);
+    }
+
+    public RowPredicate.Evaluator evaluator(CapturedTable table, RowSchema schema) {
+        return evaluator(table, schema, false);
+    }
+
+    public RowPredicate.Evaluator partialEvaluator(CapturedTable table, RowSchema schema) {
+        return evaluator(table, schema, true);
+    }
+
+    private RowPredicate.Evaluator evaluator(CapturedTable table, RowSchema schema, boolean partial) {
+        var predicate = predicatesByTable.get(table);
+        if (predicate == null) {
+            return null;
+        }
+        RowPredicate.Evaluator evaluator;
+        try {
+            evaluator = partial ? predicate.bindPartially(schema) : predicate.bind(schema);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRowPredicateException(
+                    "Row predicate \"" + predicate + "\" cannot be applied to table " + table + ": " + e.getMessage(),
+                    e
+            );
+        }
+        return (values, primitives) -> {
+            var accepted = evaluator.matches(values, primitives);
+            metrics.rowEvaluated(accepted);
+            return accepted;
+        };
+    }
+}
@@ -0,0 +1,443 @@
+package org.huwtl.pgrepl.application.services.replication;
+
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+public final class RowPredicate {
+    private static final int UNKNOWN_COLUMN = -1;
+
+    private final String expression;
+    private final Condition condition;
+
+    private RowPredicate(String expression, Condition condition) {
+        this.expression = expression;
+        this.condition = condition;
+    }
+
+    public static RowPredicate parse(String expression) {
+        return new RowPredicate(expression, new Parser(requireNonNull(expression)).parse());
+    }
+
+    public Evaluator bind(RowSchema schema) {
+        return condition.bind(schema, false);
+    }
+
+    public Evaluator bindPartially(RowSchema schema) {
+        return condition.bind(schema, true);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    @FunctionalInterface
+    public interface Evaluator {
+        boolean matches(Object[] values, long[] primitives);
+    }
+
+    private interface Condition {
+        Evaluator bind(RowSchema schema, boolean partial);
+    }
+
+    private enum Operator {
+        NOT_EQUAL("!="),
+        LESS_OR_EQUAL("<="),
+        GREATER_OR_EQUAL(">="),
+        EQUAL("="),
+        LESS("<"),
+        GREATER(">");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        private boolean test(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+            };
+        }
+    }
+
+    private record AnyOf(List<Condition> conditions) implements Condition {
+        @Override
+        public Evaluator bind(RowSchema schema, boolean partial) {
+            var evaluators = conditions.stream().map(condition -> condition.bind(schema, partial)).toArray(Evaluator[]::new);
+            return (values, primitives) -> {
+                for (var evaluator : evaluators) {
+                    if (evaluator.matches(values, primitives)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+    }
+
+    private record AllOf(List<Condition> conditions) implements Condition {
+        @Override
+        public Evaluator bind(RowSchema schema, boolean partial) {
+            var evaluators = conditions.stream().map(condition -> condition.bind(schema, partial)).toArray(Evaluator[]::new);
+            return (values, primitives) -> {
+                for (var evaluator : evaluators) {
+                    if (!evaluator.matches(values, primitives)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+    }
+
+    private record NullCheck(String column, boolean negated) implements Condition {
+        @Override
+        public Evaluator bind(RowSchema schema, boolean partial) {
+            var index = columnIndex(schema, column, partial);
+            if (index == UNKNOWN_COLUMN) {
+                return (values, primitives) -> !negated;
+            }
+            return negated
+                    ? (values, primitives) -> values[index] != null
+                    : (values, primitives) -> values[index] == null;
+        }
+    }
+
+    private record Comparison(String column, Operator operator, Object literal) implements Condition {
+        @Override
+        public Evaluator bind(RowSchema schema, boolean partial) {
+            var index = columnIndex(schema, column, partial);
+            if (index == UNKNOWN_COLUMN) {
+                return (values, primitives) -> false;
+            }
+            var type = schema.type(index);
+            return switch (type) {
+                case BOOLEAN, INTEGER -> {
+                    var value = primitiveLiteral(column, type, literal);
+                    yield (values, primitives) -> values[index] != null && operator.test(Long.compare(primitives[index], value));
+                }
+                case FLOAT -> {
+                    var value = floatLiteral(column, literal);
+                    yield (values, primitives) -> values[index] != null
+                            && operator.test(Double.compare(Double.longBitsToDouble(primitives[index]), value));
+                }
+                default -> {
+                    var value = objectLiteral(column, type, literal);
+                    yield (values, primitives) -> values[index] != null && operator.test(compare(values[index], value));
+                }
+            };
+        }
+    }
+
+    private record In(String column, List<Object> literals, boolean negated) implements Condition {
+        @Override
+        public Evaluator bind(RowSchema schema, boolean partial) {
+            var index = columnIndex(schema, column, partial);
+            if (index == UNKNOWN_COLUMN) {
+                return (values, primitives) -> false;
+            }
+            var type = schema.type(index);
+            return switch (type) {
+                case BOOLEAN, INTEGER -> {
+                    var sorted = literals.stream().mapToLong(literal -> primitiveLiteral(column, type, literal)).sorted().toArray();
+                    yield (values, primitives) -> values[index] != null
+                            && Arrays.binarySearch(sorted, primitives[index]) >= 0 != negated;
+                }
+                case FLOAT -> {
+                    var sorted = literals.stream().mapToDouble(literal -> floatLiteral(column, literal)).sorted().toArray();
+                    yield (values, primitives) -> values[index] != null
+                            && Arrays.binarySearch(sorted, Double.longBitsToDouble(primitives[index])) >= 0 != negated;
+                }
+                case TEXT, UUID -> {
+                    var set = new HashSet<>();
+                    literals.forEach(literal -> set.add(objectLiteral(column, type, literal)));
+                    yield (values, primitives) -> values[index] != null && set.contains(values[index]) != negated;
+                }
+                default -> {
+                    var converted = literals.stream().map(literal -> objectLiteral(column, type, literal)).toArray();
+                    yield (values, primitives) -> values[index] != null && contains(converted, values[index]) != negated;
+                }
+            };
+        }
+
+        private static boolean contains(Object[] literals, Object value) {
+            for (var literal : literals) {
+                if (compare(value, literal) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static long primitiveLiteral(String column, ColumnType type, Object literal) {
+        if (type == ColumnType.BOOLEAN && literal instanceof Boolean value) {
+            return value ? 1 : 0;
+        }
+        if (type == ColumnType.INTEGER && literal instanceof BigDecimal value) {
+            try {
+                return value.longValueExact();
+            } catch (ArithmeticException e) {
+                throw incomparable(column, type, literal);
+            }
+        }
+        throw incomparable(column, type, literal);
+    }
+
+    private static double floatLiteral(String column, Object literal) {
+        if (literal instanceof BigDecimal value) {
+            return value.doubleValue();
+        }
+        throw incomparable(column, ColumnType.FLOAT, literal);
+    }
+
+    private static int columnIndex(RowSchema schema, String column, boolean partial) {
+        var index = schema.indexOf(column);
+        if (index == UNKNOWN_COLUMN && !partial) {
+            throw new IllegalArgumentException("Unknown column " + column + " is not one of the columns " + schema.names());
+        }
+        return index;
+    }
+
+    private static Object objectLiteral(String column, ColumnType type, Object literal) {
+        if (type == ColumnType.TEXT) {
+            return literal.toString();
+        }
+        if (type == ColumnType.NUMERIC && literal instanceof BigDecimal) {
+            return literal;
+        }
+        if (!(literal instanceof String text)) {
+            return switch (type) {
+                case NUMERIC, UUID, DATE, TIMESTAMP, TIMESTAMP_WITH_TIME_ZONE -> throw incomparable(column, type, literal);
+                default -> literal;
+            };
+        }
+        try {
+            return switch (type) {
+                case NUMERIC -> new BigDecimal(text);
+                case UUID -> UUID.fromString(text);
+                case DATE -> LocalDate.parse(text);
+                case TIMESTAMP -> LocalDateTime.parse(text.replace(' ', 'T'));
+                case TIMESTAMP_WITH_TIME_ZONE -> OffsetDateTime.parse(text.replace(' ', 'T')).toInstant();
+                default -> text;
+            };
+        } catch (DateTimeException | IllegalArgumentException e) {
+            throw incomparable(column, type, literal);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object value, Object literal) {
+        if (value.getClass() == literal.getClass() && value instanceof Comparable comparable) {
+            return comparable.compareTo(literal);
+        }
+        if (value instanceof Number number && literal instanceof BigDecimal decimal) {
+            return new BigDecimal(number.toString()).compareTo(decimal);
+        }
+        return value.toString().compareTo(literal.toString());
+    }
+
+    private static IllegalArgumentException incomparable(String column, ColumnType type, Object literal) {
+        return new IllegalArgumentException("Cannot compare column " + column + " of type " + type + " with " + literal);
+    }
+
+    private static final class Parser {
+        private final String expression;
+        private int position;
+
+        private Parser(String expression) {
+            this.expression = expression;
+        }
+
+        private Condition parse() {
+            var condition = anyOf();
+            skipWhitespace();
+            if (position < expression.length()) {
+                throw invalid("end of predicate");
+            }
+            return condition;
+        }
+
+        private Condition anyOf() {
+            var conditions = new ArrayList<Condition>();
+            conditions.add(allOf());
+            while (keyword("OR")) {
+                conditions.add(allOf());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new AnyOf(List.copyOf(conditions));
+        }
+
+        private Condition allOf() {
+            var conditions = new ArrayList<Condition>();
+            conditions.add(term());
+            while (keyword("AND")) {
+                conditions.add(term());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new AllOf(List.copyOf(conditions));
+        }
+
+        private Condition term() {
+            if (symbol("(")) {
+                var condition = anyOf();
+                expect(")");
+                return condition;
+            }
+            var column = column();
+            if (keyword("IS")) {
+                var negated = keyword("NOT");
+                if (!keyword("NULL")) {
+                    throw invalid("NULL");
+                }
+                return new NullCheck(column, negated);
+            }
+            var negated = keyword("NOT");
+            if (keyword("IN")) {
+                return new In(column, literals(), negated);
+            }
+            if (negated) {
+                throw invalid("IN");
+            }
+            return new Comparison(column, operator(), literal());
+        }
+
+        private List<Object> literals() {
+            expect("(");
+            var literals = new ArrayList<>();
+            do {
+                literals.add(literal());
+            } while (symbol(","));
+            expect(")");
+            return List.copyOf(literals);
+        }
+
+        private Operator operator() {
+            if (symbol("<>")) {
+                return Operator.NOT_EQUAL;
+            }
+            for (var operator : Operator.values()) {
+                if (symbol(operator.symbol)) {
+                    return operator;
+                }
+            }
+            throw invalid("comparison operator");
+        }
+
+        private String column() {
+            skipWhitespace();
+            if (peek() == '"') {
+                return quoted('"');
+            }
+            var start = position;
+            while (position < expression.length() && (Character.isLetterOrDigit(peek()) || peek() == '_')) {
+                position++;
+            }
+            if (position == start || Character.isDigit(expression.charAt(start))) {
+                position = start;
+                throw invalid("column name");
+            }
+            return expression.substring(start, position).toLowerCase(Locale.ROOT);
+        }
+
+        private Object literal() {
+            skipWhitespace();
+            if (peek() == '\'') {
+                return quoted('\'');
+            }
+            if (keyword("TRUE")) {
+                return true;
+            }
+            if (keyword("FALSE")) {
+                return false;
+            }
+            var start = position;
+            while (position < expression.length() && "+-.0123456789eE".indexOf(peek()) >= 0) {
+                position++;
+            }
+            try {
+                return new BigDecimal(expression.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw invalid("literal");
+            }
+        }
+
+        private String quoted(char quote) {
+            var text = new StringBuilder();
+            position++;
+            while (position < expression.length()) {
+                var character = expression.charAt(position++);
+                if (character != quote) {
+                    text.append(character);
+                } else if (peek() == quote) {
+                    text.append(quote);
+                    position++;
+                } else {
+                    return text.toString();
+                }
+            }
+            throw invalid("closing " + quote);
+        }
+
+        private boolean keyword(String keyword) {
+            skipWhitespace();
+            var end = position + keyword.length();
+            if (!expression.regionMatches(true, position, keyword, 0, keyword.length())
+                    || end < expression.length() && (Character.isLetterOrDigit(expression.charAt(end)) || expression.charAt(end) == '_')) {
+                return false;
+            }
+            position = end;
+            return true;
+        }
+
+        private boolean symbol(String symbol) {
+            skipWhitespace();
+            if (!expression.startsWith(symbol, position)) {
+                return false;
+            }
+            position += symbol.length();
+            return true;
+        }
+
+        private void expect(String symbol) {
+            if (!symbol(symbol)) {
+                throw invalid(symbol);
+            }
+        }
+
+        private char peek() {
+            return position < expression.length() ? expression.charAt(position) : 0;
+        }
+
+        private void skipWhitespace() {
+            while (position < expression.length() && Character.isWhitespace(peek())) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException invalid(String expected) {
+            return new IllegalArgumentException(
+                    "Invalid row predicate \"" + expression + "\": expected " + expected + " at position " + position
+            );
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.huwtl.pgrepl.infrastructure.decoding;
+
+import org.huwtl.pgrepl.application.services.SpinThenParkWaitStrategy;
+import org.huwtl.pgrepl.application.services.WaitStrategy;
+import org.huwtl.pgrepl.application.services.replication.ChangeDataCaptureMessageDecoder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+
+public class ParallelDecodePipeline implements AutoCloseable {
+    private static final int INITIAL_MESSAGE_CAPACITY = 1024;
+    private static final int MAX_RETAINED_MESSAGE_CAPACITY = 64 * 1024;
+    private static final int SPIN_ITERATIONS = 1000;
+    private static final long MAX_PARK_IN_NANOS = MICROSECONDS.toNanos(100);
+
+    private final Slot[] slots;
+    private final ThreadLocal<ChangeDataCaptureMessageDecoder> decoders;
+    private final ThreadPoolExecutor workers;
+    private final WaitStrategy waitStrategy = new SpinThenParkWaitStrategy(SPIN_ITERATIONS, MAX_PARK_IN_NANOS);
+    private final long maxQueuedBytes;
+    private long head;
+    private long tail;
+    private long queuedBytes;
+
+    public ParallelDecodePipeline(
+            Supplier<? extends ChangeDataCaptureMessageDecoder> decoders,
+            int workers,
+            int queueDepth) {
+        this(decoders, workers, queueDepth, Long.MAX_VALUE);
+    }
+
+    public ParallelDecodePipeline(
+            Supplier<? extends ChangeDataCaptureMessageDecoder> decoders,
+            int workers,
+            int queueDepth,
+            long maxQueuedBytes) {
+        if (workers < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("at least one decode worker and one queued message are required");
+        }
+        if (maxQueuedBytes < 1) {
+            throw new IllegalArgumentException("at least one queued byte is required");
+        }
+        this.maxQueuedBytes = maxQueuedBytes;
+        requireNonNull(decoders);
+        this.decoders = ThreadLocal.withInitial(decoders);
+        this.slots = new Slot[queueDepth];
+        for (var index = 0; index < queueDepth; index++) {
+            slots[index] = new Slot();
+        }
+        var threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0,
+                MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                runnable -> {
+                    var thread = new Thread(runnable, "decoder-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.workers.prestartAllCoreThreads();
+    }
+
+    public boolean full() {
+        return tail - head == slots.length || queuedBytes >= maxQueuedBytes;
+    }
+
+    public boolean empty() {
+        return tail == head;
+    }
+
+    public void decode(ByteBuffer buffer, long lsn) {
+        var slot = claim();
+        slot.copy(buffer, lsn);
+        queuedBytes += slot.length;
+        workers.execute(slot);
+    }
+
+    public void keepalive(long lsn) {
+        var slot = claim();
+        slot.keepalive(lsn);
+    }
+
+    public void next(DecodedMessageHandler onMessage, LongConsumer onKeepalive) throws IOException {
+        if (empty()) {
+            throw new IllegalStateException("no message is waiting to be decoded");
+        }
+        var slot = slots[index(head)];
+        awaitDecoded(slot);
+        head++;
+        var lsn = slot.lsn;
+        if (slot.keepalive) {
+            onKeepalive.accept(lsn);
+            return;
+        }
+        var message = slot.message;
+        var failure = slot.failure;
+        slot.message = null;
+        slot.failure = null;
+        queuedBytes -= slot.length;
+        slot.releaseOversizedBuffer();
+        if (failure instanceof IOException e) {
+            throw e;
+        } else if (failure instanceof RuntimeException e) {
+            throw e;
+        } else if (failure != null) {
+            throw new IOException("Unable to decode message at lsn " + lsn, failure);
+        }
+        onMessage.accept(message, lsn, slot.length, slot.decodeNanos);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private Slot claim() {
+        if (full()) {
+            throw new IllegalStateException("decode queue is full");
+        }
+        return slots[index(tail++)];
+    }
+
+    private void awaitDecoded(Slot slot) throws InterruptedIOException {
+        try {
+            while (!slot.done) {
+                waitStrategy.idle();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } finally {
+            waitStrategy.reset();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length);
+    }
+
+    @FunctionalInterface
+    public interface DecodedMessageHandler {
+        void accept(ChangeDataCaptureMessage message, long lsn, int bytes, long decodeNanos) throws IOException;
+    }
+
+    private final class Slot implements Runnable {
+        private byte[] bytes = new byte[INITIAL_MESSAGE_CAPACITY];
+        private ByteBuffer view = ByteBuffer.wrap(bytes);
+        private int length;
+        private long lsn;
+        private boolean keepalive;
+        private ChangeDataCaptureMessage message;
+        private Throwable failure;
+        private long decodeNanos;
+        private volatile boolean done;
+
+        private void copy(ByteBuffer buffer, long lsn) {
+            length = buffer.remaining();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+                view = ByteBuffer.wrap(bytes);
+            }
+            buffer.get(buffer.position(), bytes, 0, length);
+            this.lsn = lsn;
+            keepalive = false;
+            done = false;
+        }
+
+        private void releaseOversizedBuffer() {
+            if (bytes.length > MAX_RETAINED_MESSAGE_CAPACITY) {
+                bytes = new byte[INITIAL_MESSAGE_CAPACITY];
+                view = ByteBuffer.wrap(bytes);
+            }
+        }
+
+        private void keepalive(long lsn) {
+            this.lsn = lsn;
+            keepalive = true;
+            done = true;
+        }
+
+        @Override
+        public void run() {
+            var decodeStartedAt = System.nanoTime();
+            try {
+                message = decoders.get().decode(view.clear().limit(length), lsn);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            decodeNanos = System.nanoTime() - decodeStartedAt;
+            done = true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.huwtl.pgrepl.infrastructure.filesink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+class BinaryRecordEncoder extends FileSinkRecordEncoder {
+    static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    static final byte NULL = 0;
+    static final byte BOOLEAN = 1;
+    static final byte INTEGER = 2;
+    static final byte FLOAT = 3;
+    static final byte TEXT = 4;
+    static final byte JSON = 5;
+
+    private static final int CHECKSUM_OFFSET = Integer.BYTES;
+
+    private final CRC32C checksum = new CRC32C();
+
+    BinaryRecordEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    void encode(Data data, boolean tombstone, ByteBuffer buffer) throws IOException {
+        var start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+        var schema = data.schema();
+        buffer.putShort((short) (tombstone ? ~data.size() : data.size()));
+        for (var column = 0; column < data.size(); column++) {
+            putText(buffer, schema.name(column));
+            if (data.isNull(column)) {
+                buffer.put(NULL);
+                continue;
+            }
+            switch (schema.type(column)) {
+                case BOOLEAN -> buffer.put(BOOLEAN).put((byte) (data.getBoolean(column) ? 1 : 0));
+                case INTEGER -> buffer.put(INTEGER).putLong(data.getLong(column));
+                case FLOAT -> buffer.put(FLOAT).putDouble(data.getDouble(column));
+                default -> {
+                    var value = data.value(column);
+                    if (value instanceof JsonNode) {
+                        buffer.put(JSON);
+                        var lengthOffset = buffer.position();
+                        buffer.position(lengthOffset + Integer.BYTES);
+                        putJson(buffer, value);
+                        buffer.putInt(lengthOffset, buffer.position() - lengthOffset - Integer.BYTES);
+                    } else {
+                        buffer.put(TEXT);
+                        putText(buffer, value instanceof CharSequence text ? text : value.toString());
+                    }
+                }
+            }
+        }
+        var end = buffer.position();
+        buffer.putInt(start + CHECKSUM_OFFSET, checksum(buffer, start, end));
+        buffer.putInt(start, end - start);
+    }
+
+    @Override
+    int recordsEnd(ByteBuffer segment) {
+        var offset = 0;
+        while (offset <= segment.limit() - HEADER_BYTES) {
+            var recordBytes = segment.getInt(offset);
+            if (recordBytes <= HEADER_BYTES
+                    || recordBytes > segment.limit() - offset
+                    || segment.getInt(offset + CHECKSUM_OFFSET) != checksum(segment, offset, offset + recordBytes)) {
+                break;
+            }
+            offset += recordBytes;
+        }
+        return offset;
+    }
+
+    private static void putText(ByteBuffer buffer, CharSequence text) {
+        var lengthOffset = buffer.position();
+        buffer.position(lengthOffset + Integer.BYTES);
+        putUtf8(buffer, text, false);
+        buffer.putInt(lengthOffset, buffer.position() - lengthOffset - Integer.BYTES);
+    }
+
+    private int checksum(ByteBuffer buffer, int start, int end) {
+        var position = buffer.position();
+        var limit = buffer.limit();
+        checksum.reset();
+        buffer.limit(end).position(start + HEADER_BYTES);
+        checksum.update(buffer);
+        buffer.limit(limit).position(position);
+        return (int) checksum.getValue();
+    }
+}
@@ -0,0 +1,85 @@
+package org.huwtl.pgrepl.infrastructure.filesink;
+
+import java.nio.file.Path;
+
+public record FileSinkConfiguration(
+        Path directory,
+        Format format,
+        int segmentSizeInBytes,
+        long groupCommitIntervalInMillis,
+        long groupCommitBytes) {
+    public enum Format {
+        BINARY(".bin"),
+        NDJSON(".ndjson");
+
+        private final String fileSuffix;
+
+        Format(String fileSuffix) {
+            this.fileSuffix = fileSuffix;
+        }
+
+        public String fileSuffix() {
+            return fileSuffix;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_SEGMENT_SIZE_IN_BYTES = 64 * 1024 * 1024;
+        private static final long DEFAULT_GROUP_COMMIT_INTERVAL_IN_MILLIS = 10;
+        private static final long DEFAULT_GROUP_COMMIT_BYTES = 4 * 1024 * 1024;
+
+        private Path directory;
+        private Format format = Format.BINARY;
+        private int segmentSizeInBytes = DEFAULT_SEGMENT_SIZE_IN_BYTES;
+        private long groupCommitIntervalInMillis = DEFAULT_GROUP_COMMIT_INTERVAL_IN_MILLIS;
+        private long groupCommitBytes = DEFAULT_GROUP_COMMIT_BYTES;
+
+        Builder() {
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder format(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        public Builder segmentSizeInBytes(int segmentSizeInBytes) {
+            this.segmentSizeInBytes = segmentSizeInBytes;
+            return this;
+        }
+
+        public Builder groupCommitIntervalInMillis(long groupCommitIntervalInMillis) {
+            this.groupCommitIntervalInMillis = groupCommitIntervalInMillis;
+            return this;
+        }
+
+        public Builder groupCommitBytes(long groupCommitBytes) {
+            this.groupCommitBytes = groupCommitBytes;
+            return this;
+        }
+
+        public FileSinkConfiguration build() {
+            if (directory == null) {
+                throw new IllegalStateException("a file sink directory is required");
+            }
+            if (segmentSizeInBytes <= 0 || groupCommitIntervalInMillis <= 0 || groupCommitBytes <= 0) {
+                throw new IllegalStateException("file sink segment size and group commit policy must be positive");
+            }
+            return new FileSinkConfiguration(
+                    directory,
+                    format,
+                    segmentSizeInBytes,
+                    groupCommitIntervalInMillis,
+                    groupCommitBytes
+            );
+        }
+    }
+}
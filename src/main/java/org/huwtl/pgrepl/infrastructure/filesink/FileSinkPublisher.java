@@ -0,0 +1,206 @@
+package org.huwtl.pgrepl.infrastructure.filesink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class FileSinkPublisher implements AsyncPublisher, AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+    private static final long NO_LSN = -1;
+    private static final long SHUTDOWN_TIMEOUT_IN_MILLIS = 5000;
+
+    private final FileSinkConfiguration fileSinkConfig;
+    private final FileSinkRecordEncoder encoder;
+    private final ScheduledExecutorService groupCommitScheduler;
+    private final AtomicBoolean groupCommitRequested = new AtomicBoolean();
+    private FileSinkSegment activeSegment;
+    private CompletableFuture<Void> groupCommitted = new CompletableFuture<>();
+    private long uncommittedRecords;
+    private long uncommittedBytes;
+    private long lastCommitLsn = NO_LSN;
+    private volatile long durableLsn = NO_LSN;
+    private boolean closed;
+
+    private FileSinkPublisher(FileSinkConfiguration fileSinkConfig, FileSinkRecordEncoder encoder, FileSinkSegment activeSegment) {
+        this.fileSinkConfig = fileSinkConfig;
+        this.encoder = encoder;
+        this.activeSegment = activeSegment;
+        this.groupCommitScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "file-sink-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        groupCommitScheduler.scheduleWithFixedDelay(
+                this::groupCommit,
+                fileSinkConfig.groupCommitIntervalInMillis(),
+                fileSinkConfig.groupCommitIntervalInMillis(),
+                MILLISECONDS
+        );
+    }
+
+    public static FileSinkPublisher open(FileSinkConfiguration fileSinkConfig, ObjectMapper objectMapper) throws IOException {
+        var directory = fileSinkConfig.directory();
+        var format = fileSinkConfig.format();
+        var encoder = FileSinkRecordEncoder.of(format, objectMapper);
+        Files.createDirectories(directory);
+        var nextSequence = 0L;
+        try (var files = Files.list(directory)) {
+            for (var file : (Iterable<Path>) files.filter(file -> isSegment(file, format))::iterator) {
+                nextSequence = Math.max(nextSequence, FileSinkSegment.sequence(file) + 1);
+                if (file.getFileName().toString().endsWith(FileSinkSegment.OPEN_SUFFIX)) {
+                    var recoveredBytes = FileSinkSegment.recover(file, encoder);
+                    LOGGER.info("Recovered {} bytes of unsealed file sink segment {}", recoveredBytes, file);
+                }
+            }
+        }
+        var activeSegment = FileSinkSegment.create(directory, nextSequence, fileSinkConfig.segmentSizeInBytes(), format);
+        return new FileSinkPublisher(fileSinkConfig, encoder, activeSegment);
+    }
+
+    public long durableLsn() {
+        return durableLsn;
+    }
+
+    @Override
+    public CompletionStage<Void> publish(Data data) {
+        return write(data, false);
+    }
+
+    @Override
+    public CompletionStage<Void> publishDelete(Data identity) {
+        return write(identity, true);
+    }
+
+    @Override
+    public synchronized void commitTransaction(long xid, long commitLsn) {
+        lastCommitLsn = commitLsn;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (uncommittedRecords > 0 && !closed && groupCommitRequested.compareAndSet(false, true)) {
+            groupCommitScheduler.execute(this::groupCommit);
+        }
+    }
+
+    @Override
+    public void close() {
+        groupCommitScheduler.shutdown();
+        try {
+            if (!groupCommitScheduler.awaitTermination(SHUTDOWN_TIMEOUT_IN_MILLIS, MILLISECONDS)) {
+                LOGGER.error("File sink group commit did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        groupCommit();
+        synchronized (this) {
+            closed = true;
+            try {
+                activeSegment.seal();
+            } catch (IOException e) {
+                LOGGER.error("Unable to seal file sink segment {}", activeSegment, e);
+            }
+        }
+        LOGGER.info("Closed file sink {} durable up to lsn {}", fileSinkConfig.directory(), durableLsn);
+    }
+
+    private synchronized CompletionStage<Void> write(Data data, boolean tombstone) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("file sink is closed"));
+        }
+        try {
+            uncommittedBytes += append(data, tombstone);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        uncommittedRecords++;
+        if (uncommittedBytes >= fileSinkConfig.groupCommitBytes() && groupCommitRequested.compareAndSet(false, true)) {
+            groupCommitScheduler.execute(this::groupCommit);
+        }
+        return groupCommitted;
+    }
+
+    private int append(Data data, boolean tombstone) throws IOException {
+        var buffer = activeSegment.buffer();
+        var start = buffer.position();
+        try {
+            encoder.encode(data, tombstone, buffer);
+            return buffer.position() - start;
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            if (start == 0) {
+                throw new IOException(
+                        "record does not fit in a file sink segment of " + fileSinkConfig.segmentSizeInBytes() + " bytes"
+                );
+            }
+            rotate();
+            return append(data, tombstone);
+        } catch (IOException | RuntimeException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    private void rotate() throws IOException {
+        var sealing = activeSegment;
+        activeSegment = FileSinkSegment.create(
+                fileSinkConfig.directory(),
+                sealing.sequence() + 1,
+                fileSinkConfig.segmentSizeInBytes(),
+                fileSinkConfig.format()
+        );
+        sealing.seal();
+        LOGGER.debug("Sealed file sink segment {}", sealing);
+    }
+
+    private void groupCommit() {
+        groupCommitRequested.set(false);
+        FileSinkSegment segment;
+        int offset;
+        CompletableFuture<Void> committing;
+        long committingLsn;
+        synchronized (this) {
+            if (uncommittedRecords == 0 || closed) {
+                return;
+            }
+            segment = activeSegment;
+            offset = segment.writeOffset();
+            committing = groupCommitted;
+            committingLsn = lastCommitLsn;
+            groupCommitted = new CompletableFuture<>();
+            uncommittedRecords = 0;
+            uncommittedBytes = 0;
+        }
+        try {
+            segment.force(offset);
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to sync file sink segment {}", segment, e);
+            committing.completeExceptionally(e);
+            return;
+        }
+        if (committingLsn > durableLsn) {
+            durableLsn = committingLsn;
+        }
+        committing.complete(null);
+    }
+
+    private static boolean isSegment(Path file, FileSinkConfiguration.Format format) {
+        var name = file.getFileName().toString();
+        return name.endsWith(format.fileSuffix()) || name.endsWith(format.fileSuffix() + FileSinkSegment.OPEN_SUFFIX);
+    }
+}
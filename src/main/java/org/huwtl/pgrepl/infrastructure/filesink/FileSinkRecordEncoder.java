@@ -0,0 +1,135 @@
+package org.huwtl.pgrepl.infrastructure.filesink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.huwtl.pgrepl.infrastructure.filesink.FileSinkConfiguration.Format;
+
+abstract class FileSinkRecordEncoder {
+    private static final char REPLACEMENT_CHARACTER = '?';
+
+    private final ObjectMapper objectMapper;
+    private final BufferOutputStream bufferOutputStream = new BufferOutputStream();
+
+    FileSinkRecordEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    static FileSinkRecordEncoder of(Format format, ObjectMapper objectMapper) {
+        return switch (format) {
+            case BINARY -> new BinaryRecordEncoder(objectMapper);
+            case NDJSON -> new NdjsonRecordEncoder(objectMapper);
+        };
+    }
+
+    abstract void encode(Data data, boolean tombstone, ByteBuffer buffer) throws IOException;
+
+    abstract int recordsEnd(ByteBuffer segment);
+
+    void putJson(ByteBuffer buffer, Object json) throws IOException {
+        bufferOutputStream.buffer = buffer;
+        try {
+            objectMapper.writeValue(bufferOutputStream, json);
+        } finally {
+            bufferOutputStream.buffer = null;
+        }
+    }
+
+    static void putUtf8(ByteBuffer buffer, CharSequence text, boolean jsonEscaped) {
+        var length = text.length();
+        for (var index = 0; index < length; index++) {
+            var character = text.charAt(index);
+            if (character < 0x80) {
+                if (jsonEscaped) {
+                    putJsonEscaped(buffer, character);
+                } else {
+                    buffer.put((byte) character);
+                }
+            } else if (character < 0x800) {
+                buffer.put((byte) (0xC0 | character >> 6));
+                buffer.put((byte) (0x80 | character & 0x3F));
+            } else if (Character.isHighSurrogate(character)
+                    && index + 1 < length
+                    && Character.isLowSurrogate(text.charAt(index + 1))) {
+                var codePoint = Character.toCodePoint(character, text.charAt(++index));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(character)) {
+                buffer.put((byte) REPLACEMENT_CHARACTER);
+            } else {
+                buffer.put((byte) (0xE0 | character >> 12));
+                buffer.put((byte) (0x80 | character >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | character & 0x3F));
+            }
+        }
+    }
+
+    static void putAscii(ByteBuffer buffer, CharSequence text) {
+        for (var index = 0; index < text.length(); index++) {
+            buffer.put((byte) text.charAt(index));
+        }
+    }
+
+    static void putDecimal(ByteBuffer buffer, long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(buffer, "-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        var digits = 1;
+        for (var remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        if (buffer.remaining() < digits) {
+            throw new BufferOverflowException();
+        }
+        var position = buffer.position();
+        for (var index = position + digits - 1; index >= position; index--) {
+            buffer.put(index, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(position + digits);
+    }
+
+    private static void putJsonEscaped(ByteBuffer buffer, char character) {
+        switch (character) {
+            case '"', '\\' -> buffer.put((byte) '\\').put((byte) character);
+            case '\n' -> buffer.put((byte) '\\').put((byte) 'n');
+            case '\r' -> buffer.put((byte) '\\').put((byte) 'r');
+            case '\t' -> buffer.put((byte) '\\').put((byte) 't');
+            default -> {
+                if (character < 0x20) {
+                    buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put((byte) Character.forDigit(character >> 4, 16))
+                            .put((byte) Character.forDigit(character & 0xF, 16));
+                } else {
+                    buffer.put((byte) character);
+                }
+            }
+        }
+    }
+
+    private static class BufferOutputStream extends OutputStream {
+        private ByteBuffer buffer;
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.huwtl.pgrepl.infrastructure.filesink;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.huwtl.pgrepl.infrastructure.filesink.FileSinkConfiguration.Format;
+
+class FileSinkSegment {
+    static final String OPEN_SUFFIX = ".open";
+
+    private final long sequence;
+    private final Path openFile;
+    private final Path sealedFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int forcedOffset;
+
+    private FileSinkSegment(long sequence, Path openFile, Path sealedFile, FileChannel channel, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.openFile = openFile;
+        this.sealedFile = sealedFile;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static FileSinkSegment create(Path directory, long sequence, int sizeInBytes, Format format) throws IOException {
+        var sealedFile = directory.resolve(fileName(sequence, format));
+        var openFile = directory.resolve(sealedFile.getFileName() + OPEN_SUFFIX);
+        var channel = FileChannel.open(openFile, CREATE_NEW, READ, WRITE);
+        try {
+            return new FileSinkSegment(sequence, openFile, sealedFile, channel, channel.map(READ_WRITE, 0, sizeInBytes));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static long recover(Path openFile, FileSinkRecordEncoder encoder) throws IOException {
+        var name = openFile.getFileName().toString();
+        var sealedFile = openFile.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length()));
+        long recordsEnd;
+        try (var channel = FileChannel.open(openFile, READ, WRITE)) {
+            recordsEnd = encoder.recordsEnd(channel.map(READ_WRITE, 0, channel.size()));
+            channel.truncate(recordsEnd);
+            channel.force(true);
+        }
+        if (recordsEnd == 0) {
+            Files.delete(openFile);
+        } else {
+            Files.move(openFile, sealedFile, ATOMIC_MOVE);
+        }
+        return recordsEnd;
+    }
+
+    static String fileName(long sequence, Format format) {
+        return String.format("%020d%s", sequence, format.fileSuffix());
+    }
+
+    static long sequence(Path file) {
+        var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int writeOffset() {
+        return buffer.position();
+    }
+
+    synchronized void force(int offset) {
+        if (offset > forcedOffset) {
+            buffer.force(forcedOffset, offset - forcedOffset);
+            forcedOffset = offset;
+        }
+    }
+
+    synchronized void seal() throws IOException {
+        var writeOffset = buffer.position();
+        force(writeOffset);
+        try (channel) {
+            channel.truncate(writeOffset);
+            channel.force(true);
+        }
+        if (writeOffset == 0) {
+            Files.delete(openFile);
+        } else {
+            Files.move(openFile, sealedFile, ATOMIC_MOVE);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sealedFile.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package org.huwtl.pgrepl.infrastructure.filesink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+class NdjsonRecordEncoder extends FileSinkRecordEncoder {
+    private static final byte END_OF_RECORD = '\n';
+    private static final byte UNWRITTEN = 0;
+    private static final String TOMBSTONE_PREFIX = "{\"$deleted\":";
+
+    private final StringBuilder number = new StringBuilder();
+
+    NdjsonRecordEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    void encode(Data data, boolean tombstone, ByteBuffer buffer) throws IOException {
+        var schema = data.schema();
+        if (tombstone) {
+            putAscii(buffer, TOMBSTONE_PREFIX);
+        }
+        buffer.put((byte) '{');
+        for (var column = 0; column < data.size(); column++) {
+            if (column > 0) {
+                buffer.put((byte) ',');
+            }
+            putString(buffer, schema.name(column));
+            buffer.put((byte) ':');
+            if (data.isNull(column)) {
+                putAscii(buffer, "null");
+                continue;
+            }
+            switch (schema.type(column)) {
+                case BOOLEAN -> putAscii(buffer, data.getBoolean(column) ? "true" : "false");
+                case INTEGER -> putDecimal(buffer, data.getLong(column));
+                case FLOAT -> putDouble(buffer, data.getDouble(column));
+                default -> {
+                    var value = data.value(column);
+                    if (value instanceof JsonNode) {
+                        putJson(buffer, value);
+                    } else if (value instanceof BigDecimal decimal) {
+                        putAscii(buffer, decimal.toString());
+                    } else {
+                        putString(buffer, value instanceof CharSequence text ? text : value.toString());
+                    }
+                }
+            }
+        }
+        buffer.put((byte) '}');
+        if (tombstone) {
+            buffer.put((byte) '}');
+        }
+        buffer.put(END_OF_RECORD);
+    }
+
+    @Override
+    int recordsEnd(ByteBuffer segment) {
+        var end = 0;
+        for (var offset = 0; offset < segment.limit(); offset++) {
+            var character = segment.get(offset);
+            if (character == UNWRITTEN) {
+                break;
+            } else if (character == END_OF_RECORD) {
+                end = offset + 1;
+            }
+        }
+        return end;
+    }
+
+    private void putDouble(ByteBuffer buffer, double value) {
+        number.setLength(0);
+        number.append(value);
+        if (Double.isFinite(value)) {
+            putAscii(buffer, number);
+        } else {
+            buffer.put((byte) '"');
+            putAscii(buffer, number);
+            buffer.put((byte) '"');
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, CharSequence text) {
+        buffer.put((byte) '"');
+        putUtf8(buffer, text, true);
+        buffer.put((byte) '"');
+    }
+}
@@ -0,0 +1,72 @@
+package org.huwtl.pgrepl.infrastructure.metrics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.Counter;
+import org.huwtl.pgrepl.application.services.metrics.Histogram;
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.sun.management.GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class GcPauseRecorder implements NotificationListener, AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+    private static final String CONCURRENT_CYCLE_ACTION = "concurrent";
+
+    private final Histogram pauseMillis;
+    private final Counter totalPauseMillis;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    public GcPauseRecorder(MetricsRegistry registry) {
+        this.pauseMillis = registry.histogram("pgrepl_gc_pause_millis", "garbage collection pause in milliseconds");
+        this.totalPauseMillis = registry.counter("pgrepl_gc_pause_time_millis", "milliseconds paused for garbage collection");
+        for (var collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    public Histogram pauseMillis() {
+        return pauseMillis;
+    }
+
+    public long totalPauseMillis() {
+        return totalPauseMillis.count();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        var collection = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (collection.getGcAction().contains(CONCURRENT_CYCLE_ACTION)) {
+            return;
+        }
+        var duration = collection.getGcInfo().getDuration();
+        pauseMillis.record(duration);
+        totalPauseMillis.add(duration);
+    }
+
+    @Override
+    public void close() {
+        for (var emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                LOGGER.error("Unable to stop recording garbage collection pauses", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.huwtl.pgrepl.infrastructure.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class HttpMetricsExporter implements AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+    private static final String METRICS_PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int STOP_DELAY_IN_SECONDS = 0;
+
+    private final Map<String, MetricsRegistry> registriesBySlot;
+    private final boolean labelledBySlot;
+    private final HttpServer server;
+
+    public HttpMetricsExporter(MetricsRegistry registry, int port) throws IOException {
+        this(Map.of("", registry), false, port);
+    }
+
+    public HttpMetricsExporter(Map<String, MetricsRegistry> registriesBySlot, int port) throws IOException {
+        this(new LinkedHashMap<>(registriesBySlot), true, port);
+    }
+
+    private HttpMetricsExporter(Map<String, MetricsRegistry> registriesBySlot, boolean labelledBySlot, int port)
+            throws IOException {
+        this.registriesBySlot = registriesBySlot;
+        this.labelledBySlot = labelledBySlot;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(METRICS_PATH, this::scrape);
+        server.start();
+        LOGGER.info("Exposing replication metrics at http://{}{}", server.getAddress(), METRICS_PATH);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_IN_SECONDS);
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            var body = prometheusText().getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    String prometheusText() {
+        var linesByName = new LinkedHashMap<String, StringBuilder>();
+        registriesBySlot.forEach((slot, registry) -> registry.samples().forEach(sample -> {
+            var lines = linesByName.computeIfAbsent(sample.name(), name -> new StringBuilder()
+                    .append("# HELP ").append(name).append(' ').append(sample.description()).append('\n')
+                    .append("# TYPE ").append(name).append(name.endsWith("_total") ? " counter" : " gauge")
+                    .append('\n'));
+            lines.append(sample.name());
+            if (labelledBySlot) {
+                lines.append("{slot=\"").append(escapedLabelValue(slot)).append("\"}");
+            }
+            lines.append(' ').append(sample.value()).append('\n');
+        }));
+        var text = new StringBuilder();
+        linesByName.values().forEach(text::append);
+        return text.toString();
+    }
+
+    private static String escapedLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,101 @@
+package org.huwtl.pgrepl.infrastructure.metrics;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.MetricSample;
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class JmxMetricsExporter implements DynamicMBean, AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+
+    private final MetricsRegistry registry;
+    private final MBeanServer mBeanServer;
+    private final ObjectName objectName;
+
+    public JmxMetricsExporter(MetricsRegistry registry, String slotName) throws JMException {
+        this(registry, slotName, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    JmxMetricsExporter(MetricsRegistry registry, String slotName, MBeanServer mBeanServer) throws JMException {
+        this.registry = registry;
+        this.mBeanServer = mBeanServer;
+        this.objectName = new ObjectName("org.huwtl.pgrepl", "slot", ObjectName.quote(slotName));
+        mBeanServer.registerMBean(this, objectName);
+        LOGGER.info("Exposing replication metrics over JMX as {}", objectName);
+    }
+
+    public ObjectName objectName() {
+        return objectName;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        return registry.samples().stream()
+                .filter(sample -> sample.name().equals(attribute))
+                .findFirst()
+                .map(MetricSample::value)
+                .orElseThrow(() -> new AttributeNotFoundException(attribute));
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        var requested = Set.of(attributes);
+        var attributeList = new AttributeList();
+        registry.samples().stream()
+                .filter(sample -> requested.contains(sample.name()))
+                .forEach(sample -> attributeList.add(new Attribute(sample.name(), sample.value())));
+        return attributeList;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("replication metrics are read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("replication metrics have no operations");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        var attributes = registry.samples().stream()
+                .map(sample -> new MBeanAttributeInfo(
+                        sample.name(),
+                        Double.class.getName(),
+                        sample.description(),
+                        true,
+                        false,
+                        false
+                ))
+                .toArray(MBeanAttributeInfo[]::new);
+        return new MBeanInfo(getClass().getName(), "replication metrics", attributes, null, null, null);
+    }
+
+    @Override
+    public void close() {
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.error("Unable to unregister replication metrics {}", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.huwtl.pgrepl.infrastructure.pgoutput;
+
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.RowPredicate;
+
+record CapturedRelation(CapturedTable table, RowSchema schema, RowPredicate.Evaluator evaluator) {
+    boolean filtered() {
+        return evaluator != null;
+    }
+}
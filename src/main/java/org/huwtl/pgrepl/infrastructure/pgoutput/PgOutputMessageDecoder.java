@@ -0,0 +1,334 @@
+package org.huwtl.pgrepl.infrastructure.pgoutput;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.ChangeDataCaptureMessageDecoder;
+import org.huwtl.pgrepl.application.services.replication.IgnoredMessage;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresColumnTypes;
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresTextValues;
+import org.huwtl.pgrepl.infrastructure.postgres.UnparsedValues;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit;
+
+public class PgOutputMessageDecoder implements ChangeDataCaptureMessageDecoder {
+    private static final byte BEGIN = 'B';
+    private static final byte COMMIT = 'C';
+    private static final byte RELATION = 'R';
+    private static final byte INSERT = 'I';
+    private static final byte UPDATE = 'U';
+    private static final byte DELETE = 'D';
+    private static final byte NEW_TUPLE = 'N';
+    private static final byte KEY_TUPLE = 'K';
+    private static final byte OLD_TUPLE = 'O';
+    private static final byte NULL_VALUE = 'n';
+    private static final byte UNCHANGED_TOASTED_VALUE = 'u';
+    private static final byte TEXT_VALUE = 't';
+    private static final byte TRUE = 't';
+    private static final String SYSTEM_SCHEMA = "pg_catalog";
+    private static final long POSTGRES_EPOCH_IN_SECONDS = 946_684_800L;
+    private static final int BEGIN_FINAL_LSN_AND_TIMESTAMP_BYTES = 16;
+    private static final int COMMIT_FLAGS_AND_LSNS_BYTES = 17;
+    private static final int RELATION_REPLICA_IDENTITY_BYTES = 1;
+    private static final int COLUMN_FLAGS_BYTES = 1;
+    private static final int COLUMN_TYPE_MODIFIER_BYTES = 4;
+    private static final int INITIAL_TEXT_CAPACITY = 256;
+
+    private final ObjectMapper objectMapper;
+    private final List<CapturedTable> capturedTables;
+    private final Map<Integer, CapturedRelation> capturedRelationsById = new HashMap<>();
+    private final boolean decodeUpdatesAndDeletes;
+    private final RowFilter rowFilter;
+    private final UnparsedValues unparsedValues;
+    private long xid;
+    private long xidToSkipChangesOf;
+    private long changesToSkip;
+    private long skippingChanges;
+    private byte[] text = new byte[INITIAL_TEXT_CAPACITY];
+
+    public PgOutputMessageDecoder(ObjectMapper objectMapper, Collection<CapturedTable> capturedTables) {
+        this(objectMapper, capturedTables, false);
+    }
+
+    public PgOutputMessageDecoder(
+            ObjectMapper objectMapper,
+            Collection<CapturedTable> capturedTables,
+            boolean decodeUpdatesAndDeletes) {
+        this(objectMapper, capturedTables, decodeUpdatesAndDeletes, RowFilter.NONE, new ReplicationMetrics());
+    }
+
+    public PgOutputMessageDecoder(
+            ObjectMapper objectMapper,
+            Collection<CapturedTable> capturedTables,
+            boolean decodeUpdatesAndDeletes,
+            RowFilter rowFilter,
+            ReplicationMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.capturedTables = List.copyOf(capturedTables);
+        this.decodeUpdatesAndDeletes = decodeUpdatesAndDeletes;
+        this.rowFilter = rowFilter;
+        this.unparsedValues = new UnparsedValues(metrics);
+    }
+
+    @Override
+    public void skipChanges(long xid, long changes) {
+        xidToSkipChangesOf = xid;
+        changesToSkip = changes;
+    }
+
+    @Override
+    public ChangeDataCaptureMessage decode(ByteBuffer buffer, long lsn) throws IOException {
+        var message = buffer.duplicate().order(BIG_ENDIAN);
+        try {
+            return switch (message.get()) {
+                case BEGIN -> begin(message);
+                case COMMIT -> commit(message, lsn);
+                case RELATION -> relation(message);
+                case INSERT -> insert(message);
+                case UPDATE -> decodeUpdatesAndDeletes ? update(message) : IgnoredMessage.INSTANCE;
+                case DELETE -> decodeUpdatesAndDeletes ? delete(message) : IgnoredMessage.INSTANCE;
+                default -> IgnoredMessage.INSTANCE;
+            };
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated pgoutput message at lsn " + lsn, e);
+        }
+    }
+
+    private TransactionBegin begin(ByteBuffer message) {
+        skip(message, BEGIN_FINAL_LSN_AND_TIMESTAMP_BYTES);
+        xid = Integer.toUnsignedLong(message.getInt());
+        if (xid == xidToSkipChangesOf && changesToSkip > 0) {
+            skippingChanges = changesToSkip;
+            changesToSkip = 0;
+        } else {
+            skippingChanges = 0;
+        }
+        return new TransactionBegin(xid);
+    }
+
+    private TransactionCommit commit(ByteBuffer message, long lsn) {
+        skip(message, COMMIT_FLAGS_AND_LSNS_BYTES);
+        return new TransactionCommit(xid, lsn, instant(message.getLong()));
+    }
+
+    private ChangeDataCaptureMessage relation(ByteBuffer message) {
+        var relationId = message.getInt();
+        var schema = string(message);
+        var table = string(message);
+        var capturedTable = capturedTable(schema.isEmpty() ? SYSTEM_SCHEMA : schema, table);
+        if (capturedTable == null) {
+            capturedRelationsById.remove(relationId);
+            return IgnoredMessage.INSTANCE;
+        }
+        skip(message, RELATION_REPLICA_IDENTITY_BYTES);
+        var columns = message.getShort();
+        var names = new String[columns];
+        var types = new ColumnType[columns];
+        for (var column = 0; column < columns; column++) {
+            skip(message, COLUMN_FLAGS_BYTES);
+            names[column] = string(message);
+            types[column] = PostgresColumnTypes.columnType(message.getInt());
+            skip(message, COLUMN_TYPE_MODIFIER_BYTES);
+        }
+        var rowSchema = new RowSchema(names, types);
+        capturedRelationsById.put(
+                relationId,
+                new CapturedRelation(capturedTable, rowSchema, rowFilter.evaluator(capturedTable, rowSchema))
+        );
+        return IgnoredMessage.INSTANCE;
+    }
+
+    private ChangeDataCaptureMessage insert(ByteBuffer message) throws IOException {
+        var capturedRelation = capturedRelationsById.get(message.getInt());
+        if (capturedRelation == null || skippedBeforeDecoding(capturedRelation)) {
+            return IgnoredMessage.INSTANCE;
+        }
+        if (message.get() != NEW_TUPLE) {
+            throw new IOException("Expected pgoutput insert to contain a new tuple");
+        }
+        var data = tuple(message, capturedRelation, true);
+        return accepted(capturedRelation, data) ? new CapturedInsert(capturedRelation.table(), data) : IgnoredMessage.INSTANCE;
+    }
+
+    private ChangeDataCaptureMessage update(ByteBuffer message) throws IOException {
+        var capturedRelation = capturedRelationsById.get(message.getInt());
+        if (capturedRelation == null || skippedBeforeDecoding(capturedRelation)) {
+            return IgnoredMessage.INSTANCE;
+        }
+        Data identity = null;
+        var tuple = message.get();
+        if (tuple == KEY_TUPLE || tuple == OLD_TUPLE) {
+            identity = tuple(message, capturedRelation, false);
+            tuple = message.get();
+        }
+        if (tuple != NEW_TUPLE) {
+            throw new IOException("Expected pgoutput update to contain a new tuple");
+        }
+        var data = tuple(message, capturedRelation, true);
+        return accepted(capturedRelation, data)
+                ? new CapturedUpdate(capturedRelation.table(), identity, data)
+                : IgnoredMessage.INSTANCE;
+    }
+
+    private ChangeDataCaptureMessage delete(ByteBuffer message) throws IOException {
+        var capturedRelation = capturedRelationsById.get(message.getInt());
+        if (capturedRelation == null || skippedBeforeDecoding(capturedRelation)) {
+            return IgnoredMessage.INSTANCE;
+        }
+        var tuple = message.get();
+        if (tuple != KEY_TUPLE && tuple != OLD_TUPLE) {
+            throw new IOException("Expected pgoutput delete to contain a key or old tuple");
+        }
+        var identity = tuple(message, capturedRelation, true);
+        return accepted(capturedRelation, identity)
+                ? new CapturedDelete(capturedRelation.table(), identity)
+                : IgnoredMessage.INSTANCE;
+    }
+
+    private boolean skippedBeforeDecoding(CapturedRelation capturedRelation) {
+        return !capturedRelation.filtered() && skipped();
+    }
+
+    private boolean accepted(CapturedRelation capturedRelation, Data row) {
+        return row != null && (!capturedRelation.filtered() || !skipped());
+    }
+
+    private boolean skipped() {
+        if (skippingChanges == 0) {
+            return false;
+        }
+        skippingChanges--;
+        return true;
+    }
+
+    private Data tuple(ByteBuffer message, CapturedRelation capturedRelation, boolean filtered) throws IOException {
+        var schema = capturedRelation.schema();
+        var columns = message.getShort();
+        if (columns != schema.size()) {
+            throw new IOException(
+                    "Expected " + schema.size() + " columns for " + capturedRelation.table() + " but got " + columns
+            );
+        }
+        var values = new Object[columns];
+        var primitives = schema.hasPrimitiveColumns() ? new long[columns] : null;
+        for (var column = 0; column < columns; column++) {
+            switch (message.get()) {
+                case NULL_VALUE, UNCHANGED_TOASTED_VALUE -> values[column] = null;
+                case TEXT_VALUE -> {
+                    var length = message.getInt();
+                    var type = schema.type(column);
+                    if (type.primitive()) {
+                        primitives[column] = primitiveValue(message, length, type);
+                        values[column] = Data.UNBOXED;
+                    } else {
+                        values[column] = PostgresTextValues.value(
+                                text(message, length),
+                                type,
+                                objectMapper,
+                                unparsedValues,
+                                capturedRelation.table(),
+                                schema.name(column)
+                        );
+                    }
+                }
+                default -> throw new IOException("Unsupported pgoutput column value kind in " + capturedRelation.table());
+            }
+        }
+        if (filtered && capturedRelation.filtered() && !capturedRelation.evaluator().matches(values, primitives)) {
+            return null;
+        }
+        return new Data(schema, values, primitives);
+    }
+
+    private CapturedTable capturedTable(String schema, String table) {
+        for (var capturedTable : capturedTables) {
+            if (capturedTable.schema().equalsIgnoreCase(schema) && capturedTable.table().equalsIgnoreCase(table)) {
+                return capturedTable;
+            }
+        }
+        return null;
+    }
+
+    private long primitiveValue(ByteBuffer message, int length, ColumnType type) {
+        return switch (type) {
+            case BOOLEAN -> {
+                var value = message.get(message.position()) == TRUE ? 1 : 0;
+                skip(message, length);
+                yield value;
+            }
+            case INTEGER -> integerValue(message, length);
+            case FLOAT -> Double.doubleToRawLongBits(Double.parseDouble(text(message, length)));
+            default -> throw new IllegalStateException("Column type " + type + " is not primitive");
+        };
+    }
+
+    private static long integerValue(ByteBuffer message, int length) {
+        var start = message.position();
+        var negative = message.get(start) == '-';
+        var value = 0L;
+        for (var index = negative ? start + 1 : start; index < start + length; index++) {
+            value = value * 10 - (message.get(index) - '0');
+        }
+        skip(message, length);
+        return negative ? value : -value;
+    }
+
+    private String string(ByteBuffer message) {
+        var end = message.position();
+        while (message.get(end) != 0) {
+            end++;
+        }
+        var string = text(message, end - message.position());
+        skip(message, 1);
+        return string;
+    }
+
+    private String text(ByteBuffer message, int length) {
+        if (message.hasArray()) {
+            var string = new String(message.array(), message.arrayOffset() + message.position(), length, UTF_8);
+            skip(message, length);
+            return string;
+        }
+        if (length > text.length) {
+            text = Arrays.copyOf(text, Math.max(length, text.length * 2));
+        }
+        message.get(text, 0, length);
+        return new String(text, 0, length, UTF_8);
+    }
+
+    private static Instant instant(long microsecondsSincePostgresEpoch) {
+        var seconds = Math.floorDiv(microsecondsSincePostgresEpoch, SECONDS.toMicros(1));
+        var micros = Math.floorMod(microsecondsSincePostgresEpoch, SECONDS.toMicros(1));
+        return Instant.ofEpochSecond(POSTGRES_EPOCH_IN_SECONDS + seconds, MICROSECONDS.toNanos(micros));
+    }
+
+    private static void skip(ByteBuffer message, int bytes) {
+        if (bytes > message.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        message.position(message.position() + bytes);
+    }
+}
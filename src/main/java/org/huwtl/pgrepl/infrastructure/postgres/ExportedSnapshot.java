@@ -0,0 +1,40 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class ExportedSnapshot implements AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+
+    private final Connection exportingConnection;
+    private final String snapshotName;
+    private final long consistentPoint;
+
+    ExportedSnapshot(Connection exportingConnection, String snapshotName, long consistentPoint) {
+        this.exportingConnection = exportingConnection;
+        this.snapshotName = snapshotName;
+        this.consistentPoint = consistentPoint;
+    }
+
+    public String snapshotName() {
+        return snapshotName;
+    }
+
+    public long consistentPoint() {
+        return consistentPoint;
+    }
+
+    @Override
+    public void close() {
+        try {
+            exportingConnection.close();
+            LOGGER.info("Released exported snapshot {}", snapshotName);
+        } catch (SQLException e) {
+            LOGGER.error("Unable to close connection exporting snapshot {}", snapshotName, e);
+        }
+    }
+}
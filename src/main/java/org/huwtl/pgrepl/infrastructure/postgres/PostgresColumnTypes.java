@@ -0,0 +1,24 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+
+public final class PostgresColumnTypes {
+    private PostgresColumnTypes() {
+    }
+
+    public static ColumnType columnType(int typeOid) {
+        return switch (typeOid) {
+            case 16 -> ColumnType.BOOLEAN;
+            case 20, 21, 23, 26 -> ColumnType.INTEGER;
+            case 700, 701 -> ColumnType.FLOAT;
+            case 1700 -> ColumnType.NUMERIC;
+            case 19, 25, 1042, 1043 -> ColumnType.TEXT;
+            case 2950 -> ColumnType.UUID;
+            case 1082 -> ColumnType.DATE;
+            case 1114 -> ColumnType.TIMESTAMP;
+            case 1184 -> ColumnType.TIMESTAMP_WITH_TIME_ZONE;
+            case 114, 3802 -> ColumnType.JSON;
+            default -> ColumnType.OTHER;
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+public final class PostgresIdentifiers {
+    private PostgresIdentifiers() {
+    }
+
+    public static String quoted(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    public static String quoted(CapturedTable table) {
+        return quoted(table.schema()) + "." + quoted(table.table());
+    }
+}
@@ -0,0 +1,221 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.DatabaseConfiguration;
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.ReplicationConfiguration.OutputPlugin;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.replication.FatalReplicationException;
+import org.huwtl.pgrepl.application.services.replication.RawReplicationStreamProvider;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider;
+import org.postgresql.PGConnection;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationConnection;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.joining;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class PostgresReplicationSlot implements ReplicationStreamProvider, RawReplicationStreamProvider {
+    private static final Logger LOGGER = getLogger();
+
+    private final DatabaseConfiguration databaseConfig;
+    private final ReplicationConfiguration replicationConfig;
+    private final ReplicationMetrics metrics;
+    private volatile boolean created;
+    private volatile boolean publicationCreated;
+    private volatile long confirmedLsn;
+    private ReplicationCheckpointFile checkpoint;
+
+    public PostgresReplicationSlot(
+            DatabaseConfiguration databaseConfig,
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) {
+        this.databaseConfig = databaseConfig;
+        this.replicationConfig = replicationConfig;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public PostgresReplicationStream openedReplicationStream() throws SQLException {
+        return open();
+    }
+
+    @Override
+    public PostgresReplicationStream openedRawReplicationStream() throws SQLException {
+        return open();
+    }
+
+    public Optional<ExportedSnapshot> createExportingSnapshot() throws SQLException {
+        var connection = DriverManager.getConnection(databaseConfig.jdbcUrl(), databaseConfig.replicationProperties());
+        try {
+            createPublicationIfAbsent(connection);
+            var slotName = replicationConfig.slotName();
+            LOGGER.info("Attempting to create replication slot {} exporting its snapshot", slotName);
+            var slotInfo = connection.unwrap(PGConnection.class)
+                    .getReplicationAPI()
+                    .createReplicationSlot()
+                    .logical()
+                    .withOutputPlugin(replicationConfig.outputPlugin().pluginName())
+                    .withSlotName(slotName)
+                    .make();
+            created = true;
+            newlyCreated(slotInfo.getConsistentPoint().asLong());
+            LOGGER.info(
+                    "Created replication slot {} consistent at lsn {} with snapshot {}",
+                    slotName,
+                    slotInfo.getConsistentPoint(),
+                    slotInfo.getSnapshotName()
+            );
+            return Optional.of(new ExportedSnapshot(
+                    connection,
+                    slotInfo.getSnapshotName(),
+                    slotInfo.getConsistentPoint().asLong()
+            ));
+        } catch (SQLException e) {
+            connection.close();
+            if (!PostgresSqlStates.is(e, PostgresSqlStates.DUPLICATE_OBJECT)) {
+                throw e;
+            }
+            LOGGER.info("Slot {} already exists so has no snapshot to export", replicationConfig.slotName());
+            created = true;
+            return Optional.empty();
+        }
+    }
+
+    public void resumeFrom(long lsn) {
+        confirmed(lsn);
+    }
+
+    public void checkpointTo(ReplicationCheckpointFile checkpoint) {
+        this.checkpoint = checkpoint;
+        if (checkpoint.commitLsn() > 0) {
+            LOGGER.info(
+                    "Resuming replication slot {} after lsn {} already published according to its checkpoint",
+                    replicationConfig.slotName(),
+                    LogSequenceNumber.valueOf(checkpoint.commitLsn())
+            );
+            confirmed(checkpoint.commitLsn());
+        }
+    }
+
+    public long confirmedLsn() {
+        return confirmedLsn;
+    }
+
+    DatabaseConfiguration databaseConfig() {
+        return databaseConfig;
+    }
+
+    ReplicationConfiguration replicationConfig() {
+        return replicationConfig;
+    }
+
+    ReplicationMetrics metrics() {
+        return metrics;
+    }
+
+    ReplicationCheckpointFile checkpoint() {
+        return checkpoint;
+    }
+
+    LogSequenceNumber startPosition() {
+        return LogSequenceNumber.valueOf(confirmedLsn);
+    }
+
+    void confirmed(long lsn) {
+        if (lsn > confirmedLsn) {
+            confirmedLsn = lsn;
+        }
+    }
+
+    void createIfAbsent(PGReplicationConnection replicationApi) throws SQLException {
+        if (created) {
+            return;
+        }
+        var slotName = replicationConfig.slotName();
+        try {
+            LOGGER.info("Attempting to create replication slot {}", slotName);
+            replicationApi.createReplicationSlot()
+                    .logical()
+                    .withOutputPlugin(replicationConfig.outputPlugin().pluginName())
+                    .withSlotName(slotName)
+                    .make();
+            LOGGER.info("Created replication slot {}", slotName);
+            newlyCreated(0);
+        } catch (SQLException e) {
+            if (!PostgresSqlStates.is(e, PostgresSqlStates.DUPLICATE_OBJECT)) {
+                throw e;
+            }
+            LOGGER.info("Slot {} already exists", slotName);
+        }
+        created = true;
+    }
+
+    void createPublicationIfAbsent(Connection replicationConnection) throws SQLException {
+        if (publicationCreated || replicationConfig.outputPlugin() != OutputPlugin.PGOUTPUT) {
+            return;
+        }
+        var publicationName = replicationConfig.publicationName();
+        try (var statement = replicationConnection.createStatement()) {
+            LOGGER.info("Attempting to create publication {}", publicationName);
+            statement.execute(
+                    "CREATE PUBLICATION " + PostgresIdentifiers.quoted(publicationName)
+                            + " FOR TABLE " + publishedTables()
+                            + " WITH (publish = '" + publishedActions() + "')"
+            );
+            LOGGER.info("Created publication {}", publicationName);
+        } catch (SQLException e) {
+            if (!PostgresSqlStates.is(e, PostgresSqlStates.DUPLICATE_OBJECT)) {
+                throw e;
+            }
+            LOGGER.info("Publication {} already exists", publicationName);
+        }
+        publicationCreated = true;
+    }
+
+    void missing() {
+        LOGGER.info("Replication slot {} no longer exists so will be created again", replicationConfig.slotName());
+        created = false;
+    }
+
+    private void newlyCreated(long consistentLsn) throws SQLException {
+        confirmedLsn = consistentLsn;
+        if (checkpoint != null) {
+            try {
+                checkpoint.reset();
+            } catch (IOException e) {
+                throw new SQLException("Unable to reset checkpoint of new replication slot " + replicationConfig.slotName(), e);
+            }
+        }
+    }
+
+    private String publishedActions() {
+        return replicationConfig.captureUpdatesAndDeletes() ? "insert, update, delete" : "insert";
+    }
+
+    private String publishedTables() {
+        return replicationConfig.tablesToDetectChangesFrom().stream()
+                .map(PostgresIdentifiers::quoted)
+                .collect(joining(", "));
+    }
+
+    private PostgresReplicationStream open() throws SQLException {
+        try {
+            return new PostgresReplicationStream(this);
+        } catch (SQLException e) {
+            if (PostgresSqlStates.fatal(e)) {
+                throw new FatalReplicationException(
+                        "unable to replicate from slot " + replicationConfig.slotName() + " without intervention",
+                        e
+                );
+            }
+            throw e;
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package org.huwtl.pgrepl.infrastructure.postgres;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.Logger;
 import org.huwtl.pgrepl.ObjectMapperFactory;
 import org.huwtl.pgrepl.ReplicationConfiguration;
 import org.huwtl.pgrepl.DatabaseConfiguration;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.replication.ChangeDataCaptureMessageDecoder;
+import org.huwtl.pgrepl.application.services.replication.RawReplicationStream;
 import org.huwtl.pgrepl.application.services.replication.ReplicationStream;
-import org.huwtl.pgrepl.infrastructure.wal2json.ReplicationSlotMessageDto;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.infrastructure.decoding.ParallelDecodePipeline;
+import org.huwtl.pgrepl.infrastructure.pgoutput.PgOutputMessageDecoder;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
 import org.postgresql.PGConnection;
 import org.postgresql.replication.LogSequenceNumber;
 import org.postgresql.replication.PGReplicationConnection;
@@ -14,68 +19,175 @@ import org.postgresql.replication.PGReplicationStream;
 import org.postgresql.util.PSQLException;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.logging.log4j.LogManager.getLogger;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate;
 import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive;
 import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit;
 
-public class PostgresReplicationStream implements ReplicationStream {
+public class PostgresReplicationStream implements ReplicationStream, RawReplicationStream {
     private static final Logger LOGGER = getLogger();
-    private static final String ALREADY_EXISTS_SQL_STATE = "42710";
-    private static final String CURRENTLY_RUNNING_PROCESS_ON_SLOT_SQL_STATE = "55006";
 
+    private final PostgresReplicationSlot slot;
     private final Connection replicationConnection;
     private final PGReplicationStream replicationStream;
-    private final ObjectMapper objectMapper;
+    private final ChangeDataCaptureMessageDecoder messageDecoder;
+    private final ParallelDecodePipeline decodePipeline;
+    private final ReplicationMetrics metrics;
+    private final RawMessageHandler onRawMessage = this::decodeReceivedMessage;
+    private final LongConsumer onKeepalive = this::keepaliveReceived;
+    private final RawMessageHandler onPipelinedRawMessage;
+    private final LongConsumer onPipelinedKeepalive;
+    private final ParallelDecodePipeline.DecodedMessageHandler onDecodedMessage = this::received;
+    private final Keepalive keepalive = new Keepalive(0);
+    private Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage;
+    private final ReplicationCheckpointFile checkpoint;
+    private boolean transactionInProgress;
+    private long skippedXid;
+    private long skippedChanges;
+    private long changesToSkip;
+    private long skippingChanges;
 
     public PostgresReplicationStream(DatabaseConfiguration postgresConfig, ReplicationConfiguration replicationConfig)
             throws SQLException {
-        LOGGER.info("Connecting to {}", postgresConfig.jdbcUrl());
-        replicationConnection = newConnection(postgresConfig.jdbcUrl(), postgresConfig.replicationProperties());
-        LOGGER.info("Connected to postgres");
-        var postgresReplicationApi = replicationConnection
-                .unwrap(PGConnection.class)
-                .getReplicationAPI();
-        createReplicationSlot(replicationConfig, postgresReplicationApi);
-        replicationStream = replicationStream(replicationConfig, postgresReplicationApi);
-        objectMapper = ObjectMapperFactory.objectMapper();
+        this(postgresConfig, replicationConfig, new ReplicationMetrics());
+    }
+
+    public PostgresReplicationStream(
+            DatabaseConfiguration postgresConfig,
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) throws SQLException {
+        this(new PostgresReplicationSlot(postgresConfig, replicationConfig, metrics));
+    }
+
+    PostgresReplicationStream(PostgresReplicationSlot slot) throws SQLException {
+        this(slot, newConnection(slot.databaseConfig()));
+    }
+
+    private PostgresReplicationStream(PostgresReplicationSlot slot, Connection replicationConnection)
+            throws SQLException {
+        this(slot, replicationConnection, startedReplicationStream(slot, replicationConnection));
+    }
+
+    PostgresReplicationStream(
+            PostgresReplicationSlot slot,
+            Connection replicationConnection,
+            PGReplicationStream replicationStream) {
+        this.slot = slot;
+        this.metrics = slot.metrics();
+        this.replicationConnection = replicationConnection;
+        this.replicationStream = replicationStream;
+        var replicationConfig = slot.replicationConfig();
+        if (replicationConfig.decodeWorkers() > 0) {
+            messageDecoder = null;
+            decodePipeline = new ParallelDecodePipeline(
+                    () -> messageDecoder(replicationConfig, metrics),
+                    replicationConfig.decodeWorkers(),
+                    replicationConfig.decodeQueueDepth(),
+                    replicationConfig.maxInFlightBytes()
+            );
+            onPipelinedRawMessage = decodePipeline::decode;
+            onPipelinedKeepalive = decodePipeline::keepalive;
+            LOGGER.info("Decoding messages on {} workers", replicationConfig.decodeWorkers());
+        } else {
+            messageDecoder = messageDecoder(replicationConfig, metrics);
+            decodePipeline = null;
+            onPipelinedRawMessage = null;
+            onPipelinedKeepalive = null;
+        }
+        checkpoint = slot.checkpoint();
+        if (checkpoint != null && checkpoint.publishedChanges() > 0) {
+            skippedXid = checkpoint.xid();
+            skippedChanges = checkpoint.publishedChanges();
+            LOGGER.info(
+                    "Skipping the first {} changes of transaction {} already published according to the checkpoint",
+                    skippedChanges,
+                    skippedXid
+            );
+            if (messageDecoder != null) {
+                messageDecoder.skipChanges(skippedXid, skippedChanges);
+            } else {
+                changesToSkip = skippedChanges;
+            }
+        }
     }
 
     @Override
     public void processNextChangeDataCaptureMessage(
             Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage,
             Consumer<NoMessage> onNoMessage) throws SQLException, IOException {
-        var oldLsn = lastReceivedLogSequenceNumber();
+        this.onChangeDataCaptureMessage = onChangeDataCaptureMessage;
+        if (decodePipeline != null) {
+            processNextPipelinedMessage(onNoMessage);
+        } else if (!processNextRawMessage(onRawMessage, onKeepalive)) {
+            onNoMessage.accept(NoMessage.INSTANCE);
+        }
+    }
+
+    @Override
+    public boolean processNextRawMessage(RawMessageHandler onMessage, LongConsumer onKeepalive)
+            throws SQLException, IOException {
+        var oldLsn = lastReceivedLsn();
         var buffer = replicationStream.readPending();
-        var newLsn = lastReceivedLogSequenceNumber();
+        var newLsn = lastReceivedLsn();
         if (buffer != null) {
-            var offset = buffer.arrayOffset();
-            var bytes = buffer.array();
-            var slotMessage = objectMapper.readValue(
-                    bytes,
-                    offset,
-                    bytes.length,
-                    ReplicationSlotMessageDto.class
-            );
-            LOGGER.info("pending changes received {} with lsn {}", slotMessage, newLsn);
-            onChangeDataCaptureMessage.accept(slotMessage);
-            updateLogSequenceNumber(newLsn);
-        } else if (!newLsn.equals(oldLsn)) {
-            LOGGER.info("keepalive message received with lsn {}", newLsn);
-            updateLogSequenceNumber(newLsn);
-        } else {
-            onNoMessage.accept(new NoMessage());
+            onMessage.accept(buffer, newLsn);
+            return true;
+        } else if (newLsn != oldLsn) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("keepalive message received with lsn {}", newLsn);
+            }
+            metrics.keepaliveReceived(newLsn);
+            onKeepalive.accept(newLsn);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void acknowledge(long lsn) {
+        var logSequenceNumber = LogSequenceNumber.valueOf(lsn);
+        replicationStream.setAppliedLSN(logSequenceNumber);
+        replicationStream.setFlushedLSN(logSequenceNumber);
+        slot.confirmed(lsn);
+        metrics.flushed(lsn);
+        if (checkpoint != null) {
+            checkpoint.acknowledged(lsn);
         }
     }
 
+    @Override
+    public void acknowledgeTransactionProgress(long xid, long publishedChanges) {
+        if (checkpoint != null) {
+            checkpoint.progressed(xid, xid == skippedXid ? skippedChanges + publishedChanges : publishedChanges);
+        }
+    }
+
+    @Override
+    public void sendStatus() throws SQLException {
+        replicationStream.forceUpdateStatus();
+    }
+
     @Override
     public void close() {
+        if (decodePipeline != null) {
+            decodePipeline.close();
+        }
+        if (checkpoint != null) {
+            checkpoint.flush();
+        }
         try {
             if (replicationStream != null && !replicationStream.isClosed()) {
                 replicationStream.forceUpdateStatus();
@@ -95,58 +207,127 @@ public class PostgresReplicationStream implements ReplicationStream {
         }
     }
 
-    private LogSequenceNumber lastReceivedLogSequenceNumber() {
-        return replicationStream.getLastReceiveLSN();
+    private static ChangeDataCaptureMessageDecoder messageDecoder(
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) {
+        var capturedTables = replicationConfig.tablesToDetectChangesFrom();
+        var objectMapper = ObjectMapperFactory.objectMapper();
+        var updatesAndDeletes = replicationConfig.captureUpdatesAndDeletes();
+        var rowFilter = new RowFilter(replicationConfig.rowPredicates(), metrics);
+        return switch (replicationConfig.outputPlugin()) {
+            case WAL2JSON -> new Wal2JsonMessageDecoder(objectMapper, capturedTables, updatesAndDeletes, rowFilter, metrics);
+            case PGOUTPUT -> new PgOutputMessageDecoder(objectMapper, capturedTables, updatesAndDeletes, rowFilter, metrics);
+        };
     }
 
-    private void updateLogSequenceNumber(LogSequenceNumber logSequenceNumber) {
-        replicationStream.setAppliedLSN(logSequenceNumber);
-        replicationStream.setFlushedLSN(logSequenceNumber);
+    private long lastReceivedLsn() {
+        return replicationStream.getLastReceiveLSN().asLong();
     }
 
-    private void createReplicationSlot(
-            ReplicationConfiguration replicationConfig,
-            PGReplicationConnection postgresReplicationApi) throws SQLException {
-        var replicationSlotName = replicationConfig.slotName();
+    private void processNextPipelinedMessage(Consumer<NoMessage> onNoMessage) throws SQLException, IOException {
+        while (!decodePipeline.full()) {
+            if (!processNextRawMessage(onPipelinedRawMessage, onPipelinedKeepalive)) {
+                break;
+            }
+        }
+        if (decodePipeline.empty()) {
+            onNoMessage.accept(NoMessage.INSTANCE);
+        } else {
+            decodePipeline.next(onDecodedMessage, onKeepalive);
+        }
+    }
+
+    private void decodeReceivedMessage(ByteBuffer buffer, long lsn) throws IOException {
+        var bytes = buffer.remaining();
+        var decodeStartedAt = System.nanoTime();
+        var changeDataCaptureMessage = messageDecoder.decode(buffer, lsn);
+        received(changeDataCaptureMessage, lsn, bytes, System.nanoTime() - decodeStartedAt);
+    }
+
+    private void received(ChangeDataCaptureMessage changeDataCaptureMessage, long lsn, int bytes, long decodeNanos) {
+        metrics.messageReceived(lsn, bytes, decodeNanos);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("pending change received {} with lsn {}", changeDataCaptureMessage, lsn);
+        }
+        if (changeDataCaptureMessage instanceof TransactionBegin begin) {
+            skippingChanges = begin.xid() == skippedXid ? changesToSkip : 0;
+            changesToSkip = 0;
+        } else if (skippingChanges > 0 && isChange(changeDataCaptureMessage)) {
+            skippingChanges--;
+            return;
+        }
+        onChangeDataCaptureMessage.accept(changeDataCaptureMessage);
+        if (changeDataCaptureMessage instanceof TransactionBegin) {
+            transactionInProgress = true;
+        } else if (changeDataCaptureMessage instanceof TransactionCommit commit) {
+            transactionInProgress = false;
+            metrics.transactionCommitted(commit.commitTimestamp());
+        }
+    }
+
+    private static boolean isChange(ChangeDataCaptureMessage message) {
+        return message instanceof CapturedInsert || message instanceof CapturedUpdate || message instanceof CapturedDelete;
+    }
+
+    private void keepaliveReceived(long lsn) {
+        if (!transactionInProgress) {
+            onChangeDataCaptureMessage.accept(keepalive.at(lsn));
+        }
+    }
+
+    private static Connection newConnection(DatabaseConfiguration postgresConfig) throws SQLException {
+        LOGGER.info("Connecting to {}", postgresConfig.jdbcUrl());
+        var replicationConnection = DriverManager.getConnection(
+                postgresConfig.jdbcUrl(),
+                postgresConfig.replicationProperties()
+        );
+        LOGGER.info("Connected to postgres");
+        return replicationConnection;
+    }
+
+    private static PGReplicationStream startedReplicationStream(
+            PostgresReplicationSlot slot,
+            Connection replicationConnection) throws SQLException {
         try {
-            LOGGER.info("Attempting to create replication slot {}", replicationSlotName);
-            postgresReplicationApi.createReplicationSlot()
-                    .logical()
-                    .withOutputPlugin(replicationConfig.outputPlugin())
-                    .withSlotName(replicationSlotName)
-                    .make();
-            LOGGER.info("Created replication slot {}", replicationSlotName);
+            var postgresReplicationApi = replicationConnection
+                    .unwrap(PGConnection.class)
+                    .getReplicationAPI();
+            slot.createPublicationIfAbsent(replicationConnection);
+            slot.createIfAbsent(postgresReplicationApi);
+            return replicationStream(slot, postgresReplicationApi);
         } catch (SQLException e) {
-            if (e.getSQLState().equals(ALREADY_EXISTS_SQL_STATE)) {
-                LOGGER.info("Slot {} already exists", replicationSlotName);
-            } else {
-                throw (e);
+            try {
+                replicationConnection.close();
+            } catch (SQLException closeError) {
+                LOGGER.error("Unable to close postgres streaming connection", closeError);
             }
+            throw e;
         }
     }
 
-    private PGReplicationStream replicationStream(
-            ReplicationConfiguration replicationConfig,
+    private static PGReplicationStream replicationStream(
+            PostgresReplicationSlot slot,
             PGReplicationConnection replicationApi) throws SQLException {
+        var replicationConfig = slot.replicationConfig();
+        var slotName = replicationConfig.slotName();
+        var startPosition = slot.startPosition();
         try {
+            LOGGER.info("Starting replication from slot {} at lsn {}", slotName, startPosition);
             return replicationApi
                     .replicationStream()
                     .logical()
-                    .withSlotName(replicationConfig.slotName())
+                    .withSlotName(slotName)
+                    .withStartPosition(startPosition)
                     .withStatusInterval(replicationConfig.statusIntervalInMillis(), MILLISECONDS)
                     .withSlotOptions(replicationConfig.slotOptions())
                     .start();
         } catch (PSQLException e) {
-            if (e.getSQLState().equals(CURRENTLY_RUNNING_PROCESS_ON_SLOT_SQL_STATE)) {
-                var slotName = replicationConfig.slotName();
+            if (PostgresSqlStates.is(e, PostgresSqlStates.OBJECT_IN_USE)) {
                 LOGGER.info("Replication slot {} currently has another process consuming from it", slotName);
-                close();
+            } else if (PostgresSqlStates.is(e, PostgresSqlStates.UNDEFINED_OBJECT)) {
+                slot.missing();
             }
             throw e;
         }
     }
-
-    private Connection newConnection(String url, Properties properties) throws SQLException {
-        return DriverManager.getConnection(url, properties);
-    }
 }
@@ -0,0 +1,33 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+final class PostgresSqlStates {
+    static final String DUPLICATE_OBJECT = "42710";
+    static final String UNDEFINED_OBJECT = "42704";
+    static final String OBJECT_IN_USE = "55006";
+
+    private static final Set<String> FATAL = Set.of(
+            "0A000",
+            "22023",
+            "28000",
+            "28P01",
+            "3D000",
+            "42501",
+            "55000",
+            "58P01"
+    );
+
+    private PostgresSqlStates() {
+    }
+
+    static boolean fatal(SQLException e) {
+        var sqlState = e.getSQLState();
+        return sqlState != null && FATAL.contains(sqlState);
+    }
+
+    static boolean is(SQLException e, String sqlState) {
+        return sqlState.equals(e.getSQLState());
+    }
+}
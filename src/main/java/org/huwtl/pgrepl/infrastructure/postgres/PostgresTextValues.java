@@ -0,0 +1,92 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE;
+import static java.time.temporal.ChronoField.HOUR_OF_DAY;
+import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
+import static java.time.temporal.ChronoField.NANO_OF_SECOND;
+import static java.time.temporal.ChronoField.SECOND_OF_MINUTE;
+
+public final class PostgresTextValues {
+    private static final String INFINITY = "infinity";
+    private static final String NEGATIVE_INFINITY = "-infinity";
+    private static final DateTimeFormatter LOCAL_TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+            .append(ISO_LOCAL_DATE)
+            .appendLiteral(' ')
+            .appendValue(HOUR_OF_DAY, 2)
+            .appendLiteral(':')
+            .appendValue(MINUTE_OF_HOUR, 2)
+            .appendLiteral(':')
+            .appendValue(SECOND_OF_MINUTE, 2)
+            .optionalStart()
+            .appendFraction(NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .toFormatter();
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+            .append(LOCAL_TIMESTAMP_FORMAT)
+            .appendOffset("+HH:mm", "+00")
+            .toFormatter();
+
+    private PostgresTextValues() {
+    }
+
+    public static Object value(
+            String text,
+            ColumnType type,
+            ObjectMapper objectMapper,
+            UnparsedValues unparsedValues,
+            CapturedTable table,
+            String column) throws JsonProcessingException {
+        try {
+            return switch (type) {
+                case NUMERIC -> new BigDecimal(text);
+                case UUID -> UUID.fromString(text);
+                case DATE -> date(text);
+                case TIMESTAMP -> localTimestamp(text);
+                case TIMESTAMP_WITH_TIME_ZONE -> timestamp(text);
+                case JSON -> objectMapper.readTree(text);
+                default -> text;
+            };
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return unparsedValues.publishedAsText(text, type, table, column);
+        }
+    }
+
+    public static LocalDate date(String text) {
+        return switch (text) {
+            case INFINITY -> LocalDate.MAX;
+            case NEGATIVE_INFINITY -> LocalDate.MIN;
+            default -> LocalDate.parse(text, ISO_LOCAL_DATE);
+        };
+    }
+
+    public static LocalDateTime localTimestamp(String text) {
+        return switch (text) {
+            case INFINITY -> LocalDateTime.MAX;
+            case NEGATIVE_INFINITY -> LocalDateTime.MIN;
+            default -> LocalDateTime.parse(text, LOCAL_TIMESTAMP_FORMAT);
+        };
+    }
+
+    public static Instant timestamp(String text) {
+        return switch (text) {
+            case INFINITY -> Instant.MAX;
+            case NEGATIVE_INFINITY -> Instant.MIN;
+            default -> OffsetDateTime.parse(text, TIMESTAMP_FORMAT).toInstant();
+        };
+    }
+}
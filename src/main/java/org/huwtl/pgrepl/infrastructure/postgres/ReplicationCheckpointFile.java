@@ -0,0 +1,140 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class ReplicationCheckpointFile {
+    private static final Logger LOGGER = getLogger();
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int CHECKPOINT_BYTES = Long.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final long writeIntervalInNanos;
+    private long commitLsn;
+    private long xid;
+    private long publishedChanges;
+    private boolean written = true;
+    private long writtenAtNanos = System.nanoTime();
+
+    private ReplicationCheckpointFile(Path file, long writeIntervalInMillis) {
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        this.writeIntervalInNanos = MILLISECONDS.toNanos(writeIntervalInMillis);
+    }
+
+    public static ReplicationCheckpointFile open(Path file, long writeIntervalInMillis) throws IOException {
+        var checkpointFile = new ReplicationCheckpointFile(file, writeIntervalInMillis);
+        if (Files.exists(file)) {
+            checkpointFile.read();
+        }
+        return checkpointFile;
+    }
+
+    public synchronized long commitLsn() {
+        return commitLsn;
+    }
+
+    public synchronized long xid() {
+        return xid;
+    }
+
+    public synchronized long publishedChanges() {
+        return publishedChanges;
+    }
+
+    synchronized void acknowledged(long lsn) {
+        if (lsn <= commitLsn) {
+            return;
+        }
+        commitLsn = lsn;
+        xid = 0;
+        publishedChanges = 0;
+        changed();
+    }
+
+    synchronized void progressed(long xid, long publishedChanges) {
+        if (xid == this.xid && publishedChanges <= this.publishedChanges) {
+            return;
+        }
+        this.xid = xid;
+        this.publishedChanges = publishedChanges;
+        changed();
+    }
+
+    synchronized void reset() throws IOException {
+        commitLsn = 0;
+        xid = 0;
+        publishedChanges = 0;
+        write();
+    }
+
+    synchronized void flush() {
+        if (!written) {
+            writeQuietly();
+        }
+    }
+
+    private void changed() {
+        written = false;
+        if (System.nanoTime() - writtenAtNanos >= writeIntervalInNanos) {
+            writeQuietly();
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException e) {
+            LOGGER.error("Unable to write replication checkpoint {}", file, e);
+        }
+    }
+
+    private void read() throws IOException {
+        var checkpoint = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (checkpoint.remaining() != CHECKPOINT_BYTES || checkpoint.getInt(CHECKPOINT_BYTES - Integer.BYTES) != checksum(checkpoint)) {
+            LOGGER.warn("Ignoring corrupt replication checkpoint {} so already published changes may be published again", file);
+            return;
+        }
+        commitLsn = checkpoint.getLong();
+        xid = checkpoint.getLong();
+        publishedChanges = checkpoint.getLong();
+    }
+
+    private void write() throws IOException {
+        var checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES)
+                .putLong(commitLsn)
+                .putLong(xid)
+                .putLong(publishedChanges);
+        checkpoint.putInt(checksum(checkpoint)).flip();
+        try (var channel = FileChannel.open(temporaryFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (checkpoint.hasRemaining()) {
+                channel.write(checkpoint);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        written = true;
+        writtenAtNanos = System.nanoTime();
+    }
+
+    private static int checksum(ByteBuffer checkpoint) {
+        var checksum = new CRC32C();
+        checksum.update(checkpoint.array(), 0, CHECKPOINT_BYTES - Integer.BYTES);
+        return (int) checksum.getValue();
+    }
+}
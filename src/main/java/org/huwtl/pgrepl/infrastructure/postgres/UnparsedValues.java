@@ -0,0 +1,31 @@
+package org.huwtl.pgrepl.infrastructure.postgres;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public final class UnparsedValues {
+    private static final Logger LOGGER = getLogger();
+
+    private final ReplicationMetrics metrics;
+    private final Set<String> loggedColumns = ConcurrentHashMap.newKeySet();
+
+    public UnparsedValues(ReplicationMetrics metrics) {
+        this.metrics = requireNonNull(metrics);
+    }
+
+    public String publishedAsText(String text, ColumnType type, CapturedTable table, String column) {
+        metrics.valueUnparsed();
+        if (loggedColumns.add(table + "." + column)) {
+            LOGGER.warn("Publishing values of column {} of table {} that cannot be parsed as {} as text", column, table, type);
+        }
+        return text;
+    }
+}
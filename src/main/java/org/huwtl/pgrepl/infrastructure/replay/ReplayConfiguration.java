@@ -0,0 +1,45 @@
+package org.huwtl.pgrepl.infrastructure.replay;
+
+import java.nio.file.Path;
+
+public record ReplayConfiguration(
+        Path messagesFile,
+        long messagesPerSecond,
+        long keepaliveIntervalInMillis) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private static final long DEFAULT_KEEPALIVE_INTERVAL_IN_MILLIS = 1000;
+
+        private Path messagesFile;
+        private long messagesPerSecond;
+        private long keepaliveIntervalInMillis = DEFAULT_KEEPALIVE_INTERVAL_IN_MILLIS;
+
+        Builder() {
+        }
+
+        public Builder messagesFile(Path messagesFile) {
+            this.messagesFile = messagesFile;
+            return this;
+        }
+
+        public Builder messagesPerSecond(long messagesPerSecond) {
+            this.messagesPerSecond = messagesPerSecond;
+            return this;
+        }
+
+        public Builder keepaliveIntervalInMillis(long keepaliveIntervalInMillis) {
+            this.keepaliveIntervalInMillis = keepaliveIntervalInMillis;
+            return this;
+        }
+
+        public ReplayConfiguration build() {
+            if (messagesFile == null) {
+                throw new IllegalStateException("a file of wal2json messages to replay is required");
+            }
+            return new ReplayConfiguration(messagesFile, messagesPerSecond, keepaliveIntervalInMillis);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.huwtl.pgrepl.infrastructure.replay;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStream;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit;
+
+class ReplayReplicationStream implements ReplicationStream {
+    private static final Logger LOGGER = getLogger();
+
+    private final List<ByteBuffer> messages;
+    private final Wal2JsonMessageDecoder messageDecoder;
+    private final ReplicationMetrics metrics;
+    private final ReplayStatistics statistics;
+    private final long nanosBetweenMessages;
+    private final long keepaliveIntervalInNanos;
+    private final long startedAtNanos;
+    private final Deque<PendingCommit> pendingCommits = new ArrayDeque<>();
+    private final Keepalive keepalive = new Keepalive(0);
+    private long lsn;
+    private long messagesReplayed;
+    private long lastKeepaliveAtNanos;
+    private boolean transactionInProgress;
+    private long transactionDueAtNanos;
+    private int rowsInTransaction;
+
+    ReplayReplicationStream(
+            List<ByteBuffer> messages,
+            long startLsn,
+            Wal2JsonMessageDecoder messageDecoder,
+            ReplayConfiguration replayConfig,
+            ReplicationMetrics metrics,
+            ReplayStatistics statistics) {
+        this.messages = messages;
+        this.lsn = startLsn;
+        this.messageDecoder = messageDecoder;
+        this.metrics = metrics;
+        this.statistics = statistics;
+        this.nanosBetweenMessages = replayConfig.messagesPerSecond() > 0
+                ? SECONDS.toNanos(1) / replayConfig.messagesPerSecond()
+                : 0;
+        this.keepaliveIntervalInNanos = MILLISECONDS.toNanos(replayConfig.keepaliveIntervalInMillis());
+        this.startedAtNanos = System.nanoTime();
+        this.lastKeepaliveAtNanos = startedAtNanos;
+    }
+
+    @Override
+    public void processNextChangeDataCaptureMessage(
+            Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage,
+            Consumer<NoMessage> onNoMessage) throws IOException {
+        var now = System.nanoTime();
+        if (keepaliveDue(now)) {
+            lastKeepaliveAtNanos = now;
+            metrics.keepaliveReceived(lsn);
+            onChangeDataCaptureMessage.accept(keepalive.at(lsn));
+            return;
+        }
+        var dueAtNanos = nanosBetweenMessages > 0 ? startedAtNanos + messagesReplayed * nanosBetweenMessages : now;
+        if (now < dueAtNanos) {
+            onNoMessage.accept(NoMessage.INSTANCE);
+            return;
+        }
+        var buffer = messages.get((int) (messagesReplayed++ % messages.size()));
+        var bytes = buffer.remaining();
+        lsn += bytes;
+        var decodeStartedAt = System.nanoTime();
+        var changeDataCaptureMessage = messageDecoder.decode(buffer, lsn);
+        metrics.messageReceived(lsn, bytes, System.nanoTime() - decodeStartedAt);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("replayed change {} with lsn {}", changeDataCaptureMessage, lsn);
+        }
+        if (changeDataCaptureMessage instanceof TransactionBegin) {
+            transactionInProgress = true;
+            transactionDueAtNanos = dueAtNanos;
+            rowsInTransaction = 0;
+        } else if (changeDataCaptureMessage instanceof TransactionCommit commit) {
+            transactionInProgress = false;
+            pendingCommits.addLast(new PendingCommit(commit.commitLsn(), transactionDueAtNanos, rowsInTransaction));
+        } else {
+            rowsInTransaction += changeDataCaptureMessage.capturedInserts().size();
+        }
+        onChangeDataCaptureMessage.accept(changeDataCaptureMessage);
+    }
+
+    @Override
+    public void acknowledge(long lsn) {
+        var now = System.nanoTime();
+        while (!pendingCommits.isEmpty() && pendingCommits.peekFirst().lsn() <= lsn) {
+            var commit = pendingCommits.removeFirst();
+            statistics.transactionAcknowledged(commit.rows(), now - commit.dueAtNanos());
+        }
+        metrics.flushed(lsn);
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("Replay stream closed after {} messages", messagesReplayed);
+    }
+
+    long lsn() {
+        return lsn;
+    }
+
+    private boolean keepaliveDue(long now) {
+        return keepaliveIntervalInNanos > 0
+                && !transactionInProgress
+                && now - lastKeepaliveAtNanos >= keepaliveIntervalInNanos;
+    }
+
+    private record PendingCommit(long lsn, long dueAtNanos, int rows) {
+    }
+}
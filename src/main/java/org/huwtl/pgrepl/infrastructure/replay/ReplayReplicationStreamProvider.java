@@ -0,0 +1,77 @@
+package org.huwtl.pgrepl.infrastructure.replay;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.ObjectMapperFactory;
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStream;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class ReplayReplicationStreamProvider implements ReplicationStreamProvider {
+    private static final Logger LOGGER = getLogger();
+    private static final long FIRST_LSN = 0x1000000;
+
+    private final List<ByteBuffer> messages;
+    private final ReplayConfiguration replayConfig;
+    private final ReplicationConfiguration replicationConfig;
+    private final ReplicationMetrics metrics;
+    private final ReplayStatistics statistics;
+    private long resumeFromLsn = FIRST_LSN;
+    private ReplayReplicationStream openedStream;
+
+    public ReplayReplicationStreamProvider(
+            ReplayConfiguration replayConfig,
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) throws IOException {
+        try (var lines = Files.lines(replayConfig.messagesFile(), UTF_8)) {
+            this.messages = lines
+                    .filter(line -> !line.isBlank())
+                    .map(line -> ByteBuffer.wrap(line.getBytes(UTF_8)))
+                    .toList();
+        }
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("no wal2json messages to replay in " + replayConfig.messagesFile());
+        }
+        LOGGER.info("Loaded {} wal2json messages to replay from {}", messages.size(), replayConfig.messagesFile());
+        this.replayConfig = replayConfig;
+        this.replicationConfig = replicationConfig;
+        this.metrics = metrics;
+        this.statistics = new ReplayStatistics(metrics.registry());
+    }
+
+    public ReplayStatistics statistics() {
+        return statistics;
+    }
+
+    @Override
+    public synchronized ReplicationStream openedReplicationStream() {
+        if (openedStream != null) {
+            resumeFromLsn = openedStream.lsn();
+        }
+        openedStream = new ReplayReplicationStream(
+                messages,
+                resumeFromLsn,
+                new Wal2JsonMessageDecoder(
+                        ObjectMapperFactory.objectMapper(),
+                        replicationConfig.tablesToDetectChangesFrom(),
+                        replicationConfig.captureUpdatesAndDeletes(),
+                        new RowFilter(replicationConfig.rowPredicates(), metrics),
+                        metrics
+                ),
+                replayConfig,
+                metrics,
+                statistics
+        );
+        return openedStream;
+    }
+}
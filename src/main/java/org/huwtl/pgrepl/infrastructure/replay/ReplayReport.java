@@ -0,0 +1,38 @@
+package org.huwtl.pgrepl.infrastructure.replay;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public record ReplayReport(
+        long rowsAcknowledged,
+        long transactionsAcknowledged,
+        long elapsedNanos,
+        long p50EndToEndLatencyNanos,
+        long p99EndToEndLatencyNanos,
+        long gcPauses,
+        long totalGcPauseMillis,
+        long maxGcPauseMillis) {
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsAcknowledged * (double) SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return format(
+                "replayed %d rows in %d transactions over %.1fs: %.0f rows/sec, "
+                        + "end-to-end latency p50 %.3fms p99 %.3fms, "
+                        + "%d gc pauses totalling %dms (max %dms)",
+                rowsAcknowledged,
+                transactionsAcknowledged,
+                elapsedNanos / (double) SECONDS.toNanos(1),
+                rowsPerSecond(),
+                p50EndToEndLatencyNanos / NANOS_PER_MILLI,
+                p99EndToEndLatencyNanos / NANOS_PER_MILLI,
+                gcPauses,
+                totalGcPauseMillis,
+                maxGcPauseMillis
+        );
+    }
+}
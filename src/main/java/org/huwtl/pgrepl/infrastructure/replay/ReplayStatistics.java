@@ -0,0 +1,58 @@
+package org.huwtl.pgrepl.infrastructure.replay;
+
+import org.huwtl.pgrepl.application.services.metrics.Counter;
+import org.huwtl.pgrepl.application.services.metrics.Histogram;
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry;
+import org.huwtl.pgrepl.infrastructure.metrics.GcPauseRecorder;
+
+public class ReplayStatistics {
+    private final Counter rowsAcknowledged;
+    private final Counter transactionsAcknowledged;
+    private final Histogram endToEndLatencyNanos;
+
+    public ReplayStatistics(MetricsRegistry registry) {
+        this.rowsAcknowledged = registry.counter(
+                "pgrepl_replay_rows_acknowledged",
+                "replayed rows whose transaction was acknowledged"
+        );
+        this.transactionsAcknowledged = registry.counter(
+                "pgrepl_replay_transactions_acknowledged",
+                "replayed transactions acknowledged"
+        );
+        this.endToEndLatencyNanos = registry.histogram(
+                "pgrepl_replay_end_to_end_latency_nanos",
+                "nanoseconds from a replayed transaction being due until its acknowledgement"
+        );
+    }
+
+    public long rowsAcknowledged() {
+        return rowsAcknowledged.count();
+    }
+
+    public long transactionsAcknowledged() {
+        return transactionsAcknowledged.count();
+    }
+
+    public Histogram endToEndLatencyNanos() {
+        return endToEndLatencyNanos;
+    }
+
+    public ReplayReport report(long elapsedNanos, GcPauseRecorder gcPauses) {
+        return new ReplayReport(
+                rowsAcknowledged(),
+                transactionsAcknowledged(),
+                elapsedNanos,
+                endToEndLatencyNanos.valueAtPercentile(50),
+                endToEndLatencyNanos.valueAtPercentile(99),
+                gcPauses.pauseMillis().count(),
+                gcPauses.totalPauseMillis(),
+                gcPauses.pauseMillis().max()
+        );
+    }
+
+    void transactionAcknowledged(int rows, long latencyNanos) {
+        rowsAcknowledged.add(rows);
+        transactionsAcknowledged.increment();
+        endToEndLatencyNanos.record(latencyNanos);
+    }
+}
@@ -0,0 +1,80 @@
+package org.huwtl.pgrepl.infrastructure.replay;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class Wal2JsonMessageGenerator {
+    private static final String COMMIT_TIMESTAMP = "2024-01-01 00:00:00.123456+00";
+    private static final String[] COLUMN_TYPES = {
+            "bigint",
+            "text",
+            "double precision",
+            "boolean",
+            "timestamp with time zone",
+            "character varying(255)",
+            "integer",
+            "numeric(10,2)"
+    };
+
+    public static void write(
+            Path file,
+            List<CapturedTable> tables,
+            int transactions,
+            int rowsPerTransaction,
+            int columns) throws IOException {
+        try (var writer = Files.newBufferedWriter(file, UTF_8)) {
+            for (var xid = 1; xid <= transactions; xid++) {
+                for (var message : transaction(xid, rowsPerTransaction, columns, tables)) {
+                    writer.write(message);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    public static List<String> transaction(long xid, int rows, int columns, List<CapturedTable> tablesOfRows) {
+        var messages = new ArrayList<String>(rows + 2);
+        messages.add("{\"action\":\"B\",\"xid\":" + xid + "}");
+        for (var row = 0; row < rows; row++) {
+            messages.add(insert(tablesOfRows.get(row % tablesOfRows.size()), xid * rows + row, columns));
+        }
+        messages.add("{\"action\":\"C\",\"xid\":" + xid + ",\"timestamp\":\"" + COMMIT_TIMESTAMP + "\"}");
+        return messages;
+    }
+
+    public static String insert(CapturedTable table, long id, int columns) {
+        var json = new StringBuilder(64 + columns * 64)
+                .append("{\"action\":\"I\",\"schema\":\"").append(table.schema())
+                .append("\",\"table\":\"").append(table.table())
+                .append("\",\"columns\":[");
+        for (var column = 0; column < columns; column++) {
+            if (column > 0) {
+                json.append(',');
+            }
+            var type = COLUMN_TYPES[column % COLUMN_TYPES.length];
+            json.append("{\"name\":\"column_").append(column)
+                    .append("\",\"type\":\"").append(type)
+                    .append("\",\"value\":").append(value(type, id, column))
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String value(String type, long id, int column) {
+        return switch (type) {
+            case "bigint", "integer" -> String.valueOf(id + column);
+            case "double precision" -> String.valueOf((id + column) / 4.0);
+            case "boolean" -> String.valueOf((id + column) % 2 == 0);
+            case "timestamp with time zone" -> "\"2024-01-01 12:34:56.789+00\"";
+            case "numeric(10,2)" -> (id % 100_000) + ".25";
+            default -> "\"value " + id + " of column " + column + "\"";
+        };
+    }
+}
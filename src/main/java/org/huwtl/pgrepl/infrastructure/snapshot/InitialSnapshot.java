@@ -0,0 +1,289 @@
+package org.huwtl.pgrepl.infrastructure.snapshot;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.DatabaseConfiguration;
+import org.huwtl.pgrepl.ObjectMapperFactory;
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresReplicationSlot;
+import org.huwtl.pgrepl.infrastructure.postgres.UnparsedValues;
+import org.postgresql.PGProperty;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.sql.Connection.TRANSACTION_REPEATABLE_READ;
+import static org.apache.logging.log4j.LogManager.getLogger;
+import static org.huwtl.pgrepl.infrastructure.postgres.PostgresIdentifiers.quoted;
+
+public class InitialSnapshot {
+    private static final Logger LOGGER = getLogger();
+    private static final String SNAPSHOT_SESSION_OPTIONS = "-c TimeZone=UTC";
+    private static final String KEY_RANGE_SQL = "SELECT min(%1$s), max(%1$s) FROM %2$s";
+    private static final String ESTIMATED_ROWS_SQL = "SELECT GREATEST(c.reltuples, 0)::bigint FROM pg_class c WHERE c.oid = ?::regclass";
+    private static final String PAGES_SQL = "SELECT pg_relation_size(c.oid) / current_setting('block_size')::bigint,"
+            + " GREATEST(c.reltuples, 0)::bigint, GREATEST(c.relpages, 1) FROM pg_class c WHERE c.oid = ?::regclass";
+
+    private final DatabaseConfiguration databaseConfig;
+    private final ReplicationConfiguration replicationConfig;
+    private final SnapshotConfiguration snapshotConfig;
+    private final PostgresReplicationSlot slot;
+    private final Map<CapturedTable, ? extends AsyncPublisher> publishersByTable;
+    private final ReplicationMetrics metrics;
+    private final RowFilter rowFilter;
+    private final UnparsedValues unparsedValues;
+
+    public InitialSnapshot(
+            DatabaseConfiguration databaseConfig,
+            ReplicationConfiguration replicationConfig,
+            SnapshotConfiguration snapshotConfig,
+            PostgresReplicationSlot slot,
+            Map<CapturedTable, ? extends AsyncPublisher> publishersByTable,
+            ReplicationMetrics metrics) {
+        this.databaseConfig = databaseConfig;
+        this.replicationConfig = replicationConfig;
+        this.snapshotConfig = snapshotConfig;
+        this.slot = slot;
+        this.publishersByTable = publishersByTable;
+        this.metrics = metrics;
+        this.rowFilter = new RowFilter(replicationConfig.rowPredicates(), metrics);
+        this.unparsedValues = new UnparsedValues(metrics);
+    }
+
+    public void run() throws SQLException, IOException, InterruptedException {
+        try (var checkpoint = SnapshotCheckpoint.open(snapshotConfig.checkpointFile())) {
+            if (checkpoint.finished()) {
+                LOGGER.info("Initial snapshot already published according to {}", snapshotConfig.checkpointFile());
+                return;
+            }
+            var resuming = checkpoint.started();
+            if (!resuming) {
+                checkpoint.start(replicationConfig.slotName());
+            }
+            var exportedSnapshot = slot.createExportingSnapshot();
+            if (exportedSnapshot.isPresent()) {
+                try (var snapshot = exportedSnapshot.get()) {
+                    if (resuming) {
+                        checkpoint.start(replicationConfig.slotName());
+                    }
+                    publish(checkpoint, snapshot.snapshotName());
+                }
+            } else if (resuming) {
+                LOGGER.warn(
+                        "Resuming initial snapshot of slot {} without its exported snapshot so rows of unpublished "
+                                + "chunks changed since the slot was created may also be streamed",
+                        replicationConfig.slotName()
+                );
+                publish(checkpoint, null);
+            } else {
+                LOGGER.info("Slot {} already existed so streaming without an initial snapshot", replicationConfig.slotName());
+                checkpoint.finish();
+            }
+        }
+    }
+
+    private void publish(SnapshotCheckpoint checkpoint, String snapshotName)
+            throws SQLException, IOException, InterruptedException {
+        var tables = new HashMap<CapturedTable, SnapshotTable>();
+        try (var connection = snapshotConnection(snapshotName)) {
+            for (var table : replicationConfig.tablesToDetectChangesFrom()) {
+                tables.put(table, SnapshotTable.describe(connection, table, rowFilter));
+            }
+            if (!checkpoint.planned()) {
+                checkpoint.plan(plan(connection, tables));
+            }
+        }
+        var remainingChunks = checkpoint.remainingChunks();
+        metrics.snapshotPlanned(remainingChunks.size());
+        LOGGER.info(
+                "Publishing {} of {} initial snapshot chunks on {} connections",
+                remainingChunks.size(),
+                checkpoint.plannedChunks(),
+                snapshotConfig.connections()
+        );
+        publishChunks(checkpoint, tables, new ConcurrentLinkedQueue<>(remainingChunks), snapshotName);
+        checkpoint.finish();
+        LOGGER.info("Published initial snapshot of {} tables", tables.size());
+    }
+
+    private List<SnapshotChunk> plan(Connection connection, Map<CapturedTable, SnapshotTable> tables)
+            throws SQLException {
+        var chunks = new ArrayList<SnapshotChunk>();
+        for (var table : replicationConfig.tablesToDetectChangesFrom()) {
+            var keyColumn = tables.get(table).keyColumn();
+            chunks.addAll(keyColumn != null
+                    ? keyRanges(connection, table, keyColumn, chunks.size())
+                    : pageRanges(connection, table, chunks.size()));
+        }
+        return chunks;
+    }
+
+    private List<SnapshotChunk> keyRanges(Connection connection, CapturedTable table, String keyColumn, int firstIndex)
+            throws SQLException {
+        try (var statement = connection.createStatement();
+             var range = statement.executeQuery(String.format(KEY_RANGE_SQL, quoted(keyColumn), quoted(table)))) {
+            range.next();
+            var min = range.getLong(1);
+            if (range.wasNull()) {
+                return List.of();
+            }
+            return SnapshotChunk.keyRanges(
+                    firstIndex,
+                    table,
+                    keyColumn,
+                    min,
+                    range.getLong(2),
+                    estimatedRows(connection, table),
+                    snapshotConfig.chunkRows()
+            );
+        }
+    }
+
+    private static long estimatedRows(Connection connection, CapturedTable table) throws SQLException {
+        try (var statement = connection.prepareStatement(ESTIMATED_ROWS_SQL)) {
+            statement.setString(1, quoted(table));
+            try (var rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        }
+    }
+
+    private List<SnapshotChunk> pageRanges(Connection connection, CapturedTable table, int firstIndex)
+            throws SQLException {
+        try (var statement = connection.prepareStatement(PAGES_SQL)) {
+            statement.setString(1, quoted(table));
+            try (var size = statement.executeQuery()) {
+                size.next();
+                var rowsPerPage = Math.max(1, size.getLong(2) / size.getLong(3));
+                var pagesPerChunk = Math.max(1, snapshotConfig.chunkRows() / rowsPerPage);
+                return SnapshotChunk.pageRanges(firstIndex, table, size.getLong(1), pagesPerChunk);
+            }
+        }
+    }
+
+    private void publishChunks(
+            SnapshotCheckpoint checkpoint,
+            Map<CapturedTable, SnapshotTable> tables,
+            ConcurrentLinkedQueue<SnapshotChunk> chunks,
+            String snapshotName) throws SQLException, IOException, InterruptedException {
+        var attempts = new ConcurrentHashMap<Integer, AtomicInteger>();
+        var publishedRows = new AtomicLong();
+        var executor = Executors.newFixedThreadPool(snapshotConfig.connections());
+        try {
+            var workers = new ArrayList<Future<Void>>();
+            for (var worker = 0; worker < snapshotConfig.connections(); worker++) {
+                workers.add(executor.submit(() -> {
+                    publishChunks(checkpoint, tables, chunks, snapshotName, attempts, publishedRows);
+                    return null;
+                }));
+            }
+            for (var worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            chunks.clear();
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            } else if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("Unable to publish initial snapshot", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void publishChunks(
+            SnapshotCheckpoint checkpoint,
+            Map<CapturedTable, SnapshotTable> tables,
+            ConcurrentLinkedQueue<SnapshotChunk> chunks,
+            String snapshotName,
+            Map<Integer, AtomicInteger> attempts,
+            AtomicLong publishedRows) throws SQLException, IOException {
+        var reader = new SnapshotChunkReader(
+                ObjectMapperFactory.objectMapper(),
+                snapshotConfig.fetchSize(),
+                replicationConfig.maxInFlightPublishes(),
+                unparsedValues
+        );
+        Connection connection = null;
+        try {
+            SnapshotChunk chunk;
+            while ((chunk = chunks.poll()) != null) {
+                try {
+                    if (connection == null) {
+                        connection = snapshotConnection(snapshotName);
+                    }
+                    var rows = reader.publish(connection, tables.get(chunk.table()), chunk, publishersByTable.get(chunk.table()));
+                    checkpoint.published(chunk);
+                    metrics.snapshotChunkPublished(rows);
+                    LOGGER.info(
+                            "Published initial snapshot chunk {} of {} with {} rows, {} rows published so far",
+                            chunk.index() + 1,
+                            checkpoint.plannedChunks(),
+                            rows,
+                            publishedRows.addAndGet(rows)
+                    );
+                } catch (SQLException | RuntimeException e) {
+                    closeQuietly(connection);
+                    connection = null;
+                    var attempt = attempts.computeIfAbsent(chunk.index(), index -> new AtomicInteger()).incrementAndGet();
+                    if (attempt >= snapshotConfig.maxChunkAttempts()) {
+                        throw e;
+                    }
+                    LOGGER.warn("Retrying initial snapshot chunk {} after attempt {} failed", chunk.index() + 1, attempt, e);
+                    chunks.add(chunk);
+                }
+            }
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    private Connection snapshotConnection(String snapshotName) throws SQLException {
+        var properties = databaseConfig.getQueryConnectionProperties();
+        PGProperty.OPTIONS.set(properties, SNAPSHOT_SESSION_OPTIONS);
+        var connection = DriverManager.getConnection(databaseConfig.jdbcUrl(), properties);
+        try {
+            connection.setTransactionIsolation(TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            if (snapshotName != null) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotName.replace("'", "''") + "'");
+                }
+            }
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.error("Unable to close initial snapshot connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.huwtl.pgrepl.infrastructure.snapshot;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+class SnapshotCheckpoint implements AutoCloseable {
+    private static final String SEPARATOR = "\t";
+    private static final String STARTED = "started";
+    private static final String CHUNK = "chunk";
+    private static final String PLANNED = "planned";
+    private static final String PUBLISHED = "published";
+    private static final String FINISHED = "finished";
+
+    private final Map<Integer, SnapshotChunk> plannedChunks = new LinkedHashMap<>();
+    private final Set<Integer> publishedChunks = new HashSet<>();
+    private final FileChannel channel;
+    private boolean started;
+    private boolean planned;
+    private boolean finished;
+
+    private SnapshotCheckpoint(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static SnapshotCheckpoint open(Path file) throws IOException {
+        var contents = Files.exists(file) ? Files.readString(file, UTF_8) : "";
+        var completeLines = contents.substring(0, contents.lastIndexOf('\n') + 1);
+        var checkpoint = new SnapshotCheckpoint(FileChannel.open(file, CREATE, WRITE, APPEND));
+        checkpoint.channel.truncate(completeLines.getBytes(UTF_8).length);
+        completeLines.lines().forEach(checkpoint::recover);
+        if (!checkpoint.planned) {
+            checkpoint.plannedChunks.clear();
+        }
+        return checkpoint;
+    }
+
+    synchronized boolean started() {
+        return started;
+    }
+
+    synchronized boolean planned() {
+        return planned;
+    }
+
+    synchronized boolean finished() {
+        return finished;
+    }
+
+    synchronized int plannedChunks() {
+        return plannedChunks.size();
+    }
+
+    synchronized List<SnapshotChunk> remainingChunks() {
+        var remaining = new ArrayList<SnapshotChunk>();
+        plannedChunks.forEach((index, chunk) -> {
+            if (!publishedChunks.contains(index)) {
+                remaining.add(chunk);
+            }
+        });
+        return remaining;
+    }
+
+    synchronized void start(String slotName) throws IOException {
+        channel.truncate(0);
+        plannedChunks.clear();
+        publishedChunks.clear();
+        planned = false;
+        finished = false;
+        append(STARTED, slotName);
+        started = true;
+    }
+
+    synchronized void plan(List<SnapshotChunk> chunks) throws IOException {
+        var lines = new StringBuilder();
+        for (var chunk : chunks) {
+            lines.append(line(
+                    CHUNK,
+                    String.valueOf(chunk.index()),
+                    chunk.table().schema(),
+                    chunk.table().table(),
+                    chunk.keyColumn() != null ? chunk.keyColumn() : "",
+                    String.valueOf(chunk.lowerBound()),
+                    String.valueOf(chunk.upperBound())
+            ));
+            plannedChunks.put(chunk.index(), chunk);
+        }
+        write(lines.append(line(PLANNED, String.valueOf(chunks.size()))).toString());
+        planned = true;
+    }
+
+    synchronized void published(SnapshotChunk chunk) throws IOException {
+        append(PUBLISHED, String.valueOf(chunk.index()));
+        publishedChunks.add(chunk.index());
+    }
+
+    synchronized void finish() throws IOException {
+        append(FINISHED);
+        finished = true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void recover(String line) {
+        var fields = line.split(SEPARATOR, -1);
+        switch (fields[0]) {
+            case STARTED -> started = true;
+            case CHUNK -> {
+                if (fields.length == 7) {
+                    var index = Integer.parseInt(fields[1]);
+                    plannedChunks.put(index, new SnapshotChunk(
+                            index,
+                            new CapturedTable(fields[2], fields[3]),
+                            fields[4].isEmpty() ? null : fields[4],
+                            Long.parseLong(fields[5]),
+                            Long.parseLong(fields[6])
+                    ));
+                }
+            }
+            case PLANNED -> planned = fields.length == 2 && fields[1].equals(String.valueOf(plannedChunks.size()));
+            case PUBLISHED -> {
+                if (fields.length == 2 && !fields[1].isEmpty()) {
+                    publishedChunks.add(Integer.parseInt(fields[1]));
+                }
+            }
+            case FINISHED -> finished = true;
+            default -> {
+            }
+        }
+    }
+
+    private void append(String... fields) throws IOException {
+        write(line(fields));
+    }
+
+    private void write(String lines) throws IOException {
+        var buffer = ByteBuffer.wrap(lines.getBytes(UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private static String line(String... fields) {
+        return String.join(SEPARATOR, fields) + "\n";
+    }
+}
@@ -0,0 +1,48 @@
+package org.huwtl.pgrepl.infrastructure.snapshot;
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.huwtl.pgrepl.infrastructure.postgres.PostgresIdentifiers.quoted;
+
+record SnapshotChunk(int index, CapturedTable table, String keyColumn, long lowerBound, long upperBound) {
+    static List<SnapshotChunk> keyRanges(
+            int firstIndex,
+            CapturedTable table,
+            String keyColumn,
+            long min,
+            long max,
+            long estimatedRows,
+            long chunkRows) {
+        var upperBoundOffset = estimatedRows > 0
+                ? Long.divideUnsigned(max - min, (estimatedRows - 1) / chunkRows + 1)
+                : chunkRows - 1;
+        var chunks = new ArrayList<SnapshotChunk>();
+        var lower = min;
+        while (true) {
+            var upper = Long.compareUnsigned(max - lower, upperBoundOffset) <= 0 ? max : lower + upperBoundOffset;
+            chunks.add(new SnapshotChunk(firstIndex + chunks.size(), table, keyColumn, lower, upper));
+            if (upper == max) {
+                return chunks;
+            }
+            lower = upper + 1;
+        }
+    }
+
+    static List<SnapshotChunk> pageRanges(int firstIndex, CapturedTable table, long pages, long pagesPerChunk) {
+        var chunks = new ArrayList<SnapshotChunk>();
+        for (var lower = 0L; lower < pages; lower += pagesPerChunk) {
+            chunks.add(new SnapshotChunk(firstIndex + chunks.size(), table, null, lower, Math.min(lower + pagesPerChunk, pages)));
+        }
+        return chunks;
+    }
+
+    String predicate() {
+        if (keyColumn != null) {
+            return quoted(keyColumn) + " BETWEEN " + lowerBound + " AND " + upperBound;
+        }
+        return "ctid >= '(" + lowerBound + ",0)'::tid AND ctid < '(" + upperBound + ",0)'::tid";
+    }
+}
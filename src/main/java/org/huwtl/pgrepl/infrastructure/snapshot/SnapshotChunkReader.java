@@ -0,0 +1,92 @@
+package org.huwtl.pgrepl.infrastructure.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresTextValues;
+import org.huwtl.pgrepl.infrastructure.postgres.UnparsedValues;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class SnapshotChunkReader {
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int maxInFlightPublishes;
+    private final UnparsedValues unparsedValues;
+    private final List<CompletableFuture<Void>> inFlightPublishes = new ArrayList<>();
+
+    SnapshotChunkReader(ObjectMapper objectMapper, int fetchSize, int maxInFlightPublishes, UnparsedValues unparsedValues) {
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.maxInFlightPublishes = maxInFlightPublishes;
+        this.unparsedValues = unparsedValues;
+    }
+
+    long publish(Connection connection, SnapshotTable table, SnapshotChunk chunk, AsyncPublisher publisher)
+            throws SQLException, IOException {
+        var rows = 0L;
+        try (var statement = connection.createStatement()) {
+            statement.setFetchSize(fetchSize);
+            try (var resultSet = statement.executeQuery(table.selectSql(chunk))) {
+                while (resultSet.next()) {
+                    var data = row(resultSet, table);
+                    if (data == null) {
+                        continue;
+                    }
+                    synchronized (publisher) {
+                        inFlightPublishes.add(publisher.publish(data).toCompletableFuture());
+                    }
+                    rows++;
+                    if (inFlightPublishes.size() >= maxInFlightPublishes) {
+                        awaitInFlightPublishes();
+                    }
+                }
+            }
+        }
+        awaitInFlightPublishes();
+        return rows;
+    }
+
+    private Data row(ResultSet resultSet, SnapshotTable table) throws SQLException, IOException {
+        var schema = table.schema();
+        var values = new Object[schema.size()];
+        var primitives = schema.hasPrimitiveColumns() ? new long[schema.size()] : null;
+        for (var column = 0; column < schema.size(); column++) {
+            var type = schema.type(column);
+            if (type.primitive()) {
+                var primitive = switch (type) {
+                    case BOOLEAN -> resultSet.getBoolean(column + 1) ? 1L : 0L;
+                    case FLOAT -> Double.doubleToRawLongBits(resultSet.getDouble(column + 1));
+                    default -> resultSet.getLong(column + 1);
+                };
+                if (!resultSet.wasNull()) {
+                    primitives[column] = primitive;
+                    values[column] = Data.UNBOXED;
+                }
+            } else {
+                var text = resultSet.getString(column + 1);
+                values[column] = text != null
+                        ? PostgresTextValues.value(text, type, objectMapper, unparsedValues, table.table(), schema.name(column))
+                        : null;
+            }
+        }
+        if (table.rowPredicate() != null && !table.rowPredicate().matches(values, primitives)) {
+            return null;
+        }
+        return new Data(schema, values, primitives);
+    }
+
+    private void awaitInFlightPublishes() {
+        try {
+            CompletableFuture.allOf(inFlightPublishes.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            inFlightPublishes.clear();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.huwtl.pgrepl.infrastructure.snapshot;
+
+import java.nio.file.Path;
+
+public record SnapshotConfiguration(
+        Path checkpointFile,
+        int connections,
+        long chunkRows,
+        int fetchSize,
+        int maxChunkAttempts) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_CONNECTIONS = 4;
+        private static final long DEFAULT_CHUNK_ROWS = 100_000;
+        private static final int DEFAULT_FETCH_SIZE = 10_000;
+        private static final int DEFAULT_MAX_CHUNK_ATTEMPTS = 3;
+
+        private Path checkpointFile;
+        private int connections = DEFAULT_CONNECTIONS;
+        private long chunkRows = DEFAULT_CHUNK_ROWS;
+        private int fetchSize = DEFAULT_FETCH_SIZE;
+        private int maxChunkAttempts = DEFAULT_MAX_CHUNK_ATTEMPTS;
+
+        Builder() {
+        }
+
+        public Builder checkpointFile(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        public Builder connections(int connections) {
+            this.connections = connections;
+            return this;
+        }
+
+        public Builder chunkRows(long chunkRows) {
+            this.chunkRows = chunkRows;
+            return this;
+        }
+
+        public Builder fetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        public Builder maxChunkAttempts(int maxChunkAttempts) {
+            this.maxChunkAttempts = maxChunkAttempts;
+            return this;
+        }
+
+        public SnapshotConfiguration build() {
+            if (checkpointFile == null) {
+                throw new IllegalStateException("a snapshot checkpoint file is required");
+            }
+            if (connections < 1 || chunkRows < 1 || fetchSize < 1 || maxChunkAttempts < 1) {
+                throw new IllegalStateException("snapshot connections, chunk rows, fetch size and attempts must be positive");
+            }
+            return new SnapshotConfiguration(checkpointFile, connections, chunkRows, fetchSize, maxChunkAttempts);
+        }
+    }
+}
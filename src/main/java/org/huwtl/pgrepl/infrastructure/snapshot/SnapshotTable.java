@@ -0,0 +1,65 @@
+package org.huwtl.pgrepl.infrastructure.snapshot;
+
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.application.services.replication.RowPredicate;
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresColumnTypes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import static org.huwtl.pgrepl.infrastructure.postgres.PostgresIdentifiers.quoted;
+
+record SnapshotTable(CapturedTable table, RowSchema schema, String keyColumn, RowPredicate.Evaluator rowPredicate) {
+    private static final String COLUMNS_SQL = "SELECT attname, atttypid FROM pg_attribute"
+            + " WHERE attrelid = ?::regclass AND attnum > 0 AND NOT attisdropped ORDER BY attnum";
+    private static final String PRIMARY_KEY_SQL = "SELECT a.attname, a.atttypid FROM pg_index i"
+            + " JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)"
+            + " WHERE i.indrelid = ?::regclass AND i.indisprimary";
+
+    static SnapshotTable describe(Connection connection, CapturedTable table, RowFilter rowFilter) throws SQLException {
+        var names = new ArrayList<String>();
+        var types = new ArrayList<ColumnType>();
+        try (var statement = connection.prepareStatement(COLUMNS_SQL)) {
+            statement.setString(1, quoted(table));
+            try (var columns = statement.executeQuery()) {
+                while (columns.next()) {
+                    names.add(columns.getString(1));
+                    types.add(PostgresColumnTypes.columnType(columns.getInt(2)));
+                }
+            }
+        }
+        var schema = new RowSchema(names.toArray(String[]::new), types.toArray(ColumnType[]::new));
+        return new SnapshotTable(table, schema, integerPrimaryKey(connection, table), rowFilter.evaluator(table, schema));
+    }
+
+    String selectSql(SnapshotChunk chunk) {
+        return "SELECT " + columnList() + " FROM " + quoted(table) + " WHERE " + chunk.predicate();
+    }
+
+    private String columnList() {
+        var columns = new ArrayList<String>(schema.size());
+        for (var column = 0; column < schema.size(); column++) {
+            columns.add(quoted(schema.name(column)));
+        }
+        return String.join(", ", columns);
+    }
+
+    private static String integerPrimaryKey(Connection connection, CapturedTable table) throws SQLException {
+        var keyColumns = new ArrayList<String>();
+        var integerKey = true;
+        try (var statement = connection.prepareStatement(PRIMARY_KEY_SQL)) {
+            statement.setString(1, quoted(table));
+            try (var columns = statement.executeQuery()) {
+                while (columns.next()) {
+                    keyColumns.add(columns.getString(1));
+                    integerKey = integerKey && PostgresColumnTypes.columnType(columns.getInt(2)) == ColumnType.INTEGER;
+                }
+            }
+        }
+        return keyColumns.size() == 1 && integerKey ? keyColumns.get(0) : null;
+    }
+}
@@ -0,0 +1,59 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+import java.nio.file.Path;
+
+public record SpoolConfiguration(
+        Path directory,
+        int segmentSizeInBytes,
+        long groupCommitIntervalInMillis,
+        long checkpointIntervalInMillis) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_SEGMENT_SIZE_IN_BYTES = 64 * 1024 * 1024;
+        private static final long DEFAULT_GROUP_COMMIT_INTERVAL_IN_MILLIS = 10;
+        private static final long DEFAULT_CHECKPOINT_INTERVAL_IN_MILLIS = 1000;
+
+        private Path directory;
+        private int segmentSizeInBytes = DEFAULT_SEGMENT_SIZE_IN_BYTES;
+        private long groupCommitIntervalInMillis = DEFAULT_GROUP_COMMIT_INTERVAL_IN_MILLIS;
+        private long checkpointIntervalInMillis = DEFAULT_CHECKPOINT_INTERVAL_IN_MILLIS;
+
+        Builder() {
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder segmentSizeInBytes(int segmentSizeInBytes) {
+            this.segmentSizeInBytes = segmentSizeInBytes;
+            return this;
+        }
+
+        public Builder groupCommitIntervalInMillis(long groupCommitIntervalInMillis) {
+            this.groupCommitIntervalInMillis = groupCommitIntervalInMillis;
+            return this;
+        }
+
+        public Builder checkpointIntervalInMillis(long checkpointIntervalInMillis) {
+            this.checkpointIntervalInMillis = checkpointIntervalInMillis;
+            return this;
+        }
+
+        public SpoolConfiguration build() {
+            if (directory == null) {
+                throw new IllegalStateException("a spool directory is required");
+            }
+            return new SpoolConfiguration(
+                    directory,
+                    segmentSizeInBytes,
+                    groupCommitIntervalInMillis,
+                    checkpointIntervalInMillis
+            );
+        }
+    }
+}
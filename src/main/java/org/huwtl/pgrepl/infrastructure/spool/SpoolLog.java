@@ -0,0 +1,235 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class SpoolLog {
+    private static final Logger LOGGER = getLogger();
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String CHECKPOINT_TEMPORARY_FILE = "checkpoint.tmp";
+    private static final int CHECKPOINT_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final long NO_LSN = -1;
+
+    private final SpoolConfiguration spoolConfig;
+    private final ConcurrentNavigableMap<Long, SpoolSegment> segments = new ConcurrentSkipListMap<>();
+    private SpoolSegment activeSegment;
+    private SpoolPosition sealedPosition;
+    private long sealedLsn;
+    private volatile SpoolPosition durablePosition;
+    private volatile SpoolPosition checkpointPosition;
+    private long checkpointLsn;
+
+    private SpoolLog(SpoolConfiguration spoolConfig) {
+        this.spoolConfig = spoolConfig;
+    }
+
+    public static SpoolLog open(SpoolConfiguration spoolConfig) throws IOException {
+        var spoolLog = new SpoolLog(spoolConfig);
+        spoolLog.recover();
+        return spoolLog;
+    }
+
+    public long lastSpooledLsn() {
+        return sealedLsn;
+    }
+
+    public long backlogInBytes() {
+        var checkpoint = checkpointPosition;
+        var durable = durablePosition;
+        return (durable.segment() - checkpoint.segment()) * spoolConfig.segmentSizeInBytes()
+                + durable.offset() - checkpoint.offset();
+    }
+
+    void append(long lsn, SpoolRecordKind kind, ByteBuffer payload) throws IOException {
+        if (!activeSegment.append(lsn, kind, payload)) {
+            activeSegment.force();
+            var recordBytes = SpoolSegment.HEADER_BYTES + payload.remaining();
+            activeSegment = SpoolSegment.create(
+                    spoolConfig.directory(),
+                    activeSegment.sequence() + 1,
+                    Math.max(spoolConfig.segmentSizeInBytes(), recordBytes)
+            );
+            segments.put(activeSegment.sequence(), activeSegment);
+            activeSegment.append(lsn, kind, payload);
+        }
+        if (kind.boundary()) {
+            sealedPosition = new SpoolPosition(activeSegment.sequence(), activeSegment.writeOffset());
+            sealedLsn = lsn;
+        }
+    }
+
+    boolean sync() {
+        var sealed = sealedPosition;
+        if (sealed.equals(durablePosition)) {
+            return false;
+        }
+        activeSegment.force();
+        durablePosition = sealed;
+        return true;
+    }
+
+    void discardUnsealed() throws IOException {
+        if (activeSegment.sequence() != sealedPosition.segment() || activeSegment.writeOffset() != sealedPosition.offset()) {
+            LOGGER.info("Discarding spooled changes after {} since their transaction was not completed", sealedPosition);
+            truncateToSealed();
+        }
+    }
+
+    SpoolPosition durablePosition() {
+        return durablePosition;
+    }
+
+    SpoolPosition checkpointPosition() {
+        return checkpointPosition;
+    }
+
+    SpoolSegment segment(long sequence) {
+        return segments.get(sequence);
+    }
+
+    synchronized void checkpoint(SpoolPosition position, long lsn) throws IOException {
+        if (position.compareTo(checkpointPosition) <= 0) {
+            return;
+        }
+        writeCheckpoint(position, lsn);
+        checkpointPosition = position;
+        checkpointLsn = lsn;
+        for (var segment : segments.headMap(position.segment(), false).values()) {
+            segment.delete();
+            segments.remove(segment.sequence());
+            LOGGER.debug("Deleted published spool segment {}", segment.sequence());
+        }
+    }
+
+    private void recover() throws IOException {
+        var directory = spoolConfig.directory();
+        Files.createDirectories(directory);
+        try (var files = Files.list(directory)) {
+            for (var file : (Iterable<Path>) files.filter(SpoolLog::isSegment)::iterator) {
+                var segment = SpoolSegment.open(file);
+                segments.put(segment.sequence(), segment);
+            }
+        }
+        var checkpoint = readCheckpoint();
+        checkpointPosition = checkpoint;
+        if (segments.isEmpty() || !segments.containsKey(checkpoint.segment())) {
+            if (!segments.isEmpty()) {
+                LOGGER.error("Spool segment {} of checkpoint is missing so discarding spool", checkpoint.segment());
+            }
+            segments.values().forEach(SpoolLog::deleteQuietly);
+            segments.clear();
+            activeSegment = SpoolSegment.create(directory, checkpoint.segment(), spoolConfig.segmentSizeInBytes());
+            segments.put(activeSegment.sequence(), activeSegment);
+            checkpointPosition = new SpoolPosition(checkpoint.segment(), 0);
+            sealedPosition = checkpointPosition;
+            sealedLsn = checkpointLsn;
+            durablePosition = checkpointPosition;
+            return;
+        }
+        for (var segment : segments.headMap(checkpoint.segment(), false).values()) {
+            segment.delete();
+            segments.remove(segment.sequence());
+        }
+        sealedPosition = checkpoint;
+        sealedLsn = checkpointLsn;
+        var records = 0L;
+        for (var segment : segments.values()) {
+            var offset = segment.sequence() == checkpoint.segment() ? checkpoint.offset() : 0;
+            int recordBytes;
+            while ((recordBytes = segment.verifiedRecordBytes(offset)) > 0) {
+                var kind = segment.kind(offset);
+                offset += recordBytes;
+                records++;
+                if (kind.boundary()) {
+                    sealedPosition = new SpoolPosition(segment.sequence(), offset);
+                    sealedLsn = segment.lsn(offset - recordBytes);
+                }
+            }
+        }
+        activeSegment = segments.lastEntry().getValue();
+        truncateToSealed();
+        durablePosition = sealedPosition;
+        LOGGER.info(
+                "Recovered spool in {} with {} records from checkpoint {} up to {} (lsn {})",
+                directory,
+                records,
+                checkpointPosition,
+                sealedPosition,
+                sealedLsn
+        );
+    }
+
+    private void truncateToSealed() throws IOException {
+        for (var segment : segments.tailMap(sealedPosition.segment(), false).values()) {
+            segment.delete();
+            segments.remove(segment.sequence());
+        }
+        activeSegment = segments.get(sealedPosition.segment());
+        activeSegment.rewindTo(sealedPosition.offset());
+        activeSegment.force();
+    }
+
+    private SpoolPosition readCheckpoint() throws IOException {
+        var file = spoolConfig.directory().resolve(CHECKPOINT_FILE);
+        checkpointLsn = NO_LSN;
+        if (!Files.exists(file)) {
+            return SpoolPosition.START;
+        }
+        var checkpoint = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (checkpoint.remaining() != CHECKPOINT_BYTES || checkpoint.getInt(CHECKPOINT_BYTES - Integer.BYTES) != checksum(checkpoint)) {
+            throw new IOException("spool checkpoint " + file + " is corrupt");
+        }
+        var position = new SpoolPosition(checkpoint.getLong(), checkpoint.getInt());
+        checkpointLsn = checkpoint.getLong();
+        return position;
+    }
+
+    private void writeCheckpoint(SpoolPosition position, long lsn) throws IOException {
+        var checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES)
+                .putLong(position.segment())
+                .putInt(position.offset())
+                .putLong(lsn);
+        checkpoint.putInt(checksum(checkpoint)).flip();
+        var temporaryFile = spoolConfig.directory().resolve(CHECKPOINT_TEMPORARY_FILE);
+        try (var channel = FileChannel.open(temporaryFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (checkpoint.hasRemaining()) {
+                channel.write(checkpoint);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryFile, spoolConfig.directory().resolve(CHECKPOINT_FILE), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    private static int checksum(ByteBuffer checkpoint) {
+        var checksum = new CRC32C();
+        checksum.update(checkpoint.array(), 0, CHECKPOINT_BYTES - Integer.BYTES);
+        return (int) checksum.getValue();
+    }
+
+    private static boolean isSegment(Path file) {
+        return file.getFileName().toString().endsWith(SpoolSegment.SUFFIX);
+    }
+
+    private static void deleteQuietly(SpoolSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            LOGGER.error("Unable to delete spool segment {}", segment.sequence(), e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+record SpoolPosition(long segment, int offset) implements Comparable<SpoolPosition> {
+    static final SpoolPosition START = new SpoolPosition(0, 0);
+
+    @Override
+    public int compareTo(SpoolPosition other) {
+        var bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
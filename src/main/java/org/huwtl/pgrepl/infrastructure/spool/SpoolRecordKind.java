@@ -0,0 +1,22 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+enum SpoolRecordKind {
+    CHANGE,
+    TRANSACTION_BEGIN,
+    TRANSACTION_COMMIT,
+    KEEPALIVE;
+
+    private static final SpoolRecordKind[] BY_CODE = values();
+
+    byte code() {
+        return (byte) ordinal();
+    }
+
+    boolean boundary() {
+        return this == TRANSACTION_COMMIT || this == KEEPALIVE;
+    }
+
+    static SpoolRecordKind of(byte code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,143 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.ObjectMapperFactory;
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.replication.ReplicationStream;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonMessageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit;
+
+public class SpoolReplicationStream implements ReplicationStream {
+    private static final Logger LOGGER = getLogger();
+    private static final int INITIAL_PAYLOAD_CAPACITY = 4096;
+
+    private final SpoolLog spoolLog;
+    private final Wal2JsonMessageDecoder messageDecoder;
+    private final ReplicationMetrics metrics;
+    private final long checkpointIntervalInNanos;
+    private final Deque<Boundary> unacknowledgedBoundaries = new ArrayDeque<>();
+    private final Keepalive keepalive = new Keepalive(0);
+    private long segment;
+    private int offset;
+    private byte[] payload = new byte[INITIAL_PAYLOAD_CAPACITY];
+    private ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+    private Boundary acknowledged;
+    private boolean acknowledgedCheckpointed = true;
+    private long lastCheckpointAtNanos = System.nanoTime();
+
+    public SpoolReplicationStream(
+            SpoolLog spoolLog,
+            SpoolConfiguration spoolConfig,
+            ReplicationConfiguration replicationConfig,
+            ReplicationMetrics metrics) {
+        this.spoolLog = spoolLog;
+        this.messageDecoder = new Wal2JsonMessageDecoder(
+                ObjectMapperFactory.objectMapper(),
+                replicationConfig.tablesToDetectChangesFrom(),
+                replicationConfig.captureUpdatesAndDeletes(),
+                new RowFilter(replicationConfig.rowPredicates(), metrics),
+                metrics
+        );
+        this.metrics = metrics;
+        this.checkpointIntervalInNanos = MILLISECONDS.toNanos(spoolConfig.checkpointIntervalInMillis());
+        var checkpoint = spoolLog.checkpointPosition();
+        this.segment = checkpoint.segment();
+        this.offset = checkpoint.offset();
+        LOGGER.info("Reading spool from checkpoint {}", checkpoint);
+    }
+
+    @Override
+    public void processNextChangeDataCaptureMessage(
+            Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage,
+            Consumer<NoMessage> onNoMessage) throws IOException {
+        var durable = spoolLog.durablePosition();
+        if (segment == durable.segment() && offset >= durable.offset()) {
+            onNoMessage.accept(NoMessage.INSTANCE);
+            return;
+        }
+        var spoolSegment = spoolLog.segment(segment);
+        var recordBytes = spoolSegment.recordBytes(offset);
+        if (recordBytes == 0) {
+            segment++;
+            offset = 0;
+            processNextChangeDataCaptureMessage(onChangeDataCaptureMessage, onNoMessage);
+            return;
+        }
+        var lsn = spoolSegment.lsn(offset);
+        var kind = spoolSegment.kind(offset);
+        ChangeDataCaptureMessage changeDataCaptureMessage;
+        if (kind == SpoolRecordKind.KEEPALIVE) {
+            changeDataCaptureMessage = keepalive.at(lsn);
+        } else {
+            changeDataCaptureMessage = decode(spoolSegment, recordBytes, lsn);
+        }
+        offset += recordBytes;
+        if (kind.boundary()) {
+            unacknowledgedBoundaries.addLast(new Boundary(new SpoolPosition(segment, offset), lsn));
+        }
+        onChangeDataCaptureMessage.accept(changeDataCaptureMessage);
+    }
+
+    @Override
+    public void acknowledge(long lsn) {
+        while (!unacknowledgedBoundaries.isEmpty() && unacknowledgedBoundaries.peekFirst().lsn() <= lsn) {
+            acknowledged = unacknowledgedBoundaries.removeFirst();
+            acknowledgedCheckpointed = false;
+        }
+        if (!acknowledgedCheckpointed && System.nanoTime() - lastCheckpointAtNanos >= checkpointIntervalInNanos) {
+            checkpointAcknowledged();
+        }
+    }
+
+    @Override
+    public void close() {
+        checkpointAcknowledged();
+    }
+
+    private ChangeDataCaptureMessage decode(SpoolSegment spoolSegment, int recordBytes, long lsn) throws IOException {
+        var payloadBytes = recordBytes - SpoolSegment.HEADER_BYTES;
+        if (payloadBytes > payload.length) {
+            payload = new byte[Math.max(payloadBytes, payload.length * 2)];
+            payloadBuffer = ByteBuffer.wrap(payload);
+        }
+        spoolSegment.copyPayload(offset, recordBytes, payload);
+        payloadBuffer.clear().limit(payloadBytes);
+        var decodeStartedAt = System.nanoTime();
+        var changeDataCaptureMessage = messageDecoder.decode(payloadBuffer, lsn);
+        metrics.messageReceived(lsn, payloadBytes, System.nanoTime() - decodeStartedAt);
+        if (changeDataCaptureMessage instanceof TransactionCommit commit) {
+            metrics.transactionCommitted(commit.commitTimestamp());
+        }
+        return changeDataCaptureMessage;
+    }
+
+    private void checkpointAcknowledged() {
+        if (acknowledgedCheckpointed) {
+            return;
+        }
+        try {
+            spoolLog.checkpoint(acknowledged.position(), acknowledged.lsn());
+            acknowledgedCheckpointed = true;
+            lastCheckpointAtNanos = System.nanoTime();
+        } catch (IOException e) {
+            LOGGER.error("Unable to checkpoint spool at {}", acknowledged.position(), e);
+        }
+    }
+
+    private record Boundary(SpoolPosition position, long lsn) {
+    }
+}
@@ -0,0 +1,139 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+class SpoolSegment {
+    static final String SUFFIX = ".spool";
+    static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+
+    private static final int CHECKSUM_OFFSET = Integer.BYTES;
+    private static final int LSN_OFFSET = CHECKSUM_OFFSET + Integer.BYTES;
+    private static final int KIND_OFFSET = LSN_OFFSET + Long.BYTES;
+    private static final int END_OF_RECORDS = 0;
+
+    private final long sequence;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer checksumView;
+    private final CRC32C checksum = new CRC32C();
+    private int writeOffset;
+    private int forcedOffset;
+
+    private SpoolSegment(long sequence, Path file, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.file = file;
+        this.buffer = buffer;
+        this.checksumView = buffer.duplicate();
+    }
+
+    static SpoolSegment create(Path directory, long sequence, int sizeInBytes) throws IOException {
+        var file = directory.resolve(fileName(sequence));
+        try (var channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            return new SpoolSegment(sequence, file, channel.map(READ_WRITE, 0, sizeInBytes));
+        }
+    }
+
+    static SpoolSegment open(Path file) throws IOException {
+        var name = file.getFileName().toString();
+        var sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        try (var channel = FileChannel.open(file, READ, WRITE)) {
+            return new SpoolSegment(sequence, file, channel.map(READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    static String fileName(long sequence) {
+        return String.format("%020d%s", sequence, SUFFIX);
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    int writeOffset() {
+        return writeOffset;
+    }
+
+    boolean append(long lsn, SpoolRecordKind kind, ByteBuffer payload) {
+        var recordBytes = HEADER_BYTES + payload.remaining();
+        if (recordBytes > buffer.capacity() - writeOffset) {
+            return false;
+        }
+        buffer.putLong(writeOffset + LSN_OFFSET, lsn);
+        buffer.put(writeOffset + KIND_OFFSET, kind.code());
+        buffer.put(writeOffset + HEADER_BYTES, payload, payload.position(), payload.remaining());
+        buffer.putInt(writeOffset + CHECKSUM_OFFSET, checksum(writeOffset, recordBytes));
+        buffer.putInt(writeOffset, recordBytes);
+        writeOffset += recordBytes;
+        markEndOfRecords(writeOffset);
+        return true;
+    }
+
+    void rewindTo(int offset) {
+        writeOffset = offset;
+        forcedOffset = Math.min(forcedOffset, offset);
+        markEndOfRecords(offset);
+    }
+
+    void force() {
+        if (writeOffset > forcedOffset) {
+            buffer.force(forcedOffset, writeOffset - forcedOffset);
+            forcedOffset = writeOffset;
+        }
+    }
+
+    int recordBytes(int offset) {
+        return offset > buffer.capacity() - HEADER_BYTES ? END_OF_RECORDS : buffer.getInt(offset);
+    }
+
+    int verifiedRecordBytes(int offset) {
+        var recordBytes = recordBytes(offset);
+        if (recordBytes < HEADER_BYTES
+                || recordBytes > buffer.capacity() - offset
+                || buffer.getInt(offset + CHECKSUM_OFFSET) != checksum(offset, recordBytes)
+                || kind(offset) == null) {
+            return END_OF_RECORDS;
+        }
+        return recordBytes;
+    }
+
+    long lsn(int offset) {
+        return buffer.getLong(offset + LSN_OFFSET);
+    }
+
+    SpoolRecordKind kind(int offset) {
+        return SpoolRecordKind.of(buffer.get(offset + KIND_OFFSET));
+    }
+
+    void copyPayload(int offset, int recordBytes, byte[] destination) {
+        buffer.get(offset + HEADER_BYTES, destination, 0, recordBytes - HEADER_BYTES);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private void markEndOfRecords(int offset) {
+        if (offset <= buffer.capacity() - Integer.BYTES) {
+            buffer.putInt(offset, END_OF_RECORDS);
+        }
+    }
+
+    private int checksum(int offset, int recordBytes) {
+        checksum.reset();
+        checksumView.limit(offset + recordBytes).position(offset + LSN_OFFSET);
+        checksum.update(checksumView);
+        checksumView.clear();
+        return (int) checksum.getValue();
+    }
+}
@@ -0,0 +1,181 @@
+package org.huwtl.pgrepl.infrastructure.spool;
+
+import org.apache.logging.log4j.Logger;
+import org.huwtl.pgrepl.ReplicationConfiguration;
+import org.huwtl.pgrepl.application.services.DelayService;
+import org.huwtl.pgrepl.application.services.ExponentialBackoffWaitStrategy;
+import org.huwtl.pgrepl.application.services.SpinThenParkWaitStrategy;
+import org.huwtl.pgrepl.application.services.ThreadSleepingService;
+import org.huwtl.pgrepl.application.services.WaitStrategy;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.replication.FatalReplicationException;
+import org.huwtl.pgrepl.application.services.replication.RawReplicationStream;
+import org.huwtl.pgrepl.application.services.replication.RawReplicationStreamProvider;
+import org.huwtl.pgrepl.infrastructure.wal2json.Wal2JsonActions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.function.LongConsumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+public class SpoolWriter implements AutoCloseable {
+    private static final Logger LOGGER = getLogger();
+    private static final long SHUTDOWN_TIMEOUT_IN_MILLIS = 5000;
+    private static final int SPIN_ITERATIONS_BEFORE_PARKING = 1000;
+    private static final long MAX_PARK_IN_NANOS = MILLISECONDS.toNanos(1);
+    private static final ByteBuffer NO_PAYLOAD = ByteBuffer.allocate(0);
+
+    private final SpoolLog spoolLog;
+    private final RawReplicationStreamProvider rawReplicationStreamProvider;
+    private final long groupCommitIntervalInNanos;
+    private final WaitStrategy waitStrategy;
+    private final WaitStrategy reconnectWaitStrategy;
+    private final Thread writerThread;
+    private final RawReplicationStream.RawMessageHandler onMessage = this::append;
+    private final LongConsumer onKeepalive = this::keepalive;
+    private volatile boolean closed;
+    private boolean transactionInProgress;
+    private long lastBoundaryLsn;
+    private long acknowledgedLsn;
+    private long lastSyncAtNanos;
+
+    public SpoolWriter(
+            SpoolLog spoolLog,
+            SpoolConfiguration spoolConfig,
+            ReplicationConfiguration replicationConfig,
+            RawReplicationStreamProvider rawReplicationStreamProvider,
+            ReplicationMetrics metrics) {
+        this(spoolLog, spoolConfig, replicationConfig, rawReplicationStreamProvider, metrics, new ThreadSleepingService());
+    }
+
+    SpoolWriter(
+            SpoolLog spoolLog,
+            SpoolConfiguration spoolConfig,
+            ReplicationConfiguration replicationConfig,
+            RawReplicationStreamProvider rawReplicationStreamProvider,
+            ReplicationMetrics metrics,
+            DelayService delayService) {
+        this.spoolLog = spoolLog;
+        this.rawReplicationStreamProvider = rawReplicationStreamProvider;
+        this.groupCommitIntervalInNanos = MILLISECONDS.toNanos(spoolConfig.groupCommitIntervalInMillis());
+        this.waitStrategy = new SpinThenParkWaitStrategy(SPIN_ITERATIONS_BEFORE_PARKING, MAX_PARK_IN_NANOS);
+        this.reconnectWaitStrategy = new ExponentialBackoffWaitStrategy(
+                delayService,
+                replicationConfig.pollingIntervalInMillis(),
+                replicationConfig.maxReconnectBackoffInMillis(),
+                replicationConfig.reconnectJitterRatio()
+        );
+        this.lastBoundaryLsn = spoolLog.lastSpooledLsn();
+        this.acknowledgedLsn = lastBoundaryLsn;
+        this.writerThread = new Thread(this::spoolUntilClosed, "spool-writer");
+        metrics.registry().gauge("pgrepl_spool_backlog_bytes", "spooled bytes not yet published", spoolLog::backlogInBytes);
+    }
+
+    public void start() {
+        writerThread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_IN_MILLIS);
+            if (writerThread.isAlive()) {
+                LOGGER.error("Spool writer did not stop in time");
+                writerThread.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerThread.interrupt();
+        }
+    }
+
+    private void spoolUntilClosed() {
+        LOGGER.info("Spooling changes after lsn {}", lastBoundaryLsn);
+        while (!closed) {
+            try (var rawReplicationStream = rawReplicationStreamProvider.openedRawReplicationStream()) {
+                spool(rawReplicationStream);
+            } catch (FatalReplicationException e) {
+                LOGGER.error("Unable to recover from error while spooling data changes so stopping", e);
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Unexpected error while spooling data changes", e);
+                discardIncompleteTransaction();
+                delayBeforeReconnecting();
+            }
+        }
+    }
+
+    void spool(RawReplicationStream rawReplicationStream) throws SQLException, IOException, InterruptedException {
+        lastSyncAtNanos = System.nanoTime();
+        while (!closed) {
+            if (rawReplicationStream.processNextRawMessage(onMessage, onKeepalive)) {
+                waitStrategy.reset();
+                reconnectWaitStrategy.reset();
+                if (System.nanoTime() - lastSyncAtNanos >= groupCommitIntervalInNanos) {
+                    syncAndAcknowledge(rawReplicationStream);
+                }
+            } else {
+                syncAndAcknowledge(rawReplicationStream);
+                waitStrategy.idle();
+            }
+        }
+        syncAndAcknowledge(rawReplicationStream);
+    }
+
+    private void append(ByteBuffer message, long lsn) throws IOException {
+        var action = Wal2JsonActions.peekAction(message);
+        if (action == Wal2JsonActions.BEGIN) {
+            transactionInProgress = true;
+            spoolLog.append(lsn, SpoolRecordKind.TRANSACTION_BEGIN, message);
+        } else if (action == Wal2JsonActions.COMMIT) {
+            transactionInProgress = false;
+            lastBoundaryLsn = lsn;
+            spoolLog.append(lsn, SpoolRecordKind.TRANSACTION_COMMIT, message);
+        } else {
+            spoolLog.append(lsn, SpoolRecordKind.CHANGE, message);
+        }
+    }
+
+    private void keepalive(long lsn) {
+        if (transactionInProgress || lsn <= lastBoundaryLsn) {
+            return;
+        }
+        try {
+            spoolLog.append(lsn, SpoolRecordKind.KEEPALIVE, NO_PAYLOAD);
+            lastBoundaryLsn = lsn;
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to spool keepalive", e);
+        }
+    }
+
+    private void syncAndAcknowledge(RawReplicationStream rawReplicationStream) {
+        spoolLog.sync();
+        lastSyncAtNanos = System.nanoTime();
+        var durableLsn = spoolLog.lastSpooledLsn();
+        if (durableLsn > acknowledgedLsn) {
+            rawReplicationStream.acknowledge(durableLsn);
+            acknowledgedLsn = durableLsn;
+        }
+    }
+
+    private void discardIncompleteTransaction() {
+        transactionInProgress = false;
+        try {
+            spoolLog.discardUnsealed();
+        } catch (IOException e) {
+            LOGGER.error("Unable to discard incomplete spooled transaction", e);
+        }
+    }
+
+    private void delayBeforeReconnecting() {
+        try {
+            reconnectWaitStrategy.idle();
+        } catch (InterruptedException e) {
+            LOGGER.error("interrupted while delaying before reconnecting", e);
+        }
+    }
+}
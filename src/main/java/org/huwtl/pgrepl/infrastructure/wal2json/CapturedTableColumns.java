@@ -0,0 +1,59 @@
+package org.huwtl.pgrepl.infrastructure.wal2json;
+
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.application.services.replication.RowPredicate;
+
+class CapturedTableColumns {
+    private final CapturedTable table;
+    private final RowFilter rowFilter;
+    private final boolean filtered;
+    private RowSchema lastSchema;
+    private String[] lastTypeNames;
+    private RowSchema evaluatedSchema;
+    private RowPredicate.Evaluator evaluator;
+    private CapturedTableColumns identityColumns;
+
+    CapturedTableColumns(CapturedTable table, RowFilter rowFilter) {
+        this.table = table;
+        this.rowFilter = rowFilter;
+        this.filtered = rowFilter.filters(table);
+    }
+
+    CapturedTable table() {
+        return table;
+    }
+
+    CapturedTableColumns identityColumns() {
+        if (identityColumns == null) {
+            identityColumns = new CapturedTableColumns(table, rowFilter);
+        }
+        return identityColumns;
+    }
+
+    boolean filtered() {
+        return filtered;
+    }
+
+    RowPredicate.Evaluator evaluator(RowSchema schema) {
+        if (schema != evaluatedSchema) {
+            evaluator = rowFilter.partialEvaluator(table, schema);
+            evaluatedSchema = schema;
+        }
+        return evaluator;
+    }
+
+    RowSchema lastSchema() {
+        return lastSchema;
+    }
+
+    String lastTypeName(int column) {
+        return lastTypeNames[column];
+    }
+
+    void lastSchema(RowSchema schema, String[] typeNames) {
+        this.lastSchema = schema;
+        this.lastTypeNames = typeNames;
+    }
+}
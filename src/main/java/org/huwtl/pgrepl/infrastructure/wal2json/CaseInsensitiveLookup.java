@@ -0,0 +1,70 @@
+package org.huwtl.pgrepl.infrastructure.wal2json;
+
+import java.util.Map;
+
+class CaseInsensitiveLookup<T> {
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+
+    CaseInsensitiveLookup(Map<String, T> entries) {
+        var capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2) - 1) << 1;
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        entries.forEach(this::put);
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(char[] characters, int offset, int length) {
+        var slot = hash(characters, offset, length) & mask;
+        while (keys[slot] != null) {
+            if (equalsIgnoreCase(keys[slot], characters, offset, length)) {
+                return (T) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    T get(String key) {
+        return get(key.toCharArray(), 0, key.length());
+    }
+
+    private void put(String key, T value) {
+        var characters = key.toCharArray();
+        var slot = hash(characters, 0, characters.length) & mask;
+        while (keys[slot] != null) {
+            if (equalsIgnoreCase(keys[slot], characters, 0, characters.length)) {
+                throw new IllegalArgumentException(
+                        "names " + keys[slot] + " and " + key + " are ambiguous since they only differ by case"
+                );
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private static int hash(char[] characters, int offset, int length) {
+        var hash = 0;
+        for (var index = offset; index < offset + length; index++) {
+            hash = 31 * hash + Character.toLowerCase(characters[index]);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String expected, char[] characters, int offset, int length) {
+        if (length != expected.length()) {
+            return false;
+        }
+        for (var index = 0; index < length; index++) {
+            var actual = characters[offset + index];
+            var wanted = expected.charAt(index);
+            if (actual != wanted && Character.toLowerCase(actual) != Character.toLowerCase(wanted)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package org.huwtl.pgrepl.infrastructure.wal2json;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+public class Wal2JsonActions {
+    public static final char BEGIN = 'B';
+    public static final char COMMIT = 'C';
+    public static final char UNKNOWN = 0;
+
+    private static final byte[] ACTION_FIELD = "\"action\"".getBytes(US_ASCII);
+
+    public static char peekAction(ByteBuffer message) {
+        var position = skipWhitespace(message, message.position());
+        if (!expect(message, position, '{')) {
+            return UNKNOWN;
+        }
+        position = skipWhitespace(message, position + 1);
+        for (var expected : ACTION_FIELD) {
+            if (!expect(message, position++, expected)) {
+                return UNKNOWN;
+            }
+        }
+        position = skipWhitespace(message, position);
+        if (!expect(message, position, ':')) {
+            return UNKNOWN;
+        }
+        position = skipWhitespace(message, position + 1);
+        if (!expect(message, position, '"') || !expect(message, position + 2, '"')) {
+            return UNKNOWN;
+        }
+        return (char) message.get(position + 1);
+    }
+
+    private static int skipWhitespace(ByteBuffer message, int position) {
+        while (position < message.limit() && Character.isWhitespace(message.get(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean expect(ByteBuffer message, int position, int expected) {
+        return position < message.limit() && message.get(position) == expected;
+    }
+}
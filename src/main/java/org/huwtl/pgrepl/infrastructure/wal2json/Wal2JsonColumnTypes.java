@@ -0,0 +1,38 @@
+package org.huwtl.pgrepl.infrastructure.wal2json;
+
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+
+final class Wal2JsonColumnTypes {
+    private static final String ARRAY_SUFFIX = "[]";
+
+    private Wal2JsonColumnTypes() {
+    }
+
+    static ColumnType columnType(String postgresType) {
+        if (postgresType == null || postgresType.endsWith(ARRAY_SUFFIX)) {
+            return ColumnType.OTHER;
+        }
+        return switch (withoutTypeModifier(postgresType)) {
+            case "boolean" -> ColumnType.BOOLEAN;
+            case "smallint", "integer", "bigint", "oid" -> ColumnType.INTEGER;
+            case "real", "double precision" -> ColumnType.FLOAT;
+            case "numeric" -> ColumnType.NUMERIC;
+            case "text", "character varying", "character", "name" -> ColumnType.TEXT;
+            case "uuid" -> ColumnType.UUID;
+            case "date" -> ColumnType.DATE;
+            case "timestamp without time zone" -> ColumnType.TIMESTAMP;
+            case "timestamp with time zone" -> ColumnType.TIMESTAMP_WITH_TIME_ZONE;
+            case "json", "jsonb" -> ColumnType.JSON;
+            default -> ColumnType.OTHER;
+        };
+    }
+
+    private static String withoutTypeModifier(String postgresType) {
+        var modifierStart = postgresType.indexOf('(');
+        var modifierEnd = postgresType.indexOf(')', modifierStart);
+        if (modifierStart < 0 || modifierEnd < 0) {
+            return postgresType;
+        }
+        return postgresType.substring(0, modifierStart) + postgresType.substring(modifierEnd + 1);
+    }
+}
@@ -0,0 +1,435 @@
+package org.huwtl.pgrepl.infrastructure.wal2json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics;
+import org.huwtl.pgrepl.application.services.publisher.ColumnType;
+import org.huwtl.pgrepl.application.services.publisher.Data;
+import org.huwtl.pgrepl.application.services.publisher.RowSchema;
+import org.huwtl.pgrepl.application.services.replication.CapturedTable;
+import org.huwtl.pgrepl.application.services.replication.ChangeDataCaptureMessageDecoder;
+import org.huwtl.pgrepl.application.services.replication.IgnoredMessage;
+import org.huwtl.pgrepl.application.services.replication.RowFilter;
+import org.huwtl.pgrepl.infrastructure.postgres.UnparsedValues;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.NOT_AVAILABLE;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT;
+import static java.util.stream.Collectors.collectingAndThen;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toMap;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin;
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit;
+import static org.huwtl.pgrepl.infrastructure.postgres.PostgresTextValues.date;
+import static org.huwtl.pgrepl.infrastructure.postgres.PostgresTextValues.localTimestamp;
+import static org.huwtl.pgrepl.infrastructure.postgres.PostgresTextValues.timestamp;
+
+public class Wal2JsonMessageDecoder implements ChangeDataCaptureMessageDecoder {
+    private static final char BEGIN_ACTION = 'B';
+    private static final char INSERT_ACTION = 'I';
+    private static final char COMMIT_ACTION = 'C';
+    private static final char UPDATE_ACTION = 'U';
+    private static final char DELETE_ACTION = 'D';
+    private static final char UNKNOWN_ACTION = 0;
+    private static final int INITIAL_COLUMN_CAPACITY = 16;
+
+    private final ObjectMapper objectMapper;
+    private final UnparsedValues unparsedValues;
+    private final CaseInsensitiveLookup<CaseInsensitiveLookup<CapturedTableColumns>> capturedTablesBySchema;
+    private final boolean decodeUpdatesAndDeletes;
+    private String[] columnNamesOfRow = new String[INITIAL_COLUMN_CAPACITY];
+    private String[] typeNamesOfRow = new String[INITIAL_COLUMN_CAPACITY];
+    private ColumnType[] typesOfRow = new ColumnType[INITIAL_COLUMN_CAPACITY];
+    private Object[] valuesOfRow = new Object[INITIAL_COLUMN_CAPACITY];
+    private long[] primitivesOfRow = new long[INITIAL_COLUMN_CAPACITY];
+    private long xidToSkipChangesOf;
+    private long changesToSkip;
+    private long skippingChanges;
+    private JsonParser reusableParser;
+    private ByteArrayFeeder reusableFeeder;
+
+    public Wal2JsonMessageDecoder(ObjectMapper objectMapper, Collection<CapturedTable> capturedTables) {
+        this(objectMapper, capturedTables, false);
+    }
+
+    public Wal2JsonMessageDecoder(
+            ObjectMapper objectMapper,
+            Collection<CapturedTable> capturedTables,
+            boolean decodeUpdatesAndDeletes) {
+        this(objectMapper, capturedTables, decodeUpdatesAndDeletes, RowFilter.NONE, new ReplicationMetrics());
+    }
+
+    public Wal2JsonMessageDecoder(
+            ObjectMapper objectMapper,
+            Collection<CapturedTable> capturedTables,
+            boolean decodeUpdatesAndDeletes,
+            RowFilter rowFilter,
+            ReplicationMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.unparsedValues = new UnparsedValues(metrics);
+        this.decodeUpdatesAndDeletes = decodeUpdatesAndDeletes;
+        this.capturedTablesBySchema = new CaseInsensitiveLookup<>(capturedTables.stream().collect(groupingBy(
+                CapturedTable::schema,
+                LinkedHashMap::new,
+                collectingAndThen(
+                        toMap(CapturedTable::table, table -> new CapturedTableColumns(table, rowFilter)),
+                        CaseInsensitiveLookup::new
+                )
+        )));
+    }
+
+    @Override
+    public void skipChanges(long xid, long changes) {
+        xidToSkipChangesOf = xid;
+        changesToSkip = changes;
+    }
+
+    @Override
+    public ChangeDataCaptureMessage decode(ByteBuffer buffer, long lsn) throws IOException {
+        var peekedAction = Wal2JsonActions.peekAction(buffer);
+        if (peekedAction != UNKNOWN_ACTION && !decoded(peekedAction)) {
+            return IgnoredMessage.INSTANCE;
+        }
+        var parser = parser(buffer);
+        try {
+            var message = decode(parser, lsn);
+            if (parser == reusableParser) {
+                skipRemainderOfMessage(parser);
+            }
+            return message;
+        } catch (IOException | RuntimeException e) {
+            reusableParser = null;
+            throw e;
+        } finally {
+            if (parser != reusableParser) {
+                parser.close();
+            }
+        }
+    }
+
+    private ChangeDataCaptureMessage decode(JsonParser parser, long lsn) throws IOException {
+        if (parser.nextToken() != START_OBJECT) {
+            throw new IOException("Expected wal2json message to be a JSON object");
+        }
+        var action = UNKNOWN_ACTION;
+        var xid = 0L;
+        Instant timestamp = null;
+        CaseInsensitiveLookup<CapturedTableColumns> capturedTablesOfSchema = null;
+        CapturedTableColumns capturedTable = null;
+        Data data = null;
+        Data identity = null;
+        while (parser.nextToken() == FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "action" -> {
+                    action = action(parser);
+                    if (!decoded(action)) {
+                        return IgnoredMessage.INSTANCE;
+                    }
+                }
+                case "xid" -> xid = parser.getLongValue();
+                case "timestamp" -> {
+                    if (action == COMMIT_ACTION) {
+                        timestamp = timestamp(parser.getText());
+                    }
+                }
+                case "schema" -> {
+                    capturedTablesOfSchema = lookup(parser, capturedTablesBySchema);
+                    if (capturedTablesOfSchema == null) {
+                        return IgnoredMessage.INSTANCE;
+                    }
+                }
+                case "table" -> {
+                    capturedTable = capturedTablesOfSchema != null ? lookup(parser, capturedTablesOfSchema) : null;
+                    if (capturedTable == null) {
+                        return IgnoredMessage.INSTANCE;
+                    }
+                }
+                case "columns" -> {
+                    if ((action == INSERT_ACTION || action == UPDATE_ACTION) && capturedTable != null) {
+                        if (data == null && identity == null && skippedBeforeDecoding(capturedTable)) {
+                            return IgnoredMessage.INSTANCE;
+                        }
+                        data = row(parser, capturedTable, true);
+                        if (data == null) {
+                            return IgnoredMessage.INSTANCE;
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "identity" -> {
+                    if ((action == UPDATE_ACTION || action == DELETE_ACTION) && capturedTable != null) {
+                        if (data == null && identity == null && skippedBeforeDecoding(capturedTable)) {
+                            return IgnoredMessage.INSTANCE;
+                        }
+                        identity = row(parser, capturedTable.identityColumns(), action == DELETE_ACTION);
+                        if (identity == null) {
+                            return IgnoredMessage.INSTANCE;
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (!parser.hasToken(END_OBJECT)) {
+            throw new IOException("Expected wal2json message to be a complete JSON object");
+        }
+        return switch (action) {
+            case BEGIN_ACTION -> begin(xid);
+            case COMMIT_ACTION -> new TransactionCommit(xid, lsn, timestamp);
+            case INSERT_ACTION -> accepted(capturedTable, data)
+                    ? new CapturedInsert(capturedTable.table(), data)
+                    : IgnoredMessage.INSTANCE;
+            case UPDATE_ACTION -> accepted(capturedTable, data)
+                    ? new CapturedUpdate(capturedTable.table(), identity, data)
+                    : IgnoredMessage.INSTANCE;
+            case DELETE_ACTION -> accepted(capturedTable, identity)
+                    ? new CapturedDelete(capturedTable.table(), identity)
+                    : IgnoredMessage.INSTANCE;
+            default -> IgnoredMessage.INSTANCE;
+        };
+    }
+
+    private TransactionBegin begin(long xid) {
+        if (xid == xidToSkipChangesOf && changesToSkip > 0) {
+            skippingChanges = changesToSkip;
+            changesToSkip = 0;
+        } else {
+            skippingChanges = 0;
+        }
+        return new TransactionBegin(xid);
+    }
+
+    private boolean skippedBeforeDecoding(CapturedTableColumns capturedTable) {
+        return !capturedTable.filtered() && skipped();
+    }
+
+    private boolean accepted(CapturedTableColumns capturedTable, Data row) {
+        return row != null && (!capturedTable.filtered() || !skipped());
+    }
+
+    private boolean skipped() {
+        if (skippingChanges == 0) {
+            return false;
+        }
+        skippingChanges--;
+        return true;
+    }
+
+    private JsonParser parser(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            if (reusableParser == null || !reusableFeeder.needMoreInput()) {
+                if (reusableParser != null) {
+                    reusableParser.close();
+                }
+                reusableParser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+                reusableFeeder = (ByteArrayFeeder) reusableParser.getNonBlockingInputFeeder();
+            }
+            var start = buffer.arrayOffset() + buffer.position();
+            reusableFeeder.feedInput(buffer.array(), start, start + buffer.remaining());
+            return reusableParser;
+        }
+        return objectMapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    private static void skipRemainderOfMessage(JsonParser parser) throws IOException {
+        while (!parser.getParsingContext().inRoot()) {
+            var token = parser.nextToken();
+            if (token == null || token == NOT_AVAILABLE) {
+                throw new IOException("Expected wal2json message to be a complete JSON object");
+            }
+        }
+    }
+
+    private boolean decoded(char action) {
+        return action == BEGIN_ACTION
+                || action == INSERT_ACTION
+                || action == COMMIT_ACTION
+                || decodeUpdatesAndDeletes && (action == UPDATE_ACTION || action == DELETE_ACTION);
+    }
+
+    private static char action(JsonParser parser) throws IOException {
+        if (parser.getTextLength() != 1) {
+            return UNKNOWN_ACTION;
+        }
+        return parser.getTextCharacters()[parser.getTextOffset()];
+    }
+
+    private static <T> T lookup(JsonParser parser, CaseInsensitiveLookup<T> lookup) throws IOException {
+        return lookup.get(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    private Data row(JsonParser parser, CapturedTableColumns capturedTable, boolean filtered) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            throw new IOException("Expected wal2json columns to be a JSON array");
+        }
+        var lastSchema = capturedTable.lastSchema();
+        var sameSchema = lastSchema != null;
+        var columns = 0;
+        while (parser.nextToken() == START_OBJECT) {
+            if (columns == valuesOfRow.length) {
+                growColumnCapacity();
+            }
+            sameSchema = sameSchema && columns < lastSchema.size();
+            String name = null;
+            String typeName = null;
+            var type = ColumnType.OTHER;
+            Object value = null;
+            var primitive = 0L;
+            while (parser.nextToken() == FIELD_NAME) {
+                var field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> {
+                        sameSchema = sameSchema && textEquals(parser, lastSchema.name(columns));
+                        name = sameSchema ? lastSchema.name(columns) : parser.getText();
+                    }
+                    case "type" -> {
+                        var lastTypeName = sameSchema ? capturedTable.lastTypeName(columns) : null;
+                        sameSchema = lastTypeName != null && textEquals(parser, lastTypeName);
+                        typeName = sameSchema ? lastTypeName : parser.getText();
+                        type = sameSchema ? lastSchema.type(columns) : Wal2JsonColumnTypes.columnType(typeName);
+                    }
+                    case "value" -> {
+                        if (parser.hasToken(VALUE_NULL)) {
+                            value = null;
+                        } else if (type.primitive()) {
+                            primitive = primitiveValue(parser, type);
+                            value = Data.UNBOXED;
+                        } else {
+                            value = value(parser, type, capturedTable.table(), name);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            sameSchema = sameSchema && name != null && (typeName != null || capturedTable.lastTypeName(columns) == null);
+            columnNamesOfRow[columns] = name;
+            typeNamesOfRow[columns] = typeName;
+            typesOfRow[columns] = type;
+            valuesOfRow[columns] = value;
+            primitivesOfRow[columns] = primitive;
+            columns++;
+        }
+        if (!parser.hasToken(END_ARRAY)) {
+            throw new IOException("Expected wal2json columns to contain JSON objects");
+        }
+        var schema = lastSchema;
+        if (!sameSchema || columns != lastSchema.size()) {
+            schema = new RowSchema(Arrays.copyOf(columnNamesOfRow, columns), Arrays.copyOf(typesOfRow, columns));
+            capturedTable.lastSchema(schema, Arrays.copyOf(typeNamesOfRow, columns));
+        }
+        var evaluator = filtered ? capturedTable.evaluator(schema) : null;
+        if (evaluator != null && !evaluator.matches(valuesOfRow, primitivesOfRow)) {
+            clearColumns(columns);
+            return null;
+        }
+        var values = Arrays.copyOf(valuesOfRow, columns);
+        var primitives = schema.hasPrimitiveColumns() ? Arrays.copyOf(primitivesOfRow, columns) : null;
+        clearColumns(columns);
+        return new Data(schema, values, primitives);
+    }
+
+    private void growColumnCapacity() {
+        var capacity = valuesOfRow.length * 2;
+        columnNamesOfRow = Arrays.copyOf(columnNamesOfRow, capacity);
+        typeNamesOfRow = Arrays.copyOf(typeNamesOfRow, capacity);
+        typesOfRow = Arrays.copyOf(typesOfRow, capacity);
+        valuesOfRow = Arrays.copyOf(valuesOfRow, capacity);
+        primitivesOfRow = Arrays.copyOf(primitivesOfRow, capacity);
+    }
+
+    private void clearColumns(int columns) {
+        Arrays.fill(columnNamesOfRow, 0, columns, null);
+        Arrays.fill(typeNamesOfRow, 0, columns, null);
+        Arrays.fill(typesOfRow, 0, columns, null);
+        Arrays.fill(valuesOfRow, 0, columns, null);
+    }
+
+    private static boolean textEquals(JsonParser parser, String expected) throws IOException {
+        var length = parser.getTextLength();
+        if (length != expected.length()) {
+            return false;
+        }
+        var characters = parser.getTextCharacters();
+        var offset = parser.getTextOffset();
+        for (var index = 0; index < length; index++) {
+            if (characters[offset + index] != expected.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long primitiveValue(JsonParser parser, ColumnType type) throws IOException {
+        return switch (type) {
+            case BOOLEAN -> switch (parser.currentToken()) {
+                case VALUE_TRUE -> 1;
+                case VALUE_FALSE -> 0;
+                default -> Boolean.parseBoolean(parser.getText()) ? 1 : 0;
+            };
+            case INTEGER -> parser.hasToken(VALUE_NUMBER_INT)
+                    ? parser.getLongValue()
+                    : Long.parseLong(parser.getText());
+            case FLOAT -> Double.doubleToRawLongBits(parser.currentToken().isNumeric()
+                    ? parser.getDoubleValue()
+                    : Double.parseDouble(parser.getText()));
+            default -> throw new IOException("Column type " + type + " is not primitive");
+        };
+    }
+
+    private Object value(JsonParser parser, ColumnType type, CapturedTable table, String column) throws IOException {
+        if (type == ColumnType.OTHER || parser.currentToken().isStructStart()) {
+            return value(parser);
+        }
+        var text = parser.getText();
+        try {
+            return switch (type) {
+                case NUMERIC -> parser.currentToken().isNumeric() ? parser.getDecimalValue() : new BigDecimal(text);
+                case UUID -> UUID.fromString(text);
+                case DATE -> date(text);
+                case TIMESTAMP -> localTimestamp(text);
+                case TIMESTAMP_WITH_TIME_ZONE -> timestamp(text);
+                case JSON -> objectMapper.readTree(text);
+                default -> text;
+            };
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return unparsedValues.publishedAsText(text, type, table, column);
+        }
+    }
+
+    private static Object value(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE -> true;
+            case VALUE_FALSE -> false;
+            default -> parser.readValueAs(Object.class);
+        };
+    }
+}
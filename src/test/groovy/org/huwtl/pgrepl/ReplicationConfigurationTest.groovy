@@ -0,0 +1,164 @@
+package org.huwtl.pgrepl
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ReplicationConfigurationTest extends Specification {
+    def "streams format-version 2 messages with transaction boundaries"() {
+        when:
+        def slotOptions = configuration().build().slotOptions()
+
+        then:
+        slotOptions.getProperty("format-version") == "2"
+        slotOptions.getProperty("include-xids") == "true"
+        slotOptions.getProperty("include-transaction") == "true"
+        slotOptions.getProperty("include-timestamp") == "false"
+    }
+
+    def "only streams typed inserts into the table to detect changes from"() {
+        when:
+        def slotOptions = configuration().build().slotOptions()
+
+        then:
+        slotOptions.getProperty("add-tables") == "some_schema.some_table"
+        slotOptions.getProperty("actions") == "insert"
+        slotOptions.getProperty("include-types") == "true"
+    }
+
+    def "streams updates and deletes too when capturing them"() {
+        when:
+        def slotOptions = configuration().captureUpdatesAndDeletes(true).build().slotOptions()
+
+        then:
+        slotOptions.getProperty("actions") == "insert,update,delete"
+    }
+
+    @Unroll
+    def "escapes special characters of table identifier #schema.#table"() {
+        when:
+        def slotOptions = ReplicationConfiguration.builder()
+                .slotName("any")
+                .tableToDetectChangesFrom(schema, table)
+                .build()
+                .slotOptions()
+
+        then:
+        slotOptions.getProperty("add-tables") == expectedTable
+
+        where:
+        schema     | table        || expectedTable
+        "s"        | "t"          || "s.t"
+        "s.dotted" | "t,comma"    || "s\\.dotted.t\\,comma"
+        "s*"       | "with space" || "s\\*.with\\ space"
+        "back\\"   | "t"          || "back\\\\.t"
+        "s"        | "it's"       || "s.it\\'s"
+    }
+
+    def "streams inserts into every table to detect changes from"() {
+        when:
+        def configuration = configuration()
+                .tableToDetectChangesFrom("other_schema", "other_table")
+                .tableToDetectChangesFrom("some_schema", "some_table")
+                .tableToDetectChangesFrom(new CapturedTable("some_schema", "another table"))
+                .build()
+
+        then:
+        configuration.tablesToDetectChangesFrom() == [
+                new CapturedTable("some_schema", "some_table"),
+                new CapturedTable("other_schema", "other_table"),
+                new CapturedTable("some_schema", "another table")
+        ]
+        configuration.slotOptions().getProperty("add-tables") ==
+                "some_schema.some_table,other_schema.other_table,some_schema.another\\ table"
+    }
+
+    def "requires at least one table to detect changes from"() {
+        when:
+        ReplicationConfiguration.builder().slotName("any").build()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "rejects #maxInFlightPublishes in-flight publishes and #maxInFlightBytes in-flight bytes"() {
+        when:
+        configuration()
+                .maxInFlightPublishes(maxInFlightPublishes)
+                .maxInFlightBytes(maxInFlightBytes)
+                .build()
+
+        then:
+        thrown(IllegalStateException)
+
+        where:
+        maxInFlightPublishes | maxInFlightBytes
+        0                    | 1024
+        -1                   | 1024
+        100                  | 0
+    }
+
+    def "optionally includes commit timestamps"() {
+        expect:
+        configuration().includeTimestamp(true).build().slotOptions().getProperty("include-timestamp") == "true"
+    }
+
+    def "streams pgoutput messages of the publication named after the slot unless named otherwise"() {
+        when:
+        def slotOptions = configuration()
+                .outputPlugin(ReplicationConfiguration.OutputPlugin.PGOUTPUT)
+                .publicationName(publicationName)
+                .build()
+                .slotOptions()
+
+        then:
+        slotOptions.getProperty("proto_version") == "1"
+        slotOptions.getProperty("publication_names") == expectedPublicationName
+        slotOptions.getProperty("add-tables") == null
+
+        where:
+        publicationName || expectedPublicationName
+        null            || "any"
+        "publication"   || "publication"
+    }
+
+    def "rejects decoding in parallel with #outputPlugin, #decodeWorkers workers and a queue depth of #decodeQueueDepth"() {
+        when:
+        configuration()
+                .outputPlugin(outputPlugin)
+                .decodeWorkers(decodeWorkers)
+                .decodeQueueDepth(decodeQueueDepth)
+                .build()
+
+        then:
+        thrown(IllegalStateException)
+
+        where:
+        outputPlugin                                    | decodeWorkers | decodeQueueDepth
+        ReplicationConfiguration.OutputPlugin.PGOUTPUT  | 2             | 1024
+        ReplicationConfiguration.OutputPlugin.WAL2JSON  | -1            | 1024
+        ReplicationConfiguration.OutputPlugin.WAL2JSON  | 2             | 0
+    }
+
+    def "parses row predicates of tables to detect changes from"() {
+        expect:
+        configuration()
+                .rowPredicate(new CapturedTable("some_schema", "some_table"), "status = 'ACTIVE'")
+                .build()
+                .rowPredicates()
+                .get(new CapturedTable("some_schema", "some_table"))
+                .toString() == "status = 'ACTIVE'"
+
+        when:
+        configuration().rowPredicate(new CapturedTable("other_schema", "other_table"), "status = 'ACTIVE'").build()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private static ReplicationConfiguration.Builder configuration() {
+        ReplicationConfiguration.builder()
+                .slotName("any")
+                .tableToDetectChangesFrom("some_schema", "some_table")
+    }
+}
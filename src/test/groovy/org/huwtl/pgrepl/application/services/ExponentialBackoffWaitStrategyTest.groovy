@@ -0,0 +1,40 @@
+package org.huwtl.pgrepl.application.services
+
+import spock.lang.Specification
+
+class ExponentialBackoffWaitStrategyTest extends Specification {
+    private def delayService = new SpyingZeroDelayService()
+    private def waitStrategy = new ExponentialBackoffWaitStrategy(delayService, 1, 20)
+
+    def "doubles the delay each time idle up to the maximum"() {
+        when:
+        7.times { waitStrategy.idle() }
+
+        then:
+        delayService.delaysApplied() == [1L, 2L, 4L, 8L, 16L, 20L, 20L]
+    }
+
+    def "starts again from the initial delay once reset"() {
+        given:
+        3.times { waitStrategy.idle() }
+
+        when:
+        waitStrategy.reset()
+        waitStrategy.idle()
+
+        then:
+        delayService.delaysApplied() == [1L, 2L, 4L, 1L]
+    }
+
+    def "shortens each delay by up to the jitter ratio"() {
+        given:
+        def randoms = [0.0d, 1.0d, 0.5d].iterator()
+        def jitteredWaitStrategy = new ExponentialBackoffWaitStrategy(delayService, 100, 1000, 0.5, { randoms.next() })
+
+        when:
+        3.times { jitteredWaitStrategy.idle() }
+
+        then:
+        delayService.delaysApplied() == [100L, 100L, 300L]
+    }
+}
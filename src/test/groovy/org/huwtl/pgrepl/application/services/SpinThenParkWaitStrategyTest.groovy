@@ -0,0 +1,30 @@
+package org.huwtl.pgrepl.application.services
+
+import spock.lang.Specification
+
+class SpinThenParkWaitStrategyTest extends Specification {
+    def "never parks for longer than the maximum park time"() {
+        given:
+        def waitStrategy = new SpinThenParkWaitStrategy(10, 1_000_000)
+
+        when:
+        def started = System.nanoTime()
+        100.times { waitStrategy.idle() }
+
+        then:
+        System.nanoTime() - started < 100 * 1_000_000 * 2
+    }
+
+    def "stops waiting when interrupted"() {
+        given:
+        def waitStrategy = new SpinThenParkWaitStrategy(0, 1_000_000)
+        Thread.currentThread().interrupt()
+
+        when:
+        waitStrategy.idle()
+
+        then:
+        thrown(InterruptedException)
+        !Thread.currentThread().interrupted
+    }
+}
@@ -0,0 +1,178 @@
+package org.huwtl.pgrepl.application.services.consumer
+
+import spock.lang.Specification
+
+import static org.huwtl.pgrepl.application.services.consumer.AcknowledgementWatermark.NO_LSN
+
+class AcknowledgementWatermarkTest extends Specification {
+    private def watermark = new AcknowledgementWatermark()
+
+    def "nothing is acknowledgeable before any transaction commits"() {
+        given:
+        watermark.beginTransaction()
+        watermark.publishing()
+
+        expect:
+        watermark.acknowledgeableLsn() == NO_LSN
+    }
+
+    def "transaction is acknowledgeable once committed and all of its publishes complete"() {
+        given:
+        watermark.beginTransaction()
+        def first = watermark.publishing()
+        def second = watermark.publishing()
+        watermark.commitTransaction(100)
+
+        when:
+        watermark.published(first, null)
+
+        then:
+        watermark.acknowledgeableLsn() == NO_LSN
+
+        when:
+        watermark.published(second, null)
+
+        then:
+        watermark.acknowledgeableLsn() == 100
+    }
+
+    def "only advances to the highest lsn below which every publish has completed when completions are out of order"() {
+        given:
+        watermark.beginTransaction()
+        def firstTransaction = watermark.publishing()
+        watermark.commitTransaction(100)
+        watermark.beginTransaction()
+        def secondTransaction = watermark.publishing()
+        watermark.commitTransaction(200)
+        watermark.beginTransaction()
+        def thirdTransaction = watermark.publishing()
+        watermark.commitTransaction(300)
+
+        when:
+        watermark.published(thirdTransaction, null)
+        watermark.published(secondTransaction, null)
+
+        then:
+        watermark.acknowledgeableLsn() == NO_LSN
+
+        when:
+        watermark.published(firstTransaction, null)
+
+        then:
+        watermark.acknowledgeableLsn() == 300
+    }
+
+    def "transactions without publishes are acknowledgeable once committed"() {
+        when:
+        watermark.beginTransaction()
+        watermark.commitTransaction(100)
+
+        then:
+        watermark.acknowledgeableLsn() == 100
+    }
+
+    def "keepalive is acknowledgeable once every earlier transaction has been published"() {
+        given:
+        watermark.beginTransaction()
+        def publish = watermark.publishing()
+        watermark.commitTransaction(100)
+
+        when:
+        watermark.keepalive(200)
+
+        then:
+        watermark.acknowledgeableLsn() == NO_LSN
+
+        when:
+        watermark.published(publish, null)
+
+        then:
+        watermark.acknowledgeableLsn() == 200
+    }
+
+    def "keepalive received while a transaction is open is ignored"() {
+        given:
+        watermark.beginTransaction()
+        def publish = watermark.publishing()
+
+        when:
+        watermark.keepalive(200)
+        watermark.published(publish, null)
+
+        then:
+        watermark.acknowledgeableLsn() == NO_LSN
+
+        when:
+        watermark.commitTransaction(100)
+
+        then:
+        watermark.acknowledgeableLsn() == 100
+    }
+
+    def "stops advancing once a publish fails"() {
+        given:
+        watermark.beginTransaction()
+        def failedPublish = watermark.publishing()
+        watermark.commitTransaction(100)
+        def failure = new IllegalStateException("failed")
+
+        when:
+        watermark.published(failedPublish, failure)
+        watermark.keepalive(200)
+
+        then:
+        watermark.acknowledgeableLsn() == NO_LSN
+        watermark.failure().is(failure)
+    }
+
+    def "reports how many leading changes of the oldest transaction have been published"() {
+        given:
+        watermark.beginTransaction(42)
+        def first = watermark.publishing()
+        def second = watermark.publishing()
+        def third = watermark.publishing()
+
+        when:
+        watermark.published(second, null)
+
+        then:
+        watermark.progressingXid() == 42
+        watermark.publishedChangesOf(42) == 0
+
+        when:
+        watermark.published(first, null)
+
+        then:
+        watermark.publishedChangesOf(42) == 2
+
+        when:
+        watermark.commitTransaction(100)
+        watermark.beginTransaction(43)
+        watermark.publishing()
+        watermark.published(third, null)
+
+        then:
+        watermark.acknowledgeableLsn() == 100
+        watermark.progressingXid() == 43
+        watermark.publishedChangesOf(42) == 0
+        watermark.publishedChangesOf(43) == 0
+    }
+
+    def "tracks more publishes completing out of order than it initially has capacity for"() {
+        given:
+        watermark.beginTransaction(42)
+        def publishes = (1..200).collect { watermark.publishing() }
+
+        when:
+        publishes.reverse().each { watermark.published(it, null) }
+
+        then:
+        watermark.publishedChangesOf(42) == 200
+
+        when:
+        watermark.commitTransaction(100)
+
+        then:
+        watermark.acknowledgeableLsn() == 100
+    }
+}
@@ -0,0 +1,275 @@
+package org.huwtl.pgrepl.application.services.consumer
+
+import groovy.transform.CompileStatic
+import org.huwtl.pgrepl.ReplicationConfiguration
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher
+import org.huwtl.pgrepl.application.services.publisher.ColumnType
+import org.huwtl.pgrepl.application.services.publisher.CountingPublisher
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.publisher.RowSchema
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import org.huwtl.pgrepl.application.services.replication.ReplicationStream
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresReplicationSlot
+import org.huwtl.pgrepl.infrastructure.postgres.PostgresReplicationStream
+import org.postgresql.replication.LogSequenceNumber
+import org.postgresql.replication.PGReplicationStream
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.lang.management.ManagementFactory
+import java.nio.ByteBuffer
+import java.util.function.Consumer
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
+
+class ChangeDataCaptureConsumerAllocationTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events")
+    private static final CapturedTable OTHER_TABLE = new CapturedTable("public", "other")
+    private static final int WARMUP_MESSAGES = 50_000
+    private static final int MEASURED_MESSAGES = 200_000
+    private static final double MAX_IDLE_BYTES_PER_MESSAGE = 0.01
+    private static final double MAX_ROW_BYTES_PER_MESSAGE = 1
+    private static final double MAX_DECODED_ROW_BYTES_PER_MESSAGE = 200
+    private static final Data PAYLOAD = new Data(
+            new RowSchema(["id", "data"] as String[], [ColumnType.INTEGER, ColumnType.TEXT] as ColumnType[]),
+            [Data.UNBOXED, "payload"] as Object[],
+            [1L, 0L] as long[]
+    )
+
+    private def replicationStream = new SteadyStateReplicationStream()
+
+    @AutoCleanup
+    private def consumer = new ChangeDataCaptureConsumer(
+            [(TABLE): AsyncPublisher.blocking(new CountingPublisher())],
+            ReplicationConfiguration.builder().slotName("allocations").tableToDetectChangesFrom(TABLE).build(),
+            { replicationStream } as ReplicationStreamProvider
+    )
+
+    def "polling an idle stream allocates nothing"() {
+        given:
+        replicationStream.messages = [null]
+
+        expect:
+        allocatedBytesPerMessage(consumer, replicationStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    def "keepalives outside of transactions allocate nothing in the consumer"() {
+        given:
+        replicationStream.messages = [new Keepalive(100), null]
+
+        expect:
+        allocatedBytesPerMessage(consumer, replicationStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    def "inserts into tables without a publisher allocate nothing"() {
+        given:
+        replicationStream.messages = [new CapturedInsert(OTHER_TABLE, PAYLOAD)]
+
+        expect:
+        allocatedBytesPerMessage(consumer, replicationStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    def "published rows allocate nothing beyond their payload and a watermark entry per transaction"() {
+        given:
+        def transaction = [new TransactionBegin(1)] + (1..100).collect { new CapturedInsert(TABLE, PAYLOAD) } +
+                [new TransactionCommit(1, 100, null)]
+        replicationStream.messages = transaction
+
+        expect:
+        allocatedBytesPerMessage(consumer, replicationStream) <= MAX_ROW_BYTES_PER_MESSAGE
+        replicationStream.acknowledgedLsn == 100
+    }
+
+    def "polling an idle postgres replication stream allocates nothing"() {
+        given:
+        def postgresStream = postgresReplicationStream([null], [100])
+
+        expect:
+        allocatedBytesPerMessage(consumer, postgresStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    def "keepalives of a postgres replication stream allocate nothing"() {
+        given:
+        def postgresStream = postgresReplicationStream([null, null], [100, 200])
+
+        expect:
+        allocatedBytesPerMessage(consumer, postgresStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    def "decoded rows of a postgres replication stream allocate nothing beyond their payload"() {
+        given:
+        def row = '{"action":"I","schema":"public","table":"events","columns":[' +
+                '{"name":"id","type":"integer","value":1},{"name":"data","type":"text","value":"payload"}]}'
+        def messages = ['{"action":"B","xid":1}'] + (1..100).collect { row } +
+                ['{"action":"C","xid":1,"timestamp":"2026-10-17 10:00:00.000000+00"}']
+        def postgresStream = postgresReplicationStream(messages, (1..messages.size()).collect { it * 100 })
+
+        expect:
+        allocatedBytesPerMessage(consumer, postgresStream) <= MAX_DECODED_ROW_BYTES_PER_MESSAGE
+    }
+
+    def "changes of tables and schemas that are not captured by a postgres replication stream allocate nothing"() {
+        given:
+        def postgresStream = postgresReplicationStream([
+                '{"action":"I","schema":"public","table":"other","columns":[{"name":"id","type":"integer","value":1}]}',
+                '{"action":"I","schema":"other","table":"events","columns":[{"name":"id","type":"integer","value":1}]}'
+        ], [100, 200])
+
+        expect:
+        allocatedBytesPerMessage(consumer, postgresStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    def "rows rejected by the row predicate of a postgres replication stream allocate nothing"() {
+        given:
+        def row = '{"action":"I","schema":"public","table":"events","columns":[' +
+                '{"name":"id","type":"integer","value":1},{"name":"amount","type":"bigint","value":10}]}'
+        def postgresStream = postgresReplicationStream([row], [100], "amount > 100")
+
+        expect:
+        allocatedBytesPerMessage(consumer, postgresStream) <= MAX_IDLE_BYTES_PER_MESSAGE
+    }
+
+    private static ReplicationStream postgresReplicationStream(
+            List<String> messages,
+            List<Integer> lsns,
+            String rowPredicate = null) {
+        def replicationConfigBuilder = ReplicationConfiguration.builder()
+                .slotName("allocations")
+                .tableToDetectChangesFrom(TABLE)
+        if (rowPredicate != null) {
+            replicationConfigBuilder.rowPredicate(TABLE, rowPredicate)
+        }
+        def replicationConfig = replicationConfigBuilder.build()
+        new PostgresReplicationStream(
+                new PostgresReplicationSlot(null, replicationConfig, new ReplicationMetrics()),
+                null,
+                new SteadyStatePGReplicationStream(
+                        messages.collect { it == null ? null : ByteBuffer.wrap(it.getBytes(UTF_8)) },
+                        lsns.collect { LogSequenceNumber.valueOf(it) }
+                )
+        )
+    }
+
+    @CompileStatic
+    private static double allocatedBytesPerMessage(ChangeDataCaptureConsumer consumer, ReplicationStream replicationStream) {
+        def watermark = new AcknowledgementWatermark()
+        def threads = (com.sun.management.ThreadMXBean) ManagementFactory.threadMXBean
+        consume(consumer, replicationStream, watermark, WARMUP_MESSAGES)
+        def allocatedBefore = threads.currentThreadAllocatedBytes
+        consume(consumer, replicationStream, watermark, MEASURED_MESSAGES)
+        (threads.currentThreadAllocatedBytes - allocatedBefore) / (double) MEASURED_MESSAGES
+    }
+
+    @CompileStatic
+    private static void consume(
+            ChangeDataCaptureConsumer consumer,
+            ReplicationStream replicationStream,
+            AcknowledgementWatermark watermark,
+            int messages) {
+        long acknowledgedLsn = AcknowledgementWatermark.NO_LSN
+        for (int message = 0; message < messages; message++) {
+            consumer.consumeAndPublishNextChange(replicationStream, watermark)
+            acknowledgedLsn = consumer.acknowledgePublishedChanges(replicationStream, watermark, acknowledgedLsn)
+        }
+    }
+
+    @CompileStatic
+    private static class SteadyStateReplicationStream implements ReplicationStream {
+        List<ChangeDataCaptureMessage> messages
+        long acknowledgedLsn = AcknowledgementWatermark.NO_LSN
+        private int nextMessage
+
+        @Override
+        void processNextChangeDataCaptureMessage(
+                Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage,
+                Consumer<NoMessage> onNoMessage) {
+            def message = messages.get(nextMessage)
+            nextMessage = (nextMessage + 1) % messages.size()
+            if (message == null) {
+                onNoMessage.accept(NoMessage.INSTANCE)
+            } else {
+                onChangeDataCaptureMessage.accept(message)
+            }
+        }
+
+        @Override
+        void acknowledge(long lsn) {
+            acknowledgedLsn = lsn
+        }
+
+        @Override
+        void close() {
+        }
+    }
+
+    @CompileStatic
+    private static class SteadyStatePGReplicationStream implements PGReplicationStream {
+        private final List<ByteBuffer> messages
+        private final List<LogSequenceNumber> lsns
+        private LogSequenceNumber lastReceivedLsn
+        private int nextMessage
+
+        SteadyStatePGReplicationStream(List<ByteBuffer> messages, List<LogSequenceNumber> lsns) {
+            this.messages = messages
+            this.lsns = lsns
+            this.lastReceivedLsn = lsns.get(lsns.size() - 1)
+        }
+
+        @Override
+        ByteBuffer read() {
+            readPending()
+        }
+
+        @Override
+        ByteBuffer readPending() {
+            def message = messages.get(nextMessage)
+            lastReceivedLsn = lsns.get(nextMessage)
+            nextMessage = (nextMessage + 1) % messages.size()
+            message == null ? null : message.rewind() as ByteBuffer
+        }
+
+        @Override
+        LogSequenceNumber getLastReceiveLSN() {
+            lastReceivedLsn
+        }
+
+        @Override
+        LogSequenceNumber getLastFlushedLSN() {
+            lastReceivedLsn
+        }
+
+        @Override
+        LogSequenceNumber getLastAppliedLSN() {
+            lastReceivedLsn
+        }
+
+        @Override
+        void setFlushedLSN(LogSequenceNumber lsn) {
+        }
+
+        @Override
+        void setAppliedLSN(LogSequenceNumber lsn) {
+        }
+
+        @Override
+        void forceUpdateStatus() {
+        }
+
+        @Override
+        boolean isClosed() {
+            false
+        }
+
+        @Override
+        void close() {
+        }
+    }
+}
@@ -3,18 +3,35 @@ package org.huwtl.pgrepl.application.services.consumer
 import org.huwtl.pgrepl.ReplicationConfiguration
 import org.huwtl.pgrepl.application.services.SpyingZeroDelayService
 import org.huwtl.pgrepl.application.services.SynchronousExecutionService
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
 import org.huwtl.pgrepl.application.services.replication.DatabaseAgnosticChangeDataCaptureMessage
 import org.huwtl.pgrepl.application.services.replication.DatabaseAgnosticReplicationStream
+import org.huwtl.pgrepl.application.services.replication.FatalReplicationException
+import org.huwtl.pgrepl.application.services.replication.InvalidRowPredicateException
+import org.huwtl.pgrepl.application.services.replication.ReplicationStream
 import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher
+import org.huwtl.pgrepl.application.services.publisher.CompactingPublisher
 import org.huwtl.pgrepl.application.services.publisher.Data
 import org.huwtl.pgrepl.application.services.publisher.ExceptionThrowingPublisher
 import org.huwtl.pgrepl.application.services.publisher.InMemoryPublishedDataStore
+import org.huwtl.pgrepl.application.services.publisher.ManuallyCompletedPublisher
 import spock.lang.AutoCleanup
 import spock.lang.Specification
 import spock.lang.Unroll
 import spock.util.concurrent.PollingConditions
 
+import java.sql.SQLException
+import java.time.Duration
+import java.util.concurrent.ExecutionException
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive
 import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
 
 class ChangeDataCaptureConsumerTest extends Specification {
     private static final SCHEMA_OF_INTEREST = "test_schema"
@@ -28,15 +45,12 @@ class ChangeDataCaptureConsumerTest extends Specification {
     private def executorService = new SynchronousExecutionService()
     private def delayService = new SpyingZeroDelayService()
 
+    private def asyncPublisher = new ManuallyCompletedPublisher()
+
     @AutoCleanup
     private def consumer = new ChangeDataCaptureConsumer(
             exceptionThrowingPublisher,
-            ReplicationConfiguration.builder()
-                    .slotName("any")
-                    .schemaNameToDetectChangesFrom(SCHEMA_OF_INTEREST)
-                    .tableNameToDetectChangesFrom(TABLE_OF_INTEREST)
-                    .pollingIntervalInMillis(POLLING_INTERVAL_IN_MILLIS)
-                    .build(),
+            replicationConfig(),
             replicationStreamProvider,
             executorService,
             delayService
@@ -72,6 +86,302 @@ class ChangeDataCaptureConsumerTest extends Specification {
         SCHEMA_OF_INTEREST   | "table no interest" | [message(data(stuff: "a"))]                        || []
     }
 
+    def "publishes transaction boundaries around the change data capture messages of each transaction"() {
+        given:
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(1),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")]),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "2")]),
+                new TransactionCommit(1, 100, null),
+                new TransactionBegin(2),
+                new TransactionCommit(2, 200, null)
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.committedTransactions() == [1L, 2L]
+            inMemoryPublisher.published() == [data(val: "1"), data(val: "2")]
+        }
+    }
+
+    def "publishes captured updates as their new row and deletes by their identity"() {
+        given:
+        consumerStarted()
+        def table = new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(1),
+                new CapturedUpdate(table, data(id: 1), data(id: 1, val: "2")),
+                new CapturedDelete(table, data(id: 2)),
+                new CapturedDelete(new CapturedTable(SCHEMA_OF_INTEREST, "table no interest"), data(id: 3)),
+                new TransactionCommit(1, 100, null)
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.published() == [data(id: 1, val: "2")]
+            inMemoryPublisher.publishedDeletes() == [data(id: 2)]
+            replicationStream.acknowledgedLsns() == [100L]
+        }
+    }
+
+    def "routes changes of each table to the publisher of that table"() {
+        given:
+        def otherTable = new CapturedTable(SCHEMA_OF_INTEREST, "other_table")
+        def otherTablePublisher = new InMemoryPublishedDataStore()
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                [
+                        (new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)): AsyncPublisher.blocking(inMemoryPublisher),
+                        (otherTable)                                              : AsyncPublisher.blocking(otherTablePublisher)
+                ],
+                replicationConfig(otherTable),
+                replicationStreamProvider,
+                executorService,
+                delayService,
+                new ReplicationMetrics()
+        )
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(1),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")]),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, "other_table", [data(val: "2")]),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, "table no interest", [data(val: "3")]),
+                new TransactionCommit(1, 100, null)
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.published() == [data(val: "1")]
+            otherTablePublisher.published() == [data(val: "2")]
+            inMemoryPublisher.committedTransactions() == [1L]
+            otherTablePublisher.committedTransactions() == [1L]
+            replicationStream.acknowledgedLsns() == [100L]
+        }
+    }
+
+    def "requires a publisher for every table to detect changes from"() {
+        when:
+        new ChangeDataCaptureConsumer(
+                [(new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)): asyncPublisher],
+                replicationConfig(new CapturedTable(SCHEMA_OF_INTEREST, "other_table")),
+                replicationStreamProvider,
+                executorService,
+                delayService,
+                new ReplicationMetrics()
+        )
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "acknowledges committed transactions and keepalives once everything published before them completes"() {
+        given:
+        consumer = asyncConsumer()
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(1),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")]),
+                new TransactionCommit(1, 100, null),
+                new TransactionBegin(2),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "2")]),
+                new TransactionCommit(2, 200, null),
+                new Keepalive(300)
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            asyncPublisher.inFlight() as Set == [data(val: "1"), data(val: "2")] as Set
+        }
+        replicationStream.acknowledgedLsns().empty
+
+        when:
+        asyncPublisher.complete(data(val: "2"))
+
+        then:
+        replicationStream.acknowledgedLsns().empty
+
+        when:
+        asyncPublisher.complete(data(val: "1"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            replicationStream.acknowledgedLsns() == [300L]
+        }
+    }
+
+    def "acknowledges how many leading changes of an uncommitted transaction have been published"() {
+        given:
+        consumer = asyncConsumer()
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(7),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")]),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "2")]),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "3")])
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            asyncPublisher.inFlight() as Set == [data(val: "1"), data(val: "2"), data(val: "3")] as Set
+        }
+
+        when:
+        asyncPublisher.complete(data(val: "2"))
+        asyncPublisher.complete(data(val: "1"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            replicationStream.transactionProgress() == [7L, 2L]
+        }
+        replicationStream.acknowledgedLsns().empty
+    }
+
+    def "pauses reading while in-flight rows exceed the byte budget but keeps sending status updates"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                [(new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)): asyncPublisher],
+                ReplicationConfiguration.builder()
+                        .slotName("any")
+                        .tableToDetectChangesFrom(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)
+                        .pollingIntervalInMillis(POLLING_INTERVAL_IN_MILLIS)
+                        .statusIntervalInMillis(10)
+                        .maxInFlightBytes(1)
+                        .build(),
+                replicationStreamProvider,
+                executorService,
+                delayService,
+                metrics
+        )
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(1),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")]),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "2")]),
+                new TransactionCommit(1, 100, null)
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            asyncPublisher.inFlight() == [data(val: "1")]
+            replicationStream.statusUpdatesSent() > 1
+        }
+        sampled(metrics, "pgrepl_in_flight_bytes") == data(val: "1").estimatedSizeInBytes()
+        delayService.noDelaysApplied()
+
+        when:
+        asyncPublisher.complete(data(val: "1"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            asyncPublisher.inFlight() == [data(val: "2")]
+        }
+
+        when:
+        asyncPublisher.complete(data(val: "2"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            replicationStream.acknowledgedLsns() == [100L]
+            sampled(metrics, "pgrepl_in_flight_bytes") == 0
+            sampled(metrics, "pgrepl_backpressure_pause_nanos_total") > 0
+        }
+    }
+
+    def "publishes a compacted transaction larger than #maxInFlightPublishes in-flight publishes and #maxInFlightBytes in-flight bytes"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        def compactingPublisher = new CompactingPublisher(
+                AsyncPublisher.blocking(inMemoryPublisher),
+                "id",
+                Duration.ZERO,
+                10_000,
+                metrics
+        )
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                [(new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)): compactingPublisher],
+                ReplicationConfiguration.builder()
+                        .slotName("any")
+                        .tableToDetectChangesFrom(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)
+                        .pollingIntervalInMillis(POLLING_INTERVAL_IN_MILLIS)
+                        .maxInFlightPublishes(maxInFlightPublishes)
+                        .maxInFlightBytes(maxInFlightBytes)
+                        .build(),
+                replicationStreamProvider,
+                executorService,
+                delayService,
+                metrics
+        )
+        def rows = (1..3).collect { data(id: it, val: "x" * 50) }
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn(
+                [new TransactionBegin(1)]
+                        + rowsPerMessage.collect { new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, rows.subList(it[0], it[1])) }
+                        + [new TransactionCommit(1, 100, null)]
+        )
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.published() == rows
+            inMemoryPublisher.committedTransactions() == [1L]
+            replicationStream.acknowledgedLsns() == [100L]
+        }
+
+        cleanup:
+        compactingPublisher.close()
+
+        where:
+        maxInFlightPublishes | maxInFlightBytes | rowsPerMessage
+        2                    | 1024 * 1024      | [[0, 1], [1, 2], [2, 3]]
+        2                    | 1024 * 1024      | [[0, 3]]
+        100                  | 200              | [[0, 1], [1, 2], [2, 3]]
+    }
+
+    def "does not acknowledge and applies polling delay when an asynchronous publish fails"() {
+        given:
+        consumer = asyncConsumer()
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new TransactionBegin(1),
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")]),
+                new TransactionCommit(1, 100, null)
+        ])
+
+        and:
+        new PollingConditions(timeout: 5).eventually {
+            asyncPublisher.inFlight() == [data(val: "1")]
+        }
+        asyncPublisher.fail(data(val: "1"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            delayService.delaysApplied() == [POLLING_INTERVAL_IN_MILLIS]
+        }
+        replicationStream.acknowledgedLsns().empty
+    }
+
     def "applies polling delay and then continues consuming change data capture messages after error"() {
         given:
         def changeDataCaptureMessage = new DatabaseAgnosticChangeDataCaptureMessage(
@@ -106,7 +416,132 @@ class ChangeDataCaptureConsumerTest extends Specification {
         delayService.delaysApplied() == delaysAppliedAfterError
     }
 
+    def "records published rows, publish failures and reconnects in metrics"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                [(new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)): AsyncPublisher.blocking(exceptionThrowingPublisher)],
+                replicationConfig(),
+                replicationStreamProvider,
+                executorService,
+                delayService,
+                metrics
+        )
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1"), data(val: "2")])
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            sampled(metrics, "pgrepl_rows_published_total") == 2
+            sampled(metrics, "pgrepl_publish_latency_nanos_count") == 2
+        }
+
+        when:
+        exceptionThrowingPublisher.willThrowException()
+        replicationStream.nextMessagesToReturn([
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "3")])
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            sampled(metrics, "pgrepl_reconnects_total") == 1
+        }
+        sampled(metrics, "pgrepl_rows_published_total") == 2
+    }
+
     @Unroll
+    def "backs off exponentially while reconnecting and records the recovery time once changes are consumed again"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        def failedConnectionAttempts = 0
+        def reconnectingProvider = {
+            if (failedConnectionAttempts < 3) {
+                failedConnectionAttempts++
+                throw new SQLException("connection refused", "08001")
+            }
+            replicationStream
+        } as ReplicationStreamProvider
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                [(new CapturedTable(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)): AsyncPublisher.blocking(exceptionThrowingPublisher)],
+                replicationConfig(),
+                reconnectingProvider,
+                executorService,
+                delayService,
+                metrics
+        )
+        consumerStarted()
+
+        when:
+        replicationStream.nextMessagesToReturn([
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST, [data(val: "1")])
+        ])
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.published() == [data(val: "1")]
+            sampled(metrics, "pgrepl_recovery_millis_count") == 1
+        }
+        delayService.delaysApplied() == [POLLING_INTERVAL_IN_MILLIS, POLLING_INTERVAL_IN_MILLIS * 2, POLLING_INTERVAL_IN_MILLIS * 4]
+        sampled(metrics, "pgrepl_reconnects_total") == 3
+    }
+
+    def "stops consuming without reconnecting when replication cannot recover without intervention"() {
+        given:
+        def fatalError = new FatalReplicationException("slot unusable", new SQLException("password authentication failed", "28P01"))
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                exceptionThrowingPublisher,
+                replicationConfig(),
+                { throw fatalError } as ReplicationStreamProvider,
+                executorService,
+                delayService
+        )
+
+        when:
+        consumer.start().get()
+
+        then:
+        def error = thrown(ExecutionException)
+        error.cause == fatalError
+        delayService.noDelaysApplied()
+    }
+
+    def "stops consuming without reconnecting when a row predicate cannot be applied to its table"() {
+        given:
+        def invalidPredicate = new InvalidRowPredicateException("Row predicate \"id = 'abc'\" cannot be applied", new IllegalArgumentException())
+        def failingStream = [
+                processNextChangeDataCaptureMessage: { onMessage, onNoMessage -> throw invalidPredicate },
+                close                              : {}
+        ] as ReplicationStream
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        consumer = new ChangeDataCaptureConsumer(
+                exceptionThrowingPublisher,
+                replicationConfig(),
+                { failingStream } as ReplicationStreamProvider,
+                executorService,
+                delayService
+        )
+
+        when:
+        consumer.start().get()
+
+        then:
+        def error = thrown(ExecutionException)
+        error.cause instanceof FatalReplicationException
+        error.cause.cause == invalidPredicate
+        delayService.noDelaysApplied()
+    }
+
     def "applies a polling delay every time no changes found during poll"() {
         given:
         consumerStarted()
@@ -213,10 +648,36 @@ class ChangeDataCaptureConsumerTest extends Specification {
         !executorService.shutdownGracefully()
     }
 
+    private ChangeDataCaptureConsumer asyncConsumer() {
+        consumer.close()
+        executorService = new SynchronousExecutionService()
+        new ChangeDataCaptureConsumer(
+                asyncPublisher,
+                replicationConfig(),
+                replicationStreamProvider,
+                executorService,
+                delayService
+        )
+    }
+
+    private static ReplicationConfiguration replicationConfig(CapturedTable... otherTables) {
+        def builder = ReplicationConfiguration.builder()
+                .slotName("any")
+                .tableToDetectChangesFrom(SCHEMA_OF_INTEREST, TABLE_OF_INTEREST)
+                .pollingIntervalInMillis(POLLING_INTERVAL_IN_MILLIS)
+                .reconnectJitterRatio(0)
+        otherTables.each { builder.tableToDetectChangesFrom(it) }
+        builder.build()
+    }
+
     private Thread consumerStarted() {
         Thread.start { consumer.start() }
     }
 
+    private static double sampled(ReplicationMetrics metrics, String name) {
+        metrics.registry().samples().find { it.name() == name }.value()
+    }
+
     private static Data data(Map data) {
         new Data(data)
     }
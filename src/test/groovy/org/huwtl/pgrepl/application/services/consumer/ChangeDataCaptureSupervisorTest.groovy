@@ -0,0 +1,128 @@
+package org.huwtl.pgrepl.application.services.consumer
+
+import org.huwtl.pgrepl.ReplicationConfiguration
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.publisher.InMemoryPublishedDataStore
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import org.huwtl.pgrepl.application.services.replication.DatabaseAgnosticChangeDataCaptureMessage
+import org.huwtl.pgrepl.application.services.replication.DatabaseAgnosticReplicationStream
+import org.huwtl.pgrepl.application.services.replication.FatalReplicationException
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.sql.SQLException
+import java.util.concurrent.TimeUnit
+
+import static org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy.FIXED_INTERVAL
+import static org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureSupervisor.SchedulingMode.SHARED_SCHEDULER
+import static org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureSupervisor.SchedulingMode.VIRTUAL_THREADS
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage
+
+class ChangeDataCaptureSupervisorTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("test_schema", "test_table")
+
+    def "consumes from every supervised slot on a scheduler with fewer threads than slots"() {
+        given:
+        def slots = (1..3).collect { slot("slot_$it", streamOf(data(slot: "slot_$it".toString()))) }
+        def supervisor = new ChangeDataCaptureSupervisor(slots.collect { it.slot }, SHARED_SCHEDULER, 1)
+
+        when:
+        supervisor.start()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert slots.every { it.publisher.published() == [data(slot: it.slot.name())] }
+        }
+        supervisor.failedSlots().empty
+
+        cleanup:
+        supervisor.close()
+    }
+
+    def "keeps consuming from other slots when one slot cannot recover without intervention"() {
+        given:
+        def healthy = slot("healthy", streamOf(data(val: "1")))
+        def broken = slot("broken", {
+            throw new FatalReplicationException("slot dropped", new SQLException("missing", "42704"))
+        } as ReplicationStreamProvider)
+        def supervisor = new ChangeDataCaptureSupervisor([healthy.slot, broken.slot], SHARED_SCHEDULER, 2)
+
+        when:
+        def stopped = supervisor.start()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert supervisor.failedSlots() == ["broken"] as Set
+            assert healthy.publisher.published() == [data(val: "1")]
+        }
+        !stopped.done
+
+        when:
+        supervisor.close()
+
+        then:
+        stopped.get(5, TimeUnit.SECONDS) == null
+    }
+
+    def "stops every supervised slot when closed"() {
+        given:
+        def slots = (1..2).collect { slot("slot_$it", streamOf()) }
+        def supervisor = new ChangeDataCaptureSupervisor(slots.collect { it.slot }, schedulingMode, 1)
+        def stopped = supervisor.start()
+
+        when:
+        supervisor.close()
+
+        then:
+        stopped.get(5, TimeUnit.SECONDS) == null
+        supervisor.failedSlots().empty
+
+        where:
+        schedulingMode << [SHARED_SCHEDULER, VIRTUAL_THREADS]
+    }
+
+    def "rejects slots supervised more than once"() {
+        when:
+        new ChangeDataCaptureSupervisor([slot("twice", streamOf()).slot, slot("twice", streamOf()).slot], SHARED_SCHEDULER, 1)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private static Map slot(String name, ReplicationStreamProvider provider) {
+        def publisher = new InMemoryPublishedDataStore()
+        [
+                publisher: publisher,
+                slot     : new ChangeDataCaptureSupervisor.Slot(
+                        name,
+                        [(TABLE): AsyncPublisher.blocking(publisher)],
+                        ReplicationConfiguration.builder()
+                                .slotName(name)
+                                .tableToDetectChangesFrom(TABLE)
+                                .pollingIntervalInMillis(10)
+                                .idleWaitStrategy(FIXED_INTERVAL)
+                                .build(),
+                        provider,
+                        new ReplicationMetrics()
+                )
+        ]
+    }
+
+    private static ReplicationStreamProvider streamOf(Data... data) {
+        def stream = new DatabaseAgnosticReplicationStream()
+        if (data) {
+            stream.nextMessagesToReturn([
+                    new DatabaseAgnosticChangeDataCaptureMessage(TABLE.schema(), TABLE.table(), data as List)
+            ])
+        }
+        stream.nextMessagesToReturn((1..1000).collect { new NoMessage() })
+        return { stream } as ReplicationStreamProvider
+    }
+
+    private static Data data(Map values) {
+        new Data(values)
+    }
+}
@@ -0,0 +1,62 @@
+package org.huwtl.pgrepl.application.services.consumer
+
+import org.huwtl.pgrepl.ReplicationConfiguration
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.publisher.Publisher
+import org.huwtl.pgrepl.application.services.replication.DatabaseAgnosticChangeDataCaptureMessage
+import org.huwtl.pgrepl.application.services.replication.ReplicationStreamProvider
+import org.huwtl.pgrepl.application.services.replication.ScheduledReplicationStream
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.CompletableFuture
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+import static java.util.concurrent.TimeUnit.SECONDS
+import static org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy.EXPONENTIAL_BACKOFF
+import static org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy.FIXED_INTERVAL
+import static org.huwtl.pgrepl.ReplicationConfiguration.IdleWaitStrategy.SPIN_THEN_PARK
+
+class WaitStrategyLatencyTest extends Specification {
+    private static final SCHEMA = "schema"
+    private static final TABLE = "table"
+    private static final POLLING_INTERVAL_IN_MILLIS = 200
+    private static final IDLE_PERIOD_IN_MILLIS = 300
+
+    @Unroll
+    def "#strategy adds at most #maxAddedLatencyInMillis ms latency to a change arriving after an idle period"() {
+        given:
+        def published = new CompletableFuture<Long>()
+        def stream = new ScheduledReplicationStream(
+                new DatabaseAgnosticChangeDataCaptureMessage(SCHEMA, TABLE, [new Data(id: 1)]),
+                System.nanoTime() + MILLISECONDS.toNanos(IDLE_PERIOD_IN_MILLIS)
+        )
+        def consumer = new ChangeDataCaptureConsumer(
+                { published.complete(System.nanoTime()) } as Publisher,
+                ReplicationConfiguration.builder()
+                        .slotName("any")
+                        .tableToDetectChangesFrom(SCHEMA, TABLE)
+                        .pollingIntervalInMillis(POLLING_INTERVAL_IN_MILLIS)
+                        .idleWaitStrategy(strategy)
+                        .build(),
+                { stream } as ReplicationStreamProvider
+        )
+
+        when:
+        consumer.start()
+        def addedLatencyInMillis = NANOSECONDS.toMillis(published.get(5, SECONDS) - stream.availableAtNanos())
+
+        then:
+        addedLatencyInMillis <= maxAddedLatencyInMillis
+
+        cleanup:
+        consumer.close()
+
+        where:
+        strategy            || maxAddedLatencyInMillis
+        FIXED_INTERVAL      || POLLING_INTERVAL_IN_MILLIS + 50
+        EXPONENTIAL_BACKOFF || POLLING_INTERVAL_IN_MILLIS + 50
+        SPIN_THEN_PARK      || 20
+    }
+}
@@ -0,0 +1,57 @@
+package org.huwtl.pgrepl.application.services.metrics
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class HistogramTest extends Specification {
+    private def histogram = new Histogram()
+
+    def "reports nothing until values are recorded"() {
+        expect:
+        histogram.count() == 0
+        histogram.max() == 0
+        histogram.mean() == 0
+        histogram.valueAtPercentile(99) == 0
+    }
+
+    def "records small values exactly"() {
+        when:
+        (1..100).each { histogram.record(it) }
+
+        then:
+        histogram.count() == 100
+        histogram.max() == 100
+        histogram.mean() == 50.5d
+        histogram.valueAtPercentile(50) == 50
+        histogram.valueAtPercentile(100) == 100
+    }
+
+    @Unroll
+    def "reports percentiles of large values within two percent (#value)"() {
+        when:
+        histogram.record(value)
+
+        then:
+        Math.abs(histogram.valueAtPercentile(50) - value) <= value * 0.02
+
+        where:
+        value << [129L, 1_000L, 123_456L, 987_654_321L, 3_600_000_000_000L, Long.MAX_VALUE]
+    }
+
+    def "maps every value into the bucket whose range contains it"() {
+        expect:
+        [0L, 1L, 127L, 128L, 129L, 255L, 256L, 1_000_000L, Long.MAX_VALUE].every {
+            def bucket = Histogram.bucket(it)
+            Histogram.highestValueOf(bucket) >= it && (bucket == 0 || Histogram.highestValueOf(bucket - 1) < it)
+        }
+    }
+
+    def "records concurrently without losing counts"() {
+        when:
+        (1..4).collect { thread -> Thread.start { 10_000.times { histogram.record(it) } } }*.join()
+
+        then:
+        histogram.count() == 40_000
+        histogram.max() == 9_999
+    }
+}
@@ -0,0 +1,47 @@
+package org.huwtl.pgrepl.application.services.metrics
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+class MetricsRegistryTest extends Specification {
+    @AutoCleanup
+    private def registry = new MetricsRegistry()
+
+    def "samples counters, gauges and histograms"() {
+        given:
+        registry.counter("rows", "rows seen").add(3)
+        registry.gauge("lsn", "current lsn", { 42L } as Gauge)
+        registry.histogram("latency", "latency").record(7)
+
+        when:
+        def samples = registry.samples().collectEntries { [(it.name()): it.value()] }
+
+        then:
+        samples["rows_total"] == 3d
+        samples["lsn"] == 42d
+        samples["latency_count"] == 1d
+        samples["latency_max"] == 7d
+        samples["latency_p99"] == 7d
+    }
+
+    def "returns the same counter and histogram for the same name"() {
+        expect:
+        registry.counter("rows", "rows seen").is(registry.counter("rows", "rows seen"))
+        registry.histogram("latency", "latency").is(registry.histogram("latency", "latency"))
+    }
+
+    def "samples counter rates per second"() {
+        given:
+        def counter = registry.counter("rows", "rows seen")
+        registry.sampleRates()
+
+        when:
+        counter.add(1000)
+        Thread.sleep(100)
+        registry.sampleRates()
+
+        then:
+        counter.ratePerSecond() > 0
+        counter.ratePerSecond() <= 10_000
+    }
+}
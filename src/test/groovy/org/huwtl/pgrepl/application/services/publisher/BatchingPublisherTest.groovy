@@ -0,0 +1,229 @@
+package org.huwtl.pgrepl.application.services.publisher
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+
+class BatchingPublisherTest extends Specification {
+    private static final MAX_ROWS = 3
+    private static final MAX_BYTES = 1000
+    private static final LONG_LINGER = Duration.ofMinutes(1)
+    private static final SHORT_LINGER = Duration.ofMillis(100)
+    private static final NO_LINGER = Duration.ZERO
+
+    private def inMemoryPublisher = new InMemoryPublishedDataStore()
+    private def exceptionThrowingPublisher = ExceptionThrowingPublisher.willNotThrowException(inMemoryPublisher)
+
+    @AutoCleanup
+    private BatchingPublisher publisher
+
+    def "flushes a batch once it reaches the maximum number of rows"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+
+        when:
+        def published = (1..4).collect { publisher.publish(data(it)).toCompletableFuture() }
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1), data(2), data(3)]]
+        published[0..2].every { it.done && !it.completedExceptionally }
+        !published[3].done
+    }
+
+    def "flushes a batch once it reaches the maximum estimated size"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+        def large = new Data(value: "x" * MAX_BYTES)
+
+        when:
+        def published = publisher.publish(large).toCompletableFuture()
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[large]]
+        published.done
+    }
+
+    def "flushes a partial batch once it has lingered"() {
+        given:
+        publisher = batchingPublisher(SHORT_LINGER)
+
+        when:
+        def published = publisher.publish(data(1)).toCompletableFuture()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.publishedBatches() == [[data(1)]]
+            published.done
+        }
+    }
+
+    def "flushes a lingering batch at the end of its transaction"() {
+        given:
+        publisher = batchingPublisher(SHORT_LINGER)
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(data(1))
+        publisher.publish(data(2))
+        Thread.sleep(SHORT_LINGER.toMillis())
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1), data(2)]]
+    }
+
+    def "forwards transaction boundaries around the rows of a batch"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(data(1))
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.beganTransactions() == [1L]
+        inMemoryPublisher.committedTransactions().empty
+
+        when:
+        publisher.beginTransaction(2)
+        (2..3).each { publisher.publish(data(it)) }
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1)], [data(2), data(3)]]
+        inMemoryPublisher.committedTransactions() == [1L]
+        inMemoryPublisher.beganTransactions() == [1L, 2L]
+
+        when:
+        publisher.commitTransaction(2, 200)
+
+        then:
+        inMemoryPublisher.committedTransactions() == [1L, 2L]
+    }
+
+    def "keeps the boundaries of every transaction committed within one batch"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(data(1))
+        publisher.commitTransaction(1, 100)
+        publisher.beginTransaction(2)
+        publisher.publish(data(2))
+        publisher.commitTransaction(2, 200)
+        publisher.beginTransaction(3)
+        publisher.publish(data(3))
+
+        then:
+        inMemoryPublisher.events() == [
+                "begin 1", [data(1)], "commit 1 at 100",
+                "begin 2", [data(2)], "commit 2 at 200",
+                "begin 3", [data(3)]
+        ]
+    }
+
+    def "flushes the batch before forwarding #change"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+        publisher.publish(data(1))
+
+        when:
+        def published = publish(publisher).toCompletableFuture()
+
+        then:
+        published.done
+        inMemoryPublisher.publishedBatches() == [[data(1)]]
+        inMemoryPublisher.published() == [data(1)] + publishedRows
+        inMemoryPublisher.publishedDeletes() == publishedDeletes
+
+        where:
+        change      | publish                                                         || publishedRows | publishedDeletes
+        "a delete"  | { BatchingPublisher it -> it.publishDelete(data(2)) }           || []            | [data(2)]
+        "an update" | { BatchingPublisher it -> it.publishUpdate(data(2), data(3)) } || [data(3)]     | []
+    }
+
+    def "publishes each row on its own or at the end of its transaction without a linger"() {
+        given:
+        publisher = batchingPublisher(NO_LINGER)
+
+        when:
+        publisher.publish(data(1))
+        publisher.beginTransaction(1)
+        publisher.publish(data(2))
+        publisher.publish(data(3))
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1)]]
+
+        when:
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1)], [data(2), data(3)]]
+        inMemoryPublisher.committedTransactions() == [1L]
+    }
+
+    def "rejects batches of #maxRows rows, #maxBytes bytes and #linger linger"() {
+        when:
+        new BatchingPublisher(inMemoryPublisher, maxRows, maxBytes, linger)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        maxRows | maxBytes | linger
+        0       | 1000     | SHORT_LINGER
+        3       | 0        | SHORT_LINGER
+        3       | 1000     | Duration.ofMillis(-1)
+    }
+
+    def "publishes a partial batch when flushed"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+        def published = publisher.publish(data(1)).toCompletableFuture()
+
+        when:
+        publisher.flush()
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1)]]
+        published.done
+    }
+
+    def "flushes remaining rows on close"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+        def published = publisher.publish(data(1)).toCompletableFuture()
+
+        when:
+        publisher.close()
+
+        then:
+        inMemoryPublisher.publishedBatches() == [[data(1)]]
+        published.done
+    }
+
+    def "completes every row of a batch exceptionally when the batch fails to publish"() {
+        given:
+        publisher = batchingPublisher(LONG_LINGER)
+        exceptionThrowingPublisher.willThrowException()
+
+        when:
+        def published = (1..3).collect { publisher.publish(data(it)).toCompletableFuture() }
+
+        then:
+        published.every { it.completedExceptionally }
+        inMemoryPublisher.publishedBatches().empty
+    }
+
+    private BatchingPublisher batchingPublisher(Duration linger) {
+        new BatchingPublisher(exceptionThrowingPublisher, MAX_ROWS, MAX_BYTES, linger)
+    }
+
+    private static Data data(int id) {
+        new Data(id: id)
+    }
+}
@@ -0,0 +1,297 @@
+package org.huwtl.pgrepl.application.services.publisher
+
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+
+class CompactingPublisherTest extends Specification {
+    private static final MAX_WINDOW_CHANGES = 100
+    private static final PER_TRANSACTION = Duration.ZERO
+    private static final SHORT_WINDOW = Duration.ofMillis(100)
+
+    private def inMemoryPublisher = new InMemoryPublishedDataStore()
+    private def metrics = new ReplicationMetrics()
+
+    @AutoCleanup
+    private CompactingPublisher publisher
+
+    def "publishes only the latest state of each key changed within a transaction"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        def published = [
+                publisher.publish(row(1, "a")),
+                publisher.publishUpdate(key(1), row(1, "b")),
+                publisher.publish(row(2, "a")),
+                publisher.publishUpdate(key(1), row(1, "c")),
+                publisher.publishDelete(key(2))
+        ]*.toCompletableFuture()
+
+        then:
+        inMemoryPublisher.published().empty
+        published.every { !it.done }
+
+        when:
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.published() == [row(1, "c")]
+        inMemoryPublisher.publishedDeletes() == [key(2)]
+        inMemoryPublisher.beganTransactions() == [1L]
+        inMemoryPublisher.committedTransactions() == [1L]
+        published.every { it.done && !it.completedExceptionally }
+    }
+
+    def "completes changes of a window only once every compacted change is published"() {
+        given:
+        def manuallyCompletedPublisher = new ManuallyCompletedPublisher()
+        publisher = compactingPublisher(PER_TRANSACTION, manuallyCompletedPublisher)
+
+        when:
+        publisher.beginTransaction(1)
+        def published = [publisher.publish(row(1, "a")), publisher.publish(row(2, "a"))]*.toCompletableFuture()
+        publisher.commitTransaction(1, 100)
+        manuallyCompletedPublisher.complete(row(1, "a"))
+
+        then:
+        published.every { !it.done }
+
+        when:
+        manuallyCompletedPublisher.fail(row(2, "a"))
+
+        then:
+        published.every { it.completedExceptionally }
+    }
+
+    def "publishes a tombstone for the previous key of an update that changes the key"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(row(1, "a"))
+        publisher.publishUpdate(key(1), row(2, "a"))
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.publishedDeletes() == [key(1)]
+        inMemoryPublisher.published() == [row(2, "a")]
+    }
+
+    def "keeps the boundaries of every transaction committed within one window"() {
+        given:
+        publisher = compactingPublisher(SHORT_WINDOW, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(row(1, "a"))
+        publisher.publish(row(2, "a"))
+        publisher.commitTransaction(1, 100)
+        publisher.beginTransaction(2)
+        publisher.publish(row(1, "b"))
+        publisher.commitTransaction(2, 200)
+        publisher.flush()
+
+        then:
+        inMemoryPublisher.events() == [
+                "begin 1", row(2, "a"), "commit 1 at 100",
+                "begin 2", row(1, "b"), "commit 2 at 200"
+        ]
+    }
+
+    def "publishes a compacted #description as #published"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        changes(publisher)
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.events() == ["begin 1", published, "commit 1 at 100"]
+
+        where:
+        description            | changes                                                                                       || published
+        "update"               | { CompactingPublisher it -> it.publishUpdate(key(1), row(1, "a")) }                           || "update Data{id=1} to Data{id=1, value=a}"
+        "series of updates"    | { CompactingPublisher it -> (1..2).each { v -> it.publishUpdate(key(1), row(1, "v$v")) } }    || "update Data{id=1} to Data{id=1, value=v2}"
+        "insert and an update" | { CompactingPublisher it -> it.publish(row(1, "a")); it.publishUpdate(key(1), row(1, "b")) }  || row(1, "b")
+        "update and a delete"  | { CompactingPublisher it -> it.publishUpdate(key(1), row(1, "a")); it.publishDelete(key(1)) } || "delete Data{id=1}"
+    }
+
+    def "rejects rows without the compaction key column"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.publish(new Data(identifier: 1))
+
+        then:
+        def error = thrown(IllegalArgumentException)
+        error.message.contains("id")
+    }
+
+    def "publishes rows with a null key and deletes without the key column without compacting them"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(new Data(id: null, value: "a"))
+        publisher.publish(new Data(id: null, value: "b"))
+        publisher.publishDelete(new Data(other: 1))
+        publisher.publishDelete(new Data(other: 1))
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.published() == [new Data(id: null, value: "a"), new Data(id: null, value: "b")]
+        inMemoryPublisher.publishedDeletes() == [new Data(other: 1), new Data(other: 1)]
+    }
+
+    def "publishes changes outside of a transaction immediately when compacting per transaction"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        def published = publisher.publish(row(1, "a")).toCompletableFuture()
+
+        then:
+        inMemoryPublisher.published() == [row(1, "a")]
+        published.done
+    }
+
+    def "publishes early once a window holds the maximum number of changes"() {
+        given:
+        publisher = new CompactingPublisher(AsyncPublisher.blocking(inMemoryPublisher), "id", PER_TRANSACTION, 3, metrics)
+
+        when:
+        publisher.beginTransaction(1)
+        (1..4).each { publisher.publish(row(1, "v$it")) }
+
+        then:
+        inMemoryPublisher.published() == [row(1, "v3")]
+        inMemoryPublisher.committedTransactions().empty
+    }
+
+    def "compacts changes across transactions until the window expires"() {
+        given:
+        publisher = compactingPublisher(SHORT_WINDOW, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        (1..3).each { xid ->
+            publisher.beginTransaction(xid)
+            publisher.publish(row(1, "v$xid"))
+            publisher.commitTransaction(xid, xid * 100)
+        }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.published() == [row(1, "v3")]
+            inMemoryPublisher.beganTransactions() == [1L, 2L, 3L]
+            inMemoryPublisher.committedTransactions() == [1L, 2L, 3L]
+        }
+    }
+
+    def "reopens the transaction in progress once an expired window publishes the previous commit"() {
+        given:
+        publisher = compactingPublisher(SHORT_WINDOW, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.publish(row(1, "a"))
+        publisher.commitTransaction(1, 100)
+        publisher.beginTransaction(2)
+        publisher.publish(row(2, "a"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            inMemoryPublisher.committedTransactions() == [1L]
+            inMemoryPublisher.beganTransactions() == [1L, 2L]
+        }
+
+        when:
+        publisher.commitTransaction(2, 200)
+
+        then:
+        inMemoryPublisher.committedTransactions() == [1L, 2L]
+    }
+
+    def "publishes the changes held so far when flushed mid transaction"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        def published = publisher.publish(row(1, "a")).toCompletableFuture()
+        publisher.flush()
+
+        then:
+        published.done
+        inMemoryPublisher.published() == [row(1, "a")]
+        inMemoryPublisher.committedTransactions().empty
+
+        when:
+        publisher.publish(row(1, "b"))
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.published() == [row(1, "a"), row(1, "b")]
+        inMemoryPublisher.committedTransactions() == [1L]
+    }
+
+    def "forwards commits of transactions without compacted changes"() {
+        given:
+        publisher = compactingPublisher(SHORT_WINDOW, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        publisher.commitTransaction(1, 100)
+
+        then:
+        inMemoryPublisher.committedTransactions() == [1L]
+    }
+
+    def "reports the keys held until the next flush and how many changes they compacted"() {
+        given:
+        publisher = compactingPublisher(PER_TRANSACTION, AsyncPublisher.blocking(inMemoryPublisher))
+
+        when:
+        publisher.beginTransaction(1)
+        (1..3).each { publisher.publish(row(1, "v$it")) }
+        publisher.publish(row(2, "a"))
+
+        then:
+        metric("pgrepl_compaction_changes_received_total") == 4
+        metric("pgrepl_compaction_pending_keys") == 2
+        metric("pgrepl_compaction_pending_bytes") > 0
+
+        when:
+        publisher.commitTransaction(1, 100)
+
+        then:
+        metric("pgrepl_compaction_changes_published_total") == 2
+        metric("pgrepl_compaction_pending_keys") == 0
+        metric("pgrepl_compaction_pending_bytes") == 0
+    }
+
+    private CompactingPublisher compactingPublisher(Duration window, AsyncPublisher downstream) {
+        new CompactingPublisher(downstream, "id", window, MAX_WINDOW_CHANGES, metrics)
+    }
+
+    private double metric(String name) {
+        metrics.registry().samples().find { it.name() == name }.value()
+    }
+
+    private static Data row(int id, String value) {
+        new Data(id: id, value: value)
+    }
+
+    private static Data key(int id) {
+        new Data(id: id)
+    }
+}
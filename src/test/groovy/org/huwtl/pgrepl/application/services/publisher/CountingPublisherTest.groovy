@@ -19,4 +19,30 @@ class CountingPublisherTest extends Specification {
         where:
         numberOfPublishes << [0, 1, 10]
     }
+
+    def "counts deletes as publishes"() {
+        when:
+        publisher.publish(new Data(id: 1))
+        publisher.publishDelete(new Data(id: 1))
+
+        then:
+        publisher.numberOfPublishes() == 2
+    }
+
+    @Unroll
+    def "counts number of rows published in batches"() {
+        given:
+        batchSizes.each { batchSize ->
+            publisher.publishBatch([new Data([:])] * batchSize)
+        }
+
+        expect:
+        publisher.numberOfPublishes() == numberOfPublishes
+
+        where:
+        batchSizes || numberOfPublishes
+        []         || 0
+        [1]        || 1
+        [10, 5]    || 15
+    }
 }
@@ -0,0 +1,118 @@
+package org.huwtl.pgrepl.application.services.publisher
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class DataTest extends Specification {
+    private def columnNames = new RowSchema("id", "name", "deleted")
+
+    def "exposes values by index and by column name"() {
+        when:
+        def data = new Data(columnNames, [1, "a", null] as Object[])
+
+        then:
+        data.size() == 3
+        data.value(0) == 1
+        data.value(1) == "a"
+        data.value("name") == "a"
+        data.value("deleted") == null
+        data.value("unknown") == null
+        data.all() == [id: 1, name: "a", deleted: null]
+        data.all().containsKey("deleted")
+        !data.all().containsKey("unknown")
+    }
+
+    def "shares the schema between rows"() {
+        when:
+        def first = new Data(columnNames, [1, "a", false] as Object[])
+        def second = new Data(columnNames, [2, "b", true] as Object[])
+
+        then:
+        first.schema().is(second.schema())
+        first != second
+    }
+
+    def "equals data with the same values by column name regardless of how it was built"() {
+        expect:
+        new Data(columnNames, [1, "a", null] as Object[]) == new Data(deleted: null, id: 1, name: "a")
+        new Data(columnNames, [1, "a", null] as Object[]).hashCode() == new Data(deleted: null, id: 1, name: "a").hashCode()
+        new Data(columnNames, [1, "a", null] as Object[]) != new Data(id: 1, name: "a")
+    }
+
+    def "exposes unboxed primitive values without boxing them up front"() {
+        given:
+        def schema = new RowSchema(
+                ["id", "price", "active", "label"] as String[],
+                [ColumnType.INTEGER, ColumnType.FLOAT, ColumnType.BOOLEAN, ColumnType.TEXT] as ColumnType[]
+        )
+
+        when:
+        def data = new Data(
+                schema,
+                [Data.UNBOXED, Data.UNBOXED, Data.UNBOXED, "x"] as Object[],
+                [42L, Double.doubleToRawLongBits(9.5d), 1L, 0L] as long[]
+        )
+
+        then:
+        data.getLong(0) == 42L
+        data.getLong("id") == 42L
+        data.getDouble("price") == 9.5d
+        data.getDouble("id") == 42d
+        data.getBoolean("active")
+        data.value("label") == "x"
+        data.all() == [id: 42L, price: 9.5d, active: true, label: "x"]
+    }
+
+    def "reads primitives from boxed values of untyped columns"() {
+        when:
+        def data = new Data(id: 1, price: 2.5d, active: false)
+
+        then:
+        data.getLong("id") == 1L
+        data.getDouble("price") == 2.5d
+        !data.getBoolean("active")
+    }
+
+    @Unroll
+    def "fails to #accessor of #column column"() {
+        given:
+        def data = new Data(id: null, name: "a")
+
+        when:
+        data."$accessor"(column)
+
+        then:
+        thrown(expectedException)
+
+        where:
+        accessor     | column    || expectedException
+        "getLong"    | "id"      || IllegalStateException
+        "getLong"    | "name"    || IllegalStateException
+        "getBoolean" | "name"    || IllegalStateException
+        "getDouble"  | "unknown" || IllegalArgumentException
+    }
+
+    def "requires a primitive value slot for every column when any column is primitive"() {
+        when:
+        new Data(new RowSchema(["id"] as String[], [ColumnType.INTEGER] as ColumnType[]), [Data.UNBOXED] as Object[])
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "requires a value for every column"() {
+        when:
+        new Data(columnNames, [1, "a"] as Object[])
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "rejects duplicate column names"() {
+        when:
+        new RowSchema("id", "id")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
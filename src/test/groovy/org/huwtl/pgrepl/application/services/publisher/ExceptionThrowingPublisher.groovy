@@ -23,6 +23,34 @@ class ExceptionThrowingPublisher implements Publisher {
         delegate.publish(data)
     }
 
+    @Override
+    void publishDelete(Data identity) {
+        if (exceptionToThrow) {
+            hasThrownException = true
+            throw exceptionToThrow
+        }
+        delegate.publishDelete(identity)
+    }
+
+    @Override
+    void publishBatch(List<Data> batch) {
+        if (exceptionToThrow) {
+            hasThrownException = true
+            throw exceptionToThrow
+        }
+        delegate.publishBatch(batch)
+    }
+
+    @Override
+    void beginTransaction(long xid) {
+        delegate.beginTransaction(xid)
+    }
+
+    @Override
+    void commitTransaction(long xid, long commitLsn) {
+        delegate.commitTransaction(xid, commitLsn)
+    }
+
     ExceptionThrowingPublisher willThrowException() {
         exceptionToThrow = new IllegalStateException("fake exception caused by test")
         this
@@ -2,20 +2,82 @@ package org.huwtl.pgrepl.application.services.publisher
 
 class InMemoryPublishedDataStore implements Publisher {
     private final List<Data> published = []
+    private final List<List<Data>> publishedBatches = []
+    private final List<Data> publishedDeletes = []
+    private final List<Long> beganTransactions = []
+    private final List<Long> committedTransactions = []
+    private final List<Object> events = []
 
     @Override
     void publish(Data data) {
         published.add(data)
+        events.add(data)
+    }
+
+    @Override
+    void publishUpdate(Data identity, Data data) {
+        published.add(data)
+        events.add("update $identity to $data".toString())
+    }
+
+    @Override
+    void publishDelete(Data identity) {
+        publishedDeletes.add(identity)
+        events.add("delete $identity".toString())
+    }
+
+    @Override
+    void publishBatch(List<Data> batch) {
+        publishedBatches.add(batch)
+        published.addAll(batch)
+        events.add(batch)
+    }
+
+    @Override
+    void beginTransaction(long xid) {
+        beganTransactions.add(xid)
+        events.add("begin $xid".toString())
+    }
+
+    @Override
+    void commitTransaction(long xid, long commitLsn) {
+        committedTransactions.add(xid)
+        events.add("commit $xid at $commitLsn".toString())
     }
 
     void reset() {
         published.clear()
+        publishedBatches.clear()
+        publishedDeletes.clear()
+        beganTransactions.clear()
+        committedTransactions.clear()
+        events.clear()
     }
 
     List<Data> published() {
         published.asImmutable()
     }
 
+    List<List<Data>> publishedBatches() {
+        publishedBatches.asImmutable()
+    }
+
+    List<Data> publishedDeletes() {
+        publishedDeletes.asImmutable()
+    }
+
+    List<Long> beganTransactions() {
+        beganTransactions.asImmutable()
+    }
+
+    List<Long> committedTransactions() {
+        committedTransactions.asImmutable()
+    }
+
+    List<Object> events() {
+        events.asImmutable()
+    }
+
     boolean empty() {
         return published.isEmpty()
     }
@@ -0,0 +1,27 @@
+package org.huwtl.pgrepl.application.services.publisher
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+
+class ManuallyCompletedPublisher implements AsyncPublisher {
+    private final Map<Data, CompletableFuture<Void>> inFlight = Collections.synchronizedMap([:])
+
+    @Override
+    CompletionStage<Void> publish(Data data) {
+        def future = new CompletableFuture<Void>()
+        inFlight.put(data, future)
+        future
+    }
+
+    List<Data> inFlight() {
+        inFlight.keySet().toList()
+    }
+
+    void complete(Data data) {
+        inFlight.remove(data).complete(null)
+    }
+
+    void fail(Data data) {
+        inFlight.remove(data).completeExceptionally(new IllegalStateException("fake publish failure caused by test"))
+    }
+}
@@ -0,0 +1,320 @@
+package org.huwtl.pgrepl.application.services.publisher
+
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+import static java.util.concurrent.TimeUnit.SECONDS
+
+class PartitionedPublisherTest extends Specification {
+    private static final KEY_COLUMN = "id"
+    private static final LANES = 4
+
+    private def metrics = new ReplicationMetrics()
+    private def publishedSequencesByKey = new ConcurrentHashMap<Object, List<Integer>>()
+    private def recordingPublisher = { Data data ->
+        publishedSequencesByKey.computeIfAbsent(data.all()[KEY_COLUMN], { new CopyOnWriteArrayList<>() })
+                .add(data.all()["sequence"] as Integer)
+    } as Publisher
+
+    @AutoCleanup
+    private def publisher = new PartitionedPublisher(recordingPublisher, KEY_COLUMN, LANES, 10, metrics)
+
+    def "preserves publish order of rows with the same key"() {
+        when:
+        def published = (0..<1000).collect {
+            publisher.publish(new Data((KEY_COLUMN): it % 17, sequence: it)).toCompletableFuture()
+        }
+        published*.get(5, SECONDS)
+
+        then:
+        publishedSequencesByKey.keySet() == (0..<17) as Set
+        publishedSequencesByKey.every { key, sequences -> sequences == sequences.sort(false) }
+        publishedSequencesByKey.values().sum { it.size() } == 1000
+    }
+
+    def "publishes rows with unrelated keys in parallel"() {
+        given:
+        def blockedLane = new CountDownLatch(1)
+        def blockingPublisher = new PartitionedPublisher({ Data data ->
+            if (data.all()[KEY_COLUMN] == "blocked") {
+                blockedLane.await()
+            }
+        } as Publisher, KEY_COLUMN, LANES, 10, metrics)
+
+        when:
+        def blocked = blockingPublisher.publish(new Data((KEY_COLUMN): "blocked")).toCompletableFuture()
+        def unrelated = keyOnOtherLaneThan(blockingPublisher, "blocked")
+                .collect { blockingPublisher.publish(new Data((KEY_COLUMN): it)).toCompletableFuture() }
+
+        then:
+        unrelated*.get(5, SECONDS)
+        !blocked.done
+
+        cleanup:
+        blockedLane.countDown()
+        blockingPublisher.close()
+    }
+
+    def "completes exceptionally when the delegate publisher fails"() {
+        given:
+        def failingPublisher = new PartitionedPublisher(
+                ExceptionThrowingPublisher.willNotThrowException(new InMemoryPublishedDataStore()).willThrowException(),
+                KEY_COLUMN,
+                LANES,
+                10,
+                metrics
+        )
+
+        when:
+        def published = failingPublisher.publish(new Data((KEY_COLUMN): 1)).toCompletableFuture()
+        failingPublisher.close()
+
+        then:
+        published.completedExceptionally
+    }
+
+    def "drains queued publishes on close"() {
+        given:
+        def published = (0..<100).collect {
+            publisher.publish(new Data((KEY_COLUMN): it, sequence: it)).toCompletableFuture()
+        }
+
+        when:
+        publisher.close()
+
+        then:
+        published.every { it.done && !it.completedExceptionally }
+        publishedSequencesByKey.size() == 100
+        publisher.queueDepths() == [0] * LANES as int[]
+    }
+
+    def "rejects publishes once closed"() {
+        given:
+        publisher.close()
+
+        expect:
+        publisher.publish(new Data((KEY_COLUMN): 1)).toCompletableFuture().completedExceptionally
+    }
+
+    def "reports the queue depth of each lane"() {
+        given:
+        def blockedLanes = new CountDownLatch(1)
+        def blockingPublisher = new PartitionedPublisher({ Data data -> blockedLanes.await() } as Publisher, KEY_COLUMN, LANES, 10, metrics)
+        def blockedKey = "blocked"
+        def lane = blockingPublisher.lane(new Data((KEY_COLUMN): blockedKey))
+
+        when:
+        4.times { blockingPublisher.publish(new Data((KEY_COLUMN): blockedKey)) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            metric("pgrepl_publisher_lane_${lane}_queue_depth") == 3
+        }
+        (0..<LANES).findAll { it != lane }.every { metric("pgrepl_publisher_lane_${it}_queue_depth") == 0 }
+
+        cleanup:
+        blockedLanes.countDown()
+        blockingPublisher.close()
+    }
+
+    def "publishes updates and deletes on the lane of their key"() {
+        given:
+        def inMemoryPublisher = new InMemoryPublishedDataStore()
+        def partitionedPublisher = new PartitionedPublisher(inMemoryPublisher, KEY_COLUMN, 1, 10, metrics)
+
+        when:
+        [
+                partitionedPublisher.publish(new Data((KEY_COLUMN): 1, value: "a")),
+                partitionedPublisher.publishUpdate(new Data((KEY_COLUMN): 1), new Data((KEY_COLUMN): 1, value: "b")),
+                partitionedPublisher.publishDelete(new Data((KEY_COLUMN): 1))
+        ]*.toCompletableFuture()*.get(5, SECONDS)
+
+        then:
+        inMemoryPublisher.published() == [new Data((KEY_COLUMN): 1, value: "a"), new Data((KEY_COLUMN): 1, value: "b")]
+        inMemoryPublisher.publishedDeletes() == [new Data((KEY_COLUMN): 1)]
+
+        cleanup:
+        partitionedPublisher.close()
+    }
+
+    def "forwards a commit only once every lane has published the rows before it"() {
+        given:
+        def blockedLane = new CountDownLatch(1)
+        def committed = new CopyOnWriteArrayList<Long>()
+        def began = new CopyOnWriteArrayList<Long>()
+        def transactionalPublisher = new PartitionedPublisher(new Publisher() {
+            @Override
+            void publish(Data data) {
+                if (data.all()[KEY_COLUMN] == "blocked") {
+                    blockedLane.await()
+                }
+            }
+
+            @Override
+            void beginTransaction(long xid) {
+                began.add(xid)
+            }
+
+            @Override
+            void commitTransaction(long xid, long commitLsn) {
+                committed.add(xid)
+            }
+        }, KEY_COLUMN, LANES, 10, metrics)
+
+        when:
+        transactionalPublisher.beginTransaction(1)
+        def published = ["blocked"] + keyOnOtherLaneThan(transactionalPublisher, "blocked")
+        published.each { transactionalPublisher.publish(new Data((KEY_COLUMN): it)) }
+        transactionalPublisher.commitTransaction(1, 100)
+        transactionalPublisher.beginTransaction(2)
+        Thread.sleep(100)
+
+        then:
+        began == [1L]
+        committed.empty
+
+        when:
+        blockedLane.countDown()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            committed == [1L]
+            began == [1L, 2L]
+        }
+
+        cleanup:
+        transactionalPublisher.close()
+    }
+
+    def "keeps publishing to other lanes while one lane is full"() {
+        given:
+        def blockedLane = new CountDownLatch(1)
+        def blockingPublisher = new PartitionedPublisher({ Data data ->
+            if (data.all()[KEY_COLUMN] == "blocked") {
+                blockedLane.await()
+            }
+        } as Publisher, KEY_COLUMN, LANES, 1, metrics)
+        def filling = Executors.newSingleThreadExecutor()
+        filling.submit { 3.times { blockingPublisher.publish(new Data((KEY_COLUMN): "blocked")) } }
+        Thread.sleep(100)
+
+        when:
+        def published = blockingPublisher.publish(new Data((KEY_COLUMN): keyOnOtherLaneThan(blockingPublisher, "blocked")[0]))
+
+        then:
+        published.toCompletableFuture().get(5, SECONDS) == null
+
+        cleanup:
+        blockedLane.countDown()
+        filling.shutdownNow()
+        blockingPublisher.close()
+    }
+
+    def "publishes an update that changes the key only after earlier changes to the previous key"() {
+        given:
+        def blockedLane = new CountDownLatch(1)
+        def inMemoryPublisher = new InMemoryPublishedDataStore()
+        def orderedPublisher = new PartitionedPublisher(new Publisher() {
+            @Override
+            void publish(Data data) {
+                if (data.all()["value"] == "blocked") {
+                    blockedLane.await()
+                }
+                inMemoryPublisher.publish(data)
+            }
+
+            @Override
+            void publishUpdate(Data identity, Data data) {
+                inMemoryPublisher.publishUpdate(identity, data)
+            }
+        }, KEY_COLUMN, LANES, 10, metrics)
+        def previousKey = "previous"
+        def key = keyOnOtherLaneThan(orderedPublisher, previousKey)[0]
+
+        when:
+        orderedPublisher.publish(new Data((KEY_COLUMN): previousKey, value: "blocked"))
+        def updated = orderedPublisher.publishUpdate(new Data((KEY_COLUMN): previousKey), new Data((KEY_COLUMN): key)).toCompletableFuture()
+        Thread.sleep(100)
+
+        then:
+        !updated.done
+
+        when:
+        blockedLane.countDown()
+        updated.get(5, SECONDS)
+
+        then:
+        inMemoryPublisher.events() == [
+                new Data((KEY_COLUMN): previousKey, value: "blocked"),
+                "update ${new Data((KEY_COLUMN): previousKey)} to ${new Data((KEY_COLUMN): key)}".toString()
+        ]
+
+        cleanup:
+        orderedPublisher.close()
+    }
+
+    def "rejects rows without the partition key column"() {
+        when:
+        publisher.publish(new Data(other: 1))
+
+        then:
+        def error = thrown(IllegalArgumentException)
+        error.message.contains(KEY_COLUMN)
+    }
+
+    def "fails every later publish instead of blocking once a lane fails with an error"() {
+        given:
+        def failingPublisher = new PartitionedPublisher({ Data data -> throw new OutOfMemoryError("lane failure") } as Publisher, KEY_COLUMN, 1, 2, metrics)
+
+        when:
+        def published = (0..<10).collect { failingPublisher.publish(new Data((KEY_COLUMN): it)).toCompletableFuture() }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            published.every { it.completedExceptionally }
+        }
+        failingPublisher.publish(new Data((KEY_COLUMN): 10)).toCompletableFuture().completedExceptionally
+
+        cleanup:
+        failingPublisher.close()
+    }
+
+    def "fails publishes racing close instead of leaving them incomplete"() {
+        given:
+        def racing = Executors.newSingleThreadExecutor()
+        def published = new CopyOnWriteArrayList<CompletableFuture<Void>>()
+        def publishing = racing.submit {
+            (0..<10_000).each {
+                published.add(publisher.publish(new Data((KEY_COLUMN): it, sequence: it)).toCompletableFuture())
+            }
+        }
+
+        when:
+        Thread.sleep(5)
+        publisher.close()
+        publishing.get(5, SECONDS)
+
+        then:
+        published.every { it.done }
+
+        cleanup:
+        racing.shutdownNow()
+    }
+
+    private double metric(String name) {
+        metrics.registry().samples().find { it.name() == name }.value()
+    }
+
+    private static List<String> keyOnOtherLaneThan(PartitionedPublisher publisher, String key) {
+        def lane = publisher.lane(new Data((KEY_COLUMN): key))
+        (0..<100).collect { "key $it" as String }.findAll { publisher.lane(new Data((KEY_COLUMN): it)) != lane }
+    }
+}
@@ -3,6 +3,7 @@ package org.huwtl.pgrepl.application.services.replication
 import groovy.transform.Canonical
 import org.huwtl.pgrepl.application.services.publisher.Data
 
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert
 import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage
 
 @Canonical
@@ -12,7 +13,7 @@ class DatabaseAgnosticChangeDataCaptureMessage implements ChangeDataCaptureMessa
     List<Data> data
 
     @Override
-    List<Data> capturedDataFromInserts(String schema, String table) {
-        (this.schema == schema && this.table == table) ? data : []
+    List<CapturedInsert> capturedInserts() {
+        data.collect { new CapturedInsert(new CapturedTable(schema, table), it) }
     }
 }
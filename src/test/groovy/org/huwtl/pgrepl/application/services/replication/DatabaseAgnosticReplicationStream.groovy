@@ -1,6 +1,7 @@
 package org.huwtl.pgrepl.application.services.replication
 
 import java.sql.SQLException
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.Consumer
 
 import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage
@@ -8,6 +9,9 @@ import static org.huwtl.pgrepl.application.services.replication.ReplicationStrea
 
 class DatabaseAgnosticReplicationStream implements ReplicationStream {
     private final List<ReplicationStreamMessage> nextMessages = []
+    private final List<Long> acknowledgedLsns = []
+    private final AtomicInteger statusUpdatesSent = new AtomicInteger()
+    private volatile List<Long> transactionProgress
 
     @Override
     void processNextChangeDataCaptureMessage(
@@ -28,10 +32,37 @@ class DatabaseAgnosticReplicationStream implements ReplicationStream {
     }
 
     @Override
-    void close() throws Exception {
+    void acknowledge(long lsn) {
+        acknowledgedLsns.add(lsn)
+    }
+
+    @Override
+    void acknowledgeTransactionProgress(long xid, long publishedChanges) {
+        transactionProgress = [xid, publishedChanges]
+    }
+
+    @Override
+    void sendStatus() throws SQLException {
+        statusUpdatesSent.incrementAndGet()
+    }
+
+    @Override
+    void close() {
     }
 
     void nextMessagesToReturn(List<ReplicationStreamMessage> messages) {
         nextMessages.addAll(messages)
     }
+
+    List<Long> acknowledgedLsns() {
+        acknowledgedLsns.asImmutable()
+    }
+
+    int statusUpdatesSent() {
+        statusUpdatesSent.get()
+    }
+
+    List<Long> transactionProgress() {
+        transactionProgress
+    }
 }
@@ -0,0 +1,154 @@
+package org.huwtl.pgrepl.application.services.replication
+
+import org.huwtl.pgrepl.application.services.publisher.ColumnType
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.publisher.RowSchema
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class RowPredicateTest extends Specification {
+    private static final Map<String, Object> ROW = [
+            tenant_id: 7L,
+            price    : 2.5d,
+            active   : true,
+            status   : "ACTIVE",
+            amount   : new BigDecimal("10.50"),
+            Region   : "eu",
+            note     : null,
+    ]
+
+    @Unroll
+    def "evaluates #predicate as #expected"() {
+        expect:
+        matches(predicate, ROW) == expected
+
+        where:
+        predicate                                              || expected
+        "tenant_id = 7"                                        || true
+        "tenant_id <> 7"                                       || false
+        "tenant_id >= 8"                                       || false
+        "tenant_id IN (1, 7, 9)"                               || true
+        "tenant_id NOT IN (1, 9)"                              || true
+        "price < 3"                                            || true
+        "price IN (2.5)"                                       || true
+        "active = true"                                        || true
+        "status = 'ACTIVE'"                                    || true
+        "status in ('INACTIVE', 'DELETED')"                    || false
+        "amount = 10.5"                                        || true
+        "amount > '9'"                                         || true
+        "\"Region\" = 'eu'"                                    || true
+        "note IS NULL"                                         || true
+        "note IS NOT NULL"                                     || false
+        "note = 'x' OR note != 'x'"                            || false
+        "note NOT IN ('x')"                                    || false
+        "status = 'ACTIVE' AND tenant_id = 8 OR active = TRUE" || true
+        "status = 'ACTIVE' AND (tenant_id = 8 OR price > 2)"   || true
+        "status = 'ACTIVE' AND (tenant_id = 8 OR price > 3)"   || false
+        "status = 'it''s'"                                     || false
+    }
+
+    @Unroll
+    def "rejects invalid predicate #predicate"() {
+        when:
+        RowPredicate.parse(predicate)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        predicate << ["", "status", "status = ", "status = 'ACTIVE", "a = 1 AND", "(a = 1", "a NOT = 1", "a IN ()", "1 = a", "a = 1 b"]
+    }
+
+    def "rejects comparing a primitive column with a literal of another type"() {
+        when:
+        matches("tenant_id = 'seven'", ROW)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    @Unroll
+    def "rejects comparing a #type column with the unparseable literal #literal"() {
+        given:
+        def schema = new RowSchema(["column"] as String[], [type] as ColumnType[])
+
+        when:
+        RowPredicate.parse("column = $literal").bind(schema)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Cannot compare column column of type $type with ${literal.replace("'", "")}"
+
+        where:
+        type                                | literal
+        ColumnType.NUMERIC                  | "'ten'"
+        ColumnType.NUMERIC                  | "true"
+        ColumnType.UUID                     | "'not-a-uuid'"
+        ColumnType.UUID                     | "1"
+        ColumnType.DATE                     | "'2024-13-01'"
+        ColumnType.TIMESTAMP                | "'yesterday'"
+        ColumnType.TIMESTAMP_WITH_TIME_ZONE | "'2024-01-01 00:00:00'"
+    }
+
+    @Unroll
+    def "rejects #predicate on column #column missing from a full relation schema"() {
+        when:
+        matches(predicate, ROW)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.startsWith("Unknown column $column is not one of the columns [tenant_id, price")
+
+        where:
+        predicate                          | column
+        "missing IS NULL"                  | "missing"
+        "missing = 1"                      | "missing"
+        "missing IN (1)"                   | "missing"
+        "status = 'ACTIVE' OR missing = 1" | "missing"
+        "region = 'eu'"                    | "region"
+    }
+
+    @Unroll
+    def "treats a column missing from a partial schema as null so #predicate is #expected"() {
+        given:
+        def schema = new RowSchema(["id"] as String[], [ColumnType.INTEGER] as ColumnType[])
+
+        expect:
+        RowPredicate.parse(predicate).bindPartially(schema).matches([Data.UNBOXED] as Object[], [1L] as long[]) == expected
+
+        where:
+        predicate                   || expected
+        "missing IS NULL"           || true
+        "missing IS NOT NULL"       || false
+        "missing = 1"               || false
+        "missing NOT IN (1)"        || false
+        "id = 1 OR missing = 1"     || true
+    }
+
+    private static boolean matches(String predicate, Map<String, Object> row) {
+        def names = row.keySet() as String[]
+        def types = row.values().collect { type(it) } as ColumnType[]
+        def values = row.values().collect { it instanceof Long || it instanceof Double || it instanceof Boolean ? Data.UNBOXED : it } as Object[]
+        def primitives = row.values().collect { primitive(it) } as long[]
+        RowPredicate.parse(predicate).bind(new RowSchema(names, types)).matches(values, primitives)
+    }
+
+    private static ColumnType type(Object value) {
+        switch (value) {
+            case Long: return ColumnType.INTEGER
+            case Double: return ColumnType.FLOAT
+            case Boolean: return ColumnType.BOOLEAN
+            case BigDecimal: return ColumnType.NUMERIC
+            default: return ColumnType.TEXT
+        }
+    }
+
+    private static long primitive(Object value) {
+        switch (value) {
+            case Long: return value as long
+            case Double: return Double.doubleToRawLongBits(value as double)
+            case Boolean: return value ? 1 : 0
+            default: return 0
+        }
+    }
+}
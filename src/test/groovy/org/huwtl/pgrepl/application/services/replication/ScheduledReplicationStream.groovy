@@ -0,0 +1,42 @@
+package org.huwtl.pgrepl.application.services.replication
+
+import java.sql.SQLException
+import java.util.function.Consumer
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.NoMessage
+
+class ScheduledReplicationStream implements ReplicationStream {
+    private final ChangeDataCaptureMessage message
+    private final long availableAtNanos
+    private volatile boolean delivered = false
+
+    ScheduledReplicationStream(ChangeDataCaptureMessage message, long availableAtNanos) {
+        this.message = message
+        this.availableAtNanos = availableAtNanos
+    }
+
+    @Override
+    void processNextChangeDataCaptureMessage(
+            Consumer<ChangeDataCaptureMessage> onChangeDataCaptureMessage,
+            Consumer<NoMessage> onNoMessage) throws SQLException, IOException {
+        if (!delivered && System.nanoTime() >= availableAtNanos) {
+            delivered = true
+            onChangeDataCaptureMessage.accept(message)
+        } else {
+            onNoMessage.accept(new NoMessage())
+        }
+    }
+
+    @Override
+    void acknowledge(long lsn) {
+    }
+
+    @Override
+    void close() {
+    }
+
+    long availableAtNanos() {
+        availableAtNanos
+    }
+}
@@ -0,0 +1,114 @@
+package org.huwtl.pgrepl.infrastructure.decoding
+
+import org.huwtl.pgrepl.application.services.replication.ChangeDataCaptureMessageDecoder
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+
+class ParallelDecodePipelineTest extends Specification {
+    private def pipeline = new ParallelDecodePipeline({ slowerForEarlierMessages() }, 4, 8)
+
+    def cleanup() {
+        pipeline.close()
+    }
+
+    def "hands decoded messages over in the order they were read even when decoded out of order"() {
+        given:
+        def delivered = []
+        (1..8).each { pipeline.decode(message(it), it) }
+
+        when:
+        while (!pipeline.empty()) {
+            pipeline.next({ message, lsn, bytes, decodeNanos -> delivered << [message.xid(), lsn, bytes] }, { throw new AssertionError() })
+        }
+
+        then:
+        delivered == (1..8).collect { [it as long, it as long, Integer.BYTES] }
+    }
+
+    def "hands keepalives over in between the messages read around them"() {
+        given:
+        def delivered = []
+        pipeline.decode(message(1), 1)
+        pipeline.keepalive(2)
+        pipeline.decode(message(3), 3)
+
+        when:
+        3.times {
+            pipeline.next({ message, lsn, bytes, decodeNanos -> delivered << "message $lsn" }, { delivered << "keepalive $it" })
+        }
+
+        then:
+        delivered == ["message 1", "keepalive 2", "message 3"]
+    }
+
+    def "stops reading ahead once the queue is full"() {
+        when:
+        (1..8).each { pipeline.decode(message(it), it) }
+
+        then:
+        pipeline.full()
+
+        when:
+        pipeline.decode(message(9), 9)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "stops reading ahead once the queued messages hold the maximum number of bytes"() {
+        given:
+        def byteLimited = new ParallelDecodePipeline({ slowerForEarlierMessages() }, 4, 8, 2 * Integer.BYTES)
+
+        when:
+        byteLimited.decode(message(1), 1)
+
+        then:
+        !byteLimited.full()
+
+        when:
+        byteLimited.decode(message(2), 2)
+
+        then:
+        byteLimited.full()
+
+        when:
+        byteLimited.next({ message, lsn, bytes, decodeNanos -> }, {})
+
+        then:
+        !byteLimited.full()
+
+        cleanup:
+        byteLimited.close()
+    }
+
+    def "rethrows a decoding failure when the failed message is due"() {
+        given:
+        def failing = new ParallelDecodePipeline({ { buffer, lsn -> throw new IOException("corrupt") } as ChangeDataCaptureMessageDecoder }, 1, 1)
+        failing.decode(message(1), 1)
+
+        when:
+        failing.next({ message, lsn, bytes, decodeNanos -> }, {})
+
+        then:
+        def error = thrown(IOException)
+        error.message == "corrupt"
+
+        cleanup:
+        failing.close()
+    }
+
+    private static ChangeDataCaptureMessageDecoder slowerForEarlierMessages() {
+        { buffer, lsn ->
+            def xid = buffer.getInt(buffer.position())
+            Thread.sleep(Math.max(0, 9 - xid))
+            new TransactionBegin(xid)
+        } as ChangeDataCaptureMessageDecoder
+    }
+
+    private static ByteBuffer message(int xid) {
+        ByteBuffer.allocate(Integer.BYTES).putInt(0, xid)
+    }
+}
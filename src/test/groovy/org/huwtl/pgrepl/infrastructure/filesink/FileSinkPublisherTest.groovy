@@ -0,0 +1,345 @@
+package org.huwtl.pgrepl.infrastructure.filesink
+
+import org.huwtl.pgrepl.ObjectMapperFactory
+import org.huwtl.pgrepl.application.services.publisher.ColumnType
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.publisher.RowSchema
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.util.concurrent.PollingConditions
+
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+import java.util.zip.CRC32C
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.huwtl.pgrepl.infrastructure.filesink.FileSinkConfiguration.Format
+
+class FileSinkPublisherTest extends Specification {
+    private static final RowSchema SCHEMA = new RowSchema(
+            ["id", "data", "amount", "created", "active", "score", "payload"] as String[],
+            [
+                    ColumnType.INTEGER,
+                    ColumnType.TEXT,
+                    ColumnType.NUMERIC,
+                    ColumnType.TIMESTAMP_WITH_TIME_ZONE,
+                    ColumnType.BOOLEAN,
+                    ColumnType.FLOAT,
+                    ColumnType.JSON
+            ] as ColumnType[]
+    )
+    private static final long LONG_GROUP_COMMIT_INTERVAL_IN_MILLIS = 60_000
+
+    @TempDir
+    private Path directory
+
+    def "writes each row as a json line with typed and escaped values"() {
+        given:
+        def publisher = publisher(Format.NDJSON)
+
+        when:
+        publisher.publish(row(1, 'quoted "ünïcödé" 🚀\n\ttext', 1.5d))
+        publisher.publish(row(Long.MIN_VALUE, null, Double.NaN))
+        publisher.close()
+
+        then:
+        def lines = sealedSegments(Format.NDJSON).collectMany { Files.readAllLines(it, UTF_8) }
+        lines.collect { ObjectMapperFactory.objectMapper().readValue(it, Map) } == [
+                [
+                        id     : 1,
+                        data   : 'quoted "ünïcödé" 🚀\n\ttext',
+                        amount : 12.50,
+                        created: "2023-05-10T10:15:30.123456Z",
+                        active : true,
+                        score  : 1.5,
+                        payload: [k: [1, 2]]
+                ],
+                [
+                        id     : Long.MIN_VALUE,
+                        data   : null,
+                        amount : 12.50,
+                        created: "2023-05-10T10:15:30.123456Z",
+                        active : true,
+                        score  : "NaN",
+                        payload: [k: [1, 2]]
+                ]
+        ]
+    }
+
+    def "writes each row as a checksummed length prefixed binary record"() {
+        given:
+        def publisher = publisher(Format.BINARY)
+
+        when:
+        publisher.publish(row(-7, "ünïcödé", 2.25d))
+        publisher.publish(row(8, null, -0.5d))
+        publisher.close()
+
+        then:
+        def records = binaryRecords(Files.readAllBytes(sealedSegments(Format.BINARY).first()))
+        records == [
+                [
+                        id     : -7L,
+                        data   : "ünïcödé",
+                        amount : "12.50",
+                        created: "2023-05-10T10:15:30.123456Z",
+                        active : true,
+                        score  : 2.25d,
+                        payload: '{"k":[1,2]}'
+                ],
+                [
+                        id     : 8L,
+                        data   : null,
+                        amount : "12.50",
+                        created: "2023-05-10T10:15:30.123456Z",
+                        active : true,
+                        score  : -0.5d,
+                        payload: '{"k":[1,2]}'
+                ]
+        ]
+    }
+
+    def "writes deletes as #format tombstones of the deleted key"() {
+        given:
+        def publisher = publisher(format)
+
+        when:
+        publisher.publish(row(1, "a", 1d))
+        def deleted = publisher.publishDelete(key(1)).toCompletableFuture()
+        publisher.close()
+
+        then:
+        deleted.done
+        !deleted.completedExceptionally
+        def records = records(format)
+        records*.keySet()*.toList() == [SCHEMA.names(), ['$deleted']]
+        records[1]['$deleted'].keySet() == ["id"] as Set
+        records[1]['$deleted'].id == 1
+
+        where:
+        format << [Format.NDJSON, Format.BINARY]
+    }
+
+    def "completes publishes only once a group commit has synced them and then reports the durable lsn"() {
+        given:
+        def publisher = publisher(Format.BINARY, LONG_GROUP_COMMIT_INTERVAL_IN_MILLIS, 1)
+
+        when:
+        publisher.beginTransaction(1)
+        def published = publisher.publish(row(1, "a", 1d)).toCompletableFuture()
+        publisher.commitTransaction(1, 100)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            published.done
+            !published.completedExceptionally
+        }
+
+        when:
+        publisher.publish(row(2, "b", 1d)).toCompletableFuture().join()
+
+        then:
+        publisher.durableLsn() == 100
+
+        cleanup:
+        publisher.close()
+    }
+
+    def "waits for the group commit interval while under the group commit size"() {
+        given:
+        def publisher = publisher(Format.BINARY, LONG_GROUP_COMMIT_INTERVAL_IN_MILLIS, 1024 * 1024)
+
+        when:
+        def published = publisher.publish(row(1, "a", 1d)).toCompletableFuture()
+        Thread.sleep(100)
+
+        then:
+        !published.done
+
+        when:
+        publisher.close()
+
+        then:
+        published.done
+        !published.completedExceptionally
+    }
+
+    def "syncs without waiting for the group commit interval when flushed"() {
+        given:
+        def publisher = publisher(Format.BINARY, LONG_GROUP_COMMIT_INTERVAL_IN_MILLIS, 1024 * 1024)
+        def published = publisher.publish(row(1, "a", 1d)).toCompletableFuture()
+
+        when:
+        publisher.flush()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            published.done
+            !published.completedExceptionally
+        }
+
+        cleanup:
+        publisher.close()
+    }
+
+    def "rotates into a new segment once the active segment is full"() {
+        given:
+        def publisher = publisher(Format.NDJSON, 10, 1024 * 1024, 512)
+
+        when:
+        (1..10).each { publisher.publish(row(it, "x" * 50, 1d)) }
+        publisher.close()
+
+        then:
+        def segments = sealedSegments(Format.NDJSON)
+        segments.size() > 1
+        segments*.fileName*.toString() == (0..<segments.size()).collect { String.format("%020d.ndjson", it) }
+        segments.every { Files.size(it) <= 512 }
+        segments.collectMany { Files.readAllLines(it, UTF_8) }.collect {
+            ObjectMapperFactory.objectMapper().readValue(it, Map).id
+        } == (1..10).toList()
+    }
+
+    def "fails the publish of a row larger than a whole segment"() {
+        given:
+        def publisher = publisher(Format.BINARY, 10, 1024 * 1024, 256)
+
+        when:
+        def published = publisher.publish(row(1, "x" * 300, 1d)).toCompletableFuture()
+        publisher.publish(row(2, "small", 1d)).toCompletableFuture().join()
+
+        then:
+        published.completedExceptionally
+
+        cleanup:
+        publisher.close()
+    }
+
+    def "recovers the complete records of an unsealed segment and continues in a new segment"() {
+        given:
+        def sink = publisher(Format.BINARY)
+        sink.publish(row(1, "a", 1d))
+        sink.publish(row(2, "b", 1d)).toCompletableFuture().join()
+        def unsealed = Files.list(directory).withCloseable { it.toList() }.find { it.toString().endsWith(".open") }
+        def copy = directory.resolve("copy")
+        Files.copy(unsealed, copy)
+        sink.close()
+        Files.delete(sealedSegments(Format.BINARY).first())
+        Files.move(copy, unsealed)
+        tear(unsealed)
+
+        when:
+        def reopened = publisher(Format.BINARY)
+        reopened.publish(row(3, "c", 1d))
+        reopened.close()
+
+        then:
+        def segments = sealedSegments(Format.BINARY)
+        segments*.fileName*.toString() == ["00000000000000000000.bin", "00000000000000000001.bin"]
+        binaryRecords(Files.readAllBytes(segments[0]))*.id == [1L]
+        binaryRecords(Files.readAllBytes(segments[1]))*.id == [3L]
+    }
+
+    private FileSinkPublisher publisher(
+            Format format,
+            long groupCommitIntervalInMillis = 10,
+            long groupCommitBytes = 1024 * 1024,
+            int segmentSizeInBytes = 64 * 1024) {
+        FileSinkPublisher.open(
+                FileSinkConfiguration.builder()
+                        .directory(directory)
+                        .format(format)
+                        .segmentSizeInBytes(segmentSizeInBytes)
+                        .groupCommitIntervalInMillis(groupCommitIntervalInMillis)
+                        .groupCommitBytes(groupCommitBytes)
+                        .build(),
+                ObjectMapperFactory.objectMapper()
+        )
+    }
+
+    private List<Path> sealedSegments(Format format) {
+        Files.list(directory).withCloseable { files ->
+            files.filter { it.fileName.toString().endsWith(format.fileSuffix()) }.sorted().toList()
+        }
+    }
+
+    private List<Map<String, Object>> records(Format format) {
+        def segment = sealedSegments(format).first()
+        if (format == Format.BINARY) {
+            return binaryRecords(Files.readAllBytes(segment))
+        }
+        Files.readAllLines(segment, UTF_8).collect { ObjectMapperFactory.objectMapper().readValue(it, Map) }
+    }
+
+    private static Data key(long id) {
+        new Data(new RowSchema(["id"] as String[], [ColumnType.INTEGER] as ColumnType[]), [Data.UNBOXED] as Object[], [id] as long[])
+    }
+
+    private static Data row(long id, String text, double score) {
+        new Data(
+                SCHEMA,
+                [
+                        Data.UNBOXED,
+                        text,
+                        new BigDecimal("12.50"),
+                        Instant.parse("2023-05-10T10:15:30.123456Z"),
+                        Data.UNBOXED,
+                        Data.UNBOXED,
+                        ObjectMapperFactory.objectMapper().readTree('{"k":[1,2]}')
+                ] as Object[],
+                [id, 0, 0, 0, 1, Double.doubleToRawLongBits(score), 0] as long[]
+        )
+    }
+
+    private static void tear(Path segment) {
+        def bytes = Files.readAllBytes(segment)
+        def firstRecordBytes = ByteBuffer.wrap(bytes).getInt(0)
+        bytes[firstRecordBytes + BinaryRecordEncoder.HEADER_BYTES] ^= 0xFF
+        Files.write(segment, bytes)
+    }
+
+    private static List<Map<String, Object>> binaryRecords(byte[] segment) {
+        def buffer = ByteBuffer.wrap(segment)
+        def records = []
+        while (buffer.remaining() >= BinaryRecordEncoder.HEADER_BYTES && buffer.getInt(buffer.position()) > 0) {
+            def start = buffer.position()
+            def recordBytes = buffer.getInt()
+            def checksum = buffer.getInt()
+            def crc = new CRC32C()
+            crc.update(segment, start + BinaryRecordEncoder.HEADER_BYTES, recordBytes - BinaryRecordEncoder.HEADER_BYTES)
+            assert checksum == (int) crc.value
+            def columns = buffer.getShort()
+            def record = [:]
+            (columns < 0 ? -columns - 1 : columns).times {
+                def name = text(buffer)
+                record[name] = value(buffer)
+            }
+            assert buffer.position() == start + recordBytes
+            records << (columns < 0 ? ['$deleted': record] : record)
+        }
+        records
+    }
+
+    private static Object value(ByteBuffer buffer) {
+        switch (buffer.get()) {
+            case BinaryRecordEncoder.NULL:
+                return null
+            case BinaryRecordEncoder.BOOLEAN:
+                return buffer.get() == 1 as byte
+            case BinaryRecordEncoder.INTEGER:
+                return buffer.getLong()
+            case BinaryRecordEncoder.FLOAT:
+                return buffer.getDouble()
+            default:
+                return text(buffer)
+        }
+    }
+
+    private static String text(ByteBuffer buffer) {
+        def bytes = new byte[buffer.getInt()]
+        buffer.get(bytes)
+        new String(bytes, UTF_8)
+    }
+}
@@ -0,0 +1,58 @@
+package org.huwtl.pgrepl.infrastructure.metrics
+
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+class HttpMetricsExporterTest extends Specification {
+    private def registry = new MetricsRegistry()
+
+    @AutoCleanup
+    private def exporter = new HttpMetricsExporter(registry, 0)
+
+    def "serves metrics in prometheus text format"() {
+        given:
+        registry.counter("pgrepl_rows_published", "rows published").add(5)
+        registry.histogram("pgrepl_publish_latency_nanos", "row publish latency").record(100)
+
+        when:
+        def response = new URL("http://localhost:${exporter.port()}/metrics").openConnection()
+
+        then:
+        response.getHeaderField("Content-Type").startsWith("text/plain")
+        def lines = response.inputStream.text.readLines()
+        lines.contains("# TYPE pgrepl_rows_published_total counter")
+        lines.contains("pgrepl_rows_published_total 5.0")
+        lines.contains("# TYPE pgrepl_publish_latency_nanos_p99 gauge")
+        lines.contains("pgrepl_publish_latency_nanos_p99 100.0")
+    }
+
+    def "labels the metrics of each supervised slot with the slot name"() {
+        given:
+        def first = new MetricsRegistry()
+        def second = new MetricsRegistry()
+        first.counter("pgrepl_rows_published", "rows published").add(1)
+        second.counter("pgrepl_rows_published", "rows published").add(2)
+        def slotsExporter = new HttpMetricsExporter([first: first, second: second], 0)
+
+        when:
+        def lines = new URL("http://localhost:${slotsExporter.port()}/metrics").text.readLines()
+
+        then:
+        lines.count("# TYPE pgrepl_rows_published_total counter") == 1
+        lines.contains('pgrepl_rows_published_total{slot="first"} 1.0')
+        lines.contains('pgrepl_rows_published_total{slot="second"} 2.0')
+
+        cleanup:
+        slotsExporter?.close()
+    }
+
+    def "rejects requests other than GET"() {
+        when:
+        def connection = new URL("http://localhost:${exporter.port()}/metrics").openConnection() as HttpURLConnection
+        connection.requestMethod = "POST"
+
+        then:
+        connection.responseCode == 405
+    }
+}
@@ -0,0 +1,34 @@
+package org.huwtl.pgrepl.infrastructure.metrics
+
+import org.huwtl.pgrepl.application.services.metrics.MetricsRegistry
+import spock.lang.Specification
+
+import javax.management.AttributeNotFoundException
+import javax.management.MBeanServerFactory
+
+class JmxMetricsExporterTest extends Specification {
+    private def registry = new MetricsRegistry()
+    private def mBeanServer = MBeanServerFactory.newMBeanServer()
+
+    def "exposes metrics as read only attributes of a bean named after the slot"() {
+        given:
+        registry.counter("pgrepl_rows_published", "rows published").add(5)
+        def exporter = new JmxMetricsExporter(registry, "some_slot", mBeanServer)
+
+        expect:
+        mBeanServer.getAttribute(exporter.objectName(), "pgrepl_rows_published_total") == 5d
+        mBeanServer.getMBeanInfo(exporter.objectName()).attributes*.name.contains("pgrepl_rows_published_per_second")
+
+        when:
+        mBeanServer.getAttribute(exporter.objectName(), "unknown")
+
+        then:
+        thrown(AttributeNotFoundException)
+
+        when:
+        exporter.close()
+
+        then:
+        !mBeanServer.isRegistered(exporter.objectName())
+    }
+}
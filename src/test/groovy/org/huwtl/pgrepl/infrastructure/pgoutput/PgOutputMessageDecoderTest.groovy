@@ -0,0 +1,283 @@
+package org.huwtl.pgrepl.infrastructure.pgoutput
+
+import org.huwtl.pgrepl.ObjectMapperFactory
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.publisher.ColumnType
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.publisher.RowSchema
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import org.huwtl.pgrepl.application.services.replication.IgnoredMessage
+import org.huwtl.pgrepl.application.services.replication.RowFilter
+import org.huwtl.pgrepl.application.services.replication.RowPredicate
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.time.Instant
+import java.time.LocalDate
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
+
+class PgOutputMessageDecoderTest extends Specification {
+    private static final CapturedTable EVENTS = new CapturedTable("replication_test", "events")
+    private static final long COMMIT_LSN = 0x16B3748
+
+    private def decoder = new PgOutputMessageDecoder(ObjectMapperFactory.objectMapper(), [EVENTS])
+
+    def "decodes captured inserts of a recorded transaction between its boundaries (updates and deletes are ignored)"() {
+        when:
+        def messages = recordedMessages("insert_transaction.hex").collect { decoder.decode(buffer(it), COMMIT_LSN) }
+
+        then:
+        messages.findAll { it instanceof TransactionBegin } == [new TransactionBegin(5678)]
+        messages.findAll { it instanceof TransactionCommit } == [
+                new TransactionCommit(5678, COMMIT_LSN, Instant.parse("2023-05-10T10:15:30.123456Z"))
+        ]
+        def inserts = messages.collectMany { it.capturedInserts() }
+        inserts*.table() == [EVENTS, EVENTS]
+        inserts[0].data().value("id") == 1L
+        inserts[0].data().value("data") == "some data 1"
+        inserts[0].data().value("amount") == new BigDecimal("12.50")
+        inserts[0].data().value("created") == Instant.parse("2023-05-10T10:15:30.123456Z")
+        inserts[0].data().value("active") == true
+        inserts[0].data().value("score") == 1.5d
+        inserts[1].data().value("id") == -2L
+        inserts[1].data().isNull(1)
+        inserts[1].data().value("active") == false
+        (inserts[1].data().value("score") as double).naN
+    }
+
+    def "types columns from the relation message of each captured table"() {
+        when:
+        def messages = recordedMessages("insert_transaction.hex").collect { decoder.decode(buffer(it), COMMIT_LSN) }
+
+        then:
+        def schemas = messages.collectMany { it.capturedInserts() }*.data()*.schema()
+        schemas.unique(false) == [new RowSchema(
+                ["id", "data", "amount", "created", "active", "score"] as String[],
+                [
+                        ColumnType.INTEGER,
+                        ColumnType.TEXT,
+                        ColumnType.NUMERIC,
+                        ColumnType.TIMESTAMP_WITH_TIME_ZONE,
+                        ColumnType.BOOLEAN,
+                        ColumnType.FLOAT
+                ] as ColumnType[]
+        )]
+        schemas[0].is(schemas[1])
+    }
+
+    @Unroll
+    def "decodes #type column text #text into #expectedValue"() {
+        given:
+        decoder.decode(relation(16384, "replication_test", "events", typeOid), anyLsn())
+
+        when:
+        def message = decoder.decode(insert(16384, text), anyLsn())
+
+        then:
+        message.capturedInserts()*.data() == [new Data(new RowSchema(["a"] as String[], [type] as ColumnType[]), [expectedValue] as Object[])]
+
+        where:
+        typeOid | type                | text                                   || expectedValue
+        25      | ColumnType.TEXT     | "ünïcödé"                              || "ünïcödé"
+        1700    | ColumnType.NUMERIC  | "NaN"                                  || "NaN"
+        2950    | ColumnType.UUID     | "8f3b2d1e-0c4a-4b5e-9f6d-7a8b9c0d1e2f" || UUID.fromString("8f3b2d1e-0c4a-4b5e-9f6d-7a8b9c0d1e2f")
+        1082    | ColumnType.DATE     | "2023-05-10"                           || LocalDate.parse("2023-05-10")
+        1082    | ColumnType.DATE     | "infinity"                             || LocalDate.MAX
+        3802    | ColumnType.JSON     | '{"k":1}'                              || ObjectMapperFactory.objectMapper().readTree('{"k":1}')
+        600     | ColumnType.OTHER    | "(1,2)"                                || "(1,2)"
+    }
+
+    def "counts column values published as text because they cannot be parsed as their column type"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        def counting = new PgOutputMessageDecoder(ObjectMapperFactory.objectMapper(), [EVENTS], false, RowFilter.NONE, metrics)
+        counting.decode(relation(16384, "replication_test", "events", 1082), anyLsn())
+
+        when:
+        def messages = ["2023-05-10", "0044-03-15 BC", "0044-03-16 BC"].collect { counting.decode(insert(16384, it), anyLsn()) }
+
+        then:
+        messages.collectMany { it.capturedInserts() }*.data()*.value(0) == [LocalDate.parse("2023-05-10"), "0044-03-15 BC", "0044-03-16 BC"]
+        metrics.registry().samples().find { it.name() == "pgrepl_unparsed_values_total" }.value() == 2
+    }
+
+    def "matches relations to captured tables regardless of case and ignores inserts into other relations"() {
+        given:
+        def decoder = new PgOutputMessageDecoder(ObjectMapperFactory.objectMapper(), [new CapturedTable("Replication_Test", "EVENTS")])
+        decoder.decode(relation(1, "replication_test", "events", 25), anyLsn())
+        decoder.decode(relation(2, "replication_test", "other", 25), anyLsn())
+
+        expect:
+        decoder.decode(insert(1, "a"), anyLsn()).capturedInserts()*.table() == [new CapturedTable("Replication_Test", "EVENTS")]
+        decoder.decode(insert(2, "a"), anyLsn()).is(IgnoredMessage.INSTANCE)
+        decoder.decode(insert(3, "a"), anyLsn()).is(IgnoredMessage.INSTANCE)
+    }
+
+    @Unroll
+    def "decodes only the remaining bytes of a #description buffer"() {
+        given:
+        decoder.decode(relation(16384, "replication_test", "events", 25), anyLsn())
+        def payload = insert(16384, "a").array()
+
+        expect:
+        decoder.decode(bufferFactory(payload), anyLsn()).capturedInserts()*.data()*.value(0) == ["a"]
+
+        where:
+        description       | bufferFactory
+        "positioned heap" | { byte[] bytes -> ByteBuffer.allocate(bytes.length + 2).put([7, 7] as byte[]).put(bytes).flip().position(2) }
+        "sliced heap"     | { byte[] bytes -> ByteBuffer.allocate(bytes.length + 2).put([7, 7] as byte[]).put(bytes).flip().position(2).slice() }
+        "direct"          | { byte[] bytes -> ByteBuffer.allocateDirect(bytes.length).put(bytes).flip() }
+    }
+
+    def "decodes updates with their old key and deletes only when capturing them"() {
+        given:
+        def capturing = new PgOutputMessageDecoder(ObjectMapperFactory.objectMapper(), [EVENTS], true)
+        [capturing, decoder].each { it.decode(relation(16384, "replication_test", "events", 20), anyLsn()) }
+        def schema = new RowSchema(["a"] as String[], [ColumnType.INTEGER] as ColumnType[])
+
+        expect:
+        capturing.decode(update(16384, "1", "2"), anyLsn()) == new CapturedUpdate(EVENTS, integer(schema, 1), integer(schema, 2))
+        capturing.decode(update(16384, null, "2"), anyLsn()) == new CapturedUpdate(EVENTS, null, integer(schema, 2))
+        capturing.decode(delete(16384, "2"), anyLsn()) == new CapturedDelete(EVENTS, integer(schema, 2))
+        decoder.decode(update(16384, "1", "2"), anyLsn()).is(IgnoredMessage.INSTANCE)
+        decoder.decode(delete(16384, "2"), anyLsn()).is(IgnoredMessage.INSTANCE)
+    }
+
+    def "skips the leading changes of a transaction already published according to a checkpoint"() {
+        given:
+        decoder.decode(relation(16384, "replication_test", "events", 25), anyLsn())
+        decoder.skipChanges(42, 2)
+
+        when:
+        def otherTransaction = [begin(41), insert(16384, "a")].collect { decoder.decode(it, anyLsn()) }
+        def checkpointedTransaction = [begin(42), insert(16384, "b"), insert(16384, "c"), insert(16384, "d")]
+                .collect { decoder.decode(it, anyLsn()) }
+        def replayedTransaction = [begin(42), insert(16384, "e")].collect { decoder.decode(it, anyLsn()) }
+
+        then:
+        otherTransaction.collectMany { it.capturedInserts() }*.data()*.value(0) == ["a"]
+        checkpointedTransaction[0] == new TransactionBegin(42)
+        checkpointedTransaction.collectMany { it.capturedInserts() }*.data()*.value(0) == ["d"]
+        replayedTransaction.collectMany { it.capturedInserts() }*.data()*.value(0) == ["e"]
+    }
+
+    def "only materialises rows matching the row predicate of their table"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        def rowFilter = new RowFilter([(EVENTS): RowPredicate.parse("a IN (2, 3)")], metrics)
+        def filtering = new PgOutputMessageDecoder(ObjectMapperFactory.objectMapper(), [EVENTS], true, rowFilter, metrics)
+        filtering.decode(relation(16384, "replication_test", "events", 20), anyLsn())
+        def schema = new RowSchema(["a"] as String[], [ColumnType.INTEGER] as ColumnType[])
+
+        expect:
+        filtering.decode(insert(16384, "1"), anyLsn()).is(IgnoredMessage.INSTANCE)
+        filtering.decode(insert(16384, "2"), anyLsn()).capturedInserts()*.data() == [integer(schema, 2)]
+        filtering.decode(update(16384, "2", "4"), anyLsn()).is(IgnoredMessage.INSTANCE)
+        filtering.decode(update(16384, "4", "3"), anyLsn()) == new CapturedUpdate(EVENTS, integer(schema, 4), integer(schema, 3))
+        filtering.decode(delete(16384, "1"), anyLsn()).is(IgnoredMessage.INSTANCE)
+        metrics.registry().samples().find { it.name() == "pgrepl_rows_accepted_total" }.value() == 2
+    }
+
+    def "rejects truncated messages"() {
+        given:
+        decoder.decode(relation(16384, "replication_test", "events", 25), anyLsn())
+        def bytes = insert(16384, "truncated").array()
+
+        when:
+        decoder.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 3), anyLsn())
+
+        then:
+        thrown(IOException)
+    }
+
+    private static ByteBuffer begin(int xid) {
+        ByteBuffer.allocate(1 + 8 + 8 + 4)
+                .put("B" as char as byte)
+                .putLong(COMMIT_LSN)
+                .putLong(0L)
+                .putInt(xid)
+                .flip()
+    }
+
+    private static ByteBuffer relation(int relationId, String schema, String table, int typeOid) {
+        def schemaBytes = schema.bytes
+        def tableBytes = table.bytes
+        ByteBuffer.allocate(1 + 4 + schemaBytes.length + 1 + tableBytes.length + 1 + 1 + 2 + 1 + 2 + 4 + 4)
+                .put("R" as char as byte)
+                .putInt(relationId)
+                .put(schemaBytes).put(0 as byte)
+                .put(tableBytes).put(0 as byte)
+                .put("d" as char as byte)
+                .putShort(1 as short)
+                .put(0 as byte)
+                .put("a".bytes).put(0 as byte)
+                .putInt(typeOid)
+                .putInt(-1)
+                .flip()
+    }
+
+    private static ByteBuffer insert(int relationId, String text) {
+        def textBytes = text.getBytes("UTF-8")
+        ByteBuffer.allocate(1 + 4 + 1 + 2 + 1 + 4 + textBytes.length)
+                .put("I" as char as byte)
+                .putInt(relationId)
+                .put("N" as char as byte)
+                .putShort(1 as short)
+                .put("t" as char as byte)
+                .putInt(textBytes.length)
+                .put(textBytes)
+                .flip()
+    }
+
+    private static ByteBuffer update(int relationId, String oldKey, String text) {
+        def oldKeyTuple = oldKey != null ? tuple("K", oldKey) : new byte[0]
+        def newTuple = tuple("N", text)
+        ByteBuffer.allocate(1 + 4 + oldKeyTuple.length + newTuple.length)
+                .put("U" as char as byte)
+                .putInt(relationId)
+                .put(oldKeyTuple)
+                .put(newTuple)
+                .flip()
+    }
+
+    private static ByteBuffer delete(int relationId, String key) {
+        def keyTuple = tuple("K", key)
+        ByteBuffer.allocate(1 + 4 + keyTuple.length)
+                .put("D" as char as byte)
+                .putInt(relationId)
+                .put(keyTuple)
+                .flip()
+    }
+
+    private static byte[] tuple(String kind, String text) {
+        def textBytes = text.getBytes("UTF-8")
+        ByteBuffer.allocate(1 + 2 + 1 + 4 + textBytes.length)
+                .put(kind as char as byte)
+                .putShort(1 as short)
+                .put("t" as char as byte)
+                .putInt(textBytes.length)
+                .put(textBytes)
+                .array()
+    }
+
+    private static Data integer(RowSchema schema, long value) {
+        new Data(schema, [Data.UNBOXED] as Object[], [value] as long[])
+    }
+
+    private static List<String> recordedMessages(String fixture) {
+        PgOutputMessageDecoderTest.getResourceAsStream("/pgoutput/$fixture").readLines("UTF-8")
+    }
+
+    private static ByteBuffer buffer(String hex) {
+        ByteBuffer.wrap(hex.decodeHex())
+    }
+
+    private static long anyLsn() {
+        0L
+    }
+}
@@ -4,6 +4,7 @@ import groovy.sql.Sql
 import org.huwtl.pgrepl.DatabaseConfiguration
 import org.huwtl.pgrepl.ReplicationConfiguration
 import org.huwtl.pgrepl.application.services.consumer.ChangeDataCaptureConsumer
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
 import org.huwtl.pgrepl.application.services.publisher.Data
 import org.huwtl.pgrepl.application.services.publisher.ExceptionThrowingPublisher
 import org.huwtl.pgrepl.application.services.publisher.InMemoryPublishedDataStore
@@ -73,8 +74,7 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         databaseConfig = database.configuration()
         replicationConfig = ReplicationConfiguration.builder()
                 .slotName(REPLICATION_SLOT_NAME)
-                .schemaNameToDetectChangesFrom(SCHEMA_NAME)
-                .tableNameToDetectChangesFrom(TABLE_NAME)
+                .tableToDetectChangesFrom(SCHEMA_NAME, TABLE_NAME)
                 .statusIntervalInMillis(1)
                 .pollingIntervalInMillis(1)
                 .build()
@@ -115,16 +115,31 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         where:
         numberOfInserts || published
         0               || []
-        1               || [new Data(id: 0, data: "some data 0")]
+        1               || [new Data(id: 0L, data: "some data 0")]
         5               || [
-                new Data(id: 0, data: "some data 0"),
-                new Data(id: 1, data: "some data 1"),
-                new Data(id: 2, data: "some data 2"),
-                new Data(id: 3, data: "some data 3"),
-                new Data(id: 4, data: "some data 4")
+                new Data(id: 0L, data: "some data 0"),
+                new Data(id: 1L, data: "some data 1"),
+                new Data(id: 2L, data: "some data 2"),
+                new Data(id: 3L, data: "some data 3"),
+                new Data(id: 4L, data: "some data 4")
         ]
     }
 
+    def "consumes each insert of a multi-row transaction as its own change"() {
+        when:
+        sql.withTransaction {
+            100.times {
+                sql.executeInsert(INSERT_SQL, [it, "some data $it" as String])
+            }
+        }
+
+        then:
+        new PollingConditions(timeout: ASYNC_ASSERTION_TIMEOUT_IN_SECS).eventually {
+            walBytesRemainingToConsume() == 0
+            inMemoryPublisher.published() == (0..<100).collect { new Data(id: it as long, data: "some data $it") }
+        }
+    }
+
     def "does not skip publishing changed data that failed to be published"() {
         given:
         exceptionThrowingPublisher.willThrowException()
@@ -143,7 +158,7 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         new PollingConditions(timeout: ASYNC_ASSERTION_TIMEOUT_IN_SECS).eventually {
             walBytesRemainingToConsume() == 0
             inMemoryPublisher.published() == [
-                    new Data(id: 2, data: "stuff 2")
+                    new Data(id: 2L, data: "stuff 2")
             ]
         }
     }
@@ -172,7 +187,7 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         new PollingConditions(timeout: ASYNC_ASSERTION_TIMEOUT_IN_SECS).eventually {
             walBytesRemainingToConsume() == 0
             inMemoryPublisher.published() == [
-                    new Data(id: 1, data: "stuff")
+                    new Data(id: 1L, data: "stuff")
             ]
         }
     }
@@ -194,7 +209,7 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         then:
         new PollingConditions(timeout: ASYNC_ASSERTION_TIMEOUT_IN_SECS).eventually {
             walBytesRemainingToConsume() == 0
-            inMemoryPublisher.published() == [new Data(id: 1, data: "some data 1")]
+            inMemoryPublisher.published() == [new Data(id: 1L, data: "some data 1")]
         }
 
         cleanup:
@@ -276,7 +291,7 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         then:
         new PollingConditions(timeout: ASYNC_ASSERTION_TIMEOUT_IN_SECS).eventually {
             walBytesRemainingToConsume() == 0
-            inMemoryPublisher.published() == [new Data(id: 1, data: "stuff 1")]
+            inMemoryPublisher.published() == [new Data(id: 1L, data: "stuff 1")]
         }
     }
 
@@ -305,7 +320,7 @@ class PostgresChangeDataCaptureConsumerIntegrationTest extends Specification {
         def consumer = new ChangeDataCaptureConsumer(
                 exceptionThrowingPublisher,
                 replicationConfig,
-                { new PostgresReplicationStream(databaseConfig, replicationConfig) }
+                new PostgresReplicationSlot(databaseConfig, replicationConfig, new ReplicationMetrics())
         ).tap {
             it.start()
         }
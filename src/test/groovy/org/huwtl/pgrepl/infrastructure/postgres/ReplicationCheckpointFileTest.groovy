@@ -0,0 +1,110 @@
+package org.huwtl.pgrepl.infrastructure.postgres
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ReplicationCheckpointFileTest extends Specification {
+    private static final long WRITE_IMMEDIATELY = 0
+    private static final long WRITE_RARELY = 60_000
+
+    @TempDir
+    private Path directory
+
+    def "starts without a checkpoint when the file does not exist"() {
+        when:
+        def checkpoint = ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY)
+
+        then:
+        checkpoint.commitLsn() == 0
+        checkpoint.xid() == 0
+        checkpoint.publishedChanges() == 0
+    }
+
+    def "recovers the last acknowledged commit and the progress of the transaction after it"() {
+        given:
+        def checkpoint = ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY)
+        checkpoint.acknowledged(100)
+        checkpoint.progressed(42, 10)
+
+        when:
+        def recovered = ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY)
+
+        then:
+        recovered.commitLsn() == 100
+        recovered.xid() == 42
+        recovered.publishedChanges() == 10
+    }
+
+    def "never moves backwards and forgets the progress of a transaction once a later commit is acknowledged"() {
+        given:
+        def checkpoint = ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY)
+        checkpoint.acknowledged(200)
+        checkpoint.progressed(42, 10)
+
+        when:
+        checkpoint.acknowledged(100)
+        checkpoint.progressed(42, 5)
+
+        then:
+        checkpoint.commitLsn() == 200
+        checkpoint.publishedChanges() == 10
+
+        when:
+        checkpoint.acknowledged(300)
+
+        then:
+        checkpoint.commitLsn() == 300
+        checkpoint.xid() == 0
+        checkpoint.publishedChanges() == 0
+    }
+
+    def "defers writing until the write interval elapses unless flushed"() {
+        given:
+        def checkpoint = ReplicationCheckpointFile.open(file(), WRITE_RARELY)
+
+        when:
+        checkpoint.acknowledged(100)
+
+        then:
+        ReplicationCheckpointFile.open(file(), WRITE_RARELY).commitLsn() == 0
+
+        when:
+        checkpoint.flush()
+
+        then:
+        ReplicationCheckpointFile.open(file(), WRITE_RARELY).commitLsn() == 100
+    }
+
+    def "resets the checkpoint of a slot that was created again"() {
+        given:
+        def checkpoint = ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY)
+        checkpoint.acknowledged(100)
+        checkpoint.progressed(42, 10)
+
+        when:
+        checkpoint.reset()
+        def recovered = ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY)
+
+        then:
+        recovered.commitLsn() == 0
+        recovered.publishedChanges() == 0
+    }
+
+    def "ignores a corrupt checkpoint so changes are published again rather than skipped"() {
+        given:
+        ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY).acknowledged(100)
+        def bytes = Files.readAllBytes(file())
+        bytes[0] ^= 1
+        Files.write(file(), bytes)
+
+        expect:
+        ReplicationCheckpointFile.open(file(), WRITE_IMMEDIATELY).commitLsn() == 0
+    }
+
+    private Path file() {
+        directory.resolve("slot.checkpoint")
+    }
+}
@@ -0,0 +1,155 @@
+package org.huwtl.pgrepl.infrastructure.replay
+
+import org.huwtl.pgrepl.ReplicationConfiguration
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
+
+class ReplayReplicationStreamTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events")
+    private static final long FIRST_LSN = 0x1000000
+
+    @TempDir
+    private Path directory
+
+    private def metrics = new ReplicationMetrics()
+    private def replicationConfig = ReplicationConfiguration.builder()
+            .slotName("replay")
+            .tableToDetectChangesFrom(TABLE)
+            .build()
+
+    def "replays generated transactions flat out, advancing the lsn by each message size and looping over the file"() {
+        given:
+        def file = directory.resolve("messages.ndjson")
+        Wal2JsonMessageGenerator.write(file, [TABLE], 2, 3, 4)
+        def messageSizes = file.readLines("UTF-8")*.getBytes(UTF_8)*.length
+        def stream = provider(file, 0, 0).openedReplicationStream()
+
+        when:
+        def messages = (1..12).collect { next(stream) }
+
+        then:
+        messages.collect { it.class } == [
+                TransactionBegin, CapturedInsert, CapturedInsert, CapturedInsert, TransactionCommit,
+                TransactionBegin, CapturedInsert, CapturedInsert, CapturedInsert, TransactionCommit,
+                TransactionBegin, CapturedInsert
+        ]
+        messages[4].commitLsn() == FIRST_LSN + messageSizes[0..4].sum()
+        messages[9].commitLsn() == FIRST_LSN + messageSizes.sum()
+        (messages[1] as CapturedInsert).data().size() == 4
+    }
+
+    def "mixes in keepalives between transactions"() {
+        given:
+        def file = file('{"action":"B","xid":1}', '{"action":"C","xid":1}')
+        def stream = provider(file, 0, 1).openedReplicationStream()
+
+        when:
+        def begin = next(stream)
+        while (begin instanceof Keepalive) {
+            begin = next(stream)
+        }
+        Thread.sleep(5)
+        def commit = next(stream)
+        Thread.sleep(5)
+        def keepalive = next(stream)
+
+        then:
+        begin instanceof TransactionBegin
+        commit instanceof TransactionCommit
+        keepalive == new Keepalive((commit as TransactionCommit).commitLsn())
+    }
+
+    def "holds back messages until they are due at the configured rate"() {
+        given:
+        def file = file('{"action":"B","xid":1}', '{"action":"C","xid":1}')
+        def stream = provider(file, 1, 0).openedReplicationStream()
+
+        expect:
+        next(stream) instanceof TransactionBegin
+        next(stream) == null
+    }
+
+    def "records rows and end-to-end latency once transactions are acknowledged"() {
+        given:
+        def file = directory.resolve("messages.ndjson")
+        Wal2JsonMessageGenerator.write(file, [TABLE], 2, 5, 2)
+        def provider = provider(file, 0, 0)
+        def stream = provider.openedReplicationStream()
+        def commits = (1..14).collect { next(stream) }.findAll { it instanceof TransactionCommit }
+
+        when:
+        stream.acknowledge(commits[0].commitLsn())
+
+        then:
+        provider.statistics().rowsAcknowledged() == 5
+        provider.statistics().transactionsAcknowledged() == 1
+        provider.statistics().endToEndLatencyNanos().count() == 1
+
+        when:
+        stream.acknowledge(commits[1].commitLsn())
+
+        then:
+        provider.statistics().rowsAcknowledged() == 10
+        provider.statistics().transactionsAcknowledged() == 2
+    }
+
+    def "continues from the last lsn when the stream is reopened"() {
+        given:
+        def file = file('{"action":"B","xid":1}', '{"action":"C","xid":1}')
+        def provider = provider(file, 0, 0)
+        def firstStream = provider.openedReplicationStream()
+        next(firstStream)
+        def firstCommit = next(firstStream) as TransactionCommit
+
+        when:
+        def secondStream = provider.openedReplicationStream()
+        next(secondStream)
+        def secondCommit = next(secondStream) as TransactionCommit
+
+        then:
+        secondCommit.commitLsn() > firstCommit.commitLsn()
+    }
+
+    def "rejects a file without messages to replay"() {
+        when:
+        provider(file(), 0, 0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private ReplayReplicationStreamProvider provider(Path file, long messagesPerSecond, long keepaliveIntervalInMillis) {
+        new ReplayReplicationStreamProvider(
+                ReplayConfiguration.builder()
+                        .messagesFile(file)
+                        .messagesPerSecond(messagesPerSecond)
+                        .keepaliveIntervalInMillis(keepaliveIntervalInMillis)
+                        .build(),
+                replicationConfig,
+                metrics
+        )
+    }
+
+    private Path file(String... lines) {
+        def file = directory.resolve("messages.ndjson")
+        file.write(lines.join("\n"), "UTF-8")
+        file
+    }
+
+    private static ChangeDataCaptureMessage next(stream) {
+        ChangeDataCaptureMessage received = null
+        stream.processNextChangeDataCaptureMessage({ received = it }, {})
+        received
+    }
+}
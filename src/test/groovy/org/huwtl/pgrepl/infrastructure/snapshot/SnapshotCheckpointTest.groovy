@@ -0,0 +1,116 @@
+package org.huwtl.pgrepl.infrastructure.snapshot
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static java.nio.file.StandardOpenOption.APPEND
+
+class SnapshotCheckpointTest extends Specification {
+    private static final CapturedTable EVENTS = new CapturedTable("public", "events")
+    private static final CapturedTable AUDIT = new CapturedTable("audit", "log")
+
+    @TempDir
+    private Path directory
+
+    def "starts unstarted without a checkpoint file"() {
+        when:
+        def checkpoint = SnapshotCheckpoint.open(file())
+
+        then:
+        !checkpoint.started()
+        !checkpoint.planned()
+        !checkpoint.finished()
+        checkpoint.remainingChunks() == []
+
+        cleanup:
+        checkpoint.close()
+    }
+
+    def "resumes the chunks not yet published after reopening"() {
+        given:
+        def chunks = SnapshotChunk.keyRanges(0, EVENTS, "id", 1, 30, 30, 10) + SnapshotChunk.pageRanges(3, AUDIT, 5, 5)
+        SnapshotCheckpoint.open(file()).withCloseable {
+            it.start("slot")
+            it.plan(chunks)
+            it.published(chunks[1])
+            it.published(chunks[3])
+        }
+
+        when:
+        def checkpoint = SnapshotCheckpoint.open(file())
+
+        then:
+        checkpoint.started()
+        checkpoint.planned()
+        !checkpoint.finished()
+        checkpoint.plannedChunks() == 4
+        checkpoint.remainingChunks() == [chunks[0], chunks[2]]
+
+        cleanup:
+        checkpoint.close()
+    }
+
+    def "ignores a torn last line and keeps appending after it"() {
+        given:
+        def chunks = SnapshotChunk.keyRanges(0, EVENTS, "id", 1, 20, 20, 10)
+        SnapshotCheckpoint.open(file()).withCloseable {
+            it.start("slot")
+            it.plan(chunks)
+        }
+        Files.writeString(file(), "published\t", UTF_8, APPEND)
+
+        when:
+        SnapshotCheckpoint.open(file()).withCloseable { it.published(chunks[0]) }
+        def checkpoint = SnapshotCheckpoint.open(file())
+
+        then:
+        checkpoint.remainingChunks() == [chunks[1]]
+
+        cleanup:
+        checkpoint.close()
+    }
+
+    def "discards a plan that was not completely written"() {
+        given:
+        SnapshotCheckpoint.open(file()).withCloseable { it.start("slot") }
+        Files.writeString(file(), "chunk\t0\tpublic\tevents\tid\t1\t10\n", UTF_8, APPEND)
+
+        when:
+        def checkpoint = SnapshotCheckpoint.open(file())
+
+        then:
+        checkpoint.started()
+        !checkpoint.planned()
+        checkpoint.plannedChunks() == 0
+
+        cleanup:
+        checkpoint.close()
+    }
+
+    def "starting again forgets the previous plan and a finished snapshot stays finished"() {
+        given:
+        SnapshotCheckpoint.open(file()).withCloseable {
+            it.start("slot")
+            it.plan(SnapshotChunk.keyRanges(0, EVENTS, "id", 1, 20, 20, 10))
+            it.start("slot")
+        }
+
+        expect:
+        SnapshotCheckpoint.open(file()).withCloseable { !it.planned() && it.started() }
+
+        when:
+        SnapshotCheckpoint.open(file()).withCloseable { it.finish() }
+
+        then:
+        SnapshotCheckpoint.open(file()).withCloseable { it.finished() }
+    }
+
+    private Path file() {
+        directory.resolve("slot.snapshot")
+    }
+}
@@ -0,0 +1,68 @@
+package org.huwtl.pgrepl.infrastructure.snapshot
+
+import org.huwtl.pgrepl.ObjectMapperFactory
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.publisher.AsyncPublisher
+import org.huwtl.pgrepl.application.services.publisher.ColumnType
+import org.huwtl.pgrepl.application.services.publisher.InMemoryPublishedDataStore
+import org.huwtl.pgrepl.application.services.publisher.RowSchema
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import org.huwtl.pgrepl.application.services.replication.RowFilter
+import org.huwtl.pgrepl.application.services.replication.RowPredicate
+import org.huwtl.pgrepl.infrastructure.postgres.UnparsedValues
+import spock.lang.Specification
+
+import java.sql.Connection
+import java.sql.ResultSet
+import java.sql.Statement
+
+class SnapshotChunkReaderTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events")
+    private static final RowSchema SCHEMA = new RowSchema(["id", "name"] as String[], [ColumnType.INTEGER, ColumnType.TEXT] as ColumnType[])
+
+    def "publishes only the snapshot rows accepted by the row predicate of their table"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        def rowFilter = new RowFilter([(TABLE): RowPredicate.parse("id > 1 AND name <> 'c'")], metrics)
+        def table = new SnapshotTable(TABLE, SCHEMA, "id", rowFilter.evaluator(TABLE, SCHEMA))
+        def store = new InMemoryPublishedDataStore()
+        def reader = new SnapshotChunkReader(ObjectMapperFactory.objectMapper(), 10, 10, new UnparsedValues(new ReplicationMetrics()))
+
+        when:
+        def rows = reader.publish(connection([[1, "a"], [2, "b"], [3, "c"]]), table, new SnapshotChunk(0, TABLE, "id", 1, 3), AsyncPublisher.blocking(store))
+
+        then:
+        rows == 1
+        store.published()*.toString() == ["Data{id=2, name=b}"]
+    }
+
+    def "publishes every snapshot row of a table without a row predicate"() {
+        given:
+        def table = new SnapshotTable(TABLE, SCHEMA, "id", RowFilter.NONE.evaluator(TABLE, SCHEMA))
+        def store = new InMemoryPublishedDataStore()
+        def reader = new SnapshotChunkReader(ObjectMapperFactory.objectMapper(), 10, 10, new UnparsedValues(new ReplicationMetrics()))
+
+        when:
+        def rows = reader.publish(connection([[1, "a"], [2, "b"]]), table, new SnapshotChunk(0, TABLE, "id", 1, 2), AsyncPublisher.blocking(store))
+
+        then:
+        rows == 2
+        store.published()*.toString() == ["Data{id=1, name=a}", "Data{id=2, name=b}"]
+    }
+
+    private Connection connection(List<List<Object>> rows) {
+        def row = -1
+        def resultSet = Stub(ResultSet) {
+            next() >> { ++row < rows.size() }
+            getLong(1) >> { rows[row][0] as long }
+            getString(2) >> { rows[row][1] }
+            wasNull() >> false
+        }
+        def statement = Stub(Statement) {
+            executeQuery(_) >> resultSet
+        }
+        return Stub(Connection) {
+            createStatement() >> statement
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.huwtl.pgrepl.infrastructure.snapshot
+
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class SnapshotChunkTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events")
+
+    @Unroll
+    def "splits keys #min to #max of about #estimatedRows rows into inclusive ranges of about #chunkRows rows"() {
+        expect:
+        SnapshotChunk.keyRanges(3, TABLE, "id", min, max, estimatedRows, chunkRows).collect { [it.lowerBound(), it.upperBound()] } == expectedRanges
+
+        where:
+        min | max       | estimatedRows | chunkRows || expectedRanges
+        1   | 10        | 10            | 4         || [[1, 4], [5, 8], [9, 10]]
+        1   | 8         | 8             | 4         || [[1, 4], [5, 8]]
+        -5  | -5        | 1             | 100       || [[-5, -5]]
+        0   | 2         | 3             | 1         || [[0, 0], [1, 1], [2, 2]]
+        1   | 1_000_000 | 10            | 5         || [[1, 500_000], [500_001, 1_000_000]]
+        1   | 1_000_000 | 10            | 100       || [[1, 1_000_000]]
+        1   | 10        | 0             | 4         || [[1, 4], [5, 8], [9, 10]]
+    }
+
+    def "numbers chunks from the first index"() {
+        expect:
+        SnapshotChunk.keyRanges(3, TABLE, "id", 1, 10, 10, 4)*.index() == [3, 4, 5]
+        SnapshotChunk.pageRanges(6, TABLE, 10, 4)*.index() == [6, 7, 8]
+    }
+
+    def "does not overflow when the largest key is the largest long"() {
+        expect:
+        SnapshotChunk.keyRanges(0, TABLE, "id", Long.MAX_VALUE - 5, Long.MAX_VALUE, 0, 4).collect { [it.lowerBound(), it.upperBound()] } == [
+                [Long.MAX_VALUE - 5, Long.MAX_VALUE - 2],
+                [Long.MAX_VALUE - 1, Long.MAX_VALUE]
+        ]
+    }
+
+    @Unroll
+    def "does not overflow when keys span every long split into #estimatedRows chunks"() {
+        expect:
+        SnapshotChunk.keyRanges(0, TABLE, "id", Long.MIN_VALUE, Long.MAX_VALUE, estimatedRows, 1).collect { [it.lowerBound(), it.upperBound()] } == expectedRanges
+
+        where:
+        estimatedRows || expectedRanges
+        1             || [[Long.MIN_VALUE, Long.MAX_VALUE]]
+        2             || [[Long.MIN_VALUE, -1], [0, Long.MAX_VALUE]]
+    }
+
+    def "splits pages into half open ranges and plans nothing for an empty table"() {
+        expect:
+        SnapshotChunk.pageRanges(0, TABLE, 10, 4).collect { [it.lowerBound(), it.upperBound()] } == [[0, 4], [4, 8], [8, 10]]
+        SnapshotChunk.pageRanges(0, TABLE, 0, 4) == []
+    }
+
+    def "selects a key range by its quoted key column and a page range by ctid"() {
+        expect:
+        new SnapshotChunk(0, TABLE, "Id", 1, 4).predicate() == '"Id" BETWEEN 1 AND 4'
+        new SnapshotChunk(0, TABLE, null, 4, 8).predicate() == "ctid >= '(4,0)'::tid AND ctid < '(8,0)'::tid"
+    }
+}
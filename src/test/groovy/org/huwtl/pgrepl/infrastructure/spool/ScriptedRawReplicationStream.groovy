@@ -0,0 +1,65 @@
+package org.huwtl.pgrepl.infrastructure.spool
+
+import org.huwtl.pgrepl.application.services.replication.RawReplicationStream
+
+import java.nio.ByteBuffer
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.function.LongConsumer
+
+import static java.nio.charset.StandardCharsets.UTF_8
+
+class ScriptedRawReplicationStream implements RawReplicationStream {
+    private final Deque<Closure<Boolean>> script = new ArrayDeque<>()
+    private final Closure onExhausted
+    final List<Long> acknowledgedLsns = new CopyOnWriteArrayList<>()
+
+    ScriptedRawReplicationStream(Closure onExhausted = {}) {
+        this.onExhausted = onExhausted
+    }
+
+    ScriptedRawReplicationStream message(long lsn, String json) {
+        script.addLast({ RawMessageHandler onMessage, LongConsumer onKeepalive ->
+            onMessage.accept(ByteBuffer.wrap(json.getBytes(UTF_8)), lsn)
+            true
+        })
+        this
+    }
+
+    ScriptedRawReplicationStream keepalive(long lsn) {
+        script.addLast({ RawMessageHandler onMessage, LongConsumer onKeepalive ->
+            onKeepalive.accept(lsn)
+            true
+        })
+        this
+    }
+
+    ScriptedRawReplicationStream idle() {
+        script.addLast({ RawMessageHandler onMessage, LongConsumer onKeepalive -> false })
+        this
+    }
+
+    ScriptedRawReplicationStream failure() {
+        script.addLast({ RawMessageHandler onMessage, LongConsumer onKeepalive ->
+            throw new IOException("connection lost")
+        })
+        this
+    }
+
+    @Override
+    boolean processNextRawMessage(RawMessageHandler onMessage, LongConsumer onKeepalive) {
+        if (script.isEmpty()) {
+            onExhausted.call()
+            return false
+        }
+        script.removeFirst().call(onMessage, onKeepalive)
+    }
+
+    @Override
+    void acknowledge(long lsn) {
+        acknowledgedLsns << lsn
+    }
+
+    @Override
+    void close() {
+    }
+}
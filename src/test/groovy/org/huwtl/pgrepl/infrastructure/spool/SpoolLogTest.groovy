@@ -0,0 +1,207 @@
+package org.huwtl.pgrepl.infrastructure.spool
+
+import org.huwtl.pgrepl.ReplicationConfiguration
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.ChangeDataCaptureMessage
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
+import static org.huwtl.pgrepl.infrastructure.spool.SpoolRecordKind.CHANGE
+import static org.huwtl.pgrepl.infrastructure.spool.SpoolRecordKind.KEEPALIVE
+import static org.huwtl.pgrepl.infrastructure.spool.SpoolRecordKind.TRANSACTION_BEGIN
+import static org.huwtl.pgrepl.infrastructure.spool.SpoolRecordKind.TRANSACTION_COMMIT
+
+class SpoolLogTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events")
+
+    @TempDir
+    private Path directory
+
+    private def replicationConfig = ReplicationConfiguration.builder()
+            .slotName("spool")
+            .tableToDetectChangesFrom(TABLE)
+            .build()
+
+    def "spooled changes are readable once their transaction is complete and synced"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig())
+        def stream = reader(spoolLog)
+
+        when:
+        appendTransaction(spoolLog, 1, 10, 1)
+
+        then:
+        readAll(stream) == []
+
+        when:
+        spoolLog.sync()
+
+        then:
+        readAll(stream) == [new TransactionBegin(1), insert(1), new TransactionCommit(1, 10, null)]
+
+        when:
+        spoolLog.append(20, TRANSACTION_BEGIN, begin(2))
+        spoolLog.append(21, CHANGE, insertMessage(2))
+        spoolLog.sync()
+
+        then:
+        readAll(stream) == []
+        spoolLog.lastSpooledLsn() == 10
+    }
+
+    def "rotates to new segments when full and reads across them"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig(256))
+        def stream = reader(spoolLog)
+
+        when:
+        (1..5).each { appendTransaction(spoolLog, it, it * 10, it) }
+        spoolLog.sync()
+
+        then:
+        segmentFiles().size() > 1
+        readAll(stream).findAll { it instanceof CapturedInsert }*.data() == (1..5).collect { insert(it).data() }
+    }
+
+    def "recovery discards an incomplete trailing transaction and continues after the last completed one"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig())
+        appendTransaction(spoolLog, 1, 10, 1)
+        spoolLog.append(20, TRANSACTION_BEGIN, begin(2))
+        spoolLog.append(21, CHANGE, insertMessage(2))
+        spoolLog.sync()
+
+        when:
+        def recovered = SpoolLog.open(spoolConfig())
+        appendTransaction(recovered, 3, 30, 3)
+        recovered.sync()
+
+        then:
+        recovered.lastSpooledLsn() == 30
+        readAll(reader(recovered)).findAll { it instanceof CapturedInsert }*.data() == [insert(1).data(), insert(3).data()]
+    }
+
+    def "recovery discards a torn record at the end of the spool"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig())
+        appendTransaction(spoolLog, 1, 10, 1)
+        spoolLog.sync()
+        def segmentSizeBeforeTear = spoolLog.durablePosition().offset()
+        appendTransaction(spoolLog, 2, 20, 2)
+        spoolLog.sync()
+        corruptByteAt(segmentFiles().first(), segmentSizeBeforeTear + SpoolSegment.HEADER_BYTES + 2)
+
+        when:
+        def recovered = SpoolLog.open(spoolConfig())
+
+        then:
+        recovered.lastSpooledLsn() == 10
+        readAll(reader(recovered)).findAll { it instanceof CapturedInsert }*.data() == [insert(1).data()]
+    }
+
+    def "checkpointing deletes published segments and reopening resumes reading from the checkpoint"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig(256))
+        (1..5).each { appendTransaction(spoolLog, it, it * 10, it) }
+        spoolLog.sync()
+        def stream = reader(spoolLog)
+        def segmentsBeforeCheckpoint = segmentFiles().size()
+        readAll(stream)
+
+        when:
+        stream.acknowledge(40)
+        stream.close()
+
+        then:
+        segmentFiles().size() < segmentsBeforeCheckpoint
+
+        when:
+        def reopened = SpoolLog.open(spoolConfig(256))
+
+        then:
+        readAll(reader(reopened)) == [new TransactionBegin(5), insert(5), new TransactionCommit(5, 50, null)]
+    }
+
+    def "keepalives are boundaries that can be read and acknowledged"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig())
+        spoolLog.append(5, KEEPALIVE, ByteBuffer.allocate(0))
+        spoolLog.sync()
+
+        expect:
+        spoolLog.lastSpooledLsn() == 5
+        readAll(reader(spoolLog)) == [new Keepalive(5)]
+    }
+
+    private SpoolConfiguration spoolConfig(int segmentSizeInBytes = 64 * 1024) {
+        SpoolConfiguration.builder()
+                .directory(directory)
+                .segmentSizeInBytes(segmentSizeInBytes)
+                .checkpointIntervalInMillis(0)
+                .build()
+    }
+
+    private SpoolReplicationStream reader(SpoolLog spoolLog) {
+        new SpoolReplicationStream(
+                spoolLog,
+                spoolConfig(),
+                replicationConfig,
+                new ReplicationMetrics()
+        )
+    }
+
+    private static List<ChangeDataCaptureMessage> readAll(SpoolReplicationStream stream) {
+        def messages = []
+        def more = true
+        while (more) {
+            more = false
+            stream.processNextChangeDataCaptureMessage({ messages << it; more = true }, {})
+        }
+        messages
+    }
+
+    private static void appendTransaction(SpoolLog spoolLog, long xid, long commitLsn, long id) {
+        spoolLog.append(commitLsn - 2, TRANSACTION_BEGIN, begin(xid))
+        spoolLog.append(commitLsn - 1, CHANGE, insertMessage(id))
+        spoolLog.append(commitLsn, TRANSACTION_COMMIT, buffer("""{"action":"C","xid":$xid}"""))
+    }
+
+    private static ByteBuffer begin(long xid) {
+        buffer("""{"action":"B","xid":$xid}""")
+    }
+
+    private static ByteBuffer insertMessage(long id) {
+        buffer("""{"action":"I","schema":"public","table":"events","columns":[{"name":"id","type":"bigint","value":$id}]}""")
+    }
+
+    private static CapturedInsert insert(long id) {
+        new CapturedInsert(TABLE, new Data(id: id))
+    }
+
+    private static ByteBuffer buffer(String json) {
+        ByteBuffer.wrap(json.getBytes(UTF_8))
+    }
+
+    private List<Path> segmentFiles() {
+        Files.list(directory).withCloseable { files ->
+            files.filter { it.fileName.toString().endsWith(SpoolSegment.SUFFIX) }.sorted().toList()
+        }
+    }
+
+    private static void corruptByteAt(Path file, int offset) {
+        def bytes = Files.readAllBytes(file)
+        bytes[offset] = (byte) (bytes[offset] ^ 0xFF)
+        Files.write(file, bytes)
+    }
+}
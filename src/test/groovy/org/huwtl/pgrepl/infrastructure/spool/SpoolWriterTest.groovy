@@ -0,0 +1,133 @@
+package org.huwtl.pgrepl.infrastructure.spool
+
+import org.huwtl.pgrepl.ReplicationConfiguration
+import org.huwtl.pgrepl.application.services.DelayService
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import org.huwtl.pgrepl.application.services.replication.RawReplicationStreamProvider
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Path
+
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedInsert
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.Keepalive
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
+
+class SpoolWriterTest extends Specification {
+    private static final CapturedTable TABLE = new CapturedTable("public", "events")
+
+    @TempDir
+    private Path directory
+
+    private def replicationConfig = ReplicationConfiguration.builder()
+            .slotName("spool")
+            .tableToDetectChangesFrom(TABLE)
+            .build()
+
+    def "acknowledges only spooled transaction commits and keepalives outside of transactions"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig())
+        def writer = writer(spoolLog, Stub(RawReplicationStreamProvider))
+        def rawStream = new ScriptedRawReplicationStream({ writer.close() })
+                .message(8, begin(1))
+                .message(9, insert(1))
+                .keepalive(9)
+                .idle()
+                .message(10, commit(1))
+                .idle()
+                .keepalive(15)
+                .keepalive(15)
+                .idle()
+                .message(18, begin(2))
+                .message(19, insert(2))
+
+        when:
+        writer.spool(rawStream)
+
+        then:
+        rawStream.acknowledgedLsns == [10L, 15L]
+        spoolLog.lastSpooledLsn() == 15
+        readAll(spoolLog).findAll { !(it instanceof CapturedInsert) } == [
+                new TransactionBegin(1),
+                new TransactionCommit(1, 10, null),
+                new Keepalive(15)
+        ]
+    }
+
+    def "discards an incomplete transaction and continues spooling after reconnecting"() {
+        given:
+        def spoolLog = SpoolLog.open(spoolConfig())
+        def failing = new ScriptedRawReplicationStream()
+                .message(8, begin(1))
+                .message(9, insert(1))
+                .message(10, commit(1))
+                .idle()
+                .message(18, begin(2))
+                .message(19, insert(2))
+                .failure()
+        def reconnected = new ScriptedRawReplicationStream()
+                .message(18, begin(2))
+                .message(19, insert(2))
+                .message(20, commit(2))
+        def streams = new ArrayDeque([failing, reconnected])
+        def writer = writer(spoolLog, { streams.size() > 1 ? streams.removeFirst() : streams.peekFirst() } as RawReplicationStreamProvider)
+
+        when:
+        writer.start()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert reconnected.acknowledgedLsns == [20L]
+        }
+        failing.acknowledgedLsns == [10L]
+        readAll(spoolLog).findAll { it instanceof TransactionBegin } == [new TransactionBegin(1), new TransactionBegin(2)]
+
+        cleanup:
+        writer.close()
+    }
+
+    private SpoolConfiguration spoolConfig() {
+        SpoolConfiguration.builder()
+                .directory(directory)
+                .segmentSizeInBytes(64 * 1024)
+                .groupCommitIntervalInMillis(60_000)
+                .build()
+    }
+
+    private SpoolWriter writer(SpoolLog spoolLog, RawReplicationStreamProvider provider) {
+        new SpoolWriter(
+                spoolLog,
+                spoolConfig(),
+                replicationConfig,
+                provider,
+                new ReplicationMetrics(),
+                Stub(DelayService)
+        )
+    }
+
+    private List readAll(SpoolLog spoolLog) {
+        def stream = new SpoolReplicationStream(spoolLog, spoolConfig(), replicationConfig, new ReplicationMetrics())
+        def messages = []
+        def more = true
+        while (more) {
+            more = false
+            stream.processNextChangeDataCaptureMessage({ messages << it; more = true }, {})
+        }
+        messages
+    }
+
+    private static String begin(long xid) {
+        """{"action":"B","xid":$xid}"""
+    }
+
+    private static String insert(long id) {
+        """{"action":"I","schema":"public","table":"events","columns":[{"name":"id","type":"bigint","value":$id}]}"""
+    }
+
+    private static String commit(long xid) {
+        """{"action":"C","xid":$xid}"""
+    }
+}
@@ -0,0 +1,414 @@
+package org.huwtl.pgrepl.infrastructure.wal2json
+
+import org.huwtl.pgrepl.ObjectMapperFactory
+import org.huwtl.pgrepl.application.services.metrics.ReplicationMetrics
+import org.huwtl.pgrepl.application.services.publisher.ColumnType
+import org.huwtl.pgrepl.application.services.publisher.Data
+import org.huwtl.pgrepl.application.services.replication.CapturedTable
+import org.huwtl.pgrepl.application.services.replication.IgnoredMessage
+import org.huwtl.pgrepl.application.services.replication.InvalidRowPredicateException
+import org.huwtl.pgrepl.application.services.replication.RowFilter
+import org.huwtl.pgrepl.application.services.replication.RowPredicate
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.time.Instant
+import java.time.LocalDate
+import java.time.LocalDateTime
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedDelete
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.CapturedUpdate
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionBegin
+import static org.huwtl.pgrepl.application.services.replication.ReplicationStreamMessage.TransactionCommit
+
+class Wal2JsonMessageDecoderTest extends Specification {
+    @Shared
+    private def schema = "schema1"
+    @Shared
+    private def table = "table1"
+
+    private def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [new CapturedTable(schema, table)])
+
+    @Unroll
+    def "retrieves data inserted into a given table of a schema (updates and deletes are ignored)"() {
+        when:
+        def message = decoder.decode(buffer(json), anyLsn())
+
+        then:
+        message.capturedInserts()*.data() == capturedData
+
+        where:
+        json                                                                     || capturedData
+        insert(schema, table, '{"name":"a","value":"1"}')                        || [new Data("a": "1")]
+        insert("SCHEMA1", "TABLE1", '{"name":"a","value":"1"}')                  || [new Data("a": "1")]
+        insert(schema, table, '{"name":"a","value":"1"},{"name":"b","value":2}') || [new Data("a": "1", "b": 2)]
+        insert(schema, table, '{"name":"a","value":null}')                       || [new Data("a": null)]
+        insert(schema, table, '')                                                || [new Data([:])]
+        insert(schema, "table-non-matching", '{"name":"a","value":"1"}')         || []
+        insert("schema-non-matching", table, '{"name":"a","value":"1"}')         || []
+        change("U", schema, table)                                               || []
+        change("D", schema, table)                                               || []
+        change("T", schema, table)                                               || []
+        '{"action":"M","transactional":false,"prefix":"p","content":"c"}'        || []
+    }
+
+    @Unroll
+    def "decodes column value #json into #expectedValue"() {
+        when:
+        def message = decoder.decode(buffer(insert(schema, table, """{"name":"a","type":"any","value":$json}""")), anyLsn())
+
+        then:
+        message.capturedInserts()*.data() == [new Data("a": expectedValue)]
+
+        where:
+        json                   || expectedValue
+        '"text"'               || "text"
+        '"with \\"escapes\\""' || 'with "escapes"'
+        '1'                    || 1
+        '10000000000'          || 10000000000L
+        '1.5'                  || 1.5d
+        'true'                 || true
+        'false'                || false
+        'null'                 || null
+    }
+
+    @Unroll
+    def "decodes #type column value #json into #expectedValue"() {
+        when:
+        def message = decoder.decode(buffer(insert(schema, table, """{"name":"a","type":"$type","value":$json}""")), anyLsn())
+
+        then:
+        def data = message.capturedInserts()*.data().first()
+        data.value(0) == expectedValue
+        data.value(0)?.getClass() == expectedValue?.getClass()
+        data.schema().type(0) == expectedType
+
+        where:
+        type                             | json                                                 || expectedType                        | expectedValue
+        "smallint"                       | '1'                                                  || ColumnType.INTEGER                  | 1L
+        "integer"                        | '2'                                                  || ColumnType.INTEGER                  | 2L
+        "bigint"                         | '10000000000'                                        || ColumnType.INTEGER                  | 10000000000L
+        "real"                           | '1.5'                                                || ColumnType.FLOAT                    | 1.5d
+        "double precision"               | '"NaN"'                                              || ColumnType.FLOAT                    | Double.NaN
+        "boolean"                        | 'true'                                               || ColumnType.BOOLEAN                  | true
+        "numeric(10,2)"                  | '12.50'                                              || ColumnType.NUMERIC                  | new BigDecimal("12.50")
+        "numeric"                        | '"NaN"'                                              || ColumnType.NUMERIC                  | "NaN"
+        "character varying(255)"         | '"text"'                                             || ColumnType.TEXT                     | "text"
+        "uuid"                           | '"0b5c4a4e-0a94-4a26-9d6c-5a3c1b2a8e11"'             || ColumnType.UUID                     | UUID.fromString("0b5c4a4e-0a94-4a26-9d6c-5a3c1b2a8e11")
+        "date"                           | '"2023-05-10"'                                       || ColumnType.DATE                     | LocalDate.parse("2023-05-10")
+        "date"                           | '"infinity"'                                         || ColumnType.DATE                     | LocalDate.MAX
+        "timestamp without time zone"    | '"2023-05-10 10:15:30.123456"'                       || ColumnType.TIMESTAMP                | LocalDateTime.parse("2023-05-10T10:15:30.123456")
+        "timestamp(3) without time zone" | '"2023-05-10 10:15:30.123"'                          || ColumnType.TIMESTAMP                | LocalDateTime.parse("2023-05-10T10:15:30.123")
+        "timestamp with time zone"       | '"2023-05-10 10:15:30+02"'                           || ColumnType.TIMESTAMP_WITH_TIME_ZONE | Instant.parse("2023-05-10T08:15:30Z")
+        "timestamp with time zone"       | '"-infinity"'                                        || ColumnType.TIMESTAMP_WITH_TIME_ZONE | Instant.MIN
+        "jsonb"                          | '"{\\"b\\": [1, 2]}"'                            || ColumnType.JSON                     | ObjectMapperFactory.objectMapper().readTree('{"b":[1,2]}')
+        "integer[]"                      | '"{1,2}"'                                            || ColumnType.OTHER                    | "{1,2}"
+        "integer"                        | 'null'                                               || ColumnType.INTEGER                  | null
+    }
+
+    def "counts column values published as text because they cannot be parsed as their column type"() {
+        given:
+        def metrics = new ReplicationMetrics()
+        def counting = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [new CapturedTable(schema, table)], false, RowFilter.NONE, metrics)
+        def row = { String json -> buffer(insert(schema, table, '{"name":"a","type":"numeric","value":' + json + '}')) }
+
+        when:
+        def messages = ['1.5', '"NaN"', '"Infinity"'].collect { counting.decode(row(it), anyLsn()) }
+
+        then:
+        messages.collectMany { it.capturedInserts() }*.data()*.value(0) == [new BigDecimal("1.5"), "NaN", "Infinity"]
+        metrics.registry().samples().find { it.name() == "pgrepl_unparsed_values_total" }.value() == 2
+    }
+
+    def "decodes primitive columns without boxing them"() {
+        when:
+        def data = decoder.decode(buffer(insert(schema, table,
+                '{"name":"id","type":"bigint","value":7},{"name":"price","type":"double precision","value":2.5},' +
+                        '{"name":"active","type":"boolean","value":false}'
+        )), anyLsn()).capturedInserts()*.data().first()
+
+        then:
+        data.getLong("id") == 7L
+        data.getDouble("price") == 2.5d
+        !data.getBoolean("active")
+    }
+
+    def "caches the schema of a table until its column types change"() {
+        when:
+        def rows = [
+                '{"name":"a","type":"integer","value":1}',
+                '{"name":"a","type":"integer","value":2}',
+                '{"name":"a","type":"bigint","value":3}',
+        ].collect { decoder.decode(buffer(insert(schema, table, it)), anyLsn()).capturedInserts()*.data().first() }
+
+        then:
+        rows[0].schema().is(rows[1].schema())
+        !rows[1].schema().is(rows[2].schema())
+        rows*.getLong("a") == [1L, 2L, 3L]
+    }
+
+    def "decodes transaction boundaries"() {
+        expect:
+        decoder.decode(buffer('{"action":"B","xid":666}'), anyLsn()) == new TransactionBegin(666)
+        decoder.decode(buffer('{"action":"C","xid":666}'), anyLsn()) == new TransactionCommit(666, anyLsn(), null)
+    }
+
+    @Unroll
+    def "decodes commit timestamp #timestamp"() {
+        expect:
+        decoder.decode(buffer("""{"action":"C","xid":666,"timestamp":"$timestamp"}"""), anyLsn()) ==
+                new TransactionCommit(666, anyLsn(), Instant.parse(expectedInstant))
+
+        where:
+        timestamp                        || expectedInstant
+        "2023-05-10 10:15:30.123456+00"  || "2023-05-10T10:15:30.123456Z"
+        "2023-05-10 10:15:30+00"         || "2023-05-10T10:15:30Z"
+        "2023-05-10 10:15:30.5+05:30"    || "2023-05-10T04:45:30.500Z"
+        "2023-05-10 10:15:30.123-03"     || "2023-05-10T13:15:30.123Z"
+    }
+
+    @Unroll
+    def "decodes recorded wal2json stream #fixture"() {
+        given:
+        def decoder = new Wal2JsonMessageDecoder(
+                ObjectMapperFactory.objectMapper(),
+                [new CapturedTable("replication_test", "events")]
+        )
+
+        when:
+        def messages = recordedMessages(fixture).withIndex().collect { json, index ->
+            decoder.decode(buffer(json), index)
+        }
+
+        then:
+        messages.findAll { it instanceof TransactionBegin } == [new TransactionBegin(xid)]
+        messages.findAll { it instanceof TransactionCommit } == [
+                new TransactionCommit(xid, messages.size() - 1, commitTimestamp ? Instant.parse(commitTimestamp) : null)
+        ]
+        messages.collectMany { it.capturedInserts()*.data() } == capturedData
+
+        where:
+        fixture                                || xid  | commitTimestamp               | capturedData
+        "filtered_insert_transaction.ndjson"   || 5678 | "2023-05-10T10:15:30.123456Z" | [new Data(id: 1, data: "some data 1"), new Data(id: 2, data: "some data 2")]
+        "unfiltered_mixed_transaction.ndjson"  || 5679 | null                          | [new Data(id: 3L, data: "some data 3")]
+    }
+
+    @Unroll
+    def "routes insert into #insertedSchema.#insertedTable to captured table #expectedTable"() {
+        given:
+        def capturedTables = [
+                new CapturedTable("sales", "orders"),
+                new CapturedTable("sales", "refunds"),
+                new CapturedTable("stock", "orders"),
+        ]
+        def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), capturedTables)
+
+        when:
+        def message = decoder.decode(buffer(insert(insertedSchema, insertedTable, '{"name":"a","value":"1"}')), anyLsn())
+
+        then:
+        message.capturedInserts()*.table().collect { capturedTables.indexOf(it) } == expectedTable
+
+        where:
+        insertedSchema | insertedTable || expectedTable
+        "sales"        | "orders"      || [0]
+        "SALES"        | "Refunds"     || [1]
+        "stock"        | "orders"      || [2]
+        "stock"        | "refunds"     || []
+        "other"        | "orders"      || []
+    }
+
+    def "returns the captured table instance it was configured with"() {
+        given:
+        def capturedTable = new CapturedTable(schema, table)
+        def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [capturedTable])
+
+        expect:
+        decoder.decode(buffer(insert(schema, table, '')), anyLsn()).capturedInserts()
+                .collect { it.table().is(capturedTable) } == [true]
+    }
+
+    def "rejects captured tables whose names only differ by case"() {
+        when:
+        new Wal2JsonMessageDecoder(
+                ObjectMapperFactory.objectMapper(),
+                [new CapturedTable(schema, "orders"), new CapturedTable(schema, "ORDERS")]
+        )
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "shares the schema of consecutive rows of a table"() {
+        when:
+        def rows = [
+                insert(schema, table, '{"name":"a","value":"1"},{"name":"b","value":2}'),
+                insert(schema, table, '{"name":"a","value":"3"},{"name":"b","value":4}'),
+                insert(schema, table, '{"name":"a","value":"5"}'),
+                insert(schema, table, '{"name":"a","value":"6"},{"name":"c","value":7}'),
+        ].collect { decoder.decode(buffer(it), anyLsn()).capturedInserts()*.data().first() }
+
+        then:
+        rows == [
+                new Data(a: "1", b: 2),
+                new Data(a: "3", b: 4),
+                new Data(a: "5"),
+                new Data(a: "6", c: 7),
+        ]
+        rows[0].schema().is(rows[1].schema())
+        !rows[2].schema().is(rows[1].schema())
+        rows[3].schema().names() == ["a", "c"]
+    }
+
+    def "decodes updates with their identity and deletes when capturing them"() {
+        given:
+        def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [new CapturedTable(schema, table)], true)
+        def update = """{"action":"U","schema":"$schema","table":"$table",""" +
+                '"columns":[{"name":"id","type":"integer","value":2},{"name":"b","type":"text","value":"x"}],' +
+                '"identity":[{"name":"id","type":"integer","value":1}]}'
+        def delete = """{"action":"D","schema":"$schema","table":"$table",""" +
+                '"identity":[{"name":"id","type":"integer","value":2}]}'
+
+        when:
+        def updated = decoder.decode(buffer(update), anyLsn())
+        def deleted = decoder.decode(buffer(delete), anyLsn())
+
+        then:
+        updated == new CapturedUpdate(new CapturedTable(schema, table), new Data("id": 1L), new Data("id": 2L, "b": "x"))
+        updated.capturedInserts() == []
+        deleted == new CapturedDelete(new CapturedTable(schema, table), new Data("id": 2L))
+        decoder.decode(buffer(change("U", "schema-non-matching", table)), anyLsn()).is(IgnoredMessage.INSTANCE)
+    }
+
+    def "does not materialise data of changes that are not captured"() {
+        when:
+        def message = decoder.decode(buffer(insert("schema-non-matching", table, '{"name":"a","value":"1"}')), anyLsn())
+
+        then:
+        message.is(IgnoredMessage.INSTANCE)
+    }
+
+    def "skips the leading changes of a transaction already published according to a checkpoint"() {
+        given:
+        decoder.skipChanges(42, 2)
+        def row = { String value -> buffer(insert(schema, table, """{"name":"a","value":"$value"}""")) }
+        def uncapturedRow = buffer(insert("schema-non-matching", table, '{"name":"a","value":"x"}'))
+
+        when:
+        def otherTransaction = [buffer('{"action":"B","xid":41}'), row("a")]
+                .collect { decoder.decode(it, anyLsn()) }
+        def checkpointedTransaction = [buffer('{"action":"B","xid":42}'), row("b"), uncapturedRow, row("c"), row("d")]
+                .collect { decoder.decode(it, anyLsn()) }
+        def replayedTransaction = [buffer('{"action":"B","xid":42}'), row("e")]
+                .collect { decoder.decode(it, anyLsn()) }
+
+        then:
+        otherTransaction.collectMany { it.capturedInserts() }*.data() == [new Data("a": "a")]
+        checkpointedTransaction[0] == new TransactionBegin(42)
+        checkpointedTransaction.collectMany { it.capturedInserts() }*.data() == [new Data("a": "d")]
+        replayedTransaction.collectMany { it.capturedInserts() }*.data() == [new Data("a": "e")]
+    }
+
+    def "only materialises rows matching the row predicate of their table"() {
+        given:
+        def capturedTable = new CapturedTable(schema, table)
+        def metrics = new ReplicationMetrics()
+        def rowFilter = new RowFilter([(capturedTable): RowPredicate.parse("a > 1")], metrics)
+        def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [capturedTable], true, rowFilter, metrics)
+        def row = { long value -> buffer(insert(schema, table, """{"name":"a","type":"bigint","value":$value}""")) }
+        def delete = { long value ->
+            buffer("""{"action":"D","schema":"$schema","table":"$table","identity":[{"name":"a","type":"bigint","value":$value}]}""")
+        }
+        decoder.skipChanges(42, 1)
+
+        when:
+        def messages = [buffer('{"action":"B","xid":42}'), row(1), row(2), row(3), delete(1), delete(4)]
+                .collect { decoder.decode(it, anyLsn()) }
+
+        then:
+        messages.collectMany { it.capturedInserts() }*.data() == [new Data("a": 3L)]
+        messages[4].is(IgnoredMessage.INSTANCE)
+        messages[5] == new CapturedDelete(capturedTable, new Data("a": 4L))
+        metrics.registry().samples().find { it.name() == "pgrepl_rows_evaluated_total" }.value() == 5
+        metrics.registry().samples().find { it.name() == "pgrepl_rows_accepted_total" }.value() == 3
+    }
+
+    def "keeps decoding messages after one was abandoned part way through or was incomplete"() {
+        given:
+        def capturedTable = new CapturedTable(schema, table)
+        def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [capturedTable])
+        def row = { String value -> buffer(insert(schema, table, """{"name":"a","type":"text","value":"$value"}""")) }
+
+        expect:
+        decoder.decode(row("b"), anyLsn()).capturedInserts()*.data() == [new Data("a": "b")]
+        decoder.decode(buffer(insert(schema, "other_table", '{"name":"a","type":"text","value":"c"}')), anyLsn())
+                .is(IgnoredMessage.INSTANCE)
+        decoder.decode(row("d"), anyLsn()).capturedInserts()*.data() == [new Data("a": "d")]
+
+        when:
+        decoder.decode(buffer("""{"action":"I","schema":"$schema","table":"$table","columns":["""), anyLsn())
+
+        then:
+        thrown(IOException)
+        decoder.decode(row("e"), anyLsn()).capturedInserts()*.data() == [new Data("a": "e")]
+    }
+
+    def "rejects a row predicate whose literal cannot be compared with the type of its column"() {
+        given:
+        def capturedTable = new CapturedTable(schema, table)
+        def rowFilter = new RowFilter([(capturedTable): RowPredicate.parse("a = 'abc'")], new ReplicationMetrics())
+        def decoder = new Wal2JsonMessageDecoder(ObjectMapperFactory.objectMapper(), [capturedTable], true, rowFilter, new ReplicationMetrics())
+
+        when:
+        decoder.decode(buffer(insert(schema, table, '{"name":"a","type":"bigint","value":1}')), anyLsn())
+
+        then:
+        def error = thrown(InvalidRowPredicateException)
+        error.message.contains("a = 'abc'")
+        error.message.contains("column a of type INTEGER")
+    }
+
+    @Unroll
+    def "decodes only the remaining bytes of a #description buffer"() {
+        given:
+        def json = insert(schema, table, '{"name":"a","value":"1"}')
+
+        expect:
+        decoder.decode(bufferFactory(json), anyLsn()).capturedInserts()*.data() == [new Data("a": "1")]
+
+        where:
+        description       | bufferFactory
+        "heap"            | { String payload -> buffer(payload) }
+        "positioned heap" | { String payload -> buffer("garbage" + payload).position("garbage".length()) }
+        "sliced heap"     | { String payload -> buffer("garbage" + payload).position("garbage".length()).slice() }
+        "direct"          | { String payload -> directBuffer(payload) }
+    }
+
+    private static String insert(String schema, String table, String columns) {
+        """{"action":"I","schema":"$schema","table":"$table","columns":[$columns]}"""
+    }
+
+    private static String change(String action, String schema, String table) {
+        """{"action":"$action","schema":"$schema","table":"$table","columns":[{"name":"a","value":"1"}],"identity":[]}"""
+    }
+
+    private static List<String> recordedMessages(String fixture) {
+        Wal2JsonMessageDecoderTest.getResourceAsStream("/wal2json/$fixture").readLines("UTF-8")
+    }
+
+    private static ByteBuffer buffer(String json) {
+        ByteBuffer.wrap(json.getBytes(UTF_8))
+    }
+
+    private static ByteBuffer directBuffer(String json) {
+        def bytes = json.getBytes(UTF_8)
+        ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()
+    }
+
+    private static long anyLsn() {
+        12345
+    }
+}